@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.Bus;
+import main.DijkstraGridNavigator;
+import main.GenericLVGridExtension;
+import main.GridSection;
+
+/**
+ * Measures the extension algorithm itself: reporting the overloads of a
+ * loadflow result and finding the extension for them.
+ *
+ * @author Christopher Olk
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ExtensionBenchmark {
+
+	/**
+	 * The overloads of the grid and an extension algorithm they have been
+	 * reported to
+	 */
+	@State(Scope.Benchmark)
+	public static class ReportedOverloads {
+
+		@Param({ "1", "16" })
+		public int trackedOverloadCount;
+
+		public List<GridSection> currentOverloads;
+
+		public List<Bus> voltageOverloads;
+
+		public DijkstraGridNavigator navigator;
+
+		public GenericLVGridExtension extension;
+
+		@Setup(Level.Trial)
+		public void report(GridState state) {
+			currentOverloads = state.grid.findCurrentOverloads(1.0);
+			voltageOverloads = state.grid.findVoltageOverloads(0.9, 1.1);
+			navigator = new DijkstraGridNavigator(state.graph);
+			extension = newExtension(this);
+		}
+
+	}
+
+	private static GenericLVGridExtension newExtension(ReportedOverloads overloads) {
+		GenericLVGridExtension extension = new GenericLVGridExtension(overloads.navigator);
+		extension.setTrackedOverloadCount(overloads.trackedOverloadCount);
+		for (GridSection section : overloads.currentOverloads) {
+			extension.reportCurrentOverload(section);
+		}
+		for (Bus bus : overloads.voltageOverloads) {
+			extension.reportVoltageOverload(bus);
+		}
+		return extension;
+	}
+
+	@Benchmark
+	public GenericLVGridExtension reportOverloads(GridState state, ReportedOverloads overloads) {
+		return newExtension(overloads);
+	}
+
+	@Benchmark
+	public Bus[] findBusesToExtendBetween(GridState state, ReportedOverloads overloads) {
+		return overloads.extension.findBusesToExtendBetween();
+	}
+
+	@Benchmark
+	public List<Bus[]> findNonInterferingExtensions(GridState state, ReportedOverloads overloads) {
+		return overloads.extension.findNonInterferingExtensions();
+	}
+
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.GridGraph;
+
+/**
+ * The generated grid shared by all threads of a benchmark. It is generated
+ * once per trial, as the loadflow of the largest grids takes seconds.
+ *
+ * @author Christopher Olk
+ *
+ */
+@State(Scope.Benchmark)
+public class GridState {
+
+	@Param({ "RADIAL", "LOOP", "MESHED" })
+	public SyntheticGrid.Topology topology;
+
+	@Param({ "100", "10000", "1000000" })
+	public int busCount;
+
+	public SyntheticGrid grid;
+
+	public GridGraph graph;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		grid = SyntheticGrid.generate(topology, busCount, 42);
+		graph = GridGraph.compile(grid.getBuses());
+	}
+
+}
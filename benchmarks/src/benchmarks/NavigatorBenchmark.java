@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.Bus;
+import main.ContractionHierarchyNavigator;
+import main.DijkstraGridNavigator;
+import main.GoalDirectedGridNavigator;
+import main.GridGraph;
+import main.GridNavigator;
+import main.GridSection;
+import main.RadialGridNavigator;
+
+/**
+ * Measures single route queries of the navigators between random buses.
+ *
+ * @author Christopher Olk
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class NavigatorBenchmark {
+
+	private static final int ROUTE_COUNT = 1024;
+
+	/**
+	 * The navigators compared
+	 */
+	public enum NavigatorType {
+		DIJKSTRA, RADIAL_OR_DIJKSTRA, CONTRACTION_HIERARCHY, BIDIRECTIONAL, GOAL_DIRECTED;
+
+		GridNavigator create(GridGraph graph, Bus slackBus) {
+			switch (this) {
+			case DIJKSTRA:
+				return new DijkstraGridNavigator(graph);
+			case RADIAL_OR_DIJKSTRA:
+				return RadialGridNavigator.create(graph, slackBus);
+			case CONTRACTION_HIERARCHY:
+				return new ContractionHierarchyNavigator(graph);
+			case BIDIRECTIONAL:
+				return new GoalDirectedGridNavigator(graph, GoalDirectedGridNavigator.SearchMode.BIDIRECTIONAL);
+			default:
+				return new GoalDirectedGridNavigator(graph, GoalDirectedGridNavigator.SearchMode.GOAL_DIRECTED);
+			}
+		}
+	}
+
+	/**
+	 * The navigator and the routes it is asked for, which are the same for
+	 * every navigator
+	 */
+	@State(Scope.Thread)
+	public static class Routes {
+
+		@Param({ "DIJKSTRA", "RADIAL_OR_DIJKSTRA", "CONTRACTION_HIERARCHY", "BIDIRECTIONAL", "GOAL_DIRECTED" })
+		public NavigatorType navigatorType;
+
+		public GridNavigator navigator;
+
+		public Bus[] startBuses = new Bus[ROUTE_COUNT];
+
+		public Bus[] goalBuses = new Bus[ROUTE_COUNT];
+
+		public int next = 0;
+
+		@Setup(Level.Trial)
+		public void prepare(GridState state) {
+			navigator = navigatorType.create(state.graph, state.grid.getSlackBus());
+			Random random = new Random(7);
+			for (int i = 0; i < ROUTE_COUNT; i++) {
+				startBuses[i] = state.graph.getBus(random.nextInt(state.graph.getBusCount()));
+				goalBuses[i] = state.graph.getBus(random.nextInt(state.graph.getBusCount()));
+			}
+		}
+
+	}
+
+	@Benchmark
+	public GridSection[] getShortestRoute(GridState state, Routes routes) {
+		int i = routes.next;
+		routes.next = (i + 1) % ROUTE_COUNT;
+		return routes.navigator.getShortestRoute(routes.startBuses[i], routes.goalBuses[i]);
+	}
+
+}
@@ -0,0 +1,378 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import main.Bus;
+import main.CompactGrid;
+import main.CurrentInjectionLoadFlow;
+import main.GridGraph;
+import main.GridSection;
+import main.ImpedanceGridSection;
+import main.LoadBus;
+import main.LocatedBus;
+import main.WeightedGridSection;
+
+/**
+ * Generates low voltage grids of any size for the benchmarks. The slack bus
+ * stands for the medium voltage grid, which feeds substations of eight
+ * feeders each. A feeder supplies about 50 houses in steps of about 20 m, so
+ * it is about 1 km long and branches now and then. The cables are NAYY 4x150
+ * on a base of 400 V and 100 kVA.
+ * <p>
+ * Every fifth feeder supplies heat pumps or charging stations and carries
+ * three times the load, which overloads its first sections and lets its
+ * voltage drop below the lower bound. The voltages and currents are
+ * calculated with a {@link CurrentInjectionLoadFlow}, so the profiles are
+ * those of a real loadflow.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class SyntheticGrid {
+
+	/**
+	 * The topology of the generated grid
+	 */
+	public enum Topology {
+		/**
+		 * Feeders that form trees
+		 */
+		RADIAL,
+		/**
+		 * The ends of neighbouring feeders are connected, as in grids operated
+		 * with closed loops
+		 */
+		LOOP,
+		/**
+		 * Neighbouring feeders are connected every few houses, as in city
+		 * grids
+		 */
+		MESHED
+	}
+
+	public static final int HOUSES_PER_FEEDER = 50;
+
+	public static final int FEEDERS_PER_SUBSTATION = 8;
+
+	/**
+	 * The distance between neighbouring houses in m.
+	 */
+	private static final double HOUSE_DISTANCE = 20;
+
+	/**
+	 * NAYY 4x150: 0.206 Ohm/km, 0.08 Ohm/km, 275 A. The base impedance is
+	 * 1.6 Ohm, the base current 144 A.
+	 */
+	private static final double RESISTANCE_PER_METRE = 0.206e-3 / 1.6;
+
+	private static final double REACTANCE_PER_METRE = 0.08e-3 / 1.6;
+
+	private static final double RATED_CURRENT = 275.0 / 144.3;
+
+	/**
+	 * 2 kW per house with a power factor of 0.95.
+	 */
+	private static final double HOUSE_ACTIVE_POWER = 0.02;
+
+	private static final double HOUSE_REACTIVE_POWER = 0.0066;
+
+	private static final double HEAVY_LOAD_FACTOR = 3;
+
+	private final Topology topology;
+
+	private final List<SyntheticBus> buses;
+
+	private final List<SyntheticSection> sections;
+
+	private final SyntheticBus slackBus;
+
+	private SyntheticGrid(Topology topology, List<SyntheticBus> buses, List<SyntheticSection> sections,
+			SyntheticBus slackBus) {
+		this.topology = topology;
+		this.buses = buses;
+		this.sections = sections;
+		this.slackBus = slackBus;
+	}
+
+	/**
+	 * Generates a grid and calculates its voltages and currents
+	 *
+	 * @param topology
+	 * @param busCount
+	 *            The approximate number of buses, at least one feeder is
+	 *            generated
+	 * @param seed
+	 *            The seed of the random numbers, the same seed gives the same
+	 *            grid
+	 * @return
+	 */
+	public static SyntheticGrid generate(Topology topology, int busCount, long seed) {
+		Random random = new Random(seed);
+		List<SyntheticBus> buses = new ArrayList<SyntheticBus>(busCount + busCount / 50);
+		List<SyntheticSection> sections = new ArrayList<SyntheticSection>(busCount + busCount / 10);
+		SyntheticBus slackBus = new SyntheticBus(0, 0, 0, 0);
+		buses.add(slackBus);
+
+		int feederCount = Math.max(1, busCount / (HOUSES_PER_FEEDER + 1));
+		int substationCount = (feederCount + FEEDERS_PER_SUBSTATION - 1) / FEEDERS_PER_SUBSTATION;
+		int substationsPerRow = (int) Math.ceil(Math.sqrt(substationCount));
+		List<List<SyntheticBus>> feeders = new ArrayList<List<SyntheticBus>>(feederCount);
+		for (int s = 0; s < substationCount; s++) {
+
+			/*
+			 * The substations are 2.5 km apart, so their feeders do not cross
+			 */
+			double x = 2500 * (s % substationsPerRow);
+			double y = 2500 * (s / substationsPerRow);
+			SyntheticBus substation = new SyntheticBus(x, y, 0, 0);
+			buses.add(substation);
+
+			/*
+			 * The medium voltage grid is stiff, but its links are as long as
+			 * the straight line, as LocatedBus requires
+			 */
+			double length = Math.sqrt(x * x + y * y) + 1;
+			SyntheticSection mediumVoltageLink = new SyntheticSection(slackBus, substation, length, 1e-4, 1e-4, 100);
+			sections.add(mediumVoltageLink);
+			for (int f = 0; f < FEEDERS_PER_SUBSTATION && feeders.size() < feederCount; f++) {
+				double angle = 2 * Math.PI * f / FEEDERS_PER_SUBSTATION;
+				boolean heavy = feeders.size() % 5 == 0;
+				feeders.add(generateFeeder(substation, angle, heavy, random, buses, sections));
+			}
+		}
+
+		if (topology == Topology.LOOP) {
+			for (int f = 0; f + 1 < feeders.size(); f += 2) {
+				List<SyntheticBus> first = feeders.get(f);
+				List<SyntheticBus> second = feeders.get(f + 1);
+				connect(first.get(first.size() - 1), second.get(second.size() - 1), sections);
+			}
+		} else if (topology == Topology.MESHED) {
+			for (int f = 0; f + 1 < feeders.size(); f++) {
+				List<SyntheticBus> first = feeders.get(f);
+				List<SyntheticBus> second = feeders.get(f + 1);
+				for (int i = 10; i < Math.min(first.size(), second.size()); i += 10) {
+					connect(first.get(i), second.get(i), sections);
+				}
+			}
+		}
+
+		SyntheticGrid grid = new SyntheticGrid(topology, buses, sections, slackBus);
+		grid.calculateLoadFlow();
+		return grid;
+	}
+
+	/**
+	 * Adds a feeder of {@link #HOUSES_PER_FEEDER} houses. Each house is
+	 * connected to one of the last three houses, so the feeder branches.
+	 *
+	 * @return The houses in the order they have been added
+	 */
+	private static List<SyntheticBus> generateFeeder(SyntheticBus substation, double angle, boolean heavy,
+			Random random, List<SyntheticBus> buses, List<SyntheticSection> sections) {
+		double loadFactor = heavy ? HEAVY_LOAD_FACTOR : 1;
+		List<SyntheticBus> houses = new ArrayList<SyntheticBus>(HOUSES_PER_FEEDER);
+		for (int i = 0; i < HOUSES_PER_FEEDER; i++) {
+			SyntheticBus parent = i == 0 ? substation : houses.get(Math.max(0, i - 1 - random.nextInt(3)));
+			double direction = angle + 0.6 * (random.nextDouble() - 0.5);
+			double distance = HOUSE_DISTANCE * (0.5 + random.nextDouble());
+			double load = loadFactor * (0.5 + random.nextDouble());
+			SyntheticBus house = new SyntheticBus(parent.getX() + distance * Math.cos(direction),
+					parent.getY() + distance * Math.sin(direction), load * HOUSE_ACTIVE_POWER,
+					load * HOUSE_REACTIVE_POWER);
+			buses.add(house);
+			houses.add(house);
+			connect(parent, house, sections);
+		}
+		return houses;
+	}
+
+	/**
+	 * Connects the buses by a cable 10 % longer than the straight line
+	 */
+	private static void connect(SyntheticBus first, SyntheticBus second, List<SyntheticSection> sections) {
+		double dx = second.getX() - first.getX();
+		double dy = second.getY() - first.getY();
+		double length = 1.1 * Math.sqrt(dx * dx + dy * dy) + 1;
+		sections.add(new SyntheticSection(first, second, length, length * RESISTANCE_PER_METRE,
+				length * REACTANCE_PER_METRE, RATED_CURRENT));
+	}
+
+	/**
+	 * Calculates the voltages and currents and stores them in the buses and
+	 * sections
+	 */
+	private void calculateLoadFlow() {
+		GridGraph graph = GridGraph.compile(buses);
+		CompactGrid state = CurrentInjectionLoadFlow.of(graph, slackBus).solve();
+		for (int i = 0; i < graph.getBusCount(); i++) {
+			((SyntheticBus) graph.getBus(i)).puVoltage = state.getPuVoltage(i);
+		}
+		for (int i = 0; i < graph.getSectionCount(); i++) {
+			((SyntheticSection) graph.getSection(i)).absSpecificCurrent = state.getAbsSpecificCurrent(i);
+		}
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns all buses, the slack bus first
+	 *
+	 * @return
+	 */
+	public List<? extends Bus> getBuses() {
+		return Collections.unmodifiableList(buses);
+	}
+
+	public List<? extends GridSection> getSections() {
+		return Collections.unmodifiableList(sections);
+	}
+
+	public Bus getSlackBus() {
+		return slackBus;
+	}
+
+	/**
+	 * Returns the sections whose specific current exceeds the limit
+	 *
+	 * @param maximumSpecificCurrent
+	 * @return
+	 */
+	public List<GridSection> findCurrentOverloads(double maximumSpecificCurrent) {
+		List<GridSection> overloads = new ArrayList<GridSection>();
+		for (SyntheticSection section : sections) {
+			if (section.getAbsSpecificCurrent() > maximumSpecificCurrent) {
+				overloads.add(section);
+			}
+		}
+		return overloads;
+	}
+
+	/**
+	 * Returns the buses whose voltage is outside the bounds
+	 *
+	 * @param lowerBound
+	 * @param upperBound
+	 * @return
+	 */
+	public List<Bus> findVoltageOverloads(double lowerBound, double upperBound) {
+		List<Bus> overloads = new ArrayList<Bus>();
+		for (SyntheticBus bus : buses) {
+			if (bus.getPuVoltage() < lowerBound || bus.getPuVoltage() > upperBound) {
+				overloads.add(bus);
+			}
+		}
+		return overloads;
+	}
+
+	/**
+	 * A house, substation or the slack bus
+	 */
+	static final class SyntheticBus implements LoadBus, LocatedBus {
+
+		private final double x;
+
+		private final double y;
+
+		private final double activePower;
+
+		private final double reactivePower;
+
+		private final List<GridSection> connectedSections = new ArrayList<GridSection>(3);
+
+		private double puVoltage = 1;
+
+		SyntheticBus(double x, double y, double activePower, double reactivePower) {
+			this.x = x;
+			this.y = y;
+			this.activePower = activePower;
+			this.reactivePower = reactivePower;
+		}
+
+		public double getPuVoltage() {
+			return puVoltage;
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return connectedSections;
+		}
+
+		public double getActivePower() {
+			return activePower;
+		}
+
+		public double getReactivePower() {
+			return reactivePower;
+		}
+
+		public double getX() {
+			return x;
+		}
+
+		public double getY() {
+			return y;
+		}
+
+	}
+
+	/**
+	 * A cable or the link of a substation to the medium voltage grid
+	 */
+	static final class SyntheticSection implements ImpedanceGridSection, WeightedGridSection {
+
+		private final Bus[] connectedBuses;
+
+		private final double length;
+
+		private final double resistance;
+
+		private final double reactance;
+
+		private final double ratedCurrent;
+
+		private double absSpecificCurrent = 0;
+
+		SyntheticSection(SyntheticBus first, SyntheticBus second, double length, double resistance,
+				double reactance, double ratedCurrent) {
+			this.connectedBuses = new Bus[] { first, second };
+			this.length = length;
+			this.resistance = resistance;
+			this.reactance = reactance;
+			this.ratedCurrent = ratedCurrent;
+			first.connectedSections.add(this);
+			second.connectedSections.add(this);
+		}
+
+		public double getAbsSpecificCurrent() {
+			return absSpecificCurrent;
+		}
+
+		public Bus[] getConnectedBuses() {
+			return connectedBuses;
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public double getResistance() {
+			return resistance;
+		}
+
+		public double getReactance() {
+			return reactance;
+		}
+
+		public double getRatedCurrent() {
+			return ratedCurrent;
+		}
+
+	}
+
+}
@@ -0,0 +1,172 @@
+package main;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A step of an {@link ExtensionPipeline} that processes the items it
+ * receives on a {@link ForkJoinPool} and publishes the results. At most
+ * {@code maximumConcurrency} items are requested from upstream at once, and
+ * the next one only after an item has been processed and its result has been
+ * handed on. The results are buffered for every subscriber up to the buffer
+ * capacity. If a subscriber falls behind, the stage waits for it and stops
+ * requesting, so a slow subscriber slows down the whole pipeline instead of
+ * filling the memory.
+ * <p>
+ * The results are published in the order they are finished. The stage
+ * completes once upstream has completed and all items have been processed.
+ * If processing an item fails, the subscription is cancelled and the
+ * subscribers get the error.
+ *
+ * @author Christopher Olk
+ *
+ * @param <T>
+ *            The items received
+ * @param <R>
+ *            The results published
+ */
+abstract class BoundedStage<T, R> implements Flow.Processor<T, R> {
+
+	private final ForkJoinPool pool;
+
+	private final int maximumConcurrency;
+
+	/**
+	 * Buffers the results for every subscriber. Submitting blocks while the
+	 * buffer of a subscriber is full, the pool compensates for the blocked
+	 * thread.
+	 */
+	private final SubmissionPublisher<R> publisher;
+
+	/**
+	 * The number of items received but not handed on yet
+	 */
+	private final AtomicInteger pendingItems = new AtomicInteger();
+
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile boolean upstreamCompleted;
+
+	private volatile Throwable failure;
+
+	/**
+	 * Constructor of {@link BoundedStage}
+	 *
+	 * @param pool
+	 *            Processes the items and delivers the results
+	 * @param maximumConcurrency
+	 *            The number of items processed at once at most
+	 * @param bufferCapacity
+	 *            The number of results buffered for each subscriber
+	 * @throws IllegalArgumentException
+	 *             if the concurrency or the capacity is not positive
+	 */
+	BoundedStage(ForkJoinPool pool, int maximumConcurrency, int bufferCapacity) {
+		if (maximumConcurrency < 1 || bufferCapacity < 1) {
+			throw new IllegalArgumentException("The concurrency " + maximumConcurrency + " and the buffer capacity "
+					+ bufferCapacity + " must be at least 1.");
+		}
+		this.pool = pool;
+		this.maximumConcurrency = maximumConcurrency;
+		this.publisher = new SubmissionPublisher<R>(pool, bufferCapacity);
+	}
+
+	/**
+	 * Processes an item. Called from several threads at once.
+	 *
+	 * @param item
+	 * @return The result to publish, null to publish nothing
+	 */
+	protected abstract R process(T item);
+
+	public void subscribe(Flow.Subscriber<? super R> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		subscription.request(maximumConcurrency);
+	}
+
+	public void onNext(final T item) {
+		pendingItems.incrementAndGet();
+		try {
+			pool.execute(new Runnable() {
+				public void run() {
+					processItem(item);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingItems.decrementAndGet();
+			fail(e);
+		}
+	}
+
+	private void processItem(T item) {
+		try {
+			if (!closed.get()) {
+				R result = process(item);
+				if (result != null) {
+					publisher.submit(result);
+				}
+			}
+		} catch (Throwable e) {
+			fail(e);
+		} finally {
+			if (!closed.get()) {
+				subscription.request(1);
+			}
+			if (pendingItems.decrementAndGet() == 0 && upstreamCompleted) {
+				close();
+			}
+		}
+	}
+
+	public void onError(Throwable throwable) {
+		failure = throwable;
+		onComplete();
+	}
+
+	public void onComplete() {
+		upstreamCompleted = true;
+		if (pendingItems.get() == 0) {
+			close();
+		}
+	}
+
+	/**
+	 * Stops processing after an item could not be processed
+	 */
+	private void fail(Throwable throwable) {
+		if (failure == null) {
+			failure = throwable;
+		}
+		subscription.cancel();
+		close();
+	}
+
+	/**
+	 * Completes the subscribers once, after the buffered results have been
+	 * delivered
+	 */
+	private void close() {
+		if (closed.compareAndSet(false, true)) {
+			if (failure == null) {
+				publisher.close();
+			} else {
+				publisher.closeExceptionally(failure);
+			}
+		}
+	}
+
+}
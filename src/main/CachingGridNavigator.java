@@ -0,0 +1,317 @@
+package main;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link GridNavigator} that remembers the routes found by another
+ * navigator, as the extension algorithm asks for the same routes in many
+ * rounds. The least recently used route is dropped once the cache is full.
+ * <p>
+ * The cache has to be told about every change of the grid. A new cable, see
+ * {@link #cableAdded(GridSection)}, only removes the routes that become
+ * shorter by using it, every other change has to be announced with
+ * {@link #invalidateAll()}. The navigator can be shared between threads.
+ * <p>
+ * Buses are compared with {@link Object#equals(Object)}, so the views of an
+ * {@link OffHeapGrid}, which are created whenever they are requested, find
+ * the routes cached for the equal views.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class CachingGridNavigator implements GridNavigator {
+
+	private final GridNavigator navigator;
+
+	private final int capacity;
+
+	/**
+	 * The cached routes in access order, the least recently used first
+	 */
+	private final LinkedHashMap<BusPair, CachedRoute> routes;
+
+	/**
+	 * Incremented with every change of the grid. A route is only added to the
+	 * cache if the grid has not changed while it was searched.
+	 */
+	private long topologyVersion = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor of {@link CachingGridNavigator}
+	 *
+	 * @param navigator
+	 *            The navigator that finds the routes not cached yet. It has to
+	 *            know about changes of the grid itself.
+	 * @param capacity
+	 *            The number of routes kept. <b>Must be at least 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the capacity is below 1
+	 */
+	public CachingGridNavigator(GridNavigator navigator, final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The cache has to hold at least one route, but the capacity was "
+					+ capacity);
+		}
+		this.navigator = navigator;
+		this.capacity = capacity;
+		this.routes = new LinkedHashMap<BusPair, CachedRoute>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<BusPair, CachedRoute> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+		BusPair key = new BusPair(startBus, goalBus);
+		long version;
+		synchronized (routes) {
+			CachedRoute cachedRoute = routes.get(key);
+			if (cachedRoute != null) {
+				hits.incrementAndGet();
+				return cachedRoute.route.clone();
+			}
+			version = topologyVersion;
+		}
+		misses.incrementAndGet();
+
+		/*
+		 * The route is searched without holding the lock, so other threads
+		 * are not blocked by the search
+		 */
+		GridSection[] route = navigator.getShortestRoute(startBus, goalBus);
+		double length = 0;
+		for (GridSection section : route) {
+			length += GridGraph.getLength(section);
+		}
+		synchronized (routes) {
+			if (version == topologyVersion) {
+				routes.put(key, new CachedRoute(route.clone(), length));
+			}
+		}
+		return route;
+	}
+
+	/**
+	 * Removes the routes that become shorter by the new cable. A route from
+	 * {@code s} to {@code t} becomes shorter if
+	 * {@code d(s, a) + l + d(b, t)} or {@code d(s, b) + l + d(a, t)} is below
+	 * its length, where {@code a} and {@code b} are the ends of the cable and
+	 * {@code l} its length. The distances are found by two searches from the
+	 * ends of the cable that stop at the length of the longest cached route.
+	 *
+	 * @param newSection
+	 *            The new cable, which must already be connected to its
+	 *            {@link Bus}es
+	 */
+	public void cableAdded(GridSection newSection) {
+		Bus[] ends = newSection.getConnectedBuses();
+		double length = GridGraph.getLength(newSection);
+		double longestRoute = 0;
+		synchronized (routes) {
+			topologyVersion++;
+			for (CachedRoute cachedRoute : routes.values()) {
+				longestRoute = Math.max(longestRoute, cachedRoute.length);
+			}
+		}
+		Map<Bus, Double> distancesFirstEnd = findDistances(ends[0], longestRoute - length);
+		Map<Bus, Double> distancesSecondEnd = findDistances(ends[1], longestRoute - length);
+
+		synchronized (routes) {
+			Iterator<Map.Entry<BusPair, CachedRoute>> iterator = routes.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<BusPair, CachedRoute> entry = iterator.next();
+				BusPair pair = entry.getKey();
+				double routeLength = entry.getValue().length;
+				if (isShortcut(distancesFirstEnd.get(pair.start), length, distancesSecondEnd.get(pair.goal),
+						routeLength)
+						|| isShortcut(distancesSecondEnd.get(pair.start), length, distancesFirstEnd.get(pair.goal),
+								routeLength)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private static boolean isShortcut(Double distanceToCable, double cableLength, Double distanceFromCable,
+			double routeLength) {
+		return distanceToCable != null && distanceFromCable != null
+				&& distanceToCable + cableLength + distanceFromCable < routeLength;
+	}
+
+	/**
+	 * Finds the distances of all buses up to the given distance from the bus
+	 * with Dijkstra's algorithm on the {@link Bus} and {@link GridSection}
+	 * objects.
+	 *
+	 * @param origin
+	 * @param maximumDistance
+	 * @return The distance of every bus found
+	 */
+	private static Map<Bus, Double> findDistances(Bus origin, double maximumDistance) {
+		Map<Bus, Double> distances = new HashMap<Bus, Double>();
+		if (maximumDistance < 0) {
+			return distances;
+		}
+		Map<Bus, Double> tentativeDistances = new HashMap<Bus, Double>();
+		PriorityQueue<QueueEntry> queue = new PriorityQueue<QueueEntry>();
+		tentativeDistances.put(origin, 0.0);
+		queue.add(new QueueEntry(origin, 0.0));
+		while (!queue.isEmpty()) {
+			QueueEntry entry = queue.poll();
+			Bus bus = entry.bus;
+			double distance = entry.distance;
+			if (distances.containsKey(bus) || distance > maximumDistance) {
+				continue;
+			}
+			distances.put(bus, distance);
+			for (GridSection section : bus.getConnectedPowerGridSections()) {
+				Bus[] connectedBuses = section.getConnectedBuses();
+				Bus otherEnd = connectedBuses[0].equals(bus) ? connectedBuses[1] : connectedBuses[0];
+				double otherDistance = distance + GridGraph.getLength(section);
+				Double tentativeDistance = tentativeDistances.get(otherEnd);
+				if (tentativeDistance == null || otherDistance < tentativeDistance) {
+					tentativeDistances.put(otherEnd, otherDistance);
+					queue.add(new QueueEntry(otherEnd, otherDistance));
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Drops all cached routes, e.g. after sections have been removed or their
+	 * lengths have changed
+	 */
+	public void invalidateAll() {
+		synchronized (routes) {
+			topologyVersion++;
+			routes.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of changes of the grid the cache has been told about
+	 *
+	 * @return
+	 */
+	public long getTopologyVersion() {
+		synchronized (routes) {
+			return topologyVersion;
+		}
+	}
+
+	/**
+	 * Returns the number of routes that have been taken from the cache
+	 *
+	 * @return
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of routes that had to be searched
+	 *
+	 * @return
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of routes in the cache
+	 *
+	 * @return
+	 */
+	public int getSize() {
+		synchronized (routes) {
+			return routes.size();
+		}
+	}
+
+	/**
+	 * Returns the number of routes the cache can hold
+	 *
+	 * @return
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The start and goal of a route
+	 */
+	private static final class BusPair {
+
+		final Bus start;
+
+		final Bus goal;
+
+		BusPair(Bus start, Bus goal) {
+			this.start = start;
+			this.goal = goal;
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof BusPair)) {
+				return false;
+			}
+			BusPair otherPair = (BusPair) other;
+			return start.equals(otherPair.start) && goal.equals(otherPair.goal);
+		}
+
+		public int hashCode() {
+			return 31 * start.hashCode() + goal.hashCode();
+		}
+
+	}
+
+	/**
+	 * A route with its length
+	 */
+	private static final class CachedRoute {
+
+		final GridSection[] route;
+
+		final double length;
+
+		CachedRoute(GridSection[] route, double length) {
+			this.route = route;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * A bus found by {@link CachingGridNavigator#findDistances(Bus, double)}
+	 * and its tentative distance
+	 */
+	private static final class QueueEntry implements Comparable<QueueEntry> {
+
+		final Bus bus;
+
+		final double distance;
+
+		QueueEntry(Bus bus, double distance) {
+			this.bus = bus;
+			this.distance = distance;
+		}
+
+		public int compareTo(QueueEntry other) {
+			return Double.compare(distance, other.distance);
+		}
+
+	}
+
+}
@@ -0,0 +1,330 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An immutable snapshot of a grid and its state after a loadflow calculation.
+ * The topology is stored in a {@link GridGraph}, the voltages and specific
+ * currents in flat arrays indexed like the {@link GridGraph}.
+ * <p>
+ * The {@link Bus}es and {@link GridSection}s returned by {@link #getBus(int)}
+ * and {@link #getSection(int)} are lightweight views on the arrays and can be
+ * reported to {@link GenericLVGridExtension}, which then traverses the arrays
+ * directly instead of calling the interfaces.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class CompactGrid implements IndexedGrid {
+
+	private final GridGraph topology;
+
+	/**
+	 * The p.u. voltage of every bus.
+	 */
+	private final double[] puVoltages;
+
+	/**
+	 * The voltage angle of every bus in radians, null if the angles are not
+	 * known.
+	 */
+	private final double[] voltageAngles;
+
+	/**
+	 * The absolute specific current of every section.
+	 */
+	private final double[] absSpecificCurrents;
+
+	private final BusView[] busViews;
+
+	private final SectionView[] sectionViews;
+
+	/**
+	 * Constructor of {@link CompactGrid}. The arrays are copied.
+	 *
+	 * @param topology
+	 *            The topology of the grid
+	 * @param puVoltages
+	 *            The p.u. voltage of every bus, indexed like the
+	 *            {@code topology}
+	 * @param absSpecificCurrents
+	 *            The absolute specific current of every section, indexed like
+	 *            the {@code topology}
+	 * @throws IllegalArgumentException
+	 *             if the length of an array does not match the topology
+	 */
+	public CompactGrid(GridGraph topology, double[] puVoltages, double[] absSpecificCurrents) {
+		this(topology, puVoltages, null, absSpecificCurrents);
+	}
+
+	/**
+	 * Constructor of {@link CompactGrid} for the result of a loadflow that
+	 * also knows the voltage angles, e.g. to start the next loadflow from
+	 * them. The arrays are copied.
+	 *
+	 * @param topology
+	 *            The topology of the grid
+	 * @param puVoltages
+	 *            The p.u. voltage of every bus, indexed like the
+	 *            {@code topology}
+	 * @param voltageAngles
+	 *            The voltage angle of every bus in radians or null if they are
+	 *            not known
+	 * @param absSpecificCurrents
+	 *            The absolute specific current of every section, indexed like
+	 *            the {@code topology}
+	 * @throws IllegalArgumentException
+	 *             if the length of an array does not match the topology
+	 */
+	public CompactGrid(GridGraph topology, double[] puVoltages, double[] voltageAngles,
+			double[] absSpecificCurrents) {
+		if (puVoltages.length != topology.getBusCount()
+				|| (voltageAngles != null && voltageAngles.length != topology.getBusCount())
+				|| absSpecificCurrents.length != topology.getSectionCount()) {
+			throw new IllegalArgumentException("The grid has " + topology.getBusCount() + " buses and "
+					+ topology.getSectionCount() + " sections, but " + puVoltages.length + " voltages and "
+					+ absSpecificCurrents.length + " currents were supplied.");
+		}
+		this.topology = topology;
+		this.puVoltages = puVoltages.clone();
+		this.voltageAngles = voltageAngles == null ? null : voltageAngles.clone();
+		this.absSpecificCurrents = absSpecificCurrents.clone();
+
+		busViews = new BusView[topology.getBusCount()];
+		for (int i = 0; i < busViews.length; i++) {
+			busViews[i] = new BusView(this, i);
+		}
+		sectionViews = new SectionView[topology.getSectionCount()];
+		for (int i = 0; i < sectionViews.length; i++) {
+			sectionViews[i] = new SectionView(this, i);
+		}
+	}
+
+	/**
+	 * Reads the current voltages and specific currents of the {@link Bus}es
+	 * and {@link GridSection}s the {@code topology} was compiled from.
+	 *
+	 * @param topology
+	 * @return
+	 */
+	public static CompactGrid snapshot(GridGraph topology) {
+		double[] puVoltages = new double[topology.getBusCount()];
+		for (int i = 0; i < puVoltages.length; i++) {
+			puVoltages[i] = topology.getBus(i).getPuVoltage();
+		}
+		double[] absSpecificCurrents = new double[topology.getSectionCount()];
+		for (int i = 0; i < absSpecificCurrents.length; i++) {
+			absSpecificCurrents[i] = topology.getSection(i).getAbsSpecificCurrent();
+		}
+		return new CompactGrid(topology, puVoltages, absSpecificCurrents);
+	}
+
+	/**
+	 * Compiles the topology and reads the current state of the grid.
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid, see
+	 *            {@link GridGraph#compile(Collection)}
+	 * @return
+	 */
+	public static CompactGrid snapshot(Collection<? extends Bus> allBuses) {
+		return snapshot(GridGraph.compile(allBuses));
+	}
+
+	/**
+	 * Returns the topology of the grid
+	 *
+	 * @return
+	 */
+	public GridGraph getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the p.u. voltage of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public double getPuVoltage(int busIndex) {
+		return puVoltages[busIndex];
+	}
+
+	/**
+	 * Returns the voltage angle of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return The angle in radians, 0 if the angles are not known
+	 */
+	public double getVoltageAngle(int busIndex) {
+		return voltageAngles == null ? 0 : voltageAngles[busIndex];
+	}
+
+	/**
+	 * Returns the absolute specific current of the section with the given
+	 * index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public double getAbsSpecificCurrent(int sectionIndex) {
+		return absSpecificCurrents[sectionIndex];
+	}
+
+	/**
+	 * Returns the column of the voltages itself, so it can be scanned without
+	 * a call per bus. It must not be modified.
+	 *
+	 * @return
+	 */
+	double[] getPuVoltageColumn() {
+		return puVoltages;
+	}
+
+	/**
+	 * Returns the column of the specific currents itself. It must not be
+	 * modified.
+	 *
+	 * @return
+	 */
+	double[] getAbsSpecificCurrentColumn() {
+		return absSpecificCurrents;
+	}
+
+	/**
+	 * Returns the view on the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public Bus getBus(int busIndex) {
+		return busViews[busIndex];
+	}
+
+	/**
+	 * Returns the view on the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public GridSection getSection(int sectionIndex) {
+		return sectionViews[sectionIndex];
+	}
+
+	/**
+	 * A {@link Bus} that reads its state from a {@link CompactGrid}.
+	 */
+	static final class BusView implements IndexedBus, IndexedGrid.Element {
+
+		final CompactGrid grid;
+
+		final int index;
+
+		BusView(CompactGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public CompactGrid getGrid() {
+			return grid;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getPuVoltage() {
+			return grid.puVoltages[index];
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return new ConnectedSections(grid, index);
+		}
+
+		public String toString() {
+			return "Bus " + index;
+		}
+
+	}
+
+	/**
+	 * A {@link GridSection} that reads its state from a {@link CompactGrid}.
+	 */
+	static final class SectionView implements IndexedGridSection, WeightedGridSection, IndexedGrid.Element {
+
+		final CompactGrid grid;
+
+		final int index;
+
+		SectionView(CompactGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public CompactGrid getGrid() {
+			return grid;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getAbsSpecificCurrent() {
+			return grid.absSpecificCurrents[index];
+		}
+
+		public Bus[] getConnectedBuses() {
+			return new Bus[] { getFirstBus(), getSecondBus() };
+		}
+
+		public Bus getFirstBus() {
+			return grid.busViews[grid.topology.getFirstBus(index)];
+		}
+
+		public Bus getSecondBus() {
+			return grid.busViews[grid.topology.getSecondBus(index)];
+		}
+
+		public double getLength() {
+			return grid.topology.getSectionLength(index);
+		}
+
+		public String toString() {
+			return "GridSection " + index;
+		}
+
+	}
+
+	/**
+	 * The sections connected to a bus, read from the rows of the topology.
+	 */
+	private static final class ConnectedSections extends AbstractList<GridSection> implements RandomAccess {
+
+		private final CompactGrid grid;
+
+		private final int start;
+
+		private final int size;
+
+		ConnectedSections(CompactGrid grid, int busIndex) {
+			this.grid = grid;
+			this.start = grid.topology.getAdjacencyStart(busIndex);
+			this.size = grid.topology.getAdjacencyEnd(busIndex) - start;
+		}
+
+		public GridSection get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+			}
+			return grid.sectionViews[grid.topology.getAdjacentSection(start + index)];
+		}
+
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
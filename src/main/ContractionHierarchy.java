@@ -0,0 +1,661 @@
+package main;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The preprocessed index of a {@link ContractionHierarchyNavigator}. The
+ * buses of a {@link GridGraph} are contracted one after another, the least
+ * important first. Whenever the shortest route between two neighbours of the
+ * contracted bus leads over it, a shortcut with the length of this route is
+ * added between them. Afterwards every shortest route consists of sections
+ * and shortcuts that first lead to more and then to less important buses, so
+ * a route search only has to follow the edges upwards from both ends.
+ * <p>
+ * The index only refers to the indices of the {@link GridGraph}, so it can be
+ * serialized, e.g. to be computed once for a large grid and loaded again
+ * later. A checksum of the topology ensures that it is only used for the grid
+ * it was computed for. New cables are inserted into a copy of the index, see
+ * {@link #extend(GridGraph, GridGraph)}, without contracting the grid again.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class ContractionHierarchy implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of buses a witness search settles at most before a shortcut
+	 * is added anyway. Unnecessary shortcuts make the search slower, but
+	 * never wrong.
+	 */
+	private static final int WITNESS_SETTLE_LIMIT = 100;
+
+	private final int busCount;
+
+	private int sectionCount;
+
+	private long topologyChecksum;
+
+	/**
+	 * The position of each bus in the order of contraction.
+	 */
+	private final int[] ranks;
+
+	private int edgeCount = 0;
+
+	/**
+	 * The end of each edge that has been contracted first.
+	 */
+	private int[] edgeLowerBuses;
+
+	/**
+	 * The end of each edge that has been contracted last.
+	 */
+	private int[] edgeUpperBuses;
+
+	private double[] edgeWeights;
+
+	/**
+	 * The section each edge stands for, -1 for shortcuts.
+	 */
+	private int[] edgeSections;
+
+	/**
+	 * The contracted bus a shortcut leads over.
+	 */
+	private int[] edgeMiddleBuses;
+
+	/**
+	 * The two edges a shortcut consists of, both lead upwards from the middle
+	 * bus.
+	 */
+	private int[] edgeFirstChildren;
+
+	private int[] edgeSecondChildren;
+
+	/**
+	 * The edges leading from each bus to buses contracted later.
+	 */
+	private final int[][] upwardEdges;
+
+	private final int[] upwardCounts;
+
+	/**
+	 * The upward edges again as compressed sparse rows, which the route
+	 * search reads much faster: the edges of bus {@code i} are stored at the
+	 * positions {@code searchStarts[i]} to {@code searchStarts[i + 1] - 1}.
+	 */
+	private int[] searchStarts;
+
+	private int[] searchEdges;
+
+	private int[] searchUpperBuses;
+
+	private double[] searchWeights;
+
+	private ContractionHierarchy(int busCount, int sectionCount, long topologyChecksum, int edgeCapacity) {
+		this.busCount = busCount;
+		this.sectionCount = sectionCount;
+		this.topologyChecksum = topologyChecksum;
+		this.ranks = new int[busCount];
+		this.edgeLowerBuses = new int[edgeCapacity];
+		this.edgeUpperBuses = new int[edgeCapacity];
+		this.edgeWeights = new double[edgeCapacity];
+		this.edgeSections = new int[edgeCapacity];
+		this.edgeMiddleBuses = new int[edgeCapacity];
+		this.edgeFirstChildren = new int[edgeCapacity];
+		this.edgeSecondChildren = new int[edgeCapacity];
+		this.upwardEdges = new int[busCount][];
+		this.upwardCounts = new int[busCount];
+	}
+
+	/**
+	 * Copy constructor, the arrays are copied so the copy can be extended
+	 * while the original is still used.
+	 */
+	private ContractionHierarchy(ContractionHierarchy original) {
+		this.busCount = original.busCount;
+		this.sectionCount = original.sectionCount;
+		this.topologyChecksum = original.topologyChecksum;
+		this.ranks = original.ranks.clone();
+		this.edgeCount = original.edgeCount;
+		this.edgeLowerBuses = original.edgeLowerBuses.clone();
+		this.edgeUpperBuses = original.edgeUpperBuses.clone();
+		this.edgeWeights = original.edgeWeights.clone();
+		this.edgeSections = original.edgeSections.clone();
+		this.edgeMiddleBuses = original.edgeMiddleBuses.clone();
+		this.edgeFirstChildren = original.edgeFirstChildren.clone();
+		this.edgeSecondChildren = original.edgeSecondChildren.clone();
+		this.upwardEdges = new int[busCount][];
+		for (int i = 0; i < busCount; i++) {
+			this.upwardEdges[i] = original.upwardEdges[i].clone();
+		}
+		this.upwardCounts = original.upwardCounts.clone();
+	}
+
+	/**
+	 * Contracts the grid. The buses with the fewest shortcuts compared to
+	 * their number of sections are contracted first.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static ContractionHierarchy build(GridGraph graph) {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph.getBusCount(), graph.getSectionCount(),
+				calculateChecksum(graph), 2 * graph.getSectionCount() + 16);
+		new Contraction(hierarchy, graph).run();
+
+		/*
+		 * The edges are stored upwards from the end contracted first
+		 */
+		for (int i = 0; i < hierarchy.busCount; i++) {
+			hierarchy.upwardEdges[i] = new int[4];
+		}
+		for (int e = 0; e < hierarchy.edgeCount; e++) {
+			int lower = hierarchy.edgeLowerBuses[e];
+			int upper = hierarchy.edgeUpperBuses[e];
+			if (hierarchy.ranks[lower] > hierarchy.ranks[upper]) {
+				hierarchy.edgeLowerBuses[e] = upper;
+				hierarchy.edgeUpperBuses[e] = lower;
+			}
+			hierarchy.addUpwardEdge(e);
+		}
+		hierarchy.compileSearchGraph();
+		return hierarchy;
+	}
+
+	/**
+	 * Creates the index of the grid with new cables. The new sections are
+	 * inserted as edges and the shortcuts over their ends are added or
+	 * shortened, the order of the buses is kept. The index of {@code graph}
+	 * is not changed.
+	 *
+	 * @param graph
+	 *            The grid this index has been computed for
+	 * @param extendedGraph
+	 *            The grid with the new cables. The buses have to keep their
+	 *            indices and all sections of {@code graph} have to be part of
+	 *            it.
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the index does not belong to {@code graph} or
+	 *             {@code extendedGraph} does not extend it
+	 */
+	public ContractionHierarchy extend(GridGraph graph, GridGraph extendedGraph) {
+		if (!matches(graph)) {
+			throw new IllegalArgumentException("The index has not been computed for this grid.");
+		}
+		if (extendedGraph.getBusCount() != busCount) {
+			throw new IllegalArgumentException("The extended grid has " + extendedGraph.getBusCount()
+					+ " buses instead of " + busCount + ".");
+		}
+		for (int i = 0; i < busCount; i++) {
+			if (extendedGraph.getBus(i) != graph.getBus(i)) {
+				throw new IllegalArgumentException("The buses of the extended grid have different indices.");
+			}
+		}
+		int[] newSectionIndices = new int[graph.getSectionCount()];
+		for (int i = 0; i < newSectionIndices.length; i++) {
+			newSectionIndices[i] = extendedGraph.indexOf(graph.getSection(i));
+			if (newSectionIndices[i] < 0) {
+				throw new IllegalArgumentException("The section " + graph.getSection(i)
+						+ " is not part of the extended grid.");
+			}
+		}
+
+		ContractionHierarchy extended = new ContractionHierarchy(this);
+		for (int e = 0; e < edgeCount; e++) {
+			if (edgeSections[e] >= 0) {
+				extended.edgeSections[e] = newSectionIndices[edgeSections[e]];
+			}
+		}
+		extended.sectionCount = extendedGraph.getSectionCount();
+		extended.topologyChecksum = calculateChecksum(extendedGraph);
+		for (int i = 0; i < extendedGraph.getSectionCount(); i++) {
+			if (graph.indexOf(extendedGraph.getSection(i)) < 0) {
+				extended.insertSection(extendedGraph.getFirstBus(i), extendedGraph.getSecondBus(i),
+						extendedGraph.getSectionLength(i), i);
+			}
+		}
+		extended.compileSearchGraph();
+		return extended;
+	}
+
+	/**
+	 * Checks whether the index has been computed for the grid
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public boolean matches(GridGraph graph) {
+		return graph.getBusCount() == busCount && graph.getSectionCount() == sectionCount
+				&& calculateChecksum(graph) == topologyChecksum;
+	}
+
+	/**
+	 * Returns the number of shortcuts, which is a measure of the size of the
+	 * index
+	 *
+	 * @return
+	 */
+	public int getShortcutCount() {
+		int shortcuts = 0;
+		for (int e = 0; e < edgeCount; e++) {
+			if (edgeSections[e] < 0) {
+				shortcuts++;
+			}
+		}
+		return shortcuts;
+	}
+
+	int getSearchStart(int bus) {
+		return searchStarts[bus];
+	}
+
+	int getSearchEnd(int bus) {
+		return searchStarts[bus + 1];
+	}
+
+	int getSearchEdge(int position) {
+		return searchEdges[position];
+	}
+
+	int getSearchUpperBus(int position) {
+		return searchUpperBuses[position];
+	}
+
+	double getSearchWeight(int position) {
+		return searchWeights[position];
+	}
+
+	int getLowerBus(int edge) {
+		return edgeLowerBuses[edge];
+	}
+
+	/**
+	 * Replaces the edge by the sections it stands for and appends them to the
+	 * route, in the order from the given end of the edge to the other one.
+	 *
+	 * @param edge
+	 * @param fromBus
+	 *            One of the ends of the edge
+	 * @param route
+	 *            The indices of the sections, filled from position
+	 *            {@code routeLength}
+	 * @param stack
+	 *            Working array, grown if necessary
+	 * @return The new length of the route, the arrays in {@code route[0]} and
+	 *         {@code stack[0]} may have been replaced by larger ones
+	 */
+	int unpack(int edge, int fromBus, int[][] route, int routeLength, int[][] stack) {
+		int stackSize = 0;
+		stack[0][stackSize++] = edge;
+		stack[0][stackSize++] = fromBus;
+		while (stackSize > 0) {
+			int from = stack[0][--stackSize];
+			int e = stack[0][--stackSize];
+			if (edgeSections[e] >= 0) {
+				if (routeLength == route[0].length) {
+					route[0] = Arrays.copyOf(route[0], 2 * routeLength + 16);
+				}
+				route[0][routeLength++] = edgeSections[e];
+				continue;
+			}
+			int near = edgeUpperBuses[edgeFirstChildren[e]] == from ? edgeFirstChildren[e] : edgeSecondChildren[e];
+			int far = near == edgeFirstChildren[e] ? edgeSecondChildren[e] : edgeFirstChildren[e];
+			if (stackSize + 4 > stack[0].length) {
+				stack[0] = Arrays.copyOf(stack[0], 2 * stack[0].length + 16);
+			}
+			stack[0][stackSize++] = far;
+			stack[0][stackSize++] = edgeMiddleBuses[e];
+			stack[0][stackSize++] = near;
+			stack[0][stackSize++] = from;
+		}
+		return routeLength;
+	}
+
+	/**
+	 * Inserts a new section. An edge leading upwards from bus {@code x} to
+	 * bus {@code y} needs a shortcut from every other upward neighbour of
+	 * {@code x} to {@code y}, as {@code x} is contracted first. Every new or
+	 * shortened shortcut is treated the same way, which ends as the lower end
+	 * rises each time.
+	 */
+	private void insertSection(int firstBus, int secondBus, double length, int section) {
+		if (firstBus == secondBus) {
+			return;
+		}
+		int[] worklist = new int[16];
+		int worklistSize = 0;
+		int inserted = addOrShortenEdge(firstBus, secondBus, length, section, -1, -1, -1);
+		if (inserted >= 0) {
+			worklist[worklistSize++] = inserted;
+		}
+		while (worklistSize > 0) {
+			int e = worklist[--worklistSize];
+			int lower = edgeLowerBuses[e];
+			int upper = edgeUpperBuses[e];
+			for (int i = 0; i < upwardCounts[lower]; i++) {
+				int other = upwardEdges[lower][i];
+				if (other == e) {
+					continue;
+				}
+				int shortcut = addOrShortenEdge(edgeUpperBuses[other], upper, edgeWeights[other] + edgeWeights[e], -1,
+						lower, other, e);
+				if (shortcut >= 0) {
+					if (worklistSize == worklist.length) {
+						worklist = Arrays.copyOf(worklist, 2 * worklistSize);
+					}
+					worklist[worklistSize++] = shortcut;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge between the buses or shortens the existing one.
+	 *
+	 * @return The added or shortened edge, -1 if the existing edge is not
+	 *         longer
+	 */
+	private int addOrShortenEdge(int first, int second, double weight, int section, int middle, int firstChild,
+			int secondChild) {
+		int lower = ranks[first] < ranks[second] ? first : second;
+		int upper = lower == first ? second : first;
+		for (int i = 0; i < upwardCounts[lower]; i++) {
+			int e = upwardEdges[lower][i];
+			if (edgeUpperBuses[e] == upper) {
+				if (edgeWeights[e] <= weight) {
+					return -1;
+				}
+				setEdge(e, lower, upper, weight, section, middle, firstChild, secondChild);
+				return e;
+			}
+		}
+		int e = addEdge(lower, upper, weight, section, middle, firstChild, secondChild);
+		addUpwardEdge(e);
+		return e;
+	}
+
+	private int addEdge(int lower, int upper, double weight, int section, int middle, int firstChild,
+			int secondChild) {
+		if (edgeCount == edgeWeights.length) {
+			int capacity = 2 * edgeCount + 16;
+			edgeLowerBuses = Arrays.copyOf(edgeLowerBuses, capacity);
+			edgeUpperBuses = Arrays.copyOf(edgeUpperBuses, capacity);
+			edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+			edgeSections = Arrays.copyOf(edgeSections, capacity);
+			edgeMiddleBuses = Arrays.copyOf(edgeMiddleBuses, capacity);
+			edgeFirstChildren = Arrays.copyOf(edgeFirstChildren, capacity);
+			edgeSecondChildren = Arrays.copyOf(edgeSecondChildren, capacity);
+		}
+		setEdge(edgeCount, lower, upper, weight, section, middle, firstChild, secondChild);
+		return edgeCount++;
+	}
+
+	private void setEdge(int e, int lower, int upper, double weight, int section, int middle, int firstChild,
+			int secondChild) {
+		edgeLowerBuses[e] = lower;
+		edgeUpperBuses[e] = upper;
+		edgeWeights[e] = weight;
+		edgeSections[e] = section;
+		edgeMiddleBuses[e] = middle;
+		edgeFirstChildren[e] = firstChild;
+		edgeSecondChildren[e] = secondChild;
+	}
+
+	private void addUpwardEdge(int e) {
+		int lower = edgeLowerBuses[e];
+		if (upwardCounts[lower] == upwardEdges[lower].length) {
+			upwardEdges[lower] = Arrays.copyOf(upwardEdges[lower], 2 * upwardCounts[lower] + 4);
+		}
+		upwardEdges[lower][upwardCounts[lower]++] = e;
+	}
+
+	private void compileSearchGraph() {
+		searchStarts = new int[busCount + 1];
+		for (int i = 0; i < busCount; i++) {
+			searchStarts[i + 1] = searchStarts[i] + upwardCounts[i];
+		}
+		searchEdges = new int[searchStarts[busCount]];
+		searchUpperBuses = new int[searchEdges.length];
+		searchWeights = new double[searchEdges.length];
+		for (int i = 0; i < busCount; i++) {
+			for (int j = 0; j < upwardCounts[i]; j++) {
+				int e = upwardEdges[i][j];
+				searchEdges[searchStarts[i] + j] = e;
+				searchUpperBuses[searchStarts[i] + j] = edgeUpperBuses[e];
+				searchWeights[searchStarts[i] + j] = edgeWeights[e];
+			}
+		}
+	}
+
+	private static long calculateChecksum(GridGraph graph) {
+		long checksum = graph.getBusCount();
+		for (int i = 0; i < graph.getSectionCount(); i++) {
+			checksum = 31 * checksum + graph.getFirstBus(i);
+			checksum = 31 * checksum + graph.getSecondBus(i);
+			checksum = 31 * checksum + Double.doubleToLongBits(graph.getSectionLength(i));
+		}
+		return checksum;
+	}
+
+	/**
+	 * The state of the contraction, which is not needed anymore afterwards.
+	 */
+	private static final class Contraction {
+
+		private final ContractionHierarchy hierarchy;
+
+		/**
+		 * The edges of each bus to the buses not contracted yet.
+		 */
+		private final int[][] incidentEdges;
+
+		private final int[] incidentCounts;
+
+		private final int[] contractedNeighbours;
+
+		/**
+		 * One more than the highest level of the contracted neighbours of each
+		 * bus. Preferring low levels spreads the contraction over the grid,
+		 * which keeps the searches upwards short.
+		 */
+		private final int[] levels;
+
+		private final double[] witnessDistances;
+
+		private final int[] witnessReachedInSearch;
+
+		/**
+		 * The number of the witness search each bus is a target of.
+		 */
+		private final int[] witnessTargetInSearch;
+
+		private final IndexedMinHeap witnessQueue;
+
+		private int witnessSearchNumber = 0;
+
+		Contraction(ContractionHierarchy hierarchy, GridGraph graph) {
+			this.hierarchy = hierarchy;
+			int busCount = graph.getBusCount();
+			incidentEdges = new int[busCount][];
+			incidentCounts = new int[busCount];
+			for (int i = 0; i < busCount; i++) {
+				incidentEdges[i] = new int[4];
+			}
+			contractedNeighbours = new int[busCount];
+			levels = new int[busCount];
+			witnessDistances = new double[busCount];
+			witnessReachedInSearch = new int[busCount];
+			witnessTargetInSearch = new int[busCount];
+			witnessQueue = new IndexedMinHeap(busCount);
+
+			for (int s = 0; s < graph.getSectionCount(); s++) {
+				int first = graph.getFirstBus(s);
+				int second = graph.getSecondBus(s);
+				if (first != second) {
+					addOrShortenEdge(first, second, graph.getSectionLength(s), s, -1, -1, -1);
+				}
+			}
+		}
+
+		void run() {
+			IndexedMinHeap queue = new IndexedMinHeap(incidentEdges.length);
+			for (int bus = 0; bus < incidentEdges.length; bus++) {
+				queue.insertOrDecrease(bus, calculatePriority(bus));
+			}
+			int rank = 0;
+			while (!queue.isEmpty()) {
+				int bus = queue.pollMin();
+
+				/*
+				 * The priorities in the queue may be outdated, so the bus is
+				 * put back if it is not the best one anymore
+				 */
+				double priority = calculatePriority(bus);
+				if (!queue.isEmpty() && priority > queue.peekKey()) {
+					queue.insertOrDecrease(bus, priority);
+					continue;
+				}
+				contract(bus, false);
+				hierarchy.ranks[bus] = rank++;
+				for (int i = 0; i < incidentCounts[bus]; i++) {
+					int neighbour = getOtherEnd(incidentEdges[bus][i], bus);
+					removeIncidentEdge(neighbour, incidentEdges[bus][i]);
+					contractedNeighbours[neighbour]++;
+					levels[neighbour] = Math.max(levels[neighbour], levels[bus] + 1);
+					queue.insertOrDecrease(neighbour, calculatePriority(neighbour));
+				}
+			}
+		}
+
+		private double calculatePriority(int bus) {
+			return contract(bus, true) - incidentCounts[bus] + contractedNeighbours[bus] + levels[bus];
+		}
+
+		/**
+		 * Adds the shortcuts between the neighbours of the bus that are needed
+		 * if it is contracted.
+		 *
+		 * @param bus
+		 * @param simulate
+		 *            If set, the shortcuts are only counted
+		 * @return The number of shortcuts
+		 */
+		private int contract(int bus, boolean simulate) {
+			int neighbourCount = incidentCounts[bus];
+			int[] neighbourEdges = Arrays.copyOf(incidentEdges[bus], neighbourCount);
+			double maximumWeight = 0;
+			for (int e : neighbourEdges) {
+				maximumWeight = Math.max(maximumWeight, hierarchy.edgeWeights[e]);
+			}
+			int shortcuts = 0;
+			for (int i = 0; i < neighbourCount - 1; i++) {
+				int first = getOtherEnd(neighbourEdges[i], bus);
+				double firstWeight = hierarchy.edgeWeights[neighbourEdges[i]];
+				searchWitnesses(first, bus, firstWeight + maximumWeight, neighbourEdges, i + 1, neighbourCount);
+				for (int j = i + 1; j < neighbourCount; j++) {
+					int second = getOtherEnd(neighbourEdges[j], bus);
+					double weight = firstWeight + hierarchy.edgeWeights[neighbourEdges[j]];
+					if (witnessReachedInSearch[second] == witnessSearchNumber && witnessDistances[second] <= weight) {
+						continue;
+					}
+					shortcuts++;
+					if (!simulate) {
+						addOrShortenEdge(first, second, weight, -1, bus, neighbourEdges[i], neighbourEdges[j]);
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Searches the routes from the bus that avoid the bus to be contracted
+		 * and are not longer than the given distance. The search stops as soon
+		 * as the neighbours at the ends of {@code targetEdges[from]} to
+		 * {@code targetEdges[to - 1]} are settled.
+		 */
+		private void searchWitnesses(int startBus, int excludedBus, double maximumDistance, int[] targetEdges,
+				int from, int to) {
+			witnessSearchNumber++;
+			witnessQueue.clear();
+			for (int i = from; i < to; i++) {
+				witnessTargetInSearch[getOtherEnd(targetEdges[i], excludedBus)] = witnessSearchNumber;
+			}
+			int remainingTargets = to - from;
+			witnessDistances[startBus] = 0;
+			witnessReachedInSearch[startBus] = witnessSearchNumber;
+			witnessQueue.insertOrDecrease(startBus, 0);
+			int settled = 0;
+			while (!witnessQueue.isEmpty() && remainingTargets > 0 && settled++ < WITNESS_SETTLE_LIMIT) {
+				if (witnessQueue.peekKey() > maximumDistance) {
+					break;
+				}
+				int bus = witnessQueue.pollMin();
+				if (witnessTargetInSearch[bus] == witnessSearchNumber) {
+					remainingTargets--;
+				}
+				for (int i = 0; i < incidentCounts[bus]; i++) {
+					int e = incidentEdges[bus][i];
+					int neighbour = getOtherEnd(e, bus);
+					if (neighbour == excludedBus) {
+						continue;
+					}
+					double distance = witnessDistances[bus] + hierarchy.edgeWeights[e];
+					if (witnessReachedInSearch[neighbour] != witnessSearchNumber
+							|| distance < witnessDistances[neighbour]) {
+						witnessReachedInSearch[neighbour] = witnessSearchNumber;
+						witnessDistances[neighbour] = distance;
+						witnessQueue.insertOrDecrease(neighbour, distance);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds an edge between the buses or shortens the existing one. An edge
+		 * between buses not contracted yet is not part of a shortcut, so it
+		 * can be changed.
+		 */
+		private void addOrShortenEdge(int first, int second, double weight, int section, int middle,
+				int firstChild, int secondChild) {
+			for (int i = 0; i < incidentCounts[first]; i++) {
+				int e = incidentEdges[first][i];
+				if (getOtherEnd(e, first) == second) {
+					if (weight < hierarchy.edgeWeights[e]) {
+						hierarchy.setEdge(e, first, second, weight, section, middle, firstChild, secondChild);
+					}
+					return;
+				}
+			}
+			int e = hierarchy.addEdge(first, second, weight, section, middle, firstChild, secondChild);
+			addIncidentEdge(first, e);
+			addIncidentEdge(second, e);
+		}
+
+		private void addIncidentEdge(int bus, int e) {
+			if (incidentCounts[bus] == incidentEdges[bus].length) {
+				incidentEdges[bus] = Arrays.copyOf(incidentEdges[bus], 2 * incidentCounts[bus]);
+			}
+			incidentEdges[bus][incidentCounts[bus]++] = e;
+		}
+
+		private void removeIncidentEdge(int bus, int e) {
+			for (int i = 0; i < incidentCounts[bus]; i++) {
+				if (incidentEdges[bus][i] == e) {
+					incidentEdges[bus][i] = incidentEdges[bus][--incidentCounts[bus]];
+					return;
+				}
+			}
+		}
+
+		private int getOtherEnd(int e, int bus) {
+			return hierarchy.edgeLowerBuses[e] == bus ? hierarchy.edgeUpperBuses[e] : hierarchy.edgeLowerBuses[e];
+		}
+
+	}
+
+}
@@ -0,0 +1,323 @@
+package main;
+
+import java.util.Collection;
+
+/**
+ * A {@link GridNavigator} for large meshed grids. The grid is preprocessed
+ * once into a {@link ContractionHierarchy}, after which a route is found by
+ * two small searches that only follow the edges of the hierarchy upwards from
+ * start and goal until they meet. The shortcuts of the route found are then
+ * replaced by the sections they stand for.
+ * <p>
+ * The preprocessing takes a while for large grids, so the index can be
+ * serialized and passed to
+ * {@link #ContractionHierarchyNavigator(GridGraph, ContractionHierarchy)}
+ * later. If the extension algorithm adds a cable, {@link #extend(GridGraph)}
+ * creates the navigator of the new grid without contracting it again.
+ * <p>
+ * The navigator can be shared between threads, every thread uses its own
+ * working arrays.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class ContractionHierarchyNavigator implements GridNavigator {
+
+	private final GridGraph graph;
+
+	private final ContractionHierarchy hierarchy;
+
+	/**
+	 * The working arrays of the search, one set per thread.
+	 */
+	private final ThreadLocal<SearchSpace> searchSpaces = new ThreadLocal<SearchSpace>() {
+		protected SearchSpace initialValue() {
+			return new SearchSpace(graph.getBusCount());
+		}
+	};
+
+	/**
+	 * Constructor of {@link ContractionHierarchyNavigator}
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid, see
+	 *            {@link GridGraph#compile(Collection)}
+	 */
+	public ContractionHierarchyNavigator(Collection<? extends Bus> allBuses) {
+		this(GridGraph.compile(allBuses));
+	}
+
+	/**
+	 * Constructor of {@link ContractionHierarchyNavigator}, which contracts
+	 * the grid
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 */
+	public ContractionHierarchyNavigator(GridGraph graph) {
+		this(graph, ContractionHierarchy.build(graph));
+	}
+
+	/**
+	 * Constructor of {@link ContractionHierarchyNavigator} with an index
+	 * computed before, e.g. one that has been deserialized
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 * @param hierarchy
+	 *            The index of the grid
+	 * @throws IllegalArgumentException
+	 *             if the index has been computed for another grid
+	 */
+	public ContractionHierarchyNavigator(GridGraph graph, ContractionHierarchy hierarchy) {
+		if (!hierarchy.matches(graph)) {
+			throw new IllegalArgumentException("The index has not been computed for this grid.");
+		}
+		this.graph = graph;
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * Creates the navigator of the grid with new cables, see
+	 * {@link ContractionHierarchy#extend(GridGraph, GridGraph)}. This
+	 * navigator can still be used for the old grid.
+	 *
+	 * @param extendedGraph
+	 *            The grid with the new cables
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the buses have different indices or sections of this grid
+	 *             are missing
+	 */
+	public ContractionHierarchyNavigator extend(GridGraph extendedGraph) {
+		return new ContractionHierarchyNavigator(extendedGraph, hierarchy.extend(graph, extendedGraph));
+	}
+
+	/**
+	 * Returns the topology the navigator searches in
+	 *
+	 * @return
+	 */
+	public GridGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the index, e.g. to serialize it
+	 *
+	 * @return
+	 */
+	public ContractionHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if one of the buses is not part of the grid or no route
+	 *             between them exists
+	 */
+	public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+		int[] sectionIndices = getShortestRoute(requireIndex(startBus), requireIndex(goalBus));
+		GridSection[] route = new GridSection[sectionIndices.length];
+		for (int i = 0; i < sectionIndices.length; i++) {
+			route[i] = graph.getSection(sectionIndices[i]);
+		}
+		return route;
+	}
+
+	/**
+	 * Same as {@link #getShortestRoute(Bus, Bus)}, but works on the indices of
+	 * the {@link GridGraph}.
+	 *
+	 * @param startBus
+	 *            Index of the bus at which the route starts
+	 * @param goalBus
+	 *            Index of the bus at which the route ends
+	 * @return The indices of the sections from {@code startBus} to
+	 *         {@code goalBus}
+	 * @throws IllegalArgumentException
+	 *             if no route between the buses exists
+	 */
+	public int[] getShortestRoute(int startBus, int goalBus) {
+		SearchSpace space = searchSpaces.get();
+		if (space.search(hierarchy, startBus, goalBus) < 0) {
+			throw new IllegalArgumentException("There is no route between the buses " + graph.getBus(startBus)
+					+ " and " + graph.getBus(goalBus) + ".");
+		}
+		return space.extractRoute(hierarchy, startBus, goalBus);
+	}
+
+	/**
+	 * Returns the length of the shortest route between the two buses
+	 *
+	 * @param startBus
+	 * @param goalBus
+	 * @return The length or {@link Double#POSITIVE_INFINITY} if the buses are
+	 *         not connected
+	 */
+	public double getShortestDistance(Bus startBus, Bus goalBus) {
+		SearchSpace space = searchSpaces.get();
+		int meetingBus = space.search(hierarchy, requireIndex(startBus), requireIndex(goalBus));
+		return meetingBus < 0 ? Double.POSITIVE_INFINITY : space.getDistance();
+	}
+
+	private int requireIndex(Bus bus) {
+		int index = graph.indexOf(bus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The bus " + bus + " is not part of the grid of the navigator.");
+		}
+		return index;
+	}
+
+	/**
+	 * The arrays of the two searches from start and goal. As in
+	 * {@link DijkstraGridNavigator}, entries written by older searches are
+	 * recognised by their search number instead of resetting the arrays.
+	 */
+	private static final class SearchSpace {
+
+		private final double[][] distances;
+
+		/**
+		 * The edge over which each bus has been reached.
+		 */
+		private final int[][] predecessorEdges;
+
+		private final int[][] reachedInSearch;
+
+		private final IndexedMinHeap[] queues;
+
+		private int searchNumber = 0;
+
+		private int meetingBus;
+
+		private double bestDistance;
+
+		/**
+		 * Working arrays of {@link ContractionHierarchy#unpack}, wrapped so
+		 * they can be replaced by larger ones.
+		 */
+		private final int[][] route = new int[][] { new int[64] };
+
+		private final int[][] stack = new int[][] { new int[64] };
+
+		SearchSpace(int busCount) {
+			distances = new double[2][busCount];
+			predecessorEdges = new int[2][busCount];
+			reachedInSearch = new int[2][busCount];
+			queues = new IndexedMinHeap[] { new IndexedMinHeap(busCount), new IndexedMinHeap(busCount) };
+		}
+
+		/**
+		 * Searches upwards from both buses, always continuing the search with
+		 * the smaller distance, until no shorter route can be found.
+		 *
+		 * @return The bus where the shortest route turns downwards, -1 if the
+		 *         buses are not connected
+		 */
+		int search(ContractionHierarchy hierarchy, int startBus, int goalBus) {
+			searchNumber++;
+			if (searchNumber == Integer.MAX_VALUE) {
+				searchNumber = 1;
+				for (int i = 0; i < reachedInSearch[0].length; i++) {
+					reachedInSearch[0][i] = 0;
+					reachedInSearch[1][i] = 0;
+				}
+			}
+			queues[0].clear();
+			queues[1].clear();
+			meetingBus = -1;
+			bestDistance = Double.POSITIVE_INFINITY;
+			reach(0, startBus, 0, -1);
+			reach(1, goalBus, 0, -1);
+
+			while (true) {
+				double forwardKey = queues[0].isEmpty() ? Double.POSITIVE_INFINITY : queues[0].peekKey();
+				double backwardKey = queues[1].isEmpty() ? Double.POSITIVE_INFINITY : queues[1].peekKey();
+				if (Math.min(forwardKey, backwardKey) >= bestDistance) {
+					return meetingBus;
+				}
+				int direction = forwardKey <= backwardKey ? 0 : 1;
+				int bus = queues[direction].pollMin();
+				double distance = distances[direction][bus];
+				if (reachedInSearch[1 - direction][bus] == searchNumber
+						&& distance + distances[1 - direction][bus] < bestDistance) {
+					bestDistance = distance + distances[1 - direction][bus];
+					meetingBus = bus;
+				}
+				if (isStalled(hierarchy, direction, bus)) {
+					continue;
+				}
+				for (int i = hierarchy.getSearchStart(bus); i < hierarchy.getSearchEnd(bus); i++) {
+					int upper = hierarchy.getSearchUpperBus(i);
+					double newDistance = distance + hierarchy.getSearchWeight(i);
+					if (reachedInSearch[direction][upper] != searchNumber
+							|| newDistance < distances[direction][upper]) {
+						reach(direction, upper, newDistance, hierarchy.getSearchEdge(i));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Checks whether the bus can be reached on a shorter route downwards
+		 * from a bus already found. Such a route is not followed by the
+		 * search, but the shortest route to the goal cannot lead over this bus
+		 * then, so its edges do not have to be searched.
+		 */
+		private boolean isStalled(ContractionHierarchy hierarchy, int direction, int bus) {
+			double distance = distances[direction][bus];
+			for (int i = hierarchy.getSearchStart(bus); i < hierarchy.getSearchEnd(bus); i++) {
+				int upper = hierarchy.getSearchUpperBus(i);
+				if (reachedInSearch[direction][upper] == searchNumber
+						&& distances[direction][upper] + hierarchy.getSearchWeight(i) < distance) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void reach(int direction, int bus, double distance, int edge) {
+			reachedInSearch[direction][bus] = searchNumber;
+			distances[direction][bus] = distance;
+			predecessorEdges[direction][bus] = edge;
+			queues[direction].insertOrDecrease(bus, distance);
+		}
+
+		double getDistance() {
+			return bestDistance;
+		}
+
+		/**
+		 * Unpacks the edges from the start up to the meeting bus and from
+		 * there down to the goal.
+		 */
+		int[] extractRoute(ContractionHierarchy hierarchy, int startBus, int goalBus) {
+			int upwardEdgeCount = 0;
+			for (int bus = meetingBus; bus != startBus; upwardEdgeCount++) {
+				bus = hierarchy.getLowerBus(predecessorEdges[0][bus]);
+			}
+			int[] upwardEdges = new int[upwardEdgeCount];
+			int bus = meetingBus;
+			for (int i = upwardEdgeCount - 1; i >= 0; i--) {
+				upwardEdges[i] = predecessorEdges[0][bus];
+				bus = hierarchy.getLowerBus(upwardEdges[i]);
+			}
+
+			int routeLength = 0;
+			for (int edge : upwardEdges) {
+				routeLength = hierarchy.unpack(edge, hierarchy.getLowerBus(edge), route, routeLength, stack);
+			}
+			for (bus = meetingBus; bus != goalBus; bus = hierarchy.getLowerBus(predecessorEdges[1][bus])) {
+				routeLength = hierarchy.unpack(predecessorEdges[1][bus], bus, route, routeLength, stack);
+			}
+			int[] result = new int[routeLength];
+			System.arraycopy(route[0], 0, result, 0, routeLength);
+			return result;
+		}
+
+	}
+
+}
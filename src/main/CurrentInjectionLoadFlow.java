@@ -0,0 +1,733 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Calculates the voltages and currents of a meshed LV grid with the current
+ * injection method: the loads are converted to currents at the present
+ * voltages and the nodal equations {@code Y V = I} are solved for new
+ * voltages until they do not change anymore. Unlike a sweep, the method does
+ * not depend on the grid being radial, so it also suits heavily meshed grids.
+ * <p>
+ * The admittance matrix is complex symmetric and stored as a sparse
+ * {@code L D L^T} factorisation. Finding a fill-reducing order of the buses and
+ * the pattern of {@code L} (the symbolic factorisation) only depends on which
+ * buses are connected, so it is shared by all loadflows created with
+ * {@link #refactor(GridGraph, double[], double[], double[])} as long as the
+ * connections of the new grid fit into the pattern, e.g. after a cable has
+ * been built in parallel to an existing one. Only the numeric factorisation is
+ * redone then.
+ * <p>
+ * A single new cable only adds its admittance at four entries of the matrix,
+ * which is a rank-one change. {@link #extend(GridGraph, double[], double[],
+ * double[])} therefore keeps the factorisation and corrects every solution
+ * with the Sherman-Morrison formula instead, which costs one more solve when
+ * the cable is added and a few vector operations per iteration afterwards.
+ * Together with a start from the voltages before the extension, see
+ * {@link #solve(CompactGrid)}, the grid after an extension is calculated in a
+ * fraction of the time of a full loadflow.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class CurrentInjectionLoadFlow extends LoadFlow {
+
+	/**
+	 * The order of the buses and the pattern of {@code L}
+	 */
+	final SymbolicFactorization symbolic;
+
+	/**
+	 * The diagonal of {@code D}, indexed by position
+	 */
+	private final double[] diagonalReal;
+
+	private final double[] diagonalImag;
+
+	/**
+	 * The values of {@code L} below the diagonal, aligned with
+	 * {@link SymbolicFactorization#rowPositions}
+	 */
+	private final double[] lowerReal;
+
+	private final double[] lowerImag;
+
+	/**
+	 * The admittance between each position and the slack bus
+	 */
+	private final double[] slackAdmittanceReal;
+
+	private final double[] slackAdmittanceImag;
+
+	/**
+	 * The cables added by {@link #extend(GridGraph, double[], double[],
+	 * double[])} since the matrix has been factorised, in the order they have
+	 * been added
+	 */
+	private final RankOneUpdate[] updates;
+
+	/**
+	 * After this many cables the matrix is factorised again, as every update
+	 * makes each solve more expensive.
+	 */
+	private static final int MAXIMUM_UPDATES = 16;
+
+	/**
+	 * Constructor of {@link CurrentInjectionLoadFlow}
+	 *
+	 * @param topology
+	 *            The grid to calculate
+	 * @param slackBus
+	 *            The index of the bus with a fixed voltage, usually the LV side
+	 *            of the transformer
+	 * @param resistances
+	 *            The p.u. resistance of each section
+	 * @param reactances
+	 *            The p.u. reactance of each section
+	 * @param ratedCurrents
+	 *            The p.u. rated current of each section
+	 * @throws IllegalArgumentException
+	 *             if the number of values does not match the number of
+	 *             sections, a section has no impedance or a bus cannot be
+	 *             reached from the slack bus
+	 */
+	public CurrentInjectionLoadFlow(GridGraph topology, int slackBus, double[] resistances, double[] reactances,
+			double[] ratedCurrents) {
+		this(topology, slackBus, resistances, reactances, ratedCurrents, null);
+	}
+
+	private CurrentInjectionLoadFlow(GridGraph topology, int slackBus, double[] resistances, double[] reactances,
+			double[] ratedCurrents, SymbolicFactorization reusableSymbolic) {
+		super(topology, slackBus, resistances, reactances, ratedCurrents);
+		checkConnections();
+		if (reusableSymbolic != null && reusableSymbolic.fits(topology)) {
+			symbolic = reusableSymbolic;
+		} else {
+			symbolic = new SymbolicFactorization(topology, slackBus);
+		}
+
+		int positionCount = symbolic.busAtPosition.length;
+		diagonalReal = new double[positionCount];
+		diagonalImag = new double[positionCount];
+		lowerReal = new double[symbolic.rowPositions.length];
+		lowerImag = new double[symbolic.rowPositions.length];
+		slackAdmittanceReal = new double[positionCount];
+		slackAdmittanceImag = new double[positionCount];
+		updates = new RankOneUpdate[0];
+		assembleAdmittances();
+		factorise();
+	}
+
+	/**
+	 * Constructor for a grid with one cable more than the grid of the base
+	 * loadflow, reusing its factorisation.
+	 */
+	private CurrentInjectionLoadFlow(CurrentInjectionLoadFlow base, GridGraph extendedTopology,
+			double[] resistances, double[] reactances, double[] ratedCurrents, int newSection) {
+		super(extendedTopology, base.slackBus, resistances, reactances, ratedCurrents);
+		symbolic = base.symbolic;
+		diagonalReal = base.diagonalReal;
+		diagonalImag = base.diagonalImag;
+		lowerReal = base.lowerReal;
+		lowerImag = base.lowerImag;
+		slackAdmittanceReal = base.slackAdmittanceReal.clone();
+		slackAdmittanceImag = base.slackAdmittanceImag.clone();
+		setSlackVoltage(base.getSlackVoltage());
+		setTolerance(base.getTolerance());
+		setMaximumIterations(base.getMaximumIterations());
+
+		double absImpedanceSquared = resistances[newSection] * resistances[newSection]
+				+ reactances[newSection] * reactances[newSection];
+		double admittanceReal = resistances[newSection] / absImpedanceSquared;
+		double admittanceImag = -reactances[newSection] / absImpedanceSquared;
+		int firstPosition = symbolic.positionOfBus[extendedTopology.getFirstBus(newSection)];
+		int secondPosition = symbolic.positionOfBus[extendedTopology.getSecondBus(newSection)];
+		if (firstPosition < 0) {
+			firstPosition = secondPosition;
+			secondPosition = -1;
+		}
+		if (secondPosition < 0 && firstPosition >= 0) {
+			slackAdmittanceReal[firstPosition] += admittanceReal;
+			slackAdmittanceImag[firstPosition] += admittanceImag;
+		}
+
+		/*
+		 * The matrix changes by y * e * e^T with e = e_first - e_second, so
+		 * (Y + y e e^T)^-1 b = x - y (e^T x) / (1 + y e^T w) * w with
+		 * x = Y^-1 b and w = Y^-1 e
+		 */
+		int positionCount = symbolic.busAtPosition.length;
+		double[] directionReal = new double[positionCount];
+		double[] directionImag = new double[positionCount];
+		if (firstPosition >= 0 && firstPosition != secondPosition) {
+			directionReal[firstPosition] = 1;
+			if (secondPosition >= 0) {
+				directionReal[secondPosition] = -1;
+			}
+		}
+		base.solveFactorised(directionReal, directionImag);
+		double projectionReal = firstPosition < 0 ? 0 : directionReal[firstPosition];
+		double projectionImag = firstPosition < 0 ? 0 : directionImag[firstPosition];
+		if (secondPosition >= 0) {
+			projectionReal -= directionReal[secondPosition];
+			projectionImag -= directionImag[secondPosition];
+		}
+		double denominatorReal = 1 + admittanceReal * projectionReal - admittanceImag * projectionImag;
+		double denominatorImag = admittanceReal * projectionImag + admittanceImag * projectionReal;
+		double denominatorAbsSquared = denominatorReal * denominatorReal + denominatorImag * denominatorImag;
+		RankOneUpdate update = new RankOneUpdate(firstPosition, secondPosition,
+				(admittanceReal * denominatorReal + admittanceImag * denominatorImag) / denominatorAbsSquared,
+				(admittanceImag * denominatorReal - admittanceReal * denominatorImag) / denominatorAbsSquared,
+				directionReal, directionImag);
+		updates = Arrays.copyOf(base.updates, base.updates.length + 1);
+		updates[base.updates.length] = update;
+	}
+
+	/**
+	 * Creates the loadflow for a grid whose sections all implement
+	 * {@link ImpedanceGridSection}
+	 *
+	 * @param topology
+	 *            The grid to calculate
+	 * @param slackBus
+	 *            The bus with a fixed voltage, usually the LV side of the
+	 *            transformer
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a section does not implement {@link ImpedanceGridSection}
+	 *             or the slack bus is not part of the grid
+	 */
+	public static CurrentInjectionLoadFlow of(GridGraph topology, Bus slackBus) {
+		double[][] impedances = readImpedances(topology);
+		return new CurrentInjectionLoadFlow(topology, topology.indexOf(slackBus), impedances[0], impedances[1],
+				impedances[2]);
+	}
+
+	/**
+	 * Creates the loadflow for a changed version of this grid, e.g. after an
+	 * extension has been built. The buses have to keep their indices. The
+	 * symbolic factorisation is reused if the connections of the new grid fit
+	 * into it, the settings are copied.
+	 *
+	 * @param changedTopology
+	 *            The changed grid
+	 * @param resistances
+	 *            The p.u. resistance of each section of the changed grid
+	 * @param reactances
+	 *            The p.u. reactance of each section of the changed grid
+	 * @param ratedCurrents
+	 *            The p.u. rated current of each section of the changed grid
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the number of buses has changed
+	 */
+	public CurrentInjectionLoadFlow refactor(GridGraph changedTopology, double[] resistances, double[] reactances,
+			double[] ratedCurrents) {
+		if (changedTopology.getBusCount() != topology.getBusCount()) {
+			throw new IllegalArgumentException("The grid had " + topology.getBusCount() + " buses, but now has "
+					+ changedTopology.getBusCount() + ".");
+		}
+		CurrentInjectionLoadFlow loadFlow = new CurrentInjectionLoadFlow(changedTopology, slackBus, resistances,
+				reactances, ratedCurrents, symbolic);
+		loadFlow.setSlackVoltage(getSlackVoltage());
+		loadFlow.setTolerance(getTolerance());
+		loadFlow.setMaximumIterations(getMaximumIterations());
+		return loadFlow;
+	}
+
+	/**
+	 * Same as {@link #refactor(GridGraph, double[], double[], double[])} for a
+	 * grid whose sections all implement {@link ImpedanceGridSection}
+	 *
+	 * @param changedTopology
+	 *            The changed grid
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a section does not implement {@link ImpedanceGridSection}
+	 *             or the number of buses has changed
+	 */
+	public CurrentInjectionLoadFlow refactor(GridGraph changedTopology) {
+		double[][] impedances = readImpedances(changedTopology);
+		return refactor(changedTopology, impedances[0], impedances[1], impedances[2]);
+	}
+
+	/**
+	 * Creates the loadflow for this grid with one more cable, e.g. the
+	 * extension proposed by
+	 * {@link GenericLVGridExtension#findBusesToExtendBetween()}. The buses
+	 * have to keep their indices and the other sections must not have
+	 * changed. The factorisation is kept and updated, see the description of
+	 * the class, the settings are copied.
+	 *
+	 * @param extendedTopology
+	 *            The grid with the new cable
+	 * @param resistances
+	 *            The p.u. resistance of each section of the extended grid
+	 * @param reactances
+	 *            The p.u. reactance of each section of the extended grid
+	 * @param ratedCurrents
+	 *            The p.u. rated current of each section of the extended grid
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the extended grid does not consist of the sections of
+	 *             this grid and exactly one new section
+	 */
+	public CurrentInjectionLoadFlow extend(GridGraph extendedTopology, double[] resistances, double[] reactances,
+			double[] ratedCurrents) {
+		if (extendedTopology.getBusCount() != topology.getBusCount()
+				|| extendedTopology.getSectionCount() != topology.getSectionCount() + 1) {
+			throw new IllegalArgumentException("The extended grid has to have the same " + topology.getBusCount()
+					+ " buses and one section more than the " + topology.getSectionCount() + " of this grid.");
+		}
+		int newSection = -1;
+		for (int i = 0; i < extendedTopology.getSectionCount(); i++) {
+			if (topology.indexOf(extendedTopology.getSection(i)) < 0) {
+				if (newSection >= 0) {
+					throw new IllegalArgumentException("The extended grid has more than one new section.");
+				}
+				newSection = i;
+			}
+		}
+		if (updates.length >= MAXIMUM_UPDATES) {
+			return refactor(extendedTopology, resistances, reactances, ratedCurrents);
+		}
+		return new CurrentInjectionLoadFlow(this, extendedTopology, resistances, reactances, ratedCurrents,
+				newSection);
+	}
+
+	/**
+	 * Same as {@link #extend(GridGraph, double[], double[], double[])} for a
+	 * grid whose sections all implement {@link ImpedanceGridSection}
+	 *
+	 * @param extendedTopology
+	 *            The grid with the new cable
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a section does not implement {@link ImpedanceGridSection}
+	 *             or the extended grid does not consist of the sections of
+	 *             this grid and exactly one new section
+	 */
+	public CurrentInjectionLoadFlow extend(GridGraph extendedTopology) {
+		double[][] impedances = readImpedances(extendedTopology);
+		return extend(extendedTopology, impedances[0], impedances[1], impedances[2]);
+	}
+
+	/**
+	 * Returns the number of cables added since the matrix has been factorised
+	 *
+	 * @return
+	 */
+	public int getUpdateCount() {
+		return updates.length;
+	}
+
+	/**
+	 * Makes sure that all buses can be reached from the slack bus, otherwise
+	 * the admittance matrix is singular. {@link LoadFlow} has already made
+	 * sure that all sections have an impedance.
+	 */
+	private void checkConnections() {
+		int busCount = topology.getBusCount();
+		boolean[] reached = new boolean[busCount];
+		int[] queue = new int[busCount];
+		queue[0] = slackBus;
+		reached[slackBus] = true;
+		int reachedCount = 1;
+		for (int head = 0; head < reachedCount; head++) {
+			int bus = queue[head];
+			for (int i = topology.getAdjacencyStart(bus); i < topology.getAdjacencyEnd(bus); i++) {
+				int otherEnd = topology.getAdjacentBus(i);
+				if (!reached[otherEnd]) {
+					reached[otherEnd] = true;
+					queue[reachedCount++] = otherEnd;
+				}
+			}
+		}
+		if (reachedCount < busCount) {
+			throw new IllegalArgumentException((busCount - reachedCount)
+					+ " buses cannot be reached from the slack bus " + slackBus + ".");
+		}
+	}
+
+	/**
+	 * Adds the admittance of every section to the matrix, which is stored in
+	 * the arrays of the factorisation.
+	 */
+	private void assembleAdmittances() {
+		for (int i = 0; i < topology.getSectionCount(); i++) {
+			double absImpedanceSquared = resistances[i] * resistances[i] + reactances[i] * reactances[i];
+			double admittanceReal = resistances[i] / absImpedanceSquared;
+			double admittanceImag = -reactances[i] / absImpedanceSquared;
+			int first = topology.getFirstBus(i);
+			int second = topology.getSecondBus(i);
+			if (first == second) {
+				continue;
+			}
+			int firstPosition = symbolic.positionOfBus[first];
+			int secondPosition = symbolic.positionOfBus[second];
+			if (first == slackBus || second == slackBus) {
+				int position = first == slackBus ? secondPosition : firstPosition;
+				slackAdmittanceReal[position] += admittanceReal;
+				slackAdmittanceImag[position] += admittanceImag;
+				diagonalReal[position] += admittanceReal;
+				diagonalImag[position] += admittanceImag;
+				continue;
+			}
+			diagonalReal[firstPosition] += admittanceReal;
+			diagonalImag[firstPosition] += admittanceImag;
+			diagonalReal[secondPosition] += admittanceReal;
+			diagonalImag[secondPosition] += admittanceImag;
+			int entry = symbolic.find(Math.min(firstPosition, secondPosition),
+					Math.max(firstPosition, secondPosition));
+			lowerReal[entry] -= admittanceReal;
+			lowerImag[entry] -= admittanceImag;
+		}
+	}
+
+	/**
+	 * Factorises the assembled matrix in place, column by column. Every
+	 * column updates the columns of the rows in its pattern, whose patterns
+	 * contain all rows below by construction of the symbolic factorisation.
+	 * The real part of the admittance matrix is diagonally dominant, so no
+	 * pivoting is needed.
+	 */
+	private void factorise() {
+		int positionCount = symbolic.busAtPosition.length;
+		int[] columnStart = symbolic.columnStart;
+		int[] rowPositions = symbolic.rowPositions;
+		int[] entryOfRow = new int[positionCount];
+		for (int k = 0; k < positionCount; k++) {
+			double pivotReal = diagonalReal[k];
+			double pivotImag = diagonalImag[k];
+			double pivotAbsSquared = pivotReal * pivotReal + pivotImag * pivotImag;
+			for (int entry = columnStart[k]; entry < columnStart[k + 1]; entry++) {
+				double real = lowerReal[entry];
+				double imag = lowerImag[entry];
+				lowerReal[entry] = (real * pivotReal + imag * pivotImag) / pivotAbsSquared;
+				lowerImag[entry] = (imag * pivotReal - real * pivotImag) / pivotAbsSquared;
+			}
+			for (int entry = columnStart[k]; entry < columnStart[k + 1]; entry++) {
+				int j = rowPositions[entry];
+
+				/*
+				 * t = l_jk * d_k, the column j is updated with l_ik * t
+				 */
+				double tReal = lowerReal[entry] * pivotReal - lowerImag[entry] * pivotImag;
+				double tImag = lowerReal[entry] * pivotImag + lowerImag[entry] * pivotReal;
+				diagonalReal[j] -= lowerReal[entry] * tReal - lowerImag[entry] * tImag;
+				diagonalImag[j] -= lowerReal[entry] * tImag + lowerImag[entry] * tReal;
+				for (int entryOfJ = columnStart[j]; entryOfJ < columnStart[j + 1]; entryOfJ++) {
+					entryOfRow[rowPositions[entryOfJ]] = entryOfJ;
+				}
+				for (int other = entry + 1; other < columnStart[k + 1]; other++) {
+					int target = entryOfRow[rowPositions[other]];
+					lowerReal[target] -= lowerReal[other] * tReal - lowerImag[other] * tImag;
+					lowerImag[target] -= lowerReal[other] * tImag + lowerImag[other] * tReal;
+				}
+			}
+		}
+	}
+
+	protected CompactGrid calculate(double[] activePowers, double[] reactivePowers, double[] initialReal,
+			double[] initialImag) {
+		int positionCount = symbolic.busAtPosition.length;
+		double slackVoltage = getSlackVoltage();
+		double[] voltageReal = new double[positionCount];
+		double[] voltageImag = new double[positionCount];
+		double[] nextReal = new double[positionCount];
+		double[] nextImag = new double[positionCount];
+		for (int k = 0; k < positionCount; k++) {
+			voltageReal[k] = initialReal[symbolic.busAtPosition[k]];
+			voltageImag[k] = initialImag[symbolic.busAtPosition[k]];
+		}
+
+		boolean converged = false;
+		for (int iteration = 0; iteration < getMaximumIterations() && !converged; iteration++) {
+
+			/*
+			 * I = Y_slack * V_slack - conj(S / V)
+			 */
+			for (int k = 0; k < positionCount; k++) {
+				int bus = symbolic.busAtPosition[k];
+				double absVoltageSquared = voltageReal[k] * voltageReal[k] + voltageImag[k] * voltageImag[k];
+				nextReal[k] = slackAdmittanceReal[k] * slackVoltage
+						- (activePowers[bus] * voltageReal[k] + reactivePowers[bus] * voltageImag[k])
+								/ absVoltageSquared;
+				nextImag[k] = slackAdmittanceImag[k] * slackVoltage
+						- (activePowers[bus] * voltageImag[k] - reactivePowers[bus] * voltageReal[k])
+								/ absVoltageSquared;
+			}
+			solveFactorised(nextReal, nextImag);
+
+			double maximumChange = 0;
+			for (int k = 0; k < positionCount; k++) {
+				maximumChange = Math.max(maximumChange,
+						Math.abs(nextReal[k] - voltageReal[k]) + Math.abs(nextImag[k] - voltageImag[k]));
+			}
+			double[] swap = voltageReal;
+			voltageReal = nextReal;
+			nextReal = swap;
+			swap = voltageImag;
+			voltageImag = nextImag;
+			nextImag = swap;
+			converged = maximumChange < getTolerance();
+		}
+		if (!converged) {
+			throw new IllegalStateException(
+					"The loadflow did not converge within " + getMaximumIterations() + " iterations.");
+		}
+
+		int busCount = topology.getBusCount();
+		double[] busVoltageReal = new double[busCount];
+		double[] busVoltageImag = new double[busCount];
+		busVoltageReal[slackBus] = slackVoltage;
+		for (int k = 0; k < positionCount; k++) {
+			busVoltageReal[symbolic.busAtPosition[k]] = voltageReal[k];
+			busVoltageImag[symbolic.busAtPosition[k]] = voltageImag[k];
+		}
+		return createResult(busVoltageReal, busVoltageImag);
+	}
+
+	/**
+	 * Solves {@code L D L^T x = b} in place and applies the updates of the
+	 * added cables.
+	 *
+	 * @param real
+	 * @param imag
+	 */
+	private void solveFactorised(double[] real, double[] imag) {
+		int positionCount = symbolic.busAtPosition.length;
+		int[] columnStart = symbolic.columnStart;
+		int[] rowPositions = symbolic.rowPositions;
+		for (int k = 0; k < positionCount; k++) {
+			for (int entry = columnStart[k]; entry < columnStart[k + 1]; entry++) {
+				int row = rowPositions[entry];
+				real[row] -= lowerReal[entry] * real[k] - lowerImag[entry] * imag[k];
+				imag[row] -= lowerReal[entry] * imag[k] + lowerImag[entry] * real[k];
+			}
+		}
+		for (int k = 0; k < positionCount; k++) {
+			double pivotAbsSquared = diagonalReal[k] * diagonalReal[k] + diagonalImag[k] * diagonalImag[k];
+			double quotientReal = (real[k] * diagonalReal[k] + imag[k] * diagonalImag[k]) / pivotAbsSquared;
+			double quotientImag = (imag[k] * diagonalReal[k] - real[k] * diagonalImag[k]) / pivotAbsSquared;
+			real[k] = quotientReal;
+			imag[k] = quotientImag;
+		}
+		for (int k = positionCount - 1; k >= 0; k--) {
+			for (int entry = columnStart[k]; entry < columnStart[k + 1]; entry++) {
+				int row = rowPositions[entry];
+				real[k] -= lowerReal[entry] * real[row] - lowerImag[entry] * imag[row];
+				imag[k] -= lowerReal[entry] * imag[row] + lowerImag[entry] * real[row];
+			}
+		}
+		for (RankOneUpdate update : updates) {
+			if (update.firstPosition < 0) {
+				continue;
+			}
+			double projectionReal = real[update.firstPosition];
+			double projectionImag = imag[update.firstPosition];
+			if (update.secondPosition >= 0) {
+				projectionReal -= real[update.secondPosition];
+				projectionImag -= imag[update.secondPosition];
+			}
+			double scaleReal = update.factorReal * projectionReal - update.factorImag * projectionImag;
+			double scaleImag = update.factorReal * projectionImag + update.factorImag * projectionReal;
+			for (int k = 0; k < positionCount; k++) {
+				real[k] -= scaleReal * update.directionReal[k] - scaleImag * update.directionImag[k];
+				imag[k] -= scaleReal * update.directionImag[k] + scaleImag * update.directionReal[k];
+			}
+		}
+	}
+
+	/**
+	 * A cable added after the matrix has been factorised
+	 */
+	private static final class RankOneUpdate {
+
+		/**
+		 * The positions of the ends of the cable, -1 for the slack bus. Only
+		 * the second end can be the slack bus.
+		 */
+		final int firstPosition;
+
+		final int secondPosition;
+
+		/**
+		 * {@code y / (1 + y e^T w)}
+		 */
+		final double factorReal;
+
+		final double factorImag;
+
+		/**
+		 * {@code w}, the solution for {@code e} before the cable has been
+		 * added
+		 */
+		final double[] directionReal;
+
+		final double[] directionImag;
+
+		RankOneUpdate(int firstPosition, int secondPosition, double factorReal, double factorImag,
+				double[] directionReal, double[] directionImag) {
+			this.firstPosition = firstPosition;
+			this.secondPosition = secondPosition;
+			this.factorReal = factorReal;
+			this.factorImag = factorImag;
+			this.directionReal = directionReal;
+			this.directionImag = directionImag;
+		}
+
+	}
+
+	/**
+	 * The order in which the buses other than the slack bus are eliminated and
+	 * the resulting pattern of {@code L}. The order is found with the minimum
+	 * degree heuristic, which causes no fill at all in radial grids.
+	 */
+	static final class SymbolicFactorization {
+
+		/**
+		 * The bus eliminated at each position
+		 */
+		final int[] busAtPosition;
+
+		/**
+		 * The position of each bus, -1 for the slack bus
+		 */
+		final int[] positionOfBus;
+
+		/**
+		 * The entries of column {@code k} of {@code L} below the diagonal are
+		 * stored from {@code columnStart[k]} to {@code columnStart[k + 1]}
+		 */
+		final int[] columnStart;
+
+		/**
+		 * The position of the row of each entry, ascending within a column
+		 */
+		final int[] rowPositions;
+
+		SymbolicFactorization(GridGraph topology, int slackBus) {
+			int busCount = topology.getBusCount();
+			List<Set<Integer>> neighbours = new ArrayList<Set<Integer>>(busCount);
+			for (int bus = 0; bus < busCount; bus++) {
+				Set<Integer> busNeighbours = new HashSet<Integer>();
+				if (bus != slackBus) {
+					for (int i = topology.getAdjacencyStart(bus); i < topology.getAdjacencyEnd(bus); i++) {
+						int otherEnd = topology.getAdjacentBus(i);
+						if (otherEnd != slackBus && otherEnd != bus) {
+							busNeighbours.add(otherEnd);
+						}
+					}
+				}
+				neighbours.add(busNeighbours);
+			}
+
+			/*
+			 * The queue holds degree and bus in one long, outdated entries are
+			 * skipped when polled. Equal degrees are eliminated in the order
+			 * of the buses, so the order does not depend on hashing.
+			 */
+			PriorityQueue<Long> queue = new PriorityQueue<Long>();
+			for (int bus = 0; bus < busCount; bus++) {
+				if (bus != slackBus) {
+					queue.add(((long) neighbours.get(bus).size() << 32) | bus);
+				}
+			}
+			busAtPosition = new int[busCount - 1];
+			positionOfBus = new int[busCount];
+			positionOfBus[slackBus] = -1;
+			boolean[] eliminated = new boolean[busCount];
+			int[][] patterns = new int[busCount - 1][];
+			int position = 0;
+			while (!queue.isEmpty()) {
+				long entry = queue.poll();
+				int bus = (int) entry;
+				Set<Integer> busNeighbours = neighbours.get(bus);
+				if (eliminated[bus] || (int) (entry >>> 32) != busNeighbours.size()) {
+					continue;
+				}
+				eliminated[bus] = true;
+				busAtPosition[position] = bus;
+				positionOfBus[bus] = position;
+				int[] pattern = new int[busNeighbours.size()];
+				int patternSize = 0;
+				for (Integer neighbour : busNeighbours) {
+					pattern[patternSize++] = neighbour;
+				}
+				patterns[position++] = pattern;
+
+				/*
+				 * The remaining neighbours become a clique
+				 */
+				for (int neighbour : pattern) {
+					Set<Integer> neighboursOfNeighbour = neighbours.get(neighbour);
+					neighboursOfNeighbour.remove(bus);
+					for (int other : pattern) {
+						if (other != neighbour) {
+							neighboursOfNeighbour.add(other);
+						}
+					}
+					queue.add(((long) neighboursOfNeighbour.size() << 32) | neighbour);
+				}
+				busNeighbours.clear();
+			}
+
+			columnStart = new int[busCount];
+			for (int k = 0; k < patterns.length; k++) {
+				columnStart[k + 1] = columnStart[k] + patterns[k].length;
+			}
+			rowPositions = new int[columnStart[patterns.length]];
+			for (int k = 0; k < patterns.length; k++) {
+				for (int i = 0; i < patterns[k].length; i++) {
+					rowPositions[columnStart[k] + i] = positionOfBus[patterns[k][i]];
+				}
+				Arrays.sort(rowPositions, columnStart[k], columnStart[k + 1]);
+			}
+		}
+
+		/**
+		 * Returns the entry of {@code L} at the given row and column
+		 *
+		 * @param column
+		 * @param row
+		 *            Must be greater than the column
+		 * @return The index of the entry or -1 if it is not part of the
+		 *         pattern
+		 */
+		int find(int column, int row) {
+			int entry = Arrays.binarySearch(rowPositions, columnStart[column], columnStart[column + 1], row);
+			return entry < 0 ? -1 : entry;
+		}
+
+		/**
+		 * Checks whether all connections of the grid are part of the pattern
+		 *
+		 * @param topology
+		 * @return
+		 */
+		boolean fits(GridGraph topology) {
+			if (topology.getBusCount() != positionOfBus.length) {
+				return false;
+			}
+			for (int i = 0; i < topology.getSectionCount(); i++) {
+				int firstPosition = positionOfBus[topology.getFirstBus(i)];
+				int secondPosition = positionOfBus[topology.getSecondBus(i)];
+				if (firstPosition < 0 || secondPosition < 0 || firstPosition == secondPosition) {
+					continue;
+				}
+				if (find(Math.min(firstPosition, secondPosition), Math.max(firstPosition, secondPosition)) < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
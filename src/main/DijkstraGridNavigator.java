@@ -0,0 +1,284 @@
+package main;
+
+import java.util.Collection;
+
+/**
+ * A {@link GridNavigator} for grids of any topology. The grid is compiled
+ * once into a {@link GridGraph} and every route is found by Dijkstra's
+ * algorithm with the lengths of the {@link GridSection}s as weights. The
+ * search stops as soon as the goal bus is reached.
+ * <p>
+ * The navigator can be shared between threads, every thread uses its own
+ * working arrays. If {@link GridSection}s are added to the grid, a new
+ * navigator has to be created. Grids stored in an {@link OffHeapGrid} are
+ * searched on the stored topology, only the working arrays are on the heap.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class DijkstraGridNavigator implements GridNavigator {
+
+	/**
+	 * The compiled topology the routes are searched in, null if the navigator
+	 * searches an {@link OffHeapGrid}.
+	 */
+	private final GridGraph graph;
+
+	/**
+	 * The topology the routes are searched in, either {@link #graph} or an
+	 * {@link OffHeapGrid}.
+	 */
+	private final IndexedTopology topology;
+
+	/**
+	 * If set, the routes consist of the views of this grid instead of the
+	 * sections the topology was compiled from.
+	 */
+	private final IndexedGrid viewsToReturn;
+
+	/**
+	 * The working arrays of the search, one set per thread.
+	 */
+	private final ThreadLocal<SearchSpace> searchSpaces = new ThreadLocal<SearchSpace>() {
+		protected SearchSpace initialValue() {
+			return new SearchSpace(topology.getBusCount());
+		}
+	};
+
+	/**
+	 * Constructor of {@link DijkstraGridNavigator}
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid, see
+	 *            {@link GridGraph#compile(Collection)}
+	 */
+	public DijkstraGridNavigator(Collection<? extends Bus> allBuses) {
+		this(GridGraph.compile(allBuses));
+	}
+
+	/**
+	 * Constructor of {@link DijkstraGridNavigator}
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 */
+	public DijkstraGridNavigator(GridGraph graph) {
+		this.graph = graph;
+		this.topology = graph;
+		this.viewsToReturn = null;
+	}
+
+	/**
+	 * Constructor of {@link DijkstraGridNavigator} that returns the
+	 * {@link GridSection} views of the {@link CompactGrid}. The views of
+	 * other {@link CompactGrid}s with the same topology are accepted as start
+	 * and goal as well.
+	 *
+	 * @param grid
+	 */
+	public DijkstraGridNavigator(CompactGrid grid) {
+		this.graph = grid.getTopology();
+		this.topology = graph;
+		this.viewsToReturn = grid;
+	}
+
+	/**
+	 * Constructor of {@link DijkstraGridNavigator} that searches the topology
+	 * of the {@link OffHeapGrid} and returns its views.
+	 *
+	 * @param grid
+	 */
+	public DijkstraGridNavigator(OffHeapGrid grid) {
+		this.graph = null;
+		this.topology = grid;
+		this.viewsToReturn = grid;
+	}
+
+	/**
+	 * Returns the topology the navigator searches in
+	 *
+	 * @return The topology or null if the navigator searches an
+	 *         {@link OffHeapGrid}
+	 */
+	public GridGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the topology the navigator searches in, including the ones of
+	 * {@link OffHeapGrid}s
+	 *
+	 * @return
+	 */
+	IndexedTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if one of the buses is not part of the grid or no route
+	 *             between them exists
+	 */
+	public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+		int[] sectionIndices = getShortestRoute(requireIndex(startBus), requireIndex(goalBus));
+		GridSection[] route = new GridSection[sectionIndices.length];
+		for (int i = 0; i < sectionIndices.length; i++) {
+			route[i] = viewsToReturn == null ? topology.getSection(sectionIndices[i])
+					: viewsToReturn.getSection(sectionIndices[i]);
+		}
+		return route;
+	}
+
+	/**
+	 * Same as {@link #getShortestRoute(Bus, Bus)}, but works on the indices of
+	 * the {@link GridGraph} or {@link OffHeapGrid}.
+	 *
+	 * @param startBus
+	 *            Index of the bus at which the route starts
+	 * @param goalBus
+	 *            Index of the bus at which the route ends
+	 * @return The indices of the sections from {@code startBus} to
+	 *         {@code goalBus}
+	 * @throws IllegalArgumentException
+	 *             if no route between the buses exists
+	 */
+	public int[] getShortestRoute(int startBus, int goalBus) {
+		SearchSpace space = searchSpaces.get();
+		space.search(topology, startBus, goalBus);
+		if (!space.isSettled(goalBus)) {
+			throw new IllegalArgumentException("There is no route between the buses " + topology.getBus(startBus)
+					+ " and " + topology.getBus(goalBus) + ".");
+		}
+		return space.extractRoute(topology, startBus, goalBus);
+	}
+
+	/**
+	 * Returns the length of the shortest route between the two buses
+	 *
+	 * @param startBus
+	 * @param goalBus
+	 * @return The length or {@link Double#POSITIVE_INFINITY} if the buses are
+	 *         not connected
+	 */
+	public double getShortestDistance(Bus startBus, Bus goalBus) {
+		int goal = requireIndex(goalBus);
+		SearchSpace space = searchSpaces.get();
+		space.search(topology, requireIndex(startBus), goal);
+		return space.isSettled(goal) ? space.getDistance(goal) : Double.POSITIVE_INFINITY;
+	}
+
+	private int requireIndex(Bus bus) {
+		int index = topology.indexOf(bus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The bus " + bus + " is not part of the grid of the navigator.");
+		}
+		return index;
+	}
+
+	/**
+	 * The arrays a single search works on. Instead of resetting them before
+	 * each search, every search gets a new number and entries written by
+	 * older searches are treated as empty.
+	 */
+	private static final class SearchSpace {
+
+		private final double[] distances;
+
+		/**
+		 * The section over which each bus has been reached.
+		 */
+		private final int[] predecessorSections;
+
+		/**
+		 * The number of the search that last wrote {@link #distances} of the
+		 * bus.
+		 */
+		private final int[] reachedInSearch;
+
+		/**
+		 * The number of the search that settled the bus.
+		 */
+		private final int[] settledInSearch;
+
+		private final IndexedMinHeap queue;
+
+		private int searchNumber = 0;
+
+		SearchSpace(int busCount) {
+			distances = new double[busCount];
+			predecessorSections = new int[busCount];
+			reachedInSearch = new int[busCount];
+			settledInSearch = new int[busCount];
+			queue = new IndexedMinHeap(busCount);
+		}
+
+		void search(IndexedTopology graph, int startBus, int goalBus) {
+			searchNumber++;
+			if (searchNumber == Integer.MAX_VALUE) {
+				searchNumber = 1;
+				for (int i = 0; i < reachedInSearch.length; i++) {
+					reachedInSearch[i] = 0;
+					settledInSearch[i] = 0;
+				}
+			}
+			queue.clear();
+
+			distances[startBus] = 0;
+			predecessorSections[startBus] = -1;
+			reachedInSearch[startBus] = searchNumber;
+			queue.insertOrDecrease(startBus, 0);
+			while (!queue.isEmpty()) {
+				int bus = queue.pollMin();
+				settledInSearch[bus] = searchNumber;
+				if (bus == goalBus) {
+					return;
+				}
+				double distance = distances[bus];
+				for (int i = graph.getAdjacencyStart(bus); i < graph.getAdjacencyEnd(bus); i++) {
+					int neighbour = graph.getAdjacentBus(i);
+					if (settledInSearch[neighbour] == searchNumber) {
+						continue;
+					}
+					int section = graph.getAdjacentSection(i);
+					double newDistance = distance + graph.getSectionLength(section);
+					if (reachedInSearch[neighbour] != searchNumber || newDistance < distances[neighbour]) {
+						reachedInSearch[neighbour] = searchNumber;
+						distances[neighbour] = newDistance;
+						predecessorSections[neighbour] = section;
+						queue.insertOrDecrease(neighbour, newDistance);
+					}
+				}
+			}
+		}
+
+		boolean isSettled(int bus) {
+			return settledInSearch[bus] == searchNumber;
+		}
+
+		double getDistance(int bus) {
+			return distances[bus];
+		}
+
+		/**
+		 * Follows the predecessors back from the goal and returns the sections
+		 * in the order from start to goal.
+		 */
+		int[] extractRoute(IndexedTopology graph, int startBus, int goalBus) {
+			int length = 0;
+			for (int bus = goalBus; bus != startBus; length++) {
+				bus = graph.getBusAtOpposingEnd(predecessorSections[bus], bus);
+			}
+			int[] route = new int[length];
+			int bus = goalBus;
+			for (int i = length - 1; i >= 0; i--) {
+				route[i] = predecessorSections[bus];
+				bus = graph.getBusAtOpposingEnd(route[i], bus);
+			}
+			return route;
+		}
+
+	}
+
+}
@@ -129,6 +129,8 @@ public class ExampleGridsTestCases {
 		Bus[] result = extender.findBusesToExtendBetween();
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b9);
+		assertSameResultOnCompactGridCurrent(result, navigator, slackb7, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	private void testLoopCurrentOverload() {
@@ -227,6 +229,8 @@ public class ExampleGridsTestCases {
 		Bus[] result = extender.findBusesToExtendBetween();
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b9);
+		assertSameResultOnCompactGridCurrent(result, navigator, slackb7, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	private void testMeshedCurrentOverload() {
@@ -341,6 +345,8 @@ public class ExampleGridsTestCases {
 		Bus[] result = extender.findBusesToExtendBetween();
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b2);
+		assertSameResultOnCompactGridCurrent(result, navigator, slackb1, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	private void testRadialVoltageDeviation() {
@@ -437,6 +443,8 @@ public class ExampleGridsTestCases {
 		Bus[] result = extender.findBusesToExtendBetween();
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b8);
+		assertSameResultOnCompactGridVoltage(result, navigator, b12, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	private void testLoopVoltageDeviation() {
@@ -535,6 +543,8 @@ public class ExampleGridsTestCases {
 		Bus[] result = extender.findBusesToExtendBetween();
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b8);
+		assertSameResultOnCompactGridVoltage(result, navigator, b6, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	private void testMeshedVoltageDeviation() {
@@ -650,8 +660,107 @@ public class ExampleGridsTestCases {
 
 		assertTrue(result[1] == slack);
 		assertTrue(result[0] == b2);
+		assertSameResultOnCompactGridVoltage(result, navigator, b12, slack, b1, b2, b3, b4, b5, b6, b7, b8, b9,
+				b10, b11, b12);
 	}
 
 	// #endregion
 
+	// #region Shared grids
+
+	/**
+	 * Creates a radial feeder of the mocked buses slack, b1, b2 and b3,
+	 * connected in this order by the sections slack-b1, b1-b2 and b2-b3. The
+	 * buses and the sections get their indices in this order. Their voltages
+	 * and currents are not stubbed.
+	 *
+	 * @return The compiled topology, whose buses and sections are the mocks
+	 */
+	static GridGraph createRadialFeeder() {
+		Bus slack = mock(Bus.class);
+		Bus b1 = mock(Bus.class);
+		Bus b2 = mock(Bus.class);
+		Bus b3 = mock(Bus.class);
+		GridSection slackb1 = mock(GridSection.class);
+		GridSection b1b2 = mock(GridSection.class);
+		GridSection b2b3 = mock(GridSection.class);
+		when(slackb1.getConnectedBuses()).thenReturn(new Bus[] { slack, b1 });
+		when(b1b2.getConnectedBuses()).thenReturn(new Bus[] { b1, b2 });
+		when(b2b3.getConnectedBuses()).thenReturn(new Bus[] { b2, b3 });
+		when(slack.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { slackb1 }));
+		when(b1.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { slackb1, b1b2 }));
+		when(b2.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b1b2, b2b3 }));
+		when(b3.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b2b3 }));
+		return GridGraph.compile(Arrays.asList(slack, b1, b2, b3));
+	}
+
+	/**
+	 * Creates the radial feeder of {@link #createRadialFeeder()} and stubs
+	 * the state of its buses and sections
+	 *
+	 * @param puVoltages
+	 *            The voltages of slack, b1, b2 and b3
+	 * @param absSpecificCurrents
+	 *            The currents of slack-b1, b1-b2 and b2-b3
+	 * @return The compiled topology, whose buses and sections are the mocks
+	 */
+	static GridGraph createRadialFeeder(double[] puVoltages, double[] absSpecificCurrents) {
+		GridGraph topology = createRadialFeeder();
+		for (int i = 0; i < puVoltages.length; i++) {
+			when(topology.getBus(i).getPuVoltage()).thenReturn(puVoltages[i]);
+		}
+		for (int i = 0; i < absSpecificCurrents.length; i++) {
+			when(topology.getSection(i).getAbsSpecificCurrent()).thenReturn(absSpecificCurrents[i]);
+		}
+		return topology;
+	}
+
+	// #endregion
+
+	/**
+	 * Runs the algorithm a second time on a {@link CompactGrid} snapshot of
+	 * the grid and checks that the same buses are found.
+	 */
+	private void assertSameResultOnCompactGridCurrent(Bus[] expected, GridNavigator navigator,
+			GridSection overloadedSection, Bus... allBuses) {
+		CompactGrid grid = CompactGrid.snapshot(Arrays.asList(allBuses));
+		GenericLVGridExtension extender = new GenericLVGridExtension(navigatorForSnapshot(navigator, grid));
+		extender.reportCurrentOverload(grid.getSection(grid.getTopology().indexOf(overloadedSection)));
+		assertSameBuses(expected, extender.findBusesToExtendBetween(), grid);
+	}
+
+	/**
+	 * Same as
+	 * {@link #assertSameResultOnCompactGridCurrent(Bus[], GridNavigator, GridSection, Bus...)}
+	 * for voltage bound violations
+	 */
+	private void assertSameResultOnCompactGridVoltage(Bus[] expected, GridNavigator navigator, Bus overloadedBus,
+			Bus... allBuses) {
+		CompactGrid grid = CompactGrid.snapshot(Arrays.asList(allBuses));
+		GenericLVGridExtension extender = new GenericLVGridExtension(navigatorForSnapshot(navigator, grid));
+		extender.reportVoltageOverload(grid.getBus(grid.getTopology().indexOf(overloadedBus)));
+		assertSameBuses(expected, extender.findBusesToExtendBetween(), grid);
+	}
+
+	/**
+	 * The mocked navigators only know the mocked buses, so the views of the
+	 * snapshot are translated back before asking them.
+	 */
+	private GridNavigator navigatorForSnapshot(final GridNavigator navigator, final CompactGrid grid) {
+		return new GridNavigator() {
+			public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+				GridGraph topology = grid.getTopology();
+				return navigator.getShortestRoute(topology.getBus(topology.indexOf(startBus)),
+						topology.getBus(topology.indexOf(goalBus)));
+			}
+		};
+	}
+
+	private void assertSameBuses(Bus[] expected, Bus[] actual, CompactGrid grid) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue(grid.getTopology().getBus(grid.getTopology().indexOf(actual[i])) == expected[i]);
+		}
+	}
+
 }
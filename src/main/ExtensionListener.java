@@ -0,0 +1,93 @@
+package main;
+
+/**
+ * Is told by {@link GenericLVGridExtension} how its searches went: how many
+ * buses each traversal of a feeder visited, why it stopped and how long it
+ * and the calls of the {@link GridNavigator} took. Set it with
+ * {@link GenericLVGridExtension#setExtensionListener(ExtensionListener)}.
+ * <p>
+ * The methods are called on the thread that searches the extension, possibly
+ * on several threads at once, and should return quickly. If no listener is
+ * set, {@link #NONE} is used: the extension does not read the clock then, and
+ * the empty calls are inlined and removed by the JIT.
+ *
+ * @author Christopher Olk
+ *
+ */
+public interface ExtensionListener {
+
+	/**
+	 * The searches along a feeder
+	 */
+	enum Traversal {
+		/**
+		 * The search for the ends of the extension of a thermal overload, see
+		 * eq. (2), (3) and (6)
+		 */
+		CURRENT_OVERLOAD,
+		/**
+		 * The search for the local maximum or minimum voltage of a voltage
+		 * bound violation
+		 */
+		VOLTAGE_DEVIATION
+	}
+
+	/**
+	 * The reasons a search along a feeder stops
+	 */
+	enum StopReason {
+		/**
+		 * No section leads further in the search direction, the bus is a local
+		 * maximum or minimum of the voltage
+		 */
+		LOCAL_EXTREMUM,
+		/**
+		 * The next section carries too little current to be relieved by the
+		 * extension, see eq. (6)
+		 */
+		RELIEF_CRITERION
+	}
+
+	/**
+	 * The listener that ignores everything
+	 */
+	ExtensionListener NONE = new ExtensionListener() {
+
+		public void traversalFinished(Traversal traversal, boolean searchDirectionUp, int visitedBuses,
+				StopReason stopReason, long durationNanos) {
+		}
+
+		public void navigatorCalled(int routeLength, long durationNanos) {
+		}
+
+	};
+
+	/**
+	 * Called when a search along a feeder has found its end
+	 *
+	 * @param traversal
+	 *            The kind of search
+	 * @param searchDirectionUp
+	 *            True if the search followed increasing voltages
+	 * @param visitedBuses
+	 *            The number of buses the search has considered, including the
+	 *            one it stopped at
+	 * @param stopReason
+	 *            Why the search stopped at the last bus
+	 * @param durationNanos
+	 *            How long the search took in ns
+	 */
+	void traversalFinished(Traversal traversal, boolean searchDirectionUp, int visitedBuses, StopReason stopReason,
+			long durationNanos);
+
+	/**
+	 * Called when the {@link GridNavigator} has returned a route
+	 *
+	 * @param routeLength
+	 *            The number of sections of the route
+	 * @param durationNanos
+	 *            How long the navigator took in ns
+	 */
+	void navigatorCalled(int routeLength, long durationNanos);
+
+}
@@ -0,0 +1,203 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link ExtensionListener} that counts the searches of a
+ * {@link GenericLVGridExtension}, the buses they visited and the time they
+ * and the navigator took. The counters are {@link LongAdder}s, so extensions
+ * searched on many threads at once do not contend for them. They can be read
+ * at any time, e.g. by a metrics exporter, and are only consistent with each
+ * other while no search is running.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class ExtensionMetrics implements ExtensionListener {
+
+	private final LongAdder[] traversals = newAdders(Traversal.values().length);
+
+	private final LongAdder[] visitedBuses = newAdders(Traversal.values().length);
+
+	private final LongAdder[] traversalNanos = newAdders(Traversal.values().length);
+
+	private final AtomicLong[] maximumVisitedBuses = new AtomicLong[Traversal.values().length];
+
+	/**
+	 * The number of searches of each {@link Traversal} that stopped for each
+	 * {@link StopReason}, indexed by
+	 * {@code traversal.ordinal() * StopReason.values().length + stopReason.ordinal()}
+	 */
+	private final LongAdder[] stops = newAdders(Traversal.values().length * StopReason.values().length);
+
+	private final LongAdder navigatorCalls = new LongAdder();
+
+	private final LongAdder routeSections = new LongAdder();
+
+	private final LongAdder navigatorNanos = new LongAdder();
+
+	private final AtomicLong maximumNavigatorNanos = new AtomicLong();
+
+	public ExtensionMetrics() {
+		for (int i = 0; i < maximumVisitedBuses.length; i++) {
+			maximumVisitedBuses[i] = new AtomicLong();
+		}
+	}
+
+	private static LongAdder[] newAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	public void traversalFinished(Traversal traversal, boolean searchDirectionUp, int visitedBuses,
+			StopReason stopReason, long durationNanos) {
+		int index = traversal.ordinal();
+		traversals[index].increment();
+		this.visitedBuses[index].add(visitedBuses);
+		traversalNanos[index].add(durationNanos);
+		stops[index * StopReason.values().length + stopReason.ordinal()].increment();
+		raise(maximumVisitedBuses[index], visitedBuses);
+	}
+
+	public void navigatorCalled(int routeLength, long durationNanos) {
+		navigatorCalls.increment();
+		routeSections.add(routeLength);
+		navigatorNanos.add(durationNanos);
+		raise(maximumNavigatorNanos, durationNanos);
+	}
+
+	/**
+	 * Raises the maximum to the value if it is larger. The maximum is only
+	 * written if it changes, which becomes rare soon.
+	 */
+	private static void raise(AtomicLong maximum, long value) {
+		long current = maximum.get();
+		while (value > current && !maximum.compareAndSet(current, value)) {
+			current = maximum.get();
+		}
+	}
+
+	/**
+	 * Returns the number of finished searches of the kind
+	 *
+	 * @param traversal
+	 * @return
+	 */
+	public long getTraversalCount(Traversal traversal) {
+		return traversals[traversal.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of searches of the kind that stopped for the reason
+	 *
+	 * @param traversal
+	 * @param stopReason
+	 * @return
+	 */
+	public long getStopCount(Traversal traversal, StopReason stopReason) {
+		return stops[traversal.ordinal() * StopReason.values().length + stopReason.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of buses all searches of the kind visited together
+	 *
+	 * @param traversal
+	 * @return
+	 */
+	public long getVisitedBuses(Traversal traversal) {
+		return visitedBuses[traversal.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the largest number of buses a single search of the kind visited
+	 *
+	 * @param traversal
+	 * @return
+	 */
+	public long getMaximumVisitedBuses(Traversal traversal) {
+		return maximumVisitedBuses[traversal.ordinal()].get();
+	}
+
+	/**
+	 * Returns the time all searches of the kind took together in ns
+	 *
+	 * @param traversal
+	 * @return
+	 */
+	public long getTraversalNanos(Traversal traversal) {
+		return traversalNanos[traversal.ordinal()].sum();
+	}
+
+	public long getNavigatorCalls() {
+		return navigatorCalls.sum();
+	}
+
+	/**
+	 * Returns the number of sections of all routes the navigator returned
+	 *
+	 * @return
+	 */
+	public long getRouteSections() {
+		return routeSections.sum();
+	}
+
+	/**
+	 * Returns the time all calls of the navigator took together in ns
+	 *
+	 * @return
+	 */
+	public long getNavigatorNanos() {
+		return navigatorNanos.sum();
+	}
+
+	/**
+	 * Returns the time the slowest call of the navigator took in ns
+	 *
+	 * @return
+	 */
+	public long getMaximumNavigatorNanos() {
+		return maximumNavigatorNanos.get();
+	}
+
+	/**
+	 * Sets all counters to 0. Searches running meanwhile may be counted
+	 * partly.
+	 */
+	public void reset() {
+		for (int i = 0; i < traversals.length; i++) {
+			traversals[i].reset();
+			visitedBuses[i].reset();
+			traversalNanos[i].reset();
+			maximumVisitedBuses[i].set(0);
+		}
+		for (LongAdder stop : stops) {
+			stop.reset();
+		}
+		navigatorCalls.reset();
+		routeSections.reset();
+		navigatorNanos.reset();
+		maximumNavigatorNanos.set(0);
+	}
+
+	public String toString() {
+		StringBuilder builder = new StringBuilder("ExtensionMetrics[");
+		for (Traversal traversal : Traversal.values()) {
+			builder.append(traversal).append(": ").append(getTraversalCount(traversal)).append(" searches, ")
+					.append(getVisitedBuses(traversal)).append(" buses (at most ")
+					.append(getMaximumVisitedBuses(traversal)).append("), ");
+			for (StopReason stopReason : StopReason.values()) {
+				builder.append(getStopCount(traversal, stopReason)).append(' ').append(stopReason).append(", ");
+			}
+			builder.append(getTraversalNanos(traversal) / 1000).append(" us; ");
+		}
+		builder.append("navigator: ").append(getNavigatorCalls()).append(" calls, ").append(getRouteSections())
+				.append(" sections, ").append(getNavigatorNanos() / 1000).append(" us (at most ")
+				.append(getMaximumNavigatorNanos() / 1000).append(" us)]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,293 @@
+package main;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Turns a stream of loadflow snapshots into extension proposals as they come,
+ * e.g. while a load-flow engine sweeps through scenarios. Publish the
+ * snapshots to the pipeline and subscribe to it for the proposals:
+ *
+ * <pre>
+ * ExtensionPipeline pipeline = new ExtensionPipeline(new DijkstraGridNavigator(topology));
+ * pipeline.subscribe(proposalSubscriber);
+ * snapshotPublisher.subscribe(pipeline);
+ * </pre>
+ *
+ * Every snapshot passes two stages: the violations are found and reported to
+ * a {@link GenericLVGridExtension} of its own by a {@link ViolationDetector},
+ * and the extension is searched with
+ * {@link GenericLVGridExtension#findBusesToExtendBetween()}. Each stage works
+ * on at most {@code maximumConcurrency} snapshots at once and only requests
+ * the next snapshot when one has been handed on, so the snapshots are pulled
+ * no faster than the proposals are consumed.
+ * <p>
+ * The proposals are published in the order they are found, which may differ
+ * from the order of the snapshots, see {@link SnapshotProposal#getSequenceNumber()}.
+ * Results published before anybody has subscribed to the pipeline are lost.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class ExtensionPipeline implements Flow.Processor<CompactGrid, ExtensionPipeline.SnapshotProposal> {
+
+	/**
+	 * The navigator shared by all snapshots. It is called from several
+	 * threads at once.
+	 */
+	private final GridNavigator navigator;
+
+	private volatile ViolationDetector violationDetector = new ViolationDetector(0.9, 1.1, 1.0);
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 */
+	private volatile double relieveFactorCurrent = 0.4;
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 */
+	private volatile double relieveFactorVoltage = 0.7;
+
+	private final BoundedStage<Evaluation, Evaluation> reportingStage;
+
+	private final BoundedStage<Evaluation, SnapshotProposal> searchStage;
+
+	/**
+	 * The number given to the next snapshot. Only used by
+	 * {@link #onNext(CompactGrid)}, which is never called concurrently.
+	 */
+	private long nextSequenceNumber = 0;
+
+	/**
+	 * Constructor of {@link ExtensionPipeline} that runs on the common
+	 * {@link ForkJoinPool} with one snapshot per processor in each stage
+	 *
+	 * @param navigator
+	 *            The navigator to use. It is called with the views of the
+	 *            snapshots and from several threads at once.
+	 */
+	public ExtensionPipeline(GridNavigator navigator) {
+		this(navigator, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors(),
+				Flow.defaultBufferSize());
+	}
+
+	/**
+	 * Constructor of {@link ExtensionPipeline}
+	 *
+	 * @param navigator
+	 *            The navigator to use. It is called with the views of the
+	 *            snapshots and from several threads at once.
+	 * @param pool
+	 *            The pool the stages run on
+	 * @param maximumConcurrency
+	 *            The number of snapshots each stage works on at most at once
+	 * @param bufferCapacity
+	 *            The number of results buffered for each subscriber of a
+	 *            stage
+	 * @throws IllegalArgumentException
+	 *             if the concurrency or the capacity is not positive
+	 */
+	public ExtensionPipeline(GridNavigator navigator, ForkJoinPool pool, int maximumConcurrency,
+			int bufferCapacity) {
+		this.navigator = navigator;
+		reportingStage = new BoundedStage<Evaluation, Evaluation>(pool, maximumConcurrency, bufferCapacity) {
+			protected Evaluation process(Evaluation evaluation) {
+				report(evaluation);
+				return evaluation;
+			}
+		};
+		searchStage = new BoundedStage<Evaluation, SnapshotProposal>(pool, maximumConcurrency, bufferCapacity) {
+			protected SnapshotProposal process(Evaluation evaluation) {
+				return search(evaluation);
+			}
+		};
+		reportingStage.subscribe(searchStage);
+	}
+
+	/**
+	 * The first stage: reports the violations of the snapshot to a new
+	 * extension
+	 */
+	private void report(Evaluation evaluation) {
+		GenericLVGridExtension extension = new GenericLVGridExtension(navigator);
+		extension.setRelieveFactorCurrent(relieveFactorCurrent);
+		extension.setRelieveFactorVoltage(relieveFactorVoltage);
+		evaluation.violations = violationDetector.report(evaluation.snapshot, extension);
+		evaluation.extension = extension;
+	}
+
+	/**
+	 * The second stage: searches the extension for the reported violations
+	 */
+	private static SnapshotProposal search(Evaluation evaluation) {
+		ExtensionProposal proposal = null;
+		if (evaluation.extension.haveOverloadsOccured()) {
+			proposal = ExtensionProposal.of(evaluation.extension.findBusesToExtendBetween(),
+					evaluation.snapshot.getTopology());
+		}
+		return new SnapshotProposal(evaluation.sequenceNumber, evaluation.snapshot, evaluation.violations,
+				proposal);
+	}
+
+	public void subscribe(Flow.Subscriber<? super SnapshotProposal> subscriber) {
+		searchStage.subscribe(subscriber);
+	}
+
+	public void onSubscribe(Flow.Subscription subscription) {
+		reportingStage.onSubscribe(subscription);
+	}
+
+	public void onNext(CompactGrid snapshot) {
+		reportingStage.onNext(new Evaluation(nextSequenceNumber++, snapshot));
+	}
+
+	public void onError(Throwable throwable) {
+		reportingStage.onError(throwable);
+	}
+
+	public void onComplete() {
+		reportingStage.onComplete();
+	}
+
+	/**
+	 * Returns the detector the violations of the snapshots are found with
+	 *
+	 * @return
+	 */
+	public ViolationDetector getViolationDetector() {
+		return violationDetector;
+	}
+
+	/**
+	 * Sets the detector the violations of the snapshots are found with, which
+	 * decides about the bounds. Snapshots already being reported keep the
+	 * previous one.
+	 *
+	 * @param violationDetector
+	 * @throws IllegalArgumentException
+	 *             if the detector is null
+	 */
+	public void setViolationDetector(ViolationDetector violationDetector) {
+		if (violationDetector == null) {
+			throw new IllegalArgumentException("The violation detector must not be null.");
+		}
+		this.violationDetector = violationDetector;
+	}
+
+	/**
+	 * Sets the relieve factor for thermal overloads used for every snapshot,
+	 * see {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 *
+	 * @param relieveFactorCurrent
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorCurrent(double relieveFactorCurrent) {
+		if (relieveFactorCurrent > 1.0 || relieveFactorCurrent < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for thermal overloads must be between 0 and 1, but was "
+							+ relieveFactorCurrent);
+		}
+		this.relieveFactorCurrent = relieveFactorCurrent;
+	}
+
+	/**
+	 * Sets the relieve factor for voltage bound violations used for every
+	 * snapshot, see
+	 * {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 *
+	 * @param relieveFactorVoltage
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorVoltage(double relieveFactorVoltage) {
+		if (relieveFactorVoltage > 1.0 || relieveFactorVoltage < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for voltage bound violations must be between 0 and 1, but was "
+							+ relieveFactorVoltage);
+		}
+		this.relieveFactorVoltage = relieveFactorVoltage;
+	}
+
+	/**
+	 * A snapshot on its way through the stages
+	 */
+	private static final class Evaluation {
+
+		final long sequenceNumber;
+
+		final CompactGrid snapshot;
+
+		/**
+		 * Set by the first stage, read by the second one after the hand-over
+		 * through the publisher of the first stage
+		 */
+		ViolationDetector.Violations violations;
+
+		GenericLVGridExtension extension;
+
+		Evaluation(long sequenceNumber, CompactGrid snapshot) {
+			this.sequenceNumber = sequenceNumber;
+			this.snapshot = snapshot;
+		}
+
+	}
+
+	/**
+	 * The outcome of a snapshot
+	 */
+	public static final class SnapshotProposal {
+
+		private final long sequenceNumber;
+
+		private final CompactGrid snapshot;
+
+		private final ViolationDetector.Violations violations;
+
+		private final ExtensionProposal proposal;
+
+		private SnapshotProposal(long sequenceNumber, CompactGrid snapshot, ViolationDetector.Violations violations,
+				ExtensionProposal proposal) {
+			this.sequenceNumber = sequenceNumber;
+			this.snapshot = snapshot;
+			this.violations = violations;
+			this.proposal = proposal;
+		}
+
+		/**
+		 * Returns the position of the snapshot in the stream, starting at 0
+		 *
+		 * @return
+		 */
+		public long getSequenceNumber() {
+			return sequenceNumber;
+		}
+
+		public CompactGrid getSnapshot() {
+			return snapshot;
+		}
+
+		/**
+		 * Returns the violations found in the snapshot
+		 *
+		 * @return
+		 */
+		public ViolationDetector.Violations getViolations() {
+			return violations;
+		}
+
+		/**
+		 * Returns the proposed extension
+		 *
+		 * @return The proposal or null if no bound is violated
+		 */
+		public ExtensionProposal getProposal() {
+			return proposal;
+		}
+
+	}
+
+}
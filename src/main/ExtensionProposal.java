@@ -0,0 +1,88 @@
+package main;
+
+/**
+ * A new cable proposed by {@link GenericLVGridExtension}, given by the indices
+ * of the two {@link Bus}es in a {@link GridGraph}. Two proposals are equal if
+ * they connect the same buses, regardless of which one is at the low voltage
+ * side.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class ExtensionProposal {
+
+	private final int lowVoltageBus;
+
+	private final int highVoltageBus;
+
+	/**
+	 * Constructor of {@link ExtensionProposal}
+	 *
+	 * @param lowVoltageBus
+	 *            Index of the bus at the low voltage side of the cable
+	 * @param highVoltageBus
+	 *            Index of the bus at the high voltage side of the cable
+	 */
+	public ExtensionProposal(int lowVoltageBus, int highVoltageBus) {
+		this.lowVoltageBus = lowVoltageBus;
+		this.highVoltageBus = highVoltageBus;
+	}
+
+	/**
+	 * Creates the proposal from the result of
+	 * {@link GenericLVGridExtension#findBusesToExtendBetween()}
+	 *
+	 * @param busesToExtendBetween
+	 *            The two buses, the one at the low voltage side first
+	 * @param topology
+	 *            The topology the buses are part of
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if one of the buses is not part of the topology
+	 */
+	public static ExtensionProposal of(Bus[] busesToExtendBetween, GridGraph topology) {
+		int lowVoltageBus = topology.indexOf(busesToExtendBetween[0]);
+		int highVoltageBus = topology.indexOf(busesToExtendBetween[1]);
+		if (lowVoltageBus < 0 || highVoltageBus < 0) {
+			throw new IllegalArgumentException("The buses " + busesToExtendBetween[0] + " and "
+					+ busesToExtendBetween[1] + " are not both part of the grid.");
+		}
+		return new ExtensionProposal(lowVoltageBus, highVoltageBus);
+	}
+
+	/**
+	 * Returns the index of the bus at the low voltage side of the cable
+	 *
+	 * @return
+	 */
+	public int getLowVoltageBus() {
+		return lowVoltageBus;
+	}
+
+	/**
+	 * Returns the index of the bus at the high voltage side of the cable
+	 *
+	 * @return
+	 */
+	public int getHighVoltageBus() {
+		return highVoltageBus;
+	}
+
+	public boolean equals(Object other) {
+		if (!(other instanceof ExtensionProposal)) {
+			return false;
+		}
+		ExtensionProposal otherProposal = (ExtensionProposal) other;
+		return (lowVoltageBus == otherProposal.lowVoltageBus && highVoltageBus == otherProposal.highVoltageBus)
+				|| (lowVoltageBus == otherProposal.highVoltageBus && highVoltageBus == otherProposal.lowVoltageBus);
+	}
+
+	public int hashCode() {
+		return 31 * Math.min(lowVoltageBus, highVoltageBus) + Math.max(lowVoltageBus, highVoltageBus);
+	}
+
+	public String toString() {
+		return "Extension between bus " + lowVoltageBus + " and bus " + highVoltageBus;
+	}
+
+}
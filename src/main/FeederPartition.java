@@ -0,0 +1,246 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Splits a grid at the bus of its transformer, usually the slack bus, into
+ * the feeders leaving it. Two buses belong to the same feeder if they are
+ * connected without passing the transformer bus, so feeders that are meshed
+ * with each other form a single feeder. Overloads on different feeders are
+ * independent of each other and can be handled concurrently, see
+ * {@link GridExtensionPlanner#setFeederSplitBus(Bus, java.util.concurrent.ForkJoinPool)}.
+ * <p>
+ * The transformer bus belongs to no feeder, every section to the feeder of
+ * the bus at its other end. Parts of the grid that are not connected to the
+ * transformer bus at all form feeders of their own.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class FeederPartition {
+
+	private final GridGraph topology;
+
+	private final int transformerBus;
+
+	private final int feederCount;
+
+	/**
+	 * The feeder of every bus, -1 for the transformer bus
+	 */
+	private final int[] busFeeders;
+
+	/**
+	 * The feeder of every section
+	 */
+	private final int[] sectionFeeders;
+
+	/**
+	 * The buses of feeder f are stored from feederBusStart[f] to
+	 * feederBusStart[f + 1] in {@link #feederBuses}, ordered by their index.
+	 */
+	private final int[] feederBusStart;
+
+	private final int[] feederBuses;
+
+	/**
+	 * The sections of feeder f are stored from feederSectionStart[f] to
+	 * feederSectionStart[f + 1] in {@link #feederSections}.
+	 */
+	private final int[] feederSectionStart;
+
+	private final int[] feederSections;
+
+	private FeederPartition(GridGraph topology, int transformerBus) {
+		this.topology = topology;
+		this.transformerBus = transformerBus;
+		busFeeders = new int[topology.getBusCount()];
+		Arrays.fill(busFeeders, -1);
+
+		/*
+		 * The feeders leaving the transformer bus first, in the order of its
+		 * connections, then the parts of the grid not connected to it
+		 */
+		int[] queue = new int[topology.getBusCount()];
+		int feeders = 0;
+		for (int i = topology.getAdjacencyStart(transformerBus); i < topology.getAdjacencyEnd(transformerBus); i++) {
+			int firstBus = topology.getAdjacentBus(i);
+			if (firstBus != transformerBus && busFeeders[firstBus] < 0) {
+				fillFeeder(firstBus, feeders++, queue);
+			}
+		}
+		for (int i = 0; i < busFeeders.length; i++) {
+			if (i != transformerBus && busFeeders[i] < 0) {
+				fillFeeder(i, feeders++, queue);
+			}
+		}
+		feederCount = feeders;
+
+		sectionFeeders = new int[topology.getSectionCount()];
+		for (int i = 0; i < sectionFeeders.length; i++) {
+			int firstBus = topology.getFirstBus(i);
+			sectionFeeders[i] = firstBus == transformerBus ? busFeeders[topology.getSecondBus(i)]
+					: busFeeders[firstBus];
+		}
+
+		feederBusStart = new int[feederCount + 1];
+		feederBuses = group(busFeeders, feederBusStart);
+		feederSectionStart = new int[feederCount + 1];
+		feederSections = group(sectionFeeders, feederSectionStart);
+	}
+
+	/**
+	 * Assigns the feeder to all buses reached from the first bus without
+	 * passing the transformer bus
+	 */
+	private void fillFeeder(int firstBus, int feeder, int[] queue) {
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = firstBus;
+		busFeeders[firstBus] = feeder;
+		while (head < tail) {
+			int bus = queue[head++];
+			for (int i = topology.getAdjacencyStart(bus); i < topology.getAdjacencyEnd(bus); i++) {
+				int neighbour = topology.getAdjacentBus(i);
+				if (neighbour != transformerBus && busFeeders[neighbour] < 0) {
+					busFeeders[neighbour] = feeder;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts the elements by their feeder, elements of no feeder are left out
+	 *
+	 * @param feeders
+	 *            The feeder of every element
+	 * @param start
+	 *            Filled with the position of the first element of every
+	 *            feeder
+	 * @return The elements, ordered by feeder and index
+	 */
+	private int[] group(int[] feeders, int[] start) {
+		for (int feeder : feeders) {
+			if (feeder >= 0) {
+				start[feeder + 1]++;
+			}
+		}
+		for (int i = 0; i < feederCount; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] elements = new int[start[feederCount]];
+		int[] position = Arrays.copyOf(start, feederCount);
+		for (int i = 0; i < feeders.length; i++) {
+			if (feeders[i] >= 0) {
+				elements[position[feeders[i]]++] = i;
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Splits the grid at the given bus
+	 *
+	 * @param topology
+	 * @param transformerBus
+	 *            Index of the bus the feeders leave, e.g. the slack bus
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the bus is not part of the grid
+	 */
+	public static FeederPartition split(GridGraph topology, int transformerBus) {
+		if (transformerBus < 0 || transformerBus >= topology.getBusCount()) {
+			throw new IllegalArgumentException("The grid has " + topology.getBusCount()
+					+ " buses, so it cannot be split at the bus " + transformerBus + ".");
+		}
+		return new FeederPartition(topology, transformerBus);
+	}
+
+	/**
+	 * Splits the grid at the given bus
+	 *
+	 * @param topology
+	 * @param transformerBus
+	 *            The bus the feeders leave, e.g. the slack bus
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the bus is not part of the grid
+	 */
+	public static FeederPartition split(GridGraph topology, Bus transformerBus) {
+		int index = topology.indexOf(transformerBus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The bus " + transformerBus + " is not part of the grid.");
+		}
+		return new FeederPartition(topology, index);
+	}
+
+	/**
+	 * Returns the topology that has been split
+	 *
+	 * @return
+	 */
+	public GridGraph getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the index of the bus the grid has been split at
+	 *
+	 * @return
+	 */
+	public int getTransformerBus() {
+		return transformerBus;
+	}
+
+	/**
+	 * Returns the number of feeders
+	 *
+	 * @return
+	 */
+	public int getFeederCount() {
+		return feederCount;
+	}
+
+	/**
+	 * Returns the feeder the bus belongs to
+	 *
+	 * @param busIndex
+	 * @return The feeder or -1 for the transformer bus
+	 */
+	public int getFeederOfBus(int busIndex) {
+		return busFeeders[busIndex];
+	}
+
+	/**
+	 * Returns the feeder the section belongs to
+	 *
+	 * @param sectionIndex
+	 * @return The feeder or -1 if the section connects the transformer bus
+	 *         with itself
+	 */
+	public int getFeederOfSection(int sectionIndex) {
+		return sectionFeeders[sectionIndex];
+	}
+
+	/**
+	 * Returns the buses of the feeder
+	 *
+	 * @param feeder
+	 * @return The indices of the buses in ascending order
+	 */
+	public int[] getBuses(int feeder) {
+		return Arrays.copyOfRange(feederBuses, feederBusStart[feeder], feederBusStart[feeder + 1]);
+	}
+
+	/**
+	 * Returns the sections of the feeder
+	 *
+	 * @param feeder
+	 * @return The indices of the sections in ascending order
+	 */
+	public int[] getSections(int feeder) {
+		return Arrays.copyOfRange(feederSections, feederSectionStart[feeder], feederSectionStart[feeder + 1]);
+	}
+
+}
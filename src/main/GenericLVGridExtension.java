@@ -1,7 +1,25 @@
 package main;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
- * This class implements the algorithm presented in the paper.
+ * This class implements the algorithm presented in the paper. If the reported
+ * overloads are views of a {@link CompactGrid} or an {@link OffHeapGrid}, the
+ * grid is traversed on its columns instead of the {@link Bus} and
+ * {@link GridSection} interfaces. {@link IndexedBus}es and
+ * {@link IndexedGridSection}s are traversed on the objects, but their ends
+ * are read without creating arrays and the sections passed are kept in bit
+ * sets.
  * 
  * @author Christopher Olk
  *
@@ -20,15 +38,45 @@ public class GenericLVGridExtension {
 
 	/**
 	 * Here the {@link GridSection} that has been reported to have the strongest
-	 * thermal overload is stored.
+	 * thermal overload is stored. It is replaced by compare-and-set, so that
+	 * overloads can be reported from several threads at once.
 	 */
-	private GridSection worstOverloadCurrent = null;
+	private final AtomicReference<GridSection> worstOverloadCurrent = new AtomicReference<GridSection>();
 
 	/**
 	 * Here the {@link Bus} that has been reported to have the strongest voltage
-	 * bound violation is stored.
+	 * bound violation is stored. It is replaced by compare-and-set as well.
+	 */
+	private final AtomicReference<Bus> worstOverloadVoltage = new AtomicReference<Bus>();
+
+	/**
+	 * The number of reported overloads of each kind that are retained for
+	 * {@link #findNonInterferingExtensions()}.
+	 */
+	private volatile int trackedOverloadCount = 1;
+
+	/**
+	 * The {@link GridSection}s with the strongest thermal overloads, the
+	 * weakest of them at the head. Only used if more than one overload is
+	 * tracked.
+	 */
+	private final PriorityQueue<GridSection> strongestOverloadsCurrent = new PriorityQueue<GridSection>(11,
+			new Comparator<GridSection>() {
+				public int compare(GridSection first, GridSection second) {
+					return Double.compare(first.getAbsSpecificCurrent(), second.getAbsSpecificCurrent());
+				}
+			});
+
+	/**
+	 * The {@link Bus}es with the strongest voltage bound violations, the
+	 * weakest of them at the head. Only used if more than one overload is
+	 * tracked.
 	 */
-	private Bus worstOverloadVoltage = null;
+	private final PriorityQueue<Bus> strongestOverloadsVoltage = new PriorityQueue<Bus>(11, new Comparator<Bus>() {
+		public int compare(Bus first, Bus second) {
+			return Double.compare(Math.abs(first.getPuVoltage() - 1), Math.abs(second.getPuVoltage() - 1));
+		}
+	});
 
 	/**
 	 * The implementation of {@link GridNavigator} that the user has supplied is
@@ -36,6 +84,17 @@ public class GenericLVGridExtension {
 	 */
 	private final GridNavigator navigator;
 
+	/**
+	 * Is told how the searches went, see {@link ExtensionListener}
+	 */
+	private volatile ExtensionListener listener = ExtensionListener.NONE;
+
+	/**
+	 * The precomputed paths of the snapshot the overloads belong to, null if
+	 * the feeders are searched bus by bus
+	 */
+	private volatile SteepestPaths steepestPaths;
+
 	/**
 	 * Constructor of {@link GenericLVGridExtension}
 	 * 
@@ -53,7 +112,7 @@ public class GenericLVGridExtension {
 	 * @return True if any overloads have been reported, false if not.
 	 */
 	public boolean haveOverloadsOccured() {
-		return (worstOverloadCurrent != null) || (worstOverloadVoltage != null);
+		return (worstOverloadCurrent.get() != null) || (worstOverloadVoltage.get() != null);
 	}
 
 	/**
@@ -65,128 +124,454 @@ public class GenericLVGridExtension {
 	 * @return The two nodes between which a new cable should be built.
 	 */
 	public Bus[] findBusesToExtendBetween() {
-		if (worstOverloadCurrent != null) {
-			return handleCurrentOverloads();
+		GridSection overloadedSection = worstOverloadCurrent.get();
+		if (overloadedSection != null) {
+			return handleCurrentOverloads(overloadedSection, null);
 		}
-		if (worstOverloadVoltage != null) {
-			return handleVoltageOverloads();
+		Bus overloadedBus = worstOverloadVoltage.get();
+		if (overloadedBus != null) {
+			return handleVoltageOverloads(overloadedBus, null);
 		}
 		return null;
 	}
 
+	/**
+	 * Finds an extension for each of the tracked overloads, see
+	 * {@link #setTrackedOverloadCount(int)}, as long as the extensions do not
+	 * interfere with each other. The thermal overloads are handled first, the
+	 * strongest one first, followed by the voltage bound violations. An
+	 * extension is only kept if none of the sections traversed to find it has
+	 * been traversed for an extension kept before, so all returned extensions
+	 * relieve different feeders and can be built within the same round. The
+	 * first extension is always the one {@link #findBusesToExtendBetween()}
+	 * returns. {@link IndexedGridSection}s are compared by their index, so the
+	 * reported overloads have to belong to the same grid, all other sections
+	 * by {@link Object#equals(Object)}.
+	 * 
+	 * @return The pairs of nodes between which new cables should be built,
+	 *         empty if no overloads have been reported.
+	 */
+	public List<Bus[]> findNonInterferingExtensions() {
+		List<Bus[]> extensions = new ArrayList<Bus[]>();
+		SectionSet usedSections = new SectionSet();
+		for (GridSection overloadedSection : getReportedOverloadsCurrent()) {
+			SectionSet traversedSections = new SectionSet();
+			Bus[] extension = handleCurrentOverloads(overloadedSection, traversedSections);
+			if (!usedSections.intersects(traversedSections)) {
+				extensions.add(extension);
+				usedSections.addAll(traversedSections);
+			}
+		}
+		for (Bus overloadedBus : getReportedOverloadsVoltage()) {
+			SectionSet traversedSections = new SectionSet();
+			Bus[] extension = handleVoltageOverloads(overloadedBus, traversedSections);
+			if (!usedSections.intersects(traversedSections)) {
+				extensions.add(extension);
+				usedSections.addAll(traversedSections);
+			}
+		}
+		return extensions;
+	}
+
 	/**
 	 * Handles the thermal overloads as described in the paper.
 	 * 
+	 * @param overloadedSection
+	 *            The section with the worst thermal overload
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
 	 * @return The two nodes between which a new cable should be built.
 	 */
-	private Bus[] handleCurrentOverloads() {
-		Bus highVoltageBus = iterativelyFindGridSectionsCurrentOverload(worstOverloadCurrent, true);
-		Bus lowVoltageBus = iterativelyFindGridSectionsCurrentOverload(worstOverloadCurrent, false);
+	private Bus[] handleCurrentOverloads(GridSection overloadedSection, SectionSet traversedSections) {
+		if (overloadedSection instanceof IndexedGrid.Element) {
+			return handleCurrentOverloads((IndexedGrid.Element) overloadedSection, traversedSections);
+		}
+		Bus highVoltageBus = iterativelyFindGridSectionsCurrentOverload(overloadedSection, true, traversedSections);
+		Bus lowVoltageBus = iterativelyFindGridSectionsCurrentOverload(overloadedSection, false, traversedSections);
 		return new Bus[] { lowVoltageBus, highVoltageBus };
 	}
 
 	/**
-	 * Helper-method for {@link #handleCurrentOverloads()} that actually
-	 * implements the algorithm described in the paper.
+	 * Helper-method for
+	 * {@link #handleCurrentOverloads(GridSection, SectionSet)} that actually
+	 * implements the algorithm described in the paper. The feeder is followed
+	 * in a loop, so feeders of any length can be searched without growing the
+	 * stack.
 	 * 
 	 * @param lastSectionAlreadyExtended
-	 *            The last {@link GridSection} that has been marked as one to be
-	 *            extended in the current search direction.
+	 *            The {@link GridSection} with the thermal overload, from which
+	 *            the search starts.
 	 * @param searchDirectionUp
 	 *            True if the algorithm should follow the feeder towards
 	 *            increasing voltages, false if it should follow decreasing
 	 *            voltages.
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
 	 * @return The bus at which the extension cable should be added.
 	 */
 	private Bus iterativelyFindGridSectionsCurrentOverload(GridSection lastSectionAlreadyExtended,
-			boolean searchDirectionUp) {
-		Bus busToConsider;
-		if (searchDirectionUp) {
-			busToConsider = getHighVoltageBus(lastSectionAlreadyExtended);
-		} else {
-			busToConsider = getLowVoltageBus(lastSectionAlreadyExtended);
+			boolean searchDirectionUp, SectionSet traversedSections) {
+		double minimumCurrent = lastSectionAlreadyExtended.getAbsSpecificCurrent() * (1 - relieveFactorCurrent);
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
+		int visitedBuses = 0;
+		while (true) {
+			visitedBuses++;
+			Bus busToConsider;
+			if (searchDirectionUp) {
+				busToConsider = getHighVoltageBus(lastSectionAlreadyExtended);
+			} else {
+				busToConsider = getLowVoltageBus(lastSectionAlreadyExtended);
+			}
+			if (traversedSections != null) {
+				traversedSections.add(lastSectionAlreadyExtended);
+			}
+
+			GridSection nextSection = findNextSectionOfFeeder(busToConsider, searchDirectionUp);
+
+			/*
+			 * If no section has been found, it means that we have arrived at a
+			 * local minimum and consequently can abort the search.
+			 */
+			if (nextSection == null) {
+				traversalFinished(listener, ExtensionListener.Traversal.CURRENT_OVERLOAD, searchDirectionUp,
+						visitedBuses, ExtensionListener.StopReason.LOCAL_EXTREMUM, startTime);
+				return busToConsider;
+			}
+
+			/*
+			 * The next section does not carry enough current anymore to
+			 * warrant a new cable beeing built. See eq (6)
+			 */
+			if (nextSection.getAbsSpecificCurrent() < minimumCurrent) {
+				traversalFinished(listener, ExtensionListener.Traversal.CURRENT_OVERLOAD, searchDirectionUp,
+						visitedBuses, ExtensionListener.StopReason.RELIEF_CRITERION, startTime);
+				return busToConsider;
+			}
+
+			/*
+			 * We have not reached the end of the search yet and will
+			 * consequently continue with the next section
+			 */
+			lastSectionAlreadyExtended = nextSection;
 		}
+	}
 
-		/*
-		 * We consider all grid sections connected to the bus and try to find
-		 * the one fulfilling (2) or (3), depending on whether searchDirectionUp
-		 * is true or false which tells us the search direction.
-		 */
+	/**
+	 * We consider all grid sections connected to the bus and try to find the
+	 * one fulfilling (2) or (3), depending on whether
+	 * {@code searchDirectionUp} is true or false which tells us the search
+	 * direction. Of all sections leading in the search direction, the one
+	 * carrying the most current is chosen. Lists with random access are
+	 * iterated by index, so no iterator has to be created.
+	 * 
+	 * @param busToConsider
+	 *            The bus the feeder has been followed to
+	 * @param searchDirectionUp
+	 *            True if the next section should lead towards a higher
+	 *            voltage, false if it should lead towards a lower voltage.
+	 * @return The next section of the feeder or null if the bus is a local
+	 *         extremum.
+	 */
+	private GridSection findNextSectionOfFeeder(Bus busToConsider, boolean searchDirectionUp) {
+		double voltage = busToConsider.getPuVoltage();
+		Collection<GridSection> connectedSections = busToConsider.getConnectedPowerGridSections();
 		GridSection nextSection = null;
-		for (GridSection connectedSection : busToConsider.getConnectedPowerGridSections()) {
-			if (getBusAtOpposingEnd(connectedSection, busToConsider).getPuVoltage() > busToConsider
-					.getPuVoltage() == searchDirectionUp
-					&& (nextSection == null
-							|| nextSection.getAbsSpecificCurrent() < connectedSection.getAbsSpecificCurrent())) {
-				nextSection = connectedSection;
+		if (connectedSections instanceof List && connectedSections instanceof RandomAccess) {
+			List<GridSection> connectedSectionList = (List<GridSection>) connectedSections;
+			for (int i = 0; i < connectedSectionList.size(); i++) {
+				GridSection connectedSection = connectedSectionList.get(i);
+				if (isBetterNextSection(connectedSection, nextSection, busToConsider, voltage, searchDirectionUp)) {
+					nextSection = connectedSection;
+				}
+			}
+		} else {
+			for (GridSection connectedSection : connectedSections) {
+				if (isBetterNextSection(connectedSection, nextSection, busToConsider, voltage, searchDirectionUp)) {
+					nextSection = connectedSection;
+				}
 			}
 		}
+		return nextSection;
+	}
 
-		/*
-		 * If no section has been found, it means that we have arrived at a
-		 * local minimum and consequently can abort the search.
-		 */
-		if (nextSection == null) {
-			return busToConsider;
+	/**
+	 * Checks whether {@code connectedSection} leads in the search direction
+	 * and carries more current than the best section found so far.
+	 */
+	private boolean isBetterNextSection(GridSection connectedSection, GridSection nextSection, Bus busToConsider,
+			double voltage, boolean searchDirectionUp) {
+		return leadsInSearchDirection(getBusAtOpposingEnd(connectedSection, busToConsider).getPuVoltage(), voltage,
+				searchDirectionUp)
+				&& (nextSection == null
+						|| nextSection.getAbsSpecificCurrent() < connectedSection.getAbsSpecificCurrent());
+	}
+
+	/**
+	 * Checks whether a bus with the voltage {@code otherVoltage} lies in the
+	 * search direction of a bus with the voltage {@code voltage}. Both
+	 * directions compare strictly, so a neighbour of equal voltage is never
+	 * followed and every search ends after at most as many steps as there are
+	 * buses.
+	 */
+	static boolean leadsInSearchDirection(double otherVoltage, double voltage, boolean searchDirectionUp) {
+		return searchDirectionUp ? otherVoltage > voltage : otherVoltage < voltage;
+	}
+
+	/**
+	 * Same as {@link #handleCurrentOverloads(GridSection, SectionSet)}, but
+	 * works directly on the columns of the {@link IndexedGrid} the reported
+	 * section belongs to.
+	 * 
+	 * @param overloadedSection
+	 *            The reported section
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
+	 * @return The two nodes between which a new cable should be built.
+	 */
+	private Bus[] handleCurrentOverloads(IndexedGrid.Element overloadedSection,
+			SectionSet traversedSections) {
+		IndexedGrid grid = overloadedSection.getGrid();
+		int highVoltageBus = findBusCurrentOverload(grid, overloadedSection.getIndex(), true, traversedSections);
+		int lowVoltageBus = findBusCurrentOverload(grid, overloadedSection.getIndex(), false, traversedSections);
+		return new Bus[] { grid.getBus(lowVoltageBus), grid.getBus(highVoltageBus) };
+	}
+
+	/**
+	 * Same as
+	 * {@link #iterativelyFindGridSectionsCurrentOverload(GridSection, boolean, SectionSet)}
+	 * for an {@link IndexedGrid}. The sections of each bus are considered in
+	 * the same order, so the result is identical.
+	 * 
+	 * @param grid
+	 *            The grid the overloaded section belongs to
+	 * @param overloadedSection
+	 *            Index of the section with the worst thermal overload
+	 * @param searchDirectionUp
+	 *            True if the algorithm should follow the feeder towards
+	 *            increasing voltages, false if it should follow decreasing
+	 *            voltages.
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
+	 * @return The index of the bus at which the extension cable should be
+	 *         added.
+	 */
+	private int findBusCurrentOverload(IndexedGrid grid, int overloadedSection, boolean searchDirectionUp,
+			SectionSet traversedSections) {
+		IndexedTopology topology = grid.getTopology();
+		double minimumCurrent = grid.getAbsSpecificCurrent(overloadedSection) * (1 - relieveFactorCurrent);
+		int lastSectionAlreadyExtended = overloadedSection;
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
+		SteepestPaths paths = steepestPaths;
+		if (paths != null && paths.isFor(grid)) {
+			int firstBus = getBusAtEnd(grid, overloadedSection, searchDirectionUp);
+			if (traversedSections != null) {
+				traversedSections.add(overloadedSection);
+			}
+			return followSteepestPath(paths, grid, firstBus, searchDirectionUp, minimumCurrent,
+					ExtensionListener.Traversal.CURRENT_OVERLOAD, traversedSections, listener, startTime);
 		}
+		int visitedBuses = 0;
+		while (true) {
+			visitedBuses++;
+			int busToConsider = getBusAtEnd(grid, lastSectionAlreadyExtended, searchDirectionUp);
+			double voltage = grid.getPuVoltage(busToConsider);
+			if (traversedSections != null) {
+				traversedSections.add(lastSectionAlreadyExtended);
+			}
 
-		/*
-		 * The next section does not carry enough current anymore to warrant a
-		 * new cable beeing built. See eq (6)
-		 */
-		if (nextSection.getAbsSpecificCurrent() < worstOverloadCurrent.getAbsSpecificCurrent()
-				* (1 - relieveFactorCurrent)) {
-			return busToConsider;
+			/*
+			 * See (2) and (3), the section carrying the most current in the
+			 * search direction is chosen.
+			 */
+			int nextSection = -1;
+			double nextSectionCurrent = 0;
+			for (int i = topology.getAdjacencyStart(busToConsider); i < topology.getAdjacencyEnd(busToConsider); i++) {
+				int connectedSection = topology.getAdjacentSection(i);
+				double current = grid.getAbsSpecificCurrent(connectedSection);
+				if (leadsInSearchDirection(grid.getPuVoltage(topology.getAdjacentBus(i)), voltage, searchDirectionUp)
+						&& (nextSection < 0 || nextSectionCurrent < current)) {
+					nextSection = connectedSection;
+					nextSectionCurrent = current;
+				}
+			}
+
+			/*
+			 * Either a local extremum has been reached or the next section does
+			 * not carry enough current anymore, see eq (6)
+			 */
+			if (nextSection < 0 || nextSectionCurrent < minimumCurrent) {
+				traversalFinished(listener, ExtensionListener.Traversal.CURRENT_OVERLOAD, searchDirectionUp,
+						visitedBuses, nextSection < 0 ? ExtensionListener.StopReason.LOCAL_EXTREMUM
+								: ExtensionListener.StopReason.RELIEF_CRITERION,
+						startTime);
+				return busToConsider;
+			}
+			lastSectionAlreadyExtended = nextSection;
 		}
+	}
 
-		/*
-		 * We have not reached the end of the search yet and will consequently
-		 * continue the iterative search
-		 */
-		return iterativelyFindGridSectionsCurrentOverload(nextSection, searchDirectionUp);
+	/**
+	 * Returns the bus with the higher or lower voltage of the section, like
+	 * {@link #getHighVoltageBus(GridSection)} and
+	 * {@link #getLowVoltageBus(GridSection)}.
+	 * 
+	 * @param grid
+	 * @param section
+	 * @param highVoltageEnd
+	 *            True for the bus with the higher voltage
+	 * @return
+	 */
+	private static int getBusAtEnd(IndexedGrid grid, int section, boolean highVoltageEnd) {
+		int firstBus = grid.getTopology().getFirstBus(section);
+		int secondBus = grid.getTopology().getSecondBus(section);
+		if (highVoltageEnd ? grid.getPuVoltage(secondBus) > grid.getPuVoltage(firstBus)
+				: grid.getPuVoltage(secondBus) < grid.getPuVoltage(firstBus)) {
+			return secondBus;
+		}
+		return firstBus;
 	}
 
 	/**
 	 * Implements the algorithm described in the paper for voltage bound
 	 * violations.
 	 * 
+	 * @param overloadedBus
+	 *            The bus with the worst voltage bound violation
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
 	 * @return The buses between which the cable should be built to relieve the
 	 *         voltage bound violation.
 	 */
-	private Bus[] handleVoltageOverloads() {
+	private Bus[] handleVoltageOverloads(Bus overloadedBus, SectionSet traversedSections) {
+		if (overloadedBus instanceof IndexedGrid.Element) {
+			return handleVoltageOverloads((IndexedGrid.Element) overloadedBus, traversedSections);
+		}
+
 		/*
 		 * First we find the local maximum and minimum voltage
 		 */
-		Bus highVoltageEnd = findMainFeederForVoltageDeviation(true);
-		Bus lowVoltageEnd = findMainFeederForVoltageDeviation(false);
+		Bus highVoltageEnd = findMainFeederForVoltageDeviation(overloadedBus, true, traversedSections);
+		Bus lowVoltageEnd = findMainFeederForVoltageDeviation(overloadedBus, false, traversedSections);
 
 		/*
 		 * We now let the navigator give us the shortest route between the two
 		 * buses.
 		 */
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
 		GridSection[] feederAsArray = navigator.getShortestRoute(lowVoltageEnd, highVoltageEnd);
+		if (listener != ExtensionListener.NONE) {
+			listener.navigatorCalled(feederAsArray.length, System.nanoTime() - startTime);
+		}
+
+		Bus[] feederBuses = new Bus[feederAsArray.length + 1];
+		double[] feederVoltages = new double[feederBuses.length];
+		feederBuses[0] = lowVoltageEnd;
+		feederVoltages[0] = lowVoltageEnd.getPuVoltage();
+		for (int i = 0; i < feederAsArray.length; i++) {
+			feederBuses[i + 1] = getBusAtOpposingEnd(feederAsArray[i], feederBuses[i]);
+			feederVoltages[i + 1] = feederBuses[i + 1].getPuVoltage();
+		}
+		if (traversedSections != null) {
+			for (GridSection feederSection : feederAsArray) {
+				traversedSections.add(feederSection);
+			}
+		}
+
+		int[] extensionPositions = findExtensionOnFeeder(feederVoltages);
+		return new Bus[] { feederBuses[extensionPositions[0]], feederBuses[extensionPositions[1]] };
+	}
+
+	/**
+	 * Same as {@link #handleVoltageOverloads(Bus, SectionSet)}, but works
+	 * directly on the columns of the {@link IndexedGrid} the reported bus
+	 * belongs to. If the navigator is a {@link DijkstraGridNavigator} of the
+	 * same topology, the route is taken as indices as well.
+	 * 
+	 * @param overloadedBus
+	 *            The reported bus
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
+	 * @return The buses between which the cable should be built to relieve the
+	 *         voltage bound violation.
+	 */
+	private Bus[] handleVoltageOverloads(IndexedGrid.Element overloadedBus, SectionSet traversedSections) {
+		IndexedGrid grid = overloadedBus.getGrid();
+		IndexedTopology topology = grid.getTopology();
+		int highVoltageEnd = findMainFeederForVoltageDeviation(grid, overloadedBus.getIndex(), true,
+				traversedSections);
+		int lowVoltageEnd = findMainFeederForVoltageDeviation(grid, overloadedBus.getIndex(), false,
+				traversedSections);
+
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
+		int[] feederAsArray;
+		if (navigator instanceof DijkstraGridNavigator
+				&& ((DijkstraGridNavigator) navigator).getTopology() == topology) {
+			feederAsArray = ((DijkstraGridNavigator) navigator).getShortestRoute(lowVoltageEnd, highVoltageEnd);
+		} else {
+			GridSection[] route = navigator.getShortestRoute(grid.getBus(lowVoltageEnd), grid.getBus(highVoltageEnd));
+			feederAsArray = new int[route.length];
+			for (int i = 0; i < route.length; i++) {
+				feederAsArray[i] = topology.indexOf(route[i]);
+				if (feederAsArray[i] < 0) {
+					throw new IllegalArgumentException(
+							"The navigator returned the section " + route[i] + " which is not part of the grid.");
+				}
+			}
+		}
+		if (listener != ExtensionListener.NONE) {
+			listener.navigatorCalled(feederAsArray.length, System.nanoTime() - startTime);
+		}
+
+		int[] feederBuses = new int[feederAsArray.length + 1];
+		double[] feederVoltages = new double[feederBuses.length];
+		feederBuses[0] = lowVoltageEnd;
+		feederVoltages[0] = grid.getPuVoltage(lowVoltageEnd);
+		for (int i = 0; i < feederAsArray.length; i++) {
+			feederBuses[i + 1] = topology.getBusAtOpposingEnd(feederAsArray[i], feederBuses[i]);
+			feederVoltages[i + 1] = grid.getPuVoltage(feederBuses[i + 1]);
+		}
+		if (traversedSections != null) {
+			for (int feederSection : feederAsArray) {
+				traversedSections.add(feederSection);
+			}
+		}
+
+		int[] extensionPositions = findExtensionOnFeeder(feederVoltages);
+		return new Bus[] { grid.getBus(feederBuses[extensionPositions[0]]),
+				grid.getBus(feederBuses[extensionPositions[1]]) };
+	}
+
+	/**
+	 * Finds the buses on the feeder between which the cable should be built to
+	 * relieve the voltage bound violation.
+	 * 
+	 * @param feederVoltages
+	 *            The voltages of the buses along the shortest route, starting
+	 *            at the local minimum and ending at the local maximum.
+	 * @return The positions of the bus at the low voltage side and of the bus
+	 *         at the high voltage side within {@code feederVoltages}
+	 */
+	private int[] findExtensionOnFeeder(double[] feederVoltages) {
+		int lastPosition = feederVoltages.length - 1;
 
 		/*
 		 * This section searches for the bus in the sequence that has its
 		 * voltage closest to reference voltage. We need it to start our
 		 * extension algorithm from there
 		 */
-		Bus centreBus = null;
-		Integer indexMiddle = null;
-		if (lowVoltageEnd.getPuVoltage() >= 1) {
-			centreBus = lowVoltageEnd;
-		} else {
-			Bus currentBus = lowVoltageEnd;
-			double deltaToRef = Math.abs(currentBus.getPuVoltage() - 1);
-			for (int i = 0; i < feederAsArray.length; i++) {
-				currentBus = getBusAtOpposingEnd(feederAsArray[i], currentBus);
-				double newDeltaToRef = Math.abs(currentBus.getPuVoltage() - 1);
-
+		int centrePosition = 0;
+		if (feederVoltages[0] < 1) {
+			double deltaToRef = Math.abs(feederVoltages[0] - 1);
+			for (int i = 1; i <= lastPosition; i++) {
+				double newDeltaToRef = Math.abs(feederVoltages[i] - 1);
 				if (newDeltaToRef > deltaToRef) {
 					break;
 				}
-				indexMiddle = i;
-				centreBus = currentBus;
+				centrePosition = i;
 				deltaToRef = newDeltaToRef;
 			}
 		}
@@ -195,69 +580,159 @@ public class GenericLVGridExtension {
 		 * The following section returns the bus at the low voltage side at
 		 * which the extension cable should be added.
 		 */
-		Bus lowVoltageBus = centreBus;
-		if (indexMiddle != 0) {
-			double lowVoltageCriterion = 1 - (relieveFactorVoltage * (1 - lowVoltageEnd.getPuVoltage()));
-			for (int i = indexMiddle; i >= 0; i--) {
-				Bus newLowVoltageBus = getBusAtOpposingEnd(feederAsArray[i], lowVoltageBus);
-				if (newLowVoltageBus.getPuVoltage() < lowVoltageCriterion) {
-					break;
-				}
-				lowVoltageBus = newLowVoltageBus;
-			}
+		int lowVoltagePosition = centrePosition;
+		double lowVoltageCriterion = 1 - (relieveFactorVoltage * (1 - feederVoltages[0]));
+		while (lowVoltagePosition > 0 && feederVoltages[lowVoltagePosition - 1] >= lowVoltageCriterion) {
+			lowVoltagePosition--;
 		}
 
 		/*
 		 * The following section returns the bus at the high voltage side at
 		 * which the extension cable should be added.
 		 */
-		Bus highVoltageBus = centreBus;
-		if (indexMiddle != feederAsArray.length) {
-			double highVoltageCriterion = 1 + (relieveFactorVoltage * (highVoltageEnd.getPuVoltage() - 1));
-			for (int i = indexMiddle + 1; i < feederAsArray.length; i--) {
-				Bus newHighVoltageBus = getBusAtOpposingEnd(feederAsArray[i], highVoltageBus);
-				if (highVoltageBus.getPuVoltage() < highVoltageCriterion) {
-					break;
-				}
-				highVoltageBus = newHighVoltageBus;
-			}
+		int highVoltagePosition = centrePosition;
+		double highVoltageCriterion = 1 + (relieveFactorVoltage * (feederVoltages[lastPosition] - 1));
+		while (highVoltagePosition < lastPosition
+				&& feederVoltages[highVoltagePosition + 1] <= highVoltageCriterion) {
+			highVoltagePosition++;
 		}
 
-		return new Bus[] { lowVoltageBus, highVoltageBus };
+		return new int[] { lowVoltagePosition, highVoltagePosition };
 	}
 
 	/**
 	 * Searches for the local maximum and minimum voltage, depending on
 	 * {@code searchingHigherVoltages}
 	 * 
+	 * @param overloadedBus
+	 *            The bus with the worst voltage bound violation
 	 * @param searchingHigherVoltages
 	 *            True if the method should find the local maximum, false if it
 	 *            should find the local minimum
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
 	 * @return The local maximum or minimum voltage, depending on
 	 *         {@code searchingHigherVoltages}
 	 */
-	private Bus findMainFeederForVoltageDeviation(boolean searchingHigherVoltages) {
-		Bus currentBus = worstOverloadVoltage;
-		boolean stillSearchingForOtherEndOfFeeder = true;
-		while (stillSearchingForOtherEndOfFeeder) {
-			Bus nextBus = null;
-			GridSection sectionBetweenBuses = null;
-			for (GridSection connectedSection : currentBus.getConnectedPowerGridSections()) {
-				Bus otherEnd = getBusAtOpposingEnd(connectedSection, currentBus);
-				if (otherEnd.getPuVoltage() > currentBus.getPuVoltage() == searchingHigherVoltages && (nextBus == null
-						|| sectionBetweenBuses.getAbsSpecificCurrent() < connectedSection.getAbsSpecificCurrent())) {
+	private Bus findMainFeederForVoltageDeviation(Bus overloadedBus, boolean searchingHigherVoltages,
+			SectionSet traversedSections) {
+		Bus currentBus = overloadedBus;
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
+		int visitedBuses = 0;
+		while (true) {
+			visitedBuses++;
+			GridSection sectionBetweenBuses = findNextSectionOfFeeder(currentBus, searchingHigherVoltages);
+			if (sectionBetweenBuses == null) {
+				traversalFinished(listener, ExtensionListener.Traversal.VOLTAGE_DEVIATION, searchingHigherVoltages,
+						visitedBuses, ExtensionListener.StopReason.LOCAL_EXTREMUM, startTime);
+				return currentBus;
+			}
+			if (traversedSections != null) {
+				traversedSections.add(sectionBetweenBuses);
+			}
+			currentBus = getBusAtOpposingEnd(sectionBetweenBuses, currentBus);
+		}
+	}
+
+	/**
+	 * Same as
+	 * {@link #findMainFeederForVoltageDeviation(Bus, boolean, SectionSet)} for
+	 * an {@link IndexedGrid}.
+	 * 
+	 * @param grid
+	 *            The grid the overloaded bus belongs to
+	 * @param overloadedBus
+	 *            Index of the bus with the worst voltage bound violation
+	 * @param searchingHigherVoltages
+	 *            True if the method should find the local maximum, false if it
+	 *            should find the local minimum
+	 * @param traversedSections
+	 *            If not null, all sections the search passes are added
+	 * @return The index of the bus with the local maximum or minimum voltage
+	 */
+	private int findMainFeederForVoltageDeviation(IndexedGrid grid, int overloadedBus,
+			boolean searchingHigherVoltages, SectionSet traversedSections) {
+		IndexedTopology topology = grid.getTopology();
+		int currentBus = overloadedBus;
+		ExtensionListener listener = this.listener;
+		long startTime = listener == ExtensionListener.NONE ? 0 : System.nanoTime();
+		SteepestPaths paths = steepestPaths;
+		if (paths != null && paths.isFor(grid)) {
+			return followSteepestPath(paths, grid, overloadedBus, searchingHigherVoltages, Double.NEGATIVE_INFINITY,
+					ExtensionListener.Traversal.VOLTAGE_DEVIATION, traversedSections, listener, startTime);
+		}
+		int visitedBuses = 0;
+		while (true) {
+			visitedBuses++;
+			double voltage = grid.getPuVoltage(currentBus);
+			int nextBus = -1;
+			int sectionBetweenBuses = -1;
+			double currentBetweenBuses = 0;
+			for (int i = topology.getAdjacencyStart(currentBus); i < topology.getAdjacencyEnd(currentBus); i++) {
+				int otherEnd = topology.getAdjacentBus(i);
+				double current = grid.getAbsSpecificCurrent(topology.getAdjacentSection(i));
+				if (leadsInSearchDirection(grid.getPuVoltage(otherEnd), voltage, searchingHigherVoltages)
+						&& (nextBus < 0 || currentBetweenBuses < current)) {
 					nextBus = otherEnd;
-					sectionBetweenBuses = connectedSection;
+					sectionBetweenBuses = topology.getAdjacentSection(i);
+					currentBetweenBuses = current;
 				}
 			}
-			if (nextBus == null) {
-				stillSearchingForOtherEndOfFeeder = false;
-				break;
-			} else {
-				currentBus = nextBus;
+			if (nextBus < 0) {
+				traversalFinished(listener, ExtensionListener.Traversal.VOLTAGE_DEVIATION, searchingHigherVoltages,
+						visitedBuses, ExtensionListener.StopReason.LOCAL_EXTREMUM, startTime);
+				return currentBus;
+			}
+			if (traversedSections != null) {
+				traversedSections.add(sectionBetweenBuses);
 			}
+			currentBus = nextBus;
+		}
+	}
+
+	/**
+	 * Same as the searches bus by bus, but jumps along the precomputed paths.
+	 * The sections passed are only collected if they are needed.
+	 * 
+	 * @param firstBus
+	 *            The bus the search starts at
+	 * @param minimumCurrent
+	 *            The current below which the search stops, negative infinity
+	 *            to search for the local extremum
+	 * @return The index of the bus the search stops at
+	 */
+	private static int followSteepestPath(SteepestPaths paths, IndexedGrid grid, int firstBus,
+			boolean searchDirectionUp, double minimumCurrent, ExtensionListener.Traversal traversal,
+			SectionSet traversedSections, ExtensionListener listener, long startTime) {
+		long end = paths.follow(firstBus, searchDirectionUp, minimumCurrent);
+		int lastBus = (int) end;
+		if (traversedSections != null) {
+			for (int bus = firstBus; bus != lastBus; bus = paths.getNextBus(bus, searchDirectionUp)) {
+				traversedSections.add(paths.getNextSection(bus, searchDirectionUp));
+			}
+		}
+		traversalFinished(listener, traversal, searchDirectionUp, (int) (end >>> 32) + 1,
+				paths.getNextBus(lastBus, searchDirectionUp) < 0 ? ExtensionListener.StopReason.LOCAL_EXTREMUM
+						: ExtensionListener.StopReason.RELIEF_CRITERION,
+				startTime);
+		return lastBus;
+	}
+
+	/**
+	 * Tells the listener that a search along a feeder has stopped. The clock
+	 * is only read if a listener has been set.
+	 * 
+	 * @param startTime
+	 *            The value of {@link System#nanoTime()} when the search
+	 *            started, 0 if no listener has been set
+	 */
+	private static void traversalFinished(ExtensionListener listener, ExtensionListener.Traversal traversal,
+			boolean searchDirectionUp, int visitedBuses, ExtensionListener.StopReason stopReason, long startTime) {
+		if (listener != ExtensionListener.NONE) {
+			listener.traversalFinished(traversal, searchDirectionUp, visitedBuses, stopReason,
+					System.nanoTime() - startTime);
 		}
-		return currentBus;
 	}
 
 	/**
@@ -268,6 +743,11 @@ public class GenericLVGridExtension {
 	 * @return
 	 */
 	private Bus getHighVoltageBus(GridSection section) {
+		if (section instanceof IndexedGridSection) {
+			Bus firstBus = ((IndexedGridSection) section).getFirstBus();
+			Bus secondBus = ((IndexedGridSection) section).getSecondBus();
+			return secondBus.getPuVoltage() > firstBus.getPuVoltage() ? secondBus : firstBus;
+		}
 		Bus[] connectedBuses = section.getConnectedBuses();
 		if (connectedBuses[1].getPuVoltage() > connectedBuses[0].getPuVoltage()) {
 			return connectedBuses[1];
@@ -284,6 +764,11 @@ public class GenericLVGridExtension {
 	 * @return
 	 */
 	private Bus getLowVoltageBus(GridSection section) {
+		if (section instanceof IndexedGridSection) {
+			Bus firstBus = ((IndexedGridSection) section).getFirstBus();
+			Bus secondBus = ((IndexedGridSection) section).getSecondBus();
+			return secondBus.getPuVoltage() < firstBus.getPuVoltage() ? secondBus : firstBus;
+		}
 		Bus[] connectedBuses = section.getConnectedBuses();
 		if (connectedBuses[1].getPuVoltage() < connectedBuses[0].getPuVoltage()) {
 			return connectedBuses[1];
@@ -294,7 +779,9 @@ public class GenericLVGridExtension {
 
 	/**
 	 * Return the {@link Bus} that is at the other end of
-	 * {@code connectionBetweenBuses}
+	 * {@code connectionBetweenBuses}. The ends of an
+	 * {@link IndexedGridSection} are compared with the bus by their index if
+	 * both are {@link IndexedBus}es.
 	 * 
 	 * @param connectionBetweenBuses
 	 * @param busThisEnd
@@ -302,6 +789,18 @@ public class GenericLVGridExtension {
 	 * @return
 	 */
 	private Bus getBusAtOpposingEnd(GridSection connectionBetweenBuses, Bus busThisEnd) {
+		if (connectionBetweenBuses instanceof IndexedGridSection) {
+			Bus firstBus = ((IndexedGridSection) connectionBetweenBuses).getFirstBus();
+			Bus secondBus = ((IndexedGridSection) connectionBetweenBuses).getSecondBus();
+			if (isSameBus(firstBus, busThisEnd)) {
+				return secondBus;
+			}
+			if (isSameBus(secondBus, busThisEnd)) {
+				return firstBus;
+			}
+			throw new IllegalArgumentException(
+					"The GridSection does not contain the bus and consequently no bus at the other end can be found.");
+		}
 		Bus[] connectedBuses = connectionBetweenBuses.getConnectedBuses();
 		if (connectedBuses[0] == busThisEnd) {
 			return connectedBuses[1];
@@ -313,45 +812,199 @@ public class GenericLVGridExtension {
 				"The GridSection does not contain the bus and consequently no bus at the other end can be found.");
 	}
 
+	/**
+	 * Compares two buses by identity or, if both are {@link IndexedBus}es, by
+	 * their index
+	 */
+	private static boolean isSameBus(Bus bus, Bus otherBus) {
+		if (bus == otherBus) {
+			return true;
+		}
+		return bus instanceof IndexedBus && otherBus instanceof IndexedBus
+				&& ((IndexedBus) bus).getIndex() == ((IndexedBus) otherBus).getIndex();
+	}
+
 	/**
 	 * Use this method to supply the overloaded {@link GridSection} that turned
 	 * out to be overloaded in your simulation. If a section has already been
 	 * provided, it is checked which one of the two is carrying more specific
-	 * current.
+	 * current. The method may be called from several threads at once, the
+	 * section with the highest specific current is kept in any case.
 	 * 
 	 * @param overloadedSection
 	 *            The section of the grid that had a thermal overload.
 	 */
 	public void reportCurrentOverload(GridSection overloadedSection) {
-		if (worstOverloadCurrent == null) {
-			worstOverloadCurrent = overloadedSection;
-		} else if (overloadedSection.getAbsSpecificCurrent() > worstOverloadCurrent.getAbsSpecificCurrent()) {
-			worstOverloadCurrent = overloadedSection;
+		double absSpecificCurrent = overloadedSection.getAbsSpecificCurrent();
+		while (true) {
+			GridSection reportedSection = worstOverloadCurrent.get();
+			if (reportedSection != null && absSpecificCurrent <= reportedSection.getAbsSpecificCurrent()) {
+				break;
+			}
+			if (worstOverloadCurrent.compareAndSet(reportedSection, overloadedSection)) {
+				break;
+			}
+		}
+		if (trackedOverloadCount > 1) {
+			retainIfStrongest(strongestOverloadsCurrent, overloadedSection);
 		}
 	}
 
 	/**
 	 * Report the {@link Bus} that is experiencing a voltage bound violation. If
 	 * a {@link Bus} has already been reported, the two are compared for the
-	 * worse voltage bound violation.
+	 * worse voltage bound violation. The method may be called from several
+	 * threads at once, the bus with the worst violation is kept in any case.
 	 * 
 	 * @param overloadedBus
 	 *            The bus that is overloaded
 	 */
 	public void reportVoltageOverload(Bus overloadedBus) {
-		if (worstOverloadVoltage == null) {
-			worstOverloadVoltage = overloadedBus;
-		} else if (Math.abs(overloadedBus.getPuVoltage() - 1) > Math.abs(worstOverloadVoltage.getPuVoltage() - 1)) {
-			worstOverloadVoltage = overloadedBus;
+		double deviation = Math.abs(overloadedBus.getPuVoltage() - 1);
+		while (true) {
+			Bus reportedBus = worstOverloadVoltage.get();
+			if (reportedBus != null && deviation <= Math.abs(reportedBus.getPuVoltage() - 1)) {
+				break;
+			}
+			if (worstOverloadVoltage.compareAndSet(reportedBus, overloadedBus)) {
+				break;
+			}
+		}
+		if (trackedOverloadCount > 1) {
+			retainIfStrongest(strongestOverloadsVoltage, overloadedBus);
+		}
+	}
+
+	/**
+	 * Adds the element to the queue of the strongest overloads and removes
+	 * the weakest one if more than {@link #trackedOverloadCount} are retained.
+	 * An element reported twice is only retained once. The elements are
+	 * compared by {@link Object#equals(Object)}, as the views of an
+	 * {@link OffHeapGrid} are created whenever they are requested.
+	 * 
+	 * @param strongestOverloads
+	 * @param overloadedElement
+	 */
+	private <T> void retainIfStrongest(PriorityQueue<T> strongestOverloads, T overloadedElement) {
+		synchronized (strongestOverloads) {
+			for (T retainedElement : strongestOverloads) {
+				if (retainedElement.equals(overloadedElement)) {
+					return;
+				}
+			}
+			strongestOverloads.add(overloadedElement);
+			while (strongestOverloads.size() > trackedOverloadCount) {
+				strongestOverloads.poll();
+			}
+		}
+	}
+
+	/**
+	 * Returns the {@link GridSection}s with the strongest thermal overloads
+	 * reported so far, see {@link #setTrackedOverloadCount(int)}
+	 * 
+	 * @return The sections, the one with the highest specific current first
+	 */
+	public List<GridSection> getReportedOverloadsCurrent() {
+		return getStrongestFirst(strongestOverloadsCurrent, worstOverloadCurrent.get());
+	}
+
+	/**
+	 * Returns the {@link Bus}es with the strongest voltage bound violations
+	 * reported so far, see {@link #setTrackedOverloadCount(int)}
+	 * 
+	 * @return The buses, the one with the worst violation first
+	 */
+	public List<Bus> getReportedOverloadsVoltage() {
+		return getStrongestFirst(strongestOverloadsVoltage, worstOverloadVoltage.get());
+	}
+
+	private <T> List<T> getStrongestFirst(PriorityQueue<T> strongestOverloads, T worstElement) {
+		List<T> elements = new ArrayList<T>();
+		if (trackedOverloadCount == 1) {
+			if (worstElement != null) {
+				elements.add(worstElement);
+			}
+			return elements;
+		}
+		synchronized (strongestOverloads) {
+			elements.addAll(strongestOverloads);
 		}
+		Collections.sort(elements, Collections.reverseOrder(strongestOverloads.comparator()));
+
+		/*
+		 * Elements with equally strong overloads are ordered arbitrarily by
+		 * the queue, the worst one is moved to the front so that the first
+		 * element always matches findBusesToExtendBetween()
+		 */
+		if (elements.remove(worstElement)) {
+			elements.add(0, worstElement);
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns the {@link GridSection} with the worst thermal overload reported
+	 * so far
+	 * 
+	 * @return The section or null if no thermal overload has been reported
+	 */
+	public GridSection getWorstOverloadCurrent() {
+		return worstOverloadCurrent.get();
+	}
+
+	/**
+	 * Returns the {@link Bus} with the worst voltage bound violation reported
+	 * so far
+	 * 
+	 * @return The bus or null if no voltage bound violation has been reported
+	 */
+	public Bus getWorstOverloadVoltage() {
+		return worstOverloadVoltage.get();
 	}
 
 	/**
 	 * Removes the reported overloads.
 	 */
 	public void cleanUp() {
-		worstOverloadCurrent = null;
-		worstOverloadVoltage = null;
+		worstOverloadCurrent.set(null);
+		worstOverloadVoltage.set(null);
+		synchronized (strongestOverloadsCurrent) {
+			strongestOverloadsCurrent.clear();
+		}
+		synchronized (strongestOverloadsVoltage) {
+			strongestOverloadsVoltage.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of reported overloads of each kind that are retained
+	 * 
+	 * @return
+	 */
+	public int getTrackedOverloadCount() {
+		return trackedOverloadCount;
+	}
+
+	/**
+	 * Sets the number of reported thermal overloads and of reported voltage
+	 * bound violations that are retained for
+	 * {@link #findNonInterferingExtensions()}. Overloads reported before are
+	 * removed.
+	 * 
+	 * @param trackedOverloadCount
+	 *            The number of overloads of each kind. <b>Must be at least
+	 *            1</b>
+	 * @throws IllegalArgumentException
+	 *             if the number is below 1
+	 */
+	public void setTrackedOverloadCount(int trackedOverloadCount) {
+		if (trackedOverloadCount < 1) {
+			throw new IllegalArgumentException(
+					"At least one overload has to be tracked, but " + trackedOverloadCount + " was requested.");
+		}
+		this.trackedOverloadCount = trackedOverloadCount;
+		cleanUp();
 	}
 
 	/**
@@ -406,4 +1059,92 @@ public class GenericLVGridExtension {
 		this.relieveFactorVoltage = relieveFactorVoltage;
 	}
 
+	/**
+	 * Returns the precomputed paths the feeders are searched on
+	 * 
+	 * @return The paths or null if the feeders are searched bus by bus
+	 */
+	public SteepestPaths getSteepestPaths() {
+		return steepestPaths;
+	}
+
+	/**
+	 * Sets the precomputed paths of the snapshot whose overloads are
+	 * reported. The feeders of views of that snapshot are then searched in
+	 * O(log n) steps instead of bus by bus, which pays off if many overloads
+	 * are evaluated, e.g. by {@link #findNonInterferingExtensions()}. Views of
+	 * other grids are still searched bus by bus.
+	 * 
+	 * @param steepestPaths
+	 *            The paths or null to search bus by bus
+	 */
+	public void setSteepestPaths(SteepestPaths steepestPaths) {
+		this.steepestPaths = steepestPaths;
+	}
+
+	/**
+	 * Returns the listener that is told how the searches went
+	 * 
+	 * @return {@link ExtensionListener#NONE} if none has been set
+	 */
+	public ExtensionListener getExtensionListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listener that is told how the searches went, e.g. an
+	 * {@link ExtensionMetrics} or a {@link JfrExtensionListener}.
+	 * 
+	 * @param listener
+	 *            The listener, {@link ExtensionListener#NONE} to stop
+	 *            listening
+	 * @throws IllegalArgumentException
+	 *             if the listener is null
+	 */
+	public void setExtensionListener(ExtensionListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("The listener must not be null, use ExtensionListener.NONE instead.");
+		}
+		this.listener = listener;
+	}
+
+	/**
+	 * The sections a search has passed. {@link IndexedGridSection}s are kept
+	 * as bits at their index, all other sections in a hash set.
+	 */
+	private static final class SectionSet {
+
+		private final BitSet indexedSections = new BitSet();
+
+		private final Set<GridSection> otherSections = new HashSet<GridSection>();
+
+		void add(GridSection section) {
+			if (section instanceof IndexedGridSection) {
+				indexedSections.set(((IndexedGridSection) section).getIndex());
+			} else {
+				otherSections.add(section);
+			}
+		}
+
+		/**
+		 * Adds the section of an {@link IndexedGrid} with the given index. Its
+		 * views are {@link IndexedGridSection}s with the same index, so no view
+		 * has to be created.
+		 */
+		void add(int sectionIndex) {
+			indexedSections.set(sectionIndex);
+		}
+
+		boolean intersects(SectionSet other) {
+			return indexedSections.intersects(other.indexedSections)
+					|| !Collections.disjoint(otherSections, other.otherSections);
+		}
+
+		void addAll(SectionSet other) {
+			indexedSections.or(other.indexedSections);
+			otherSections.addAll(other.otherSections);
+		}
+
+	}
+
 }
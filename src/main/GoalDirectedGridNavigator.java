@@ -0,0 +1,545 @@
+package main;
+
+import java.util.Collection;
+
+/**
+ * A {@link GridNavigator} that uses the knowledge of the goal bus to search
+ * fewer buses than {@link DijkstraGridNavigator}. Two modes are offered, see
+ * {@link SearchMode}:
+ * <ul>
+ * <li>{@link SearchMode#BIDIRECTIONAL} searches from start and goal at once
+ * until the two searches meet, which roughly halves the searched area.</li>
+ * <li>{@link SearchMode#GOAL_DIRECTED} is an A* search. The remaining
+ * distance to the goal is estimated from precomputed distances to a few
+ * landmark buses (ALT) and, if every bus is a {@link LocatedBus}, from the
+ * straight line to the goal. The larger estimate is used.</li>
+ * </ul>
+ * Both modes always find the shortest route. The navigator can be shared
+ * between threads, every thread uses its own working arrays.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class GoalDirectedGridNavigator implements GridNavigator {
+
+	/**
+	 * The way the route is searched
+	 */
+	public enum SearchMode {
+		/**
+		 * Dijkstra's algorithm from both ends of the route
+		 */
+		BIDIRECTIONAL,
+		/**
+		 * A* with landmark and straight line estimates
+		 */
+		GOAL_DIRECTED
+	}
+
+	/**
+	 * The number of landmarks used if none is given
+	 */
+	public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+	private final GridGraph graph;
+
+	private final SearchMode mode;
+
+	/**
+	 * The indices of the landmark buses.
+	 */
+	private final int[] landmarks;
+
+	/**
+	 * {@code landmarkDistances[i * landmarks.length + l]} is the length of
+	 * the shortest route between landmark {@code l} and bus {@code i}. The
+	 * distances of a bus are stored next to each other, as they are read
+	 * together.
+	 */
+	private final double[] landmarkDistances;
+
+	/**
+	 * The coordinates of the buses, null if not every bus is a
+	 * {@link LocatedBus}.
+	 */
+	private final double[] xs;
+
+	private final double[] ys;
+
+	/**
+	 * The working arrays of the search, one set per thread.
+	 */
+	private final ThreadLocal<SearchSpace> searchSpaces = new ThreadLocal<SearchSpace>() {
+		protected SearchSpace initialValue() {
+			return new SearchSpace(graph.getBusCount());
+		}
+	};
+
+	/**
+	 * Constructor of {@link GoalDirectedGridNavigator} in mode
+	 * {@link SearchMode#GOAL_DIRECTED} with
+	 * {@value #DEFAULT_LANDMARK_COUNT} landmarks
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid, see
+	 *            {@link GridGraph#compile(Collection)}
+	 */
+	public GoalDirectedGridNavigator(Collection<? extends Bus> allBuses) {
+		this(GridGraph.compile(allBuses), SearchMode.GOAL_DIRECTED, DEFAULT_LANDMARK_COUNT);
+	}
+
+	/**
+	 * Constructor of {@link GoalDirectedGridNavigator} that uses
+	 * {@value #DEFAULT_LANDMARK_COUNT} landmarks in mode
+	 * {@link SearchMode#GOAL_DIRECTED}
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 * @param mode
+	 *            The way the routes are searched
+	 */
+	public GoalDirectedGridNavigator(GridGraph graph, SearchMode mode) {
+		this(graph, mode, DEFAULT_LANDMARK_COUNT);
+	}
+
+	/**
+	 * Constructor of {@link GoalDirectedGridNavigator}
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 * @param mode
+	 *            The way the routes are searched
+	 * @param landmarkCount
+	 *            The number of landmarks whose distances to all buses are
+	 *            computed and stored, only used in mode
+	 *            {@link SearchMode#GOAL_DIRECTED}. Each landmark costs one
+	 *            search of the whole grid and one {@code double} per bus.
+	 * @throws IllegalArgumentException
+	 *             if the number of landmarks is negative
+	 */
+	public GoalDirectedGridNavigator(GridGraph graph, SearchMode mode, int landmarkCount) {
+		if (landmarkCount < 0) {
+			throw new IllegalArgumentException("The number of landmarks must not be negative, but was "
+					+ landmarkCount + ".");
+		}
+		this.graph = graph;
+		this.mode = mode;
+		int busCount = graph.getBusCount();
+		if (mode != SearchMode.GOAL_DIRECTED) {
+			landmarkCount = 0;
+		}
+		landmarkCount = Math.min(landmarkCount, busCount);
+		this.landmarks = new int[landmarkCount];
+		this.landmarkDistances = new double[landmarkCount * busCount];
+		selectLandmarks();
+
+		boolean located = mode == SearchMode.GOAL_DIRECTED;
+		for (int i = 0; i < busCount && located; i++) {
+			located = graph.getBus(i) instanceof LocatedBus;
+		}
+		if (located) {
+			xs = new double[busCount];
+			ys = new double[busCount];
+			for (int i = 0; i < busCount; i++) {
+				LocatedBus bus = (LocatedBus) graph.getBus(i);
+				xs[i] = bus.getX();
+				ys[i] = bus.getY();
+			}
+		} else {
+			xs = null;
+			ys = null;
+		}
+	}
+
+	/**
+	 * Selects the landmarks one by one, each as the bus farthest from the
+	 * landmarks selected before. Landmarks at the edges of the grid give the
+	 * best estimates. Buses not connected to any landmark are preferred, so
+	 * every part of the grid gets a landmark if possible.
+	 */
+	private void selectLandmarks() {
+		int busCount = graph.getBusCount();
+		if (landmarks.length == 0) {
+			return;
+		}
+		double[] smallestDistances = new double[busCount];
+
+		/*
+		 * The first landmark is the bus farthest from bus 0
+		 */
+		double[] distancesFromFirstBus = calculateAllDistances(0);
+		int next = findFarthestBus(distancesFromFirstBus);
+		for (int i = 0; i < busCount; i++) {
+			smallestDistances[i] = Double.POSITIVE_INFINITY;
+		}
+		for (int l = 0; l < landmarks.length; l++) {
+			landmarks[l] = next;
+			double[] distances = calculateAllDistances(next);
+			for (int i = 0; i < busCount; i++) {
+				landmarkDistances[i * landmarks.length + l] = distances[i];
+				smallestDistances[i] = Math.min(smallestDistances[i], distances[i]);
+			}
+			next = findFarthestBus(smallestDistances);
+		}
+	}
+
+	private static int findFarthestBus(double[] distances) {
+		int farthest = 0;
+		for (int i = 1; i < distances.length; i++) {
+			if (distances[i] > distances[farthest]) {
+				farthest = i;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * Dijkstra's algorithm over the whole grid
+	 *
+	 * @param origin
+	 * @return The distance of every bus, {@link Double#POSITIVE_INFINITY} if
+	 *         it is not connected
+	 */
+	private double[] calculateAllDistances(int origin) {
+		int busCount = graph.getBusCount();
+		double[] distances = new double[busCount];
+		boolean[] settled = new boolean[busCount];
+		for (int i = 0; i < busCount; i++) {
+			distances[i] = Double.POSITIVE_INFINITY;
+		}
+		IndexedMinHeap queue = new IndexedMinHeap(busCount);
+		distances[origin] = 0;
+		queue.insertOrDecrease(origin, 0);
+		while (!queue.isEmpty()) {
+			int bus = queue.pollMin();
+			settled[bus] = true;
+			for (int i = graph.getAdjacencyStart(bus); i < graph.getAdjacencyEnd(bus); i++) {
+				int neighbour = graph.getAdjacentBus(i);
+				double distance = distances[bus] + graph.getSectionLength(graph.getAdjacentSection(i));
+				if (!settled[neighbour] && distance < distances[neighbour]) {
+					distances[neighbour] = distance;
+					queue.insertOrDecrease(neighbour, distance);
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Returns the topology the navigator searches in
+	 *
+	 * @return
+	 */
+	public GridGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the way the routes are searched
+	 *
+	 * @return
+	 */
+	public SearchMode getSearchMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the landmark buses
+	 *
+	 * @return
+	 */
+	public Bus[] getLandmarks() {
+		Bus[] landmarkBuses = new Bus[landmarks.length];
+		for (int l = 0; l < landmarks.length; l++) {
+			landmarkBuses[l] = graph.getBus(landmarks[l]);
+		}
+		return landmarkBuses;
+	}
+
+	/**
+	 * Returns the number of buses the last search of the calling thread has
+	 * settled, as a measure of its cost
+	 *
+	 * @return
+	 */
+	public int getLastSearchSize() {
+		return searchSpaces.get().settledCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if one of the buses is not part of the grid or no route
+	 *             between them exists
+	 */
+	public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+		int[] sectionIndices = getShortestRoute(requireIndex(startBus), requireIndex(goalBus));
+		GridSection[] route = new GridSection[sectionIndices.length];
+		for (int i = 0; i < sectionIndices.length; i++) {
+			route[i] = graph.getSection(sectionIndices[i]);
+		}
+		return route;
+	}
+
+	/**
+	 * Same as {@link #getShortestRoute(Bus, Bus)}, but works on the indices of
+	 * the {@link GridGraph}.
+	 *
+	 * @param startBus
+	 *            Index of the bus at which the route starts
+	 * @param goalBus
+	 *            Index of the bus at which the route ends
+	 * @return The indices of the sections from {@code startBus} to
+	 *         {@code goalBus}
+	 * @throws IllegalArgumentException
+	 *             if no route between the buses exists
+	 */
+	public int[] getShortestRoute(int startBus, int goalBus) {
+		SearchSpace space = searchSpaces.get();
+		if (!search(space, startBus, goalBus)) {
+			throw new IllegalArgumentException("There is no route between the buses " + graph.getBus(startBus)
+					+ " and " + graph.getBus(goalBus) + ".");
+		}
+		return space.extractRoute(graph, startBus, goalBus);
+	}
+
+	/**
+	 * Returns the length of the shortest route between the two buses
+	 *
+	 * @param startBus
+	 * @param goalBus
+	 * @return The length or {@link Double#POSITIVE_INFINITY} if the buses are
+	 *         not connected
+	 */
+	public double getShortestDistance(Bus startBus, Bus goalBus) {
+		SearchSpace space = searchSpaces.get();
+		return search(space, requireIndex(startBus), requireIndex(goalBus)) ? space.bestDistance
+				: Double.POSITIVE_INFINITY;
+	}
+
+	private boolean search(SearchSpace space, int startBus, int goalBus) {
+		if (mode == SearchMode.BIDIRECTIONAL) {
+			return space.searchBidirectional(graph, startBus, goalBus);
+		}
+		return space.searchGoalDirected(this, startBus, goalBus);
+	}
+
+	/**
+	 * Estimates the length of the shortest route between the buses. The
+	 * estimate is never too large: by the triangle inequality, the route
+	 * cannot be shorter than the difference of the distances of its ends to a
+	 * landmark, nor than the straight line.
+	 *
+	 * @param bus
+	 * @param goalBus
+	 * @return
+	 */
+	private double estimateDistance(int bus, int goalBus) {
+		double estimate = 0;
+		int busOffset = bus * landmarks.length;
+		int goalOffset = goalBus * landmarks.length;
+		for (int l = 0; l < landmarks.length; l++) {
+			double difference = Math.abs(landmarkDistances[goalOffset + l] - landmarkDistances[busOffset + l]);
+			if (difference > estimate && difference < Double.POSITIVE_INFINITY) {
+				estimate = difference;
+			}
+		}
+		if (xs != null) {
+			double dx = xs[goalBus] - xs[bus];
+			double dy = ys[goalBus] - ys[bus];
+			estimate = Math.max(estimate, Math.sqrt(dx * dx + dy * dy));
+		}
+		return estimate;
+	}
+
+	private int requireIndex(Bus bus) {
+		int index = graph.indexOf(bus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The bus " + bus + " is not part of the grid of the navigator.");
+		}
+		return index;
+	}
+
+	/**
+	 * The arrays of the searches from start and goal. As in
+	 * {@link DijkstraGridNavigator}, entries written by older searches are
+	 * recognised by their search number instead of resetting the arrays. The
+	 * goal directed search only uses the arrays of the forward direction.
+	 */
+	private static final class SearchSpace {
+
+		private final double[][] distances;
+
+		/**
+		 * The section over which each bus has been reached.
+		 */
+		private final int[][] predecessorSections;
+
+		private final int[][] reachedInSearch;
+
+		private final int[][] settledInSearch;
+
+		/**
+		 * The estimated distance of each bus to the goal, computed once per
+		 * search.
+		 */
+		private final double[] estimates;
+
+		private final IndexedMinHeap[] queues;
+
+		private int searchNumber = 0;
+
+		private int meetingBus;
+
+		private double bestDistance;
+
+		private int settledCount;
+
+		SearchSpace(int busCount) {
+			distances = new double[2][busCount];
+			predecessorSections = new int[2][busCount];
+			reachedInSearch = new int[2][busCount];
+			settledInSearch = new int[2][busCount];
+			estimates = new double[busCount];
+			queues = new IndexedMinHeap[] { new IndexedMinHeap(busCount), new IndexedMinHeap(busCount) };
+		}
+
+		private void startSearch() {
+			searchNumber++;
+			if (searchNumber == Integer.MAX_VALUE) {
+				searchNumber = 1;
+				for (int direction = 0; direction < 2; direction++) {
+					for (int i = 0; i < reachedInSearch[direction].length; i++) {
+						reachedInSearch[direction][i] = 0;
+						settledInSearch[direction][i] = 0;
+					}
+				}
+			}
+			queues[0].clear();
+			queues[1].clear();
+			meetingBus = -1;
+			bestDistance = Double.POSITIVE_INFINITY;
+			settledCount = 0;
+		}
+
+		/**
+		 * Searches from both ends, always continuing the search with the
+		 * smaller distance, until the sum of both distances is not below the
+		 * shortest route found.
+		 *
+		 * @return false if the buses are not connected
+		 */
+		boolean searchBidirectional(GridGraph graph, int startBus, int goalBus) {
+			startSearch();
+			reach(0, startBus, 0, -1, 0);
+			reach(1, goalBus, 0, -1, 0);
+			if (startBus == goalBus) {
+				meetingBus = startBus;
+				bestDistance = 0;
+				return true;
+			}
+			while (!queues[0].isEmpty() && !queues[1].isEmpty()
+					&& queues[0].peekKey() + queues[1].peekKey() < bestDistance) {
+				int direction = queues[0].peekKey() <= queues[1].peekKey() ? 0 : 1;
+				int bus = queues[direction].pollMin();
+				settledInSearch[direction][bus] = searchNumber;
+				settledCount++;
+				double distance = distances[direction][bus];
+				for (int i = graph.getAdjacencyStart(bus); i < graph.getAdjacencyEnd(bus); i++) {
+					int neighbour = graph.getAdjacentBus(i);
+					if (settledInSearch[direction][neighbour] == searchNumber) {
+						continue;
+					}
+					int section = graph.getAdjacentSection(i);
+					double newDistance = distance + graph.getSectionLength(section);
+					if (reachedInSearch[direction][neighbour] != searchNumber
+							|| newDistance < distances[direction][neighbour]) {
+						reach(direction, neighbour, newDistance, section, newDistance);
+						if (reachedInSearch[1 - direction][neighbour] == searchNumber
+								&& newDistance + distances[1 - direction][neighbour] < bestDistance) {
+							bestDistance = newDistance + distances[1 - direction][neighbour];
+							meetingBus = neighbour;
+						}
+					}
+				}
+			}
+			return meetingBus >= 0;
+		}
+
+		/**
+		 * A* search from the start, the buses are taken from the queue in the
+		 * order of their distance plus their estimated distance to the goal.
+		 *
+		 * @return false if the buses are not connected
+		 */
+		boolean searchGoalDirected(GoalDirectedGridNavigator navigator, int startBus, int goalBus) {
+			GridGraph graph = navigator.graph;
+			startSearch();
+			estimates[startBus] = navigator.estimateDistance(startBus, goalBus);
+			reach(0, startBus, 0, -1, estimates[startBus]);
+			while (!queues[0].isEmpty()) {
+				int bus = queues[0].pollMin();
+				settledInSearch[0][bus] = searchNumber;
+				settledCount++;
+				if (bus == goalBus) {
+					meetingBus = goalBus;
+					bestDistance = distances[0][goalBus];
+					return true;
+				}
+				double distance = distances[0][bus];
+				for (int i = graph.getAdjacencyStart(bus); i < graph.getAdjacencyEnd(bus); i++) {
+					int neighbour = graph.getAdjacentBus(i);
+					if (settledInSearch[0][neighbour] == searchNumber) {
+						continue;
+					}
+					int section = graph.getAdjacentSection(i);
+					double newDistance = distance + graph.getSectionLength(section);
+					if (reachedInSearch[0][neighbour] != searchNumber) {
+						estimates[neighbour] = navigator.estimateDistance(neighbour, goalBus);
+						reach(0, neighbour, newDistance, section, newDistance + estimates[neighbour]);
+					} else if (newDistance < distances[0][neighbour]) {
+						reach(0, neighbour, newDistance, section, newDistance + estimates[neighbour]);
+					}
+				}
+			}
+			return false;
+		}
+
+		private void reach(int direction, int bus, double distance, int section, double key) {
+			reachedInSearch[direction][bus] = searchNumber;
+			distances[direction][bus] = distance;
+			predecessorSections[direction][bus] = section;
+			queues[direction].insertOrDecrease(bus, key);
+		}
+
+		/**
+		 * Follows the predecessors from the meeting bus back to the start and
+		 * on to the goal.
+		 */
+		int[] extractRoute(GridGraph graph, int startBus, int goalBus) {
+			int forwardLength = 0;
+			for (int bus = meetingBus; bus != startBus; forwardLength++) {
+				bus = graph.getBusAtOpposingEnd(predecessorSections[0][bus], bus);
+			}
+			int backwardLength = 0;
+			for (int bus = meetingBus; bus != goalBus; backwardLength++) {
+				bus = graph.getBusAtOpposingEnd(predecessorSections[1][bus], bus);
+			}
+			int[] route = new int[forwardLength + backwardLength];
+			int bus = meetingBus;
+			for (int i = forwardLength - 1; i >= 0; i--) {
+				route[i] = predecessorSections[0][bus];
+				bus = graph.getBusAtOpposingEnd(route[i], bus);
+			}
+			bus = meetingBus;
+			for (int i = forwardLength; i < route.length; i++) {
+				route[i] = predecessorSections[1][bus];
+				bus = graph.getBusAtOpposingEnd(route[i], bus);
+			}
+			return route;
+		}
+
+	}
+
+}
@@ -0,0 +1,30 @@
+package main;
+
+/**
+ * Builds the cables proposed by the {@link GridExtensionPlanner} into the
+ * grid, e.g. by creating a new {@link GridSection} in the grid model of the
+ * caller.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface GridExtender {
+
+	/**
+	 * Adds a cable between the two {@link Bus}es and returns the extended
+	 * grid. The buses have to keep their indices, which is the case if the
+	 * extended grid is compiled from the same collection of buses.
+	 * 
+	 * @param topology
+	 *            The grid before the extension
+	 * @param lowVoltageBus
+	 *            The bus at the low voltage end of the new cable, as contained
+	 *            in {@code topology}
+	 * @param highVoltageBus
+	 *            The bus at the high voltage end of the new cable, as
+	 *            contained in {@code topology}
+	 * @return The extended grid
+	 */
+	public GridGraph addCable(GridGraph topology, Bus lowVoltageBus, Bus highVoltageBus);
+
+}
@@ -0,0 +1,672 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans the extension of a whole grid: the grid is calculated, all violations
+ * of the voltage bounds and thermal limits are reported to a
+ * {@link GenericLVGridExtension}, the proposed cables are built and the grid
+ * is calculated again, until no violation is left. The calculation and the
+ * building of cables are delegated to a {@link GridLoadFlow} and a
+ * {@link GridExtender}.
+ * <p>
+ * The loop stops after a maximum number of rounds, when the time budget is
+ * used up or when the rounds stop reducing the number of violations, so
+ * planning jobs can run unattended. The time spent in each phase is
+ * measured.
+ * <p>
+ * If a bus to split the grid at is set, the violations of every feeder
+ * leaving it are reported to a {@link GenericLVGridExtension} of their own
+ * and the feeders are searched concurrently, so every round builds one
+ * extension per violated feeder, see {@link FeederPartition}.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class GridExtensionPlanner {
+
+	/**
+	 * The phases of a planning round
+	 */
+	public enum Phase {
+		/**
+		 * Calculating the grid with the {@link GridLoadFlow}
+		 */
+		LOAD_FLOW,
+		/**
+		 * Finding and reporting the violations
+		 */
+		VIOLATION_DETECTION,
+		/**
+		 * Finding the buses to build cables between
+		 */
+		EXTENSION_SEARCH,
+		/**
+		 * Building the cables with the {@link GridExtender}
+		 */
+		TOPOLOGY_CHANGE
+	}
+
+	/**
+	 * The reasons for the planning to end
+	 */
+	public enum StopReason {
+		/**
+		 * No violation is left
+		 */
+		CLEAN,
+		/**
+		 * The maximum number of rounds has been reached
+		 */
+		ITERATION_LIMIT,
+		/**
+		 * The time budget has been used up
+		 */
+		TIME_BUDGET,
+		/**
+		 * The proposed cables would connect a bus to itself or the last
+		 * rounds have not reduced the number of violations
+		 */
+		NO_PROGRESS
+	}
+
+	private final GridLoadFlow loadFlow;
+
+	private final GridExtender gridExtender;
+
+	/**
+	 * Buses below this p.u. voltage violate the voltage bounds.
+	 */
+	private double lowerVoltageBound = 0.9;
+
+	/**
+	 * Buses above this p.u. voltage violate the voltage bounds.
+	 */
+	private double upperVoltageBound = 1.1;
+
+	/**
+	 * Sections with a higher absolute specific current are thermally
+	 * overloaded.
+	 */
+	private double maximumSpecificCurrent = 1.0;
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 */
+	private double relieveFactorCurrent = 0.4;
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 */
+	private double relieveFactorVoltage = 0.7;
+
+	/**
+	 * See {@link GenericLVGridExtension#setTrackedOverloadCount(int)}. If more
+	 * than one overload is tracked, all non-interfering extensions are built
+	 * in the same round.
+	 */
+	private int trackedOverloadCount = 1;
+
+	private int maximumIterations = 100;
+
+	/**
+	 * The number of rounds in a row that may leave at least as many
+	 * violations as the best state so far
+	 */
+	private int maximumRoundsWithoutProgress = 2;
+
+	private long timeBudgetNanos = Long.MAX_VALUE;
+
+	/**
+	 * The bus the grid is split into feeders at, null if the grid is handled
+	 * as a whole
+	 */
+	private Bus feederSplitBus;
+
+	/**
+	 * The pool the feeders are handled on
+	 */
+	private ForkJoinPool feederPool;
+
+	/**
+	 * Constructor of {@link GridExtensionPlanner}
+	 *
+	 * @param loadFlow
+	 *            Calculates the grid before the first and after every round
+	 * @param gridExtender
+	 *            Builds the proposed cables
+	 */
+	public GridExtensionPlanner(GridLoadFlow loadFlow, GridExtender gridExtender) {
+		this.loadFlow = loadFlow;
+		this.gridExtender = gridExtender;
+	}
+
+	/**
+	 * Extends the grid until no violation is left, the maximum number of
+	 * rounds has been reached, the time budget has been used up or the
+	 * rounds make no progress.
+	 *
+	 * @param topology
+	 *            The grid to extend
+	 * @return The built cables and the final state of the grid
+	 */
+	public PlanningResult plan(GridGraph topology) {
+		long start = System.nanoTime();
+		long[] phaseNanos = new long[Phase.values().length];
+		List<Bus[]> extensions = new ArrayList<Bus[]>();
+
+		long phaseStart = System.nanoTime();
+		CompactGrid state = loadFlow.calculate(topology);
+		phaseNanos[Phase.LOAD_FLOW.ordinal()] += System.nanoTime() - phaseStart;
+
+		ViolationDetector detector = new ViolationDetector(lowerVoltageBound, upperVoltageBound,
+				maximumSpecificCurrent);
+		int iterations = 0;
+		int fewestViolations = Integer.MAX_VALUE;
+		int roundsWithoutProgress = 0;
+		StopReason stopReason;
+		while (true) {
+			phaseStart = System.nanoTime();
+			GridNavigator navigator = new DijkstraGridNavigator(state);
+			FeederPartition partition = null;
+			GenericLVGridExtension[] feederExtensions;
+			ViolationDetector.Violations violations;
+			if (feederSplitBus == null) {
+				feederExtensions = new GenericLVGridExtension[] { createExtension(navigator) };
+				violations = detector.report(state, feederExtensions[0]);
+			} else {
+
+				/*
+				 * The last extension gets the violation of the split bus
+				 * itself, which belongs to no feeder
+				 */
+				partition = FeederPartition.split(state.getTopology(), feederSplitBus);
+				feederExtensions = new GenericLVGridExtension[partition.getFeederCount() + 1];
+				for (int i = 0; i < feederExtensions.length; i++) {
+					feederExtensions[i] = createExtension(navigator);
+				}
+				feederPool.invoke(new FeederRange(state, partition, feederExtensions, null, 0,
+						feederExtensions.length));
+				violations = detector.detect(state);
+			}
+			phaseNanos[Phase.VIOLATION_DETECTION.ordinal()] += System.nanoTime() - phaseStart;
+
+			boolean overloadsOccured = false;
+			for (GenericLVGridExtension extension : feederExtensions) {
+				overloadsOccured |= extension.haveOverloadsOccured();
+			}
+			if (!overloadsOccured) {
+				stopReason = StopReason.CLEAN;
+				break;
+			}
+			int violationCount = violations.getVoltageViolationCount() + violations.getCurrentViolationCount();
+			if (violationCount < fewestViolations) {
+				fewestViolations = violationCount;
+				roundsWithoutProgress = 0;
+			} else if (++roundsWithoutProgress > maximumRoundsWithoutProgress) {
+				stopReason = StopReason.NO_PROGRESS;
+				break;
+			}
+			if (iterations >= maximumIterations) {
+				stopReason = StopReason.ITERATION_LIMIT;
+				break;
+			}
+			if (System.nanoTime() - start > timeBudgetNanos) {
+				stopReason = StopReason.TIME_BUDGET;
+				break;
+			}
+
+			phaseStart = System.nanoTime();
+			if (trackedOverloadCount > 1) {
+
+				/*
+				 * Many overloads are searched on the same state, so the
+				 * paths along the feeders are computed once for all
+				 */
+				SteepestPaths paths = SteepestPaths.of(state);
+				for (GenericLVGridExtension extension : feederExtensions) {
+					extension.setSteepestPaths(paths);
+				}
+			}
+			List<Bus[]> roundExtensions;
+			if (partition == null) {
+				roundExtensions = findExtensions(feederExtensions[0]);
+			} else {
+				List<List<Bus[]>> feederProposals = new ArrayList<List<Bus[]>>(
+						Collections.<List<Bus[]>> nCopies(feederExtensions.length, null));
+				feederPool.invoke(new FeederRange(state, partition, feederExtensions, feederProposals, 0,
+						feederExtensions.length));
+				roundExtensions = new ArrayList<Bus[]>();
+				for (List<Bus[]> proposals : feederProposals) {
+					roundExtensions.addAll(proposals);
+				}
+			}
+			phaseNanos[Phase.EXTENSION_SEARCH.ordinal()] += System.nanoTime() - phaseStart;
+
+			phaseStart = System.nanoTime();
+			GridGraph roundTopology = state.getTopology();
+			int builtCables = 0;
+			for (Bus[] busesToExtendBetween : roundExtensions) {
+
+				/*
+				 * The proposal consists of views of the state, the extender
+				 * gets the buses of the grid model. The views belong to the
+				 * topology of the state even after the first cable of the
+				 * round has been built.
+				 */
+				Bus lowVoltageBus = getModelBus(roundTopology, busesToExtendBetween[0]);
+				Bus highVoltageBus = getModelBus(roundTopology, busesToExtendBetween[1]);
+
+				/*
+				 * A feeder whose ends are both the local extremum yields a
+				 * cable from a bus to itself, which would change nothing
+				 */
+				if (lowVoltageBus.equals(highVoltageBus)) {
+					continue;
+				}
+				topology = gridExtender.addCable(topology, lowVoltageBus, highVoltageBus);
+				extensions.add(new Bus[] { lowVoltageBus, highVoltageBus });
+				builtCables++;
+			}
+			phaseNanos[Phase.TOPOLOGY_CHANGE.ordinal()] += System.nanoTime() - phaseStart;
+			if (builtCables == 0) {
+				stopReason = StopReason.NO_PROGRESS;
+				break;
+			}
+			iterations++;
+
+			phaseStart = System.nanoTime();
+			state = loadFlow.calculate(topology);
+			phaseNanos[Phase.LOAD_FLOW.ordinal()] += System.nanoTime() - phaseStart;
+		}
+		return new PlanningResult(state, extensions, iterations, stopReason, phaseNanos, System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the bus of the grid model a proposed bus stands for. The
+	 * proposals of a round are looked up in the topology the round has been
+	 * calculated on, as the topology passed to the extender is replaced by
+	 * every cable built.
+	 *
+	 * @param roundTopology
+	 *            The topology of the state the proposal has been found on
+	 * @param proposedBus
+	 *            A bus of the proposal, a view of the state
+	 * @return The bus of the grid model
+	 * @throws IllegalArgumentException
+	 *             if the bus is not part of the topology
+	 */
+	private static Bus getModelBus(GridGraph roundTopology, Bus proposedBus) {
+		int index = roundTopology.indexOf(proposedBus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The proposed bus " + proposedBus + " is not part of the grid.");
+		}
+		return roundTopology.getBus(index);
+	}
+
+	private GenericLVGridExtension createExtension(GridNavigator navigator) {
+		GenericLVGridExtension extension = new GenericLVGridExtension(navigator);
+		extension.setRelieveFactorCurrent(relieveFactorCurrent);
+		extension.setRelieveFactorVoltage(relieveFactorVoltage);
+		extension.setTrackedOverloadCount(trackedOverloadCount);
+		return extension;
+	}
+
+	private void reportCurrentViolation(CompactGrid state, GenericLVGridExtension extension, int section) {
+		if (state.getAbsSpecificCurrent(section) > maximumSpecificCurrent) {
+			extension.reportCurrentOverload(state.getSection(section));
+		}
+	}
+
+	private void reportVoltageViolation(CompactGrid state, GenericLVGridExtension extension, int bus) {
+		double puVoltage = state.getPuVoltage(bus);
+		if (puVoltage < lowerVoltageBound || puVoltage > upperVoltageBound) {
+			extension.reportVoltageOverload(state.getBus(bus));
+		}
+	}
+
+	/**
+	 * Returns the extensions the reported overloads call for in this round
+	 *
+	 * @param extension
+	 * @return The extensions, empty if no overload has been reported
+	 */
+	private List<Bus[]> findExtensions(GenericLVGridExtension extension) {
+		if (!extension.haveOverloadsOccured()) {
+			return Collections.emptyList();
+		}
+		if (trackedOverloadCount > 1) {
+			return extension.findNonInterferingExtensions();
+		}
+		return Collections.singletonList(extension.findBusesToExtendBetween());
+	}
+
+	/**
+	 * Sets the range of p.u. voltages buses are allowed to have.
+	 *
+	 * @param lowerVoltageBound
+	 * @param upperVoltageBound
+	 * @throws IllegalArgumentException
+	 *             if the lower bound is above the upper bound
+	 */
+	public void setVoltageBounds(double lowerVoltageBound, double upperVoltageBound) {
+		if (lowerVoltageBound > upperVoltageBound) {
+			throw new IllegalArgumentException("The lower voltage bound " + lowerVoltageBound
+					+ " must not be above the upper voltage bound " + upperVoltageBound);
+		}
+		this.lowerVoltageBound = lowerVoltageBound;
+		this.upperVoltageBound = upperVoltageBound;
+	}
+
+	/**
+	 * Sets the absolute specific current above which a section is thermally
+	 * overloaded.
+	 *
+	 * @param maximumSpecificCurrent
+	 */
+	public void setMaximumSpecificCurrent(double maximumSpecificCurrent) {
+		this.maximumSpecificCurrent = maximumSpecificCurrent;
+	}
+
+	/**
+	 * Sets the relieve factor for thermal overloads used in every round, see
+	 * {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 *
+	 * @param relieveFactorCurrent
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorCurrent(double relieveFactorCurrent) {
+		if (relieveFactorCurrent > 1.0 || relieveFactorCurrent < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for thermal overloads must be between 0 and 1, but was "
+							+ relieveFactorCurrent);
+		}
+		this.relieveFactorCurrent = relieveFactorCurrent;
+	}
+
+	/**
+	 * Sets the relieve factor for voltage bound violations used in every
+	 * round, see {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 *
+	 * @param relieveFactorVoltage
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorVoltage(double relieveFactorVoltage) {
+		if (relieveFactorVoltage > 1.0 || relieveFactorVoltage < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for voltage bound violations must be between 0 and 1, but was "
+							+ relieveFactorVoltage);
+		}
+		this.relieveFactorVoltage = relieveFactorVoltage;
+	}
+
+	/**
+	 * Sets the number of overloads of each kind that are considered in a
+	 * round. If it is above 1, all extensions that do not interfere with each
+	 * other are built in the same round, see
+	 * {@link GenericLVGridExtension#findNonInterferingExtensions()}
+	 *
+	 * @param trackedOverloadCount
+	 *            The number of overloads. <b>Must be at least 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the number is below 1
+	 */
+	public void setTrackedOverloadCount(int trackedOverloadCount) {
+		if (trackedOverloadCount < 1) {
+			throw new IllegalArgumentException(
+					"At least one overload has to be tracked, but " + trackedOverloadCount + " was requested.");
+		}
+		this.trackedOverloadCount = trackedOverloadCount;
+	}
+
+	/**
+	 * Sets the number of rounds after which the planning stops even if
+	 * violations are left
+	 *
+	 * @param maximumIterations
+	 *            The number of rounds. <b>Must not be negative</b>
+	 * @throws IllegalArgumentException
+	 *             if the number is negative
+	 */
+	public void setMaximumIterations(int maximumIterations) {
+		if (maximumIterations < 0) {
+			throw new IllegalArgumentException(
+					"The number of rounds must not be negative, but was " + maximumIterations);
+		}
+		this.maximumIterations = maximumIterations;
+	}
+
+	/**
+	 * Sets the number of rounds in a row that may leave at least as many
+	 * violations as the best state so far before the planning stops. A round
+	 * in which every proposed cable would connect a bus to itself always
+	 * stops the planning.
+	 *
+	 * @param maximumRoundsWithoutProgress
+	 *            The number of rounds. <b>Must not be negative</b>
+	 * @throws IllegalArgumentException
+	 *             if the number is negative
+	 */
+	public void setMaximumRoundsWithoutProgress(int maximumRoundsWithoutProgress) {
+		if (maximumRoundsWithoutProgress < 0) {
+			throw new IllegalArgumentException(
+					"The number of rounds must not be negative, but was " + maximumRoundsWithoutProgress);
+		}
+		this.maximumRoundsWithoutProgress = maximumRoundsWithoutProgress;
+	}
+
+	/**
+	 * Sets the time after which no new round is started. A round that has
+	 * been started is finished, so the budget can be exceeded by the duration
+	 * of one round.
+	 *
+	 * @param timeBudgetNanos
+	 *            The budget in nanoseconds. <b>Must not be negative</b>
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative
+	 */
+	public void setTimeBudgetNanos(long timeBudgetNanos) {
+		if (timeBudgetNanos < 0) {
+			throw new IllegalArgumentException("The time budget must not be negative, but was " + timeBudgetNanos);
+		}
+		this.timeBudgetNanos = timeBudgetNanos;
+	}
+
+	/**
+	 * Splits the grid into the feeders leaving the bus in every round and
+	 * handles the feeders concurrently on the common {@link ForkJoinPool}
+	 *
+	 * @param feederSplitBus
+	 *            The transformer or slack bus, null to handle the grid as a
+	 *            whole
+	 */
+	public void setFeederSplitBus(Bus feederSplitBus) {
+		setFeederSplitBus(feederSplitBus, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Splits the grid into the feeders leaving the bus in every round and
+	 * handles the feeders concurrently on the given pool. The violations of
+	 * every feeder are reported to a {@link GenericLVGridExtension} of their
+	 * own, which proposes the extensions of the feeder. The proposals of all
+	 * feeders are built in the same round, in the order of the feeders.
+	 *
+	 * @param feederSplitBus
+	 *            The transformer or slack bus, null to handle the grid as a
+	 *            whole
+	 * @param pool
+	 *            The pool to handle the feeders on
+	 * @throws IllegalArgumentException
+	 *             if a bus but no pool is given
+	 */
+	public void setFeederSplitBus(Bus feederSplitBus, ForkJoinPool pool) {
+		if (feederSplitBus != null && pool == null) {
+			throw new IllegalArgumentException("The feeders need a pool to be handled on.");
+		}
+		this.feederSplitBus = feederSplitBus;
+		this.feederPool = pool;
+	}
+
+	/**
+	 * Handles a range of feeders, splitting it in halves until only a single
+	 * feeder is left. Without a list for the proposals, the violations of
+	 * the feeders are reported, otherwise their extensions are searched.
+	 */
+	private final class FeederRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CompactGrid state;
+
+		private final FeederPartition partition;
+
+		private final GenericLVGridExtension[] feederExtensions;
+
+		/**
+		 * The proposals of each feeder. Every task only sets the element of
+		 * its own feeder, so the list is not synchronized.
+		 */
+		private final List<List<Bus[]>> feederProposals;
+
+		private final int from;
+
+		private final int to;
+
+		FeederRange(CompactGrid state, FeederPartition partition, GenericLVGridExtension[] feederExtensions,
+				List<List<Bus[]>> feederProposals, int from, int to) {
+			this.state = state;
+			this.partition = partition;
+			this.feederExtensions = feederExtensions;
+			this.feederProposals = feederProposals;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				GenericLVGridExtension extension = feederExtensions[from];
+				if (feederProposals != null) {
+					feederProposals.set(from, findExtensions(extension));
+				} else if (from == partition.getFeederCount()) {
+					reportVoltageViolation(state, extension, partition.getTransformerBus());
+				} else {
+					for (int section : partition.getSections(from)) {
+						reportCurrentViolation(state, extension, section);
+					}
+					for (int bus : partition.getBuses(from)) {
+						reportVoltageViolation(state, extension, bus);
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new FeederRange(state, partition, feederExtensions, feederProposals, from, middle),
+					new FeederRange(state, partition, feederExtensions, feederProposals, middle, to));
+		}
+
+	}
+
+	/**
+	 * The outcome of {@link GridExtensionPlanner#plan(GridGraph)}
+	 */
+	public static final class PlanningResult {
+
+		private final CompactGrid finalState;
+
+		private final List<Bus[]> extensions;
+
+		private final int iterations;
+
+		private final StopReason stopReason;
+
+		private final long[] phaseNanos;
+
+		private final long totalNanos;
+
+		PlanningResult(CompactGrid finalState, List<Bus[]> extensions, int iterations, StopReason stopReason,
+				long[] phaseNanos, long totalNanos) {
+			this.finalState = finalState;
+			this.extensions = Collections.unmodifiableList(extensions);
+			this.iterations = iterations;
+			this.stopReason = stopReason;
+			this.phaseNanos = phaseNanos;
+			this.totalNanos = totalNanos;
+		}
+
+		/**
+		 * Returns the state of the grid after the last round, including its
+		 * topology with all built cables
+		 *
+		 * @return
+		 */
+		public CompactGrid getFinalState() {
+			return finalState;
+		}
+
+		/**
+		 * Returns the built cables in the order they have been built, each as
+		 * the bus at the low voltage end and the bus at the high voltage end
+		 *
+		 * @return
+		 */
+		public List<Bus[]> getExtensions() {
+			return extensions;
+		}
+
+		/**
+		 * Returns the number of rounds in which cables have been built
+		 *
+		 * @return
+		 */
+		public int getIterations() {
+			return iterations;
+		}
+
+		/**
+		 * Returns why the planning has ended
+		 *
+		 * @return
+		 */
+		public StopReason getStopReason() {
+			return stopReason;
+		}
+
+		/**
+		 * Checks whether no violation is left
+		 *
+		 * @return
+		 */
+		public boolean isClean() {
+			return stopReason == StopReason.CLEAN;
+		}
+
+		/**
+		 * Returns the time spent in the phase over all rounds
+		 *
+		 * @param phase
+		 * @return The time in nanoseconds
+		 */
+		public long getPhaseNanos(Phase phase) {
+			return phaseNanos[phase.ordinal()];
+		}
+
+		/**
+		 * Returns the time the planning took in total
+		 *
+		 * @return The time in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+	}
+
+}
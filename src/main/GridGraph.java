@@ -0,0 +1,500 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An immutable, integer indexed copy of the topology of a grid. Every
+ * {@link Bus} and {@link GridSection} is given a dense index and the
+ * connections between them are stored as compressed sparse rows, so that
+ * algorithms traversing the grid only work on primitive arrays.
+ * <p>
+ * The order in which the sections connected to a bus are stored is the order
+ * of {@link Bus#getConnectedPowerGridSections()}, so algorithms working on
+ * the indices visit the sections in the same order as the ones working on
+ * the objects.
+ * <p>
+ * If all buses are {@link IndexedBus}es and all sections
+ * {@link IndexedGridSection}s with dense indices, these indices are kept and
+ * the lookup of an index is a single array access. The elements found at an
+ * index are compared with {@link Object#equals(Object)}, so views that are
+ * created whenever they are requested, like the ones of an
+ * {@link OffHeapGrid}, are recognised. Otherwise the elements are numbered in
+ * the order they are supplied and encountered and compared by identity.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class GridGraph implements IndexedTopology {
+
+	/**
+	 * The {@link Bus}es of the grid, the position in the array is their
+	 * index.
+	 */
+	private final Bus[] buses;
+
+	/**
+	 * The {@link GridSection}s of the grid, the position in the array is their
+	 * index.
+	 */
+	private final GridSection[] sections;
+
+	/**
+	 * Index of the first {@link Bus} of each section, as returned first by
+	 * {@link GridSection#getConnectedBuses()}.
+	 */
+	private final int[] sectionFirstBus;
+
+	/**
+	 * Index of the second {@link Bus} of each section.
+	 */
+	private final int[] sectionSecondBus;
+
+	/**
+	 * The length of each section.
+	 */
+	private final double[] sectionLengths;
+
+	/**
+	 * The connections of bus {@code i} are stored at the positions
+	 * {@code adjacencyStart[i]} (inclusive) to {@code adjacencyStart[i + 1]}
+	 * (exclusive) of {@link #adjacentSections} and {@link #adjacentBuses}.
+	 */
+	private final int[] adjacencyStart;
+
+	/**
+	 * The indices of the sections connected to each bus.
+	 */
+	private final int[] adjacentSections;
+
+	/**
+	 * The indices of the buses at the other end of {@link #adjacentSections}.
+	 */
+	private final int[] adjacentBuses;
+
+	/**
+	 * Maps the buses to their index. Identity is used, as the extension
+	 * algorithm compares buses by identity as well. Null if the indices of
+	 * the {@link IndexedBus}es are used.
+	 */
+	private final Map<Bus, Integer> busIndices;
+
+	/**
+	 * Maps the sections to their index, null if the indices of the
+	 * {@link IndexedGridSection}s are used.
+	 */
+	private final Map<GridSection, Integer> sectionIndices;
+
+	private GridGraph(Bus[] buses, GridSection[] sections, int[] sectionFirstBus, int[] sectionSecondBus,
+			double[] sectionLengths, int[] adjacencyStart, int[] adjacentSections, int[] adjacentBuses,
+			Map<Bus, Integer> busIndices, Map<GridSection, Integer> sectionIndices) {
+		this.buses = buses;
+		this.sections = sections;
+		this.sectionFirstBus = sectionFirstBus;
+		this.sectionSecondBus = sectionSecondBus;
+		this.sectionLengths = sectionLengths;
+		this.adjacencyStart = adjacencyStart;
+		this.adjacentSections = adjacentSections;
+		this.adjacentBuses = adjacentBuses;
+		this.busIndices = busIndices;
+		this.sectionIndices = sectionIndices;
+	}
+
+	/**
+	 * Reads the topology of the grid once and stores it in primitive arrays.
+	 * The voltages and currents are not read, so the result stays valid as
+	 * long as no {@link GridSection} is added or removed. The indices of
+	 * {@link IndexedBus}es and {@link IndexedGridSection}s are kept if all
+	 * elements of the grid have one and they are dense.
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid. Every {@link Bus} connected to
+	 *            one of their {@link GridSection}s has to be part of the
+	 *            collection as well.
+	 * @return The compiled topology
+	 * @throws IllegalArgumentException
+	 *             if a {@link GridSection} connects to a {@link Bus} that is
+	 *             not part of {@code allBuses}
+	 */
+	public static GridGraph compile(Collection<? extends Bus> allBuses) {
+		Bus[] buses = allBuses.toArray(new Bus[allBuses.size()]);
+		Map<Bus, Integer> busIndices = null;
+		Map<GridSection, Integer> sectionIndices = null;
+		Bus[] busesByIndex = orderByIndex(buses);
+		GridSection[] sections = busesByIndex == null ? null : collectSectionsByIndex(busesByIndex);
+		if (sections != null) {
+			buses = busesByIndex;
+		} else {
+			busIndices = new IdentityHashMap<Bus, Integer>(buses.length);
+			for (int i = 0; i < buses.length; i++) {
+				if (busIndices.put(buses[i], i) != null) {
+					throw new IllegalArgumentException("The bus " + buses[i] + " has been supplied twice.");
+				}
+			}
+
+			/*
+			 * Give every section an index the first time it is encountered.
+			 */
+			sectionIndices = new IdentityHashMap<GridSection, Integer>();
+			for (int i = 0; i < buses.length; i++) {
+				for (GridSection connectedSection : buses[i].getConnectedPowerGridSections()) {
+					if (!sectionIndices.containsKey(connectedSection)) {
+						sectionIndices.put(connectedSection, sectionIndices.size());
+					}
+				}
+			}
+			sections = new GridSection[sectionIndices.size()];
+			for (Map.Entry<GridSection, Integer> entry : sectionIndices.entrySet()) {
+				sections[entry.getValue()] = entry.getKey();
+			}
+		}
+
+		/*
+		 * First pass: count the connections of every bus.
+		 */
+		int[] adjacencyStart = new int[buses.length + 1];
+		int connectionCount = 0;
+		for (int i = 0; i < buses.length; i++) {
+			adjacencyStart[i] = connectionCount;
+			connectionCount += buses[i].getConnectedPowerGridSections().size();
+		}
+		adjacencyStart[buses.length] = connectionCount;
+
+		int sectionCount = sections.length;
+		int[] sectionFirstBus = new int[sectionCount];
+		int[] sectionSecondBus = new int[sectionCount];
+		double[] sectionLengths = new double[sectionCount];
+		for (int index = 0; index < sectionCount; index++) {
+			GridSection section = sections[index];
+			if (section instanceof IndexedGridSection) {
+				sectionFirstBus[index] = requireIndex(buses, busIndices, ((IndexedGridSection) section).getFirstBus(),
+						section);
+				sectionSecondBus[index] = requireIndex(buses, busIndices,
+						((IndexedGridSection) section).getSecondBus(), section);
+			} else {
+				Bus[] connectedBuses = section.getConnectedBuses();
+				sectionFirstBus[index] = requireIndex(buses, busIndices, connectedBuses[0], section);
+				sectionSecondBus[index] = requireIndex(buses, busIndices, connectedBuses[1], section);
+			}
+			sectionLengths[index] = getLength(section);
+		}
+
+		/*
+		 * Second pass: fill the rows in the order of the connected sections
+		 * of each bus.
+		 */
+		int[] adjacentSections = new int[connectionCount];
+		int[] adjacentBuses = new int[connectionCount];
+		int position = 0;
+		for (int i = 0; i < buses.length; i++) {
+			for (GridSection connectedSection : buses[i].getConnectedPowerGridSections()) {
+				int section = sectionIndices == null ? ((IndexedGridSection) connectedSection).getIndex()
+						: sectionIndices.get(connectedSection);
+				adjacentSections[position] = section;
+				if (sectionFirstBus[section] == i) {
+					adjacentBuses[position] = sectionSecondBus[section];
+				} else if (sectionSecondBus[section] == i) {
+					adjacentBuses[position] = sectionFirstBus[section];
+				} else {
+					throw new IllegalArgumentException("The bus " + buses[i] + " lists the section " + connectedSection
+							+ " as connected, but the section is not connected to the bus.");
+				}
+				position++;
+			}
+		}
+
+		return new GridGraph(buses, sections, sectionFirstBus, sectionSecondBus, sectionLengths, adjacencyStart,
+				adjacentSections, adjacentBuses, busIndices, sectionIndices);
+	}
+
+	/**
+	 * Places the buses at their index
+	 *
+	 * @return The buses ordered by their index or null if not all buses are
+	 *         {@link IndexedBus}es with dense indices
+	 * @throws IllegalArgumentException
+	 *             if a bus has been supplied twice
+	 */
+	private static Bus[] orderByIndex(Bus[] buses) {
+		Bus[] busesByIndex = new Bus[buses.length];
+		for (Bus bus : buses) {
+			if (!(bus instanceof IndexedBus)) {
+				return null;
+			}
+			int index = ((IndexedBus) bus).getIndex();
+			if (index < 0 || index >= buses.length) {
+				return null;
+			}
+			if (bus.equals(busesByIndex[index])) {
+				throw new IllegalArgumentException("The bus " + bus + " has been supplied twice.");
+			}
+			if (busesByIndex[index] != null) {
+				return null;
+			}
+			busesByIndex[index] = bus;
+		}
+		return busesByIndex;
+	}
+
+	/**
+	 * Places the sections connected to the buses at their index
+	 *
+	 * @return The sections ordered by their index or null if not all sections
+	 *         are {@link IndexedGridSection}s with dense indices
+	 */
+	private static GridSection[] collectSectionsByIndex(Bus[] buses) {
+		GridSection[] sectionsByIndex = new GridSection[buses.length];
+		int sectionCount = 0;
+		for (Bus bus : buses) {
+			for (GridSection connectedSection : bus.getConnectedPowerGridSections()) {
+				if (!(connectedSection instanceof IndexedGridSection)) {
+					return null;
+				}
+				int index = ((IndexedGridSection) connectedSection).getIndex();
+				if (index < 0) {
+					return null;
+				}
+				if (index >= sectionsByIndex.length) {
+					sectionsByIndex = Arrays.copyOf(sectionsByIndex, Math.max(index + 1, 2 * sectionsByIndex.length));
+				}
+				if (sectionsByIndex[index] == null) {
+					sectionsByIndex[index] = connectedSection;
+					sectionCount = Math.max(sectionCount, index + 1);
+				} else if (!sectionsByIndex[index].equals(connectedSection)) {
+					return null;
+				}
+			}
+		}
+		for (int i = 0; i < sectionCount; i++) {
+			if (sectionsByIndex[i] == null) {
+				return null;
+			}
+		}
+		return Arrays.copyOf(sectionsByIndex, sectionCount);
+	}
+
+	/**
+	 * Returns the length of a section as used to find the shortest routes
+	 *
+	 * @param section
+	 * @return The length of a {@link WeightedGridSection}, 1 for all other
+	 *         sections
+	 */
+	static double getLength(GridSection section) {
+		if (section instanceof WeightedGridSection) {
+			return ((WeightedGridSection) section).getLength();
+		}
+		return 1;
+	}
+
+	private static int requireIndex(Bus[] buses, Map<Bus, Integer> busIndices, Bus bus, GridSection section) {
+		int index = -1;
+		if (busIndices == null) {
+			index = indexOf(buses, bus);
+		} else if (busIndices.containsKey(bus)) {
+			index = busIndices.get(bus);
+		}
+		if (index < 0) {
+			throw new IllegalArgumentException("The section " + section + " is connected to the bus " + bus
+					+ " which has not been supplied.");
+		}
+		return index;
+	}
+
+	/**
+	 * Looks the bus up by its index, if the indices of the
+	 * {@link IndexedBus}es are used
+	 */
+	private static int indexOf(Bus[] buses, Bus bus) {
+		if (bus instanceof IndexedBus) {
+			int index = ((IndexedBus) bus).getIndex();
+			if (index >= 0 && index < buses.length && bus.equals(buses[index])) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of {@link Bus}es in the grid
+	 *
+	 * @return
+	 */
+	public int getBusCount() {
+		return buses.length;
+	}
+
+	/**
+	 * Returns the number of {@link GridSection}s in the grid
+	 *
+	 * @return
+	 */
+	public int getSectionCount() {
+		return sections.length;
+	}
+
+	/**
+	 * Returns the index of the {@link Bus}. Views of a {@link CompactGrid} with
+	 * this topology are accepted as well.
+	 *
+	 * @param bus
+	 * @return The index or -1 if the bus is not part of the grid
+	 */
+	public int indexOf(Bus bus) {
+		if (bus instanceof IndexedGrid.Element) {
+			IndexedGrid.Element view = (IndexedGrid.Element) bus;
+			if (view.getGrid().getTopology() == this) {
+				return view.getIndex();
+			}
+		}
+		if (busIndices == null) {
+			return indexOf(buses, bus);
+		}
+		Integer index = busIndices.get(bus);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the index of the {@link GridSection}. Views of a
+	 * {@link CompactGrid} with this topology are accepted as well.
+	 *
+	 * @param section
+	 * @return The index or -1 if the section is not part of the grid
+	 */
+	public int indexOf(GridSection section) {
+		if (section instanceof IndexedGrid.Element) {
+			IndexedGrid.Element view = (IndexedGrid.Element) section;
+			if (view.getGrid().getTopology() == this) {
+				return view.getIndex();
+			}
+		}
+		if (sectionIndices == null) {
+			if (section instanceof IndexedGridSection) {
+				int index = ((IndexedGridSection) section).getIndex();
+				if (index >= 0 && index < sections.length && section.equals(sections[index])) {
+					return index;
+				}
+			}
+			return -1;
+		}
+		Integer index = sectionIndices.get(section);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the {@link Bus} with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public Bus getBus(int busIndex) {
+		return buses[busIndex];
+	}
+
+	/**
+	 * Returns the {@link GridSection} with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public GridSection getSection(int sectionIndex) {
+		return sections[sectionIndex];
+	}
+
+	/**
+	 * Returns the length of the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public double getSectionLength(int sectionIndex) {
+		return sectionLengths[sectionIndex];
+	}
+
+	/**
+	 * Returns the index of the first bus of the section, i.e. the one that
+	 * {@link GridSection#getConnectedBuses()} returns first.
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public int getFirstBus(int sectionIndex) {
+		return sectionFirstBus[sectionIndex];
+	}
+
+	/**
+	 * Returns the index of the second bus of the section.
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public int getSecondBus(int sectionIndex) {
+		return sectionSecondBus[sectionIndex];
+	}
+
+	/**
+	 * Returns the index of the bus at the other end of the section.
+	 *
+	 * @param sectionIndex
+	 * @param busIndexThisEnd
+	 *            Already known bus, not the one to be returned.
+	 * @return
+	 */
+	public int getBusAtOpposingEnd(int sectionIndex, int busIndexThisEnd) {
+		if (sectionFirstBus[sectionIndex] == busIndexThisEnd) {
+			return sectionSecondBus[sectionIndex];
+		}
+		if (sectionSecondBus[sectionIndex] == busIndexThisEnd) {
+			return sectionFirstBus[sectionIndex];
+		}
+		throw new IllegalArgumentException(
+				"The GridSection does not contain the bus and consequently no bus at the other end can be found.");
+	}
+
+	/**
+	 * Returns the first position of the connections of the bus. Use together
+	 * with {@link #getAdjacencyEnd(int)}, {@link #getAdjacentSection(int)}
+	 * and {@link #getAdjacentBus(int)} to iterate over the connections.
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public int getAdjacencyStart(int busIndex) {
+		return adjacencyStart[busIndex];
+	}
+
+	/**
+	 * Returns the position after the last connection of the bus.
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public int getAdjacencyEnd(int busIndex) {
+		return adjacencyStart[busIndex + 1];
+	}
+
+	/**
+	 * Returns the index of the section stored at the position of the
+	 * connections.
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	public int getAdjacentSection(int adjacencyPosition) {
+		return adjacentSections[adjacencyPosition];
+	}
+
+	/**
+	 * Returns the index of the bus at the other end of the section stored at
+	 * the position of the connections.
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	public int getAdjacentBus(int adjacencyPosition) {
+		return adjacentBuses[adjacencyPosition];
+	}
+
+}
@@ -0,0 +1,675 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a grid from CSV tables of its nodes, lines and loadflow results, as
+ * exported e.g. in the SimBench format. Every table is streamed row by row:
+ * no row is kept after it has been read, the ids are given their index by an
+ * {@link IdIndex}, and the buses and sections are created as their rows are
+ * read, so the memory needed only grows with the grid itself.
+ * <p>
+ * The result tables are read after the grid, and every bus and section whose
+ * result violates its limits is reported to the
+ * {@link GenericLVGridExtension} right away. Once all tables are read, the
+ * extension can be searched.
+ * <p>
+ * The first row of a table names its columns, their order and any further
+ * columns do not matter. The tables and columns read are
+ * <ul>
+ * <li>nodes: {@code id}, optionally {@code vmMin} and {@code vmMax}</li>
+ * <li>line types: {@code id}, {@code iMax} in kA</li>
+ * <li>lines: {@code id}, {@code nodeA}, {@code nodeB}, {@code length},
+ * optionally {@code type}</li>
+ * <li>transformers: {@code id}, {@code nodeHV}, {@code nodeLV}</li>
+ * <li>node results: {@code node}, {@code vm}</li>
+ * <li>line results: {@code line} and either {@code loading} in % or
+ * {@code i} in kA</li>
+ * </ul>
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class GridImporter {
+
+	public static final double DEFAULT_MINIMUM_PU_VOLTAGE = 0.9;
+
+	public static final double DEFAULT_MAXIMUM_PU_VOLTAGE = 1.1;
+
+	private final char separator;
+
+	/**
+	 * The extension the violations are reported to, null if they are not
+	 * reported
+	 */
+	private final GenericLVGridExtension extension;
+
+	private double maximumSpecificCurrent = 1.0;
+
+	private final IdIndex busIds = new IdIndex();
+
+	private final List<ImportedBus> buses = new ArrayList<ImportedBus>();
+
+	private final IdIndex sectionIds = new IdIndex();
+
+	private final List<ImportedSection> sections = new ArrayList<ImportedSection>();
+
+	private final IdIndex lineTypeIds = new IdIndex();
+
+	/**
+	 * The rated current of each line type in kA, indexed by
+	 * {@link #lineTypeIds}
+	 */
+	private double[] lineTypeCurrents = new double[16];
+
+	/**
+	 * Constructor of {@link GridImporter} for tables separated by semicolons,
+	 * as in the SimBench format
+	 *
+	 * @param extension
+	 *            The extension the violations are reported to, null if they
+	 *            should not be reported
+	 */
+	public GridImporter(GenericLVGridExtension extension) {
+		this(';', extension);
+	}
+
+	/**
+	 * Constructor of {@link GridImporter}
+	 *
+	 * @param separator
+	 *            The character between the columns
+	 * @param extension
+	 *            The extension the violations are reported to, null if they
+	 *            should not be reported
+	 */
+	public GridImporter(char separator, GenericLVGridExtension extension) {
+		this.separator = separator;
+		this.extension = extension;
+	}
+
+	/**
+	 * Imports a grid exported in the SimBench format. The directory has to
+	 * contain {@code Node.csv} and {@code Line.csv}; {@code LineType.csv},
+	 * {@code Transformer.csv}, {@code NodePFResult.csv} and
+	 * {@code LinePFResult.csv} are read if they exist.
+	 *
+	 * @param directory
+	 * @param extension
+	 *            The extension the violations are reported to, null if they
+	 *            should not be reported
+	 * @return The importer holding the grid
+	 * @throws IOException
+	 *             if a file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if a table lacks a column or refers to an unknown id
+	 */
+	public static GridImporter importSimBench(Path directory, GenericLVGridExtension extension) throws IOException {
+		GridImporter importer = new GridImporter(extension);
+		try (Reader reader = Files.newBufferedReader(directory.resolve("Node.csv"), StandardCharsets.UTF_8)) {
+			importer.readNodes(reader);
+		}
+		Path lineTypes = directory.resolve("LineType.csv");
+		if (Files.exists(lineTypes)) {
+			try (Reader reader = Files.newBufferedReader(lineTypes, StandardCharsets.UTF_8)) {
+				importer.readLineTypes(reader);
+			}
+		}
+		try (Reader reader = Files.newBufferedReader(directory.resolve("Line.csv"), StandardCharsets.UTF_8)) {
+			importer.readLines(reader);
+		}
+		Path transformers = directory.resolve("Transformer.csv");
+		if (Files.exists(transformers)) {
+			try (Reader reader = Files.newBufferedReader(transformers, StandardCharsets.UTF_8)) {
+				importer.readTransformers(reader);
+			}
+		}
+		Path nodeResults = directory.resolve("NodePFResult.csv");
+		if (Files.exists(nodeResults)) {
+			try (Reader reader = Files.newBufferedReader(nodeResults, StandardCharsets.UTF_8)) {
+				importer.readNodeResults(reader);
+			}
+		}
+		Path lineResults = directory.resolve("LinePFResult.csv");
+		if (Files.exists(lineResults)) {
+			try (Reader reader = Files.newBufferedReader(lineResults, StandardCharsets.UTF_8)) {
+				importer.readLineResults(reader);
+			}
+		}
+		return importer;
+	}
+
+	/**
+	 * Reads the table of nodes. Empty voltage limits are replaced by
+	 * {@link #DEFAULT_MINIMUM_PU_VOLTAGE} and
+	 * {@link #DEFAULT_MAXIMUM_PU_VOLTAGE}.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if the id column is missing or an id is used twice
+	 */
+	public void readNodes(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int id = table.column("id");
+		int minimumVoltage = table.optionalColumn("vmMin");
+		int maximumVoltage = table.optionalColumn("vmMax");
+		while (table.next()) {
+			int index = add(busIds, table.get(id), table);
+			buses.add(new ImportedBus(table.get(id), index,
+					table.getDouble(minimumVoltage, DEFAULT_MINIMUM_PU_VOLTAGE),
+					table.getDouble(maximumVoltage, DEFAULT_MAXIMUM_PU_VOLTAGE)));
+		}
+	}
+
+	/**
+	 * Reads the table of line types, which has to be read before the lines
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	public void readLineTypes(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int id = table.column("id");
+		int ratedCurrent = table.column("iMax");
+		while (table.next()) {
+			int index = add(lineTypeIds, table.get(id), table);
+			if (index == lineTypeCurrents.length) {
+				lineTypeCurrents = Arrays.copyOf(lineTypeCurrents, 2 * index);
+			}
+			lineTypeCurrents[index] = table.getDouble(ratedCurrent, Double.NaN);
+		}
+	}
+
+	/**
+	 * Reads the table of lines, which has to be read after the nodes and line
+	 * types. The types are ignored if no line types have been read.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is missing or a line refers to an unknown node
+	 *             or line type
+	 */
+	public void readLines(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int id = table.column("id");
+		int firstBus = table.column("nodeA");
+		int secondBus = table.column("nodeB");
+		int length = table.column("length");
+		int type = table.optionalColumn("type");
+		while (table.next()) {
+			double ratedCurrent = Double.NaN;
+			if (type >= 0 && lineTypeIds.size() > 0 && !table.get(type).isEmpty()) {
+				ratedCurrent = lineTypeCurrents[find(lineTypeIds, table.get(type), "line type", table)];
+			}
+			addSection(table, table.get(id), table.get(firstBus), table.get(secondBus),
+					table.getDouble(length), ratedCurrent);
+		}
+	}
+
+	/**
+	 * Reads the table of transformers, which are added as sections of length
+	 * 0
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is missing or a transformer refers to an unknown
+	 *             node
+	 */
+	public void readTransformers(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int id = table.column("id");
+		int highVoltageBus = table.column("nodeHV");
+		int lowVoltageBus = table.column("nodeLV");
+		while (table.next()) {
+			addSection(table, table.get(id), table.get(highVoltageBus), table.get(lowVoltageBus), 0, Double.NaN);
+		}
+	}
+
+	private void addSection(Table table, String id, String firstBusId, String secondBusId, double length,
+			double ratedCurrent) {
+		ImportedBus firstBus = buses.get(find(busIds, firstBusId, "node", table));
+		ImportedBus secondBus = buses.get(find(busIds, secondBusId, "node", table));
+		ImportedSection section = new ImportedSection(id, add(sectionIds, id, table), firstBus, secondBus,
+				length, ratedCurrent);
+		sections.add(section);
+		firstBus.connectedSections.add(section);
+		secondBus.connectedSections.add(section);
+	}
+
+	/**
+	 * Reads the voltages and reports each bus outside its limits
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is missing or a row refers to an unknown node
+	 */
+	public void readNodeResults(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int node = table.column("node");
+		int voltage = table.column("vm");
+		while (table.next()) {
+			ImportedBus bus = buses.get(find(busIds, table.get(node), "node", table));
+			bus.puVoltage = table.getDouble(voltage);
+			if (extension != null
+					&& (bus.puVoltage < bus.minimumPuVoltage || bus.puVoltage > bus.maximumPuVoltage)) {
+				extension.reportVoltageOverload(bus);
+			}
+		}
+	}
+
+	/**
+	 * Reads the currents and reports each section whose specific current
+	 * exceeds {@link #getMaximumSpecificCurrent()}. A current in kA is
+	 * divided by the rated current of the line type.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             if a column is missing, a row refers to an unknown line or a
+	 *             current is given for a line without rated current
+	 */
+	public void readLineResults(Reader reader) throws IOException {
+		Table table = new Table(reader, separator);
+		int line = table.column("line");
+		int loading = table.optionalColumn("loading");
+		int current = loading < 0 ? table.column("i") : -1;
+		while (table.next()) {
+			ImportedSection section = sections.get(find(sectionIds, table.get(line), "line", table));
+			if (loading >= 0) {
+				section.absSpecificCurrent = Math.abs(table.getDouble(loading)) / 100;
+			} else {
+				if (Double.isNaN(section.ratedCurrent)) {
+					throw new IllegalArgumentException("The line " + section.id + " in row " + table.row
+							+ " has no rated current, so its current cannot be related to it.");
+				}
+				section.absSpecificCurrent = Math.abs(table.getDouble(current)) / section.ratedCurrent;
+			}
+			if (extension != null && section.absSpecificCurrent > maximumSpecificCurrent) {
+				extension.reportCurrentOverload(section);
+			}
+		}
+	}
+
+	private static int add(IdIndex ids, String id, Table table) {
+		try {
+			return ids.add(id);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("The id " + id + " in row " + table.row + " has been used before.",
+					e);
+		}
+	}
+
+	private static int find(IdIndex ids, String id, String kind, Table table) {
+		int index = ids.get(id);
+		if (index < 0) {
+			throw new IllegalArgumentException(
+					"Row " + table.row + " refers to the " + kind + " " + id + ", which has not been read.");
+		}
+		return index;
+	}
+
+	/**
+	 * Returns all buses read, in the order of the table
+	 *
+	 * @return
+	 */
+	public List<ImportedBus> getBuses() {
+		return Collections.unmodifiableList(buses);
+	}
+
+	/**
+	 * Returns all lines and transformers read, in the order of the tables
+	 *
+	 * @return
+	 */
+	public List<ImportedSection> getSections() {
+		return Collections.unmodifiableList(sections);
+	}
+
+	/**
+	 * Returns the bus with the id
+	 *
+	 * @param id
+	 * @return null if no such bus has been read
+	 */
+	public ImportedBus getBus(String id) {
+		int index = busIds.get(id);
+		return index < 0 ? null : buses.get(index);
+	}
+
+	/**
+	 * Returns the line or transformer with the id
+	 *
+	 * @param id
+	 * @return null if no such section has been read
+	 */
+	public ImportedSection getSection(String id) {
+		int index = sectionIds.get(id);
+		return index < 0 ? null : sections.get(index);
+	}
+
+	/**
+	 * Returns the specific current above which a section is reported
+	 *
+	 * @return
+	 */
+	public double getMaximumSpecificCurrent() {
+		return maximumSpecificCurrent;
+	}
+
+	/**
+	 * Sets the specific current above which a section is reported, 1 by
+	 * default
+	 *
+	 * @param maximumSpecificCurrent
+	 */
+	public void setMaximumSpecificCurrent(double maximumSpecificCurrent) {
+		this.maximumSpecificCurrent = maximumSpecificCurrent;
+	}
+
+	/**
+	 * A node read from the table
+	 */
+	public static final class ImportedBus implements IndexedBus {
+
+		private final String id;
+
+		private final int index;
+
+		private final double minimumPuVoltage;
+
+		private final double maximumPuVoltage;
+
+		private final List<GridSection> connectedSections = new ArrayList<GridSection>(2);
+
+		private double puVoltage = 1;
+
+		ImportedBus(String id, int index, double minimumPuVoltage, double maximumPuVoltage) {
+			this.id = id;
+			this.index = index;
+			this.minimumPuVoltage = minimumPuVoltage;
+			this.maximumPuVoltage = maximumPuVoltage;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the position of the bus in its table
+		 *
+		 * @return
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public double getMinimumPuVoltage() {
+			return minimumPuVoltage;
+		}
+
+		public double getMaximumPuVoltage() {
+			return maximumPuVoltage;
+		}
+
+		/**
+		 * Returns the voltage of the node results, 1 if none has been read
+		 */
+		public double getPuVoltage() {
+			return puVoltage;
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return connectedSections;
+		}
+
+		public String toString() {
+			return id;
+		}
+
+	}
+
+	/**
+	 * A line or transformer read from the tables
+	 */
+	public static final class ImportedSection implements IndexedGridSection, WeightedGridSection {
+
+		private final String id;
+
+		private final int index;
+
+		private final Bus[] connectedBuses;
+
+		private final double length;
+
+		private final double ratedCurrent;
+
+		private double absSpecificCurrent = 0;
+
+		ImportedSection(String id, int index, ImportedBus firstBus, ImportedBus secondBus, double length,
+				double ratedCurrent) {
+			this.id = id;
+			this.index = index;
+			this.connectedBuses = new Bus[] { firstBus, secondBus };
+			this.length = length;
+			this.ratedCurrent = ratedCurrent;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the position of the section in the tables, the lines first
+		 *
+		 * @return
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Returns the rated current of the line type in kA
+		 *
+		 * @return NaN if the line has no type or is a transformer
+		 */
+		public double getRatedCurrent() {
+			return ratedCurrent;
+		}
+
+		/**
+		 * Returns the specific current of the line results, 0 if none has
+		 * been read
+		 */
+		public double getAbsSpecificCurrent() {
+			return absSpecificCurrent;
+		}
+
+		public Bus[] getConnectedBuses() {
+			return connectedBuses;
+		}
+
+		public Bus getFirstBus() {
+			return connectedBuses[0];
+		}
+
+		public Bus getSecondBus() {
+			return connectedBuses[1];
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public String toString() {
+			return id;
+		}
+
+	}
+
+	/**
+	 * Reads a table row by row. The fields of the current row are kept in an
+	 * array that is reused for every row.
+	 */
+	private static final class Table {
+
+		private final BufferedReader reader;
+
+		private final char separator;
+
+		private final String[] columnNames;
+
+		private final String[] fields;
+
+		/**
+		 * The number of the current row in the file, the header being row 1
+		 */
+		int row = 1;
+
+		Table(Reader reader, char separator) throws IOException {
+			this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+			this.separator = separator;
+			String header = this.reader.readLine();
+			if (header == null) {
+				throw new IllegalArgumentException("The table is empty.");
+			}
+			if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+				header = header.substring(1);
+			}
+			columnNames = new String[count(header, separator)];
+			split(header, columnNames);
+			fields = new String[columnNames.length];
+		}
+
+		private static int count(String line, char separator) {
+			int count = 1;
+			for (int i = 0; i < line.length(); i++) {
+				if (line.charAt(i) == separator) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Splits the line at the separators, removes surrounding white space
+		 * and quotes and fills missing fields with empty strings
+		 */
+		private void split(String line, String[] target) {
+			int start = 0;
+			for (int i = 0; i < target.length; i++) {
+				int end = start <= line.length() ? line.indexOf(separator, start) : -1;
+				if (end < 0) {
+					end = line.length();
+				}
+				String field = start < end ? line.substring(start, end).trim() : "";
+				if (field.length() >= 2 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"') {
+					field = field.substring(1, field.length() - 1);
+				}
+				target[i] = field;
+				start = end + 1;
+			}
+		}
+
+		/**
+		 * Returns the position of the column
+		 *
+		 * @throws IllegalArgumentException
+		 *             if the table has no such column
+		 */
+		int column(String name) {
+			int column = optionalColumn(name);
+			if (column < 0) {
+				throw new IllegalArgumentException(
+						"The table has no column " + name + ", only " + Arrays.toString(columnNames) + ".");
+			}
+			return column;
+		}
+
+		/**
+		 * Returns the position of the column, -1 if the table has no such
+		 * column
+		 */
+		int optionalColumn(String name) {
+			for (int i = 0; i < columnNames.length; i++) {
+				if (columnNames[i].equalsIgnoreCase(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Reads the next row, skipping empty lines
+		 *
+		 * @return False if the end of the table has been reached
+		 */
+		boolean next() throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+				row++;
+				if (line == null) {
+					return false;
+				}
+			} while (line.trim().isEmpty());
+			split(line, fields);
+			return true;
+		}
+
+		String get(int column) {
+			return fields[column];
+		}
+
+		/**
+		 * Returns the number in the column
+		 *
+		 * @throws IllegalArgumentException
+		 *             if the field is empty or not a number
+		 */
+		double getDouble(int column) {
+			if (fields[column].isEmpty()) {
+				throw new IllegalArgumentException("Row " + row + " lacks the " + columnNames[column] + ".");
+			}
+			return getDouble(column, Double.NaN);
+		}
+
+		/**
+		 * Returns the number in the column
+		 *
+		 * @param column
+		 *            The column or -1
+		 * @param defaultValue
+		 *            Returned if the column does not exist or the field is empty
+		 * @throws IllegalArgumentException
+		 *             if the field is not a number
+		 */
+		double getDouble(int column, double defaultValue) {
+			if (column < 0 || fields[column].isEmpty()) {
+				return defaultValue;
+			}
+			try {
+				return Double.parseDouble(fields[column]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"The field " + fields[column] + " in row " + row + " is not a number.", e);
+			}
+		}
+
+	}
+
+}
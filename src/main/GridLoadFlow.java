@@ -0,0 +1,24 @@
+package main;
+
+/**
+ * Calculates the state of a grid for the {@link GridExtensionPlanner}. This
+ * can be an in-process {@link LoadFlow}, see {@link IncrementalGridLoadFlow},
+ * or an adapter to an external tool that writes its results to the
+ * {@link Bus}es and {@link GridSection}s and returns
+ * {@link CompactGrid#snapshot(GridGraph)}.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface GridLoadFlow {
+
+	/**
+	 * Calculates the voltages and specific currents of the grid
+	 * 
+	 * @param topology
+	 *            The grid, including all cables built so far
+	 * @return The state of the grid, with the same topology
+	 */
+	public CompactGrid calculate(GridGraph topology);
+
+}
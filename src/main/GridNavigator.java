@@ -2,9 +2,9 @@ package main;
 
 /**
  * Each grid might have characteristics that can be exploited to speed up the
- * route-finding. A brute-force algorithm will be added later, but will not
- * scale well with grid size. The user is therefore invited to implement a
- * custom navigator.
+ * route-finding. {@link DijkstraGridNavigator} works for grids of any
+ * topology, but the user is invited to implement a custom navigator if the
+ * grid allows for a faster one.
  * 
  * @author Christopher Olk
  *
@@ -0,0 +1,399 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The states of a grid over many hours, e.g. the 8760 hours of a year, as
+ * calculated by a loadflow for every hour. The voltages and specific currents
+ * are stored outside the Java heap in a time &times; element matrix: the row
+ * of an hour holds the p.u. voltages of all buses followed by the specific
+ * currents of all sections, indexed like the {@link GridGraph}. A year of a
+ * grid of 10000 buses thus takes about 1.4 GB of direct memory, which the
+ * garbage collector neither copies nor scans; raise
+ * {@code -XX:MaxDirectMemorySize} if needed.
+ * <p>
+ * The rows are written once, by {@link #setState(int, double[], double[])}
+ * or the single value setters, and can then be read from several threads at
+ * once. {@link #findCriticalHours(double, double, double, int)} ranks the
+ * hours by their worst violation, and
+ * {@link ScenarioBatchEvaluator#evaluate(GridTimeSeries, int[])} searches the
+ * extension for each of them in parallel.
+ * <p>
+ * The memory is released by {@link #close()}, after which the time series
+ * throws an {@link IllegalStateException}. Closing is not synchronized with
+ * readers on other threads.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class GridTimeSeries implements AutoCloseable {
+
+	/**
+	 * The size of the blocks the rows are allocated in. Direct buffers are
+	 * limited to 2 GB, so the rows of all hours cannot share one.
+	 */
+	private static final int BLOCK_BYTES = 1 << 30;
+
+	/**
+	 * The number of hours evaluated by a single task of
+	 * {@link #findCriticalHours(double, double, double, int, ForkJoinPool)}
+	 */
+	private static final int HOURS_PER_TASK = 16;
+
+	private final GridGraph topology;
+
+	private final int hourCount;
+
+	/**
+	 * The number of doubles of each row, the buses followed by the sections
+	 */
+	private final int rowLength;
+
+	private final int hoursPerBlock;
+
+	/**
+	 * The allocated buffers the blocks are views of, null once the time
+	 * series has been closed
+	 */
+	private ByteBuffer[] memory;
+
+	private DoubleBuffer[] blocks;
+
+	/**
+	 * Constructor of {@link GridTimeSeries}. All voltages are 1 and all
+	 * currents 0 until they are set.
+	 *
+	 * @param topology
+	 *            The topology the rows are indexed like
+	 * @param hourCount
+	 *            The number of hours, e.g. 8760
+	 * @throws IllegalArgumentException
+	 *             if the number of hours is negative or the row of an hour
+	 *             does not fit into a block
+	 */
+	public GridTimeSeries(GridGraph topology, int hourCount) {
+		if (hourCount < 0) {
+			throw new IllegalArgumentException("The number of hours must not be negative, but was " + hourCount);
+		}
+		long rowBytes = 8L * (topology.getBusCount() + topology.getSectionCount());
+		if (rowBytes > BLOCK_BYTES) {
+			throw new IllegalArgumentException("The state of a single hour takes " + rowBytes
+					+ " bytes, but at most " + BLOCK_BYTES + " are supported.");
+		}
+		this.topology = topology;
+		this.hourCount = hourCount;
+		this.rowLength = topology.getBusCount() + topology.getSectionCount();
+		this.hoursPerBlock = rowLength == 0 ? Math.max(1, hourCount) : (int) (BLOCK_BYTES / rowBytes);
+		this.memory = new ByteBuffer[(hourCount + hoursPerBlock - 1) / hoursPerBlock];
+		this.blocks = new DoubleBuffer[memory.length];
+		for (int i = 0; i < blocks.length; i++) {
+			int hours = Math.min(hoursPerBlock, hourCount - i * hoursPerBlock);
+			memory[i] = ByteBuffer.allocateDirect(hours * rowLength * 8).order(ByteOrder.nativeOrder());
+			blocks[i] = memory[i].asDoubleBuffer();
+			for (int hour = 0; hour < hours; hour++) {
+				for (int bus = 0; bus < topology.getBusCount(); bus++) {
+					blocks[i].put(hour * rowLength + bus, 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the topology the rows are indexed like
+	 *
+	 * @return
+	 */
+	public GridGraph getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the number of hours
+	 *
+	 * @return
+	 */
+	public int getHourCount() {
+		return hourCount;
+	}
+
+	/**
+	 * Frees the memory of the time series. Afterwards, the time series throws
+	 * an {@link IllegalStateException}. It must not be closed while other
+	 * threads still read it. Closing it twice has no effect.
+	 */
+	public synchronized void close() {
+		ByteBuffer[] memory = this.memory;
+		if (memory == null) {
+			return;
+		}
+		this.memory = null;
+		blocks = null;
+		OffHeapGrid.free(memory);
+	}
+
+	/**
+	 * Checks whether {@link #close()} has been called
+	 *
+	 * @return
+	 */
+	public boolean isClosed() {
+		return memory == null;
+	}
+
+	private void checkOpen() {
+		if (memory == null) {
+			throw new IllegalStateException("The time series has been closed.");
+		}
+	}
+
+	private DoubleBuffer getBlock(int hour) {
+		checkOpen();
+		if (hour < 0 || hour >= hourCount) {
+			throw new IndexOutOfBoundsException("Hour " + hour + ", number of hours " + hourCount);
+		}
+		return blocks[hour / hoursPerBlock];
+	}
+
+	private int getRowStart(int hour) {
+		return (hour % hoursPerBlock) * rowLength;
+	}
+
+	/**
+	 * Stores the result of the loadflow of an hour
+	 *
+	 * @param hour
+	 * @param puVoltages
+	 *            The p.u. voltage of every bus, indexed like the topology
+	 * @param absSpecificCurrents
+	 *            The absolute specific current of every section, indexed like
+	 *            the topology
+	 * @throws IllegalArgumentException
+	 *             if the length of an array does not match the topology
+	 */
+	public void setState(int hour, double[] puVoltages, double[] absSpecificCurrents) {
+		if (puVoltages.length != topology.getBusCount() || absSpecificCurrents.length != topology.getSectionCount()) {
+			throw new IllegalArgumentException("The grid has " + topology.getBusCount() + " buses and "
+					+ topology.getSectionCount() + " sections, but " + puVoltages.length + " voltages and "
+					+ absSpecificCurrents.length + " currents were supplied.");
+		}
+		DoubleBuffer row = getBlock(hour).duplicate();
+		row.position(getRowStart(hour));
+		row.put(puVoltages);
+		row.put(absSpecificCurrents);
+	}
+
+	/**
+	 * Stores the result of the loadflow of an hour
+	 *
+	 * @param hour
+	 * @param grid
+	 *            The result, whose topology has to be the one of the time
+	 *            series
+	 * @throws IllegalArgumentException
+	 *             if the grid has another topology
+	 */
+	public void setState(int hour, CompactGrid grid) {
+		if (grid.getTopology() != topology) {
+			throw new IllegalArgumentException("The grid has another topology than the time series.");
+		}
+		DoubleBuffer block = getBlock(hour);
+		int rowStart = getRowStart(hour);
+		for (int bus = 0; bus < topology.getBusCount(); bus++) {
+			block.put(rowStart + bus, grid.getPuVoltage(bus));
+		}
+		rowStart += topology.getBusCount();
+		for (int section = 0; section < topology.getSectionCount(); section++) {
+			block.put(rowStart + section, grid.getAbsSpecificCurrent(section));
+		}
+	}
+
+	public void setPuVoltage(int hour, int busIndex, double puVoltage) {
+		getBlock(hour).put(getRowStart(hour) + checkIndex(busIndex, topology.getBusCount()), puVoltage);
+	}
+
+	public void setAbsSpecificCurrent(int hour, int sectionIndex, double absSpecificCurrent) {
+		getBlock(hour).put(getRowStart(hour) + topology.getBusCount()
+				+ checkIndex(sectionIndex, topology.getSectionCount()), absSpecificCurrent);
+	}
+
+	public double getPuVoltage(int hour, int busIndex) {
+		return getBlock(hour).get(getRowStart(hour) + checkIndex(busIndex, topology.getBusCount()));
+	}
+
+	public double getAbsSpecificCurrent(int hour, int sectionIndex) {
+		return getBlock(hour).get(
+				getRowStart(hour) + topology.getBusCount() + checkIndex(sectionIndex, topology.getSectionCount()));
+	}
+
+	private static int checkIndex(int index, int count) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + count);
+		}
+		return index;
+	}
+
+	/**
+	 * Copies the state of the hour into a {@link CompactGrid}, e.g. to run
+	 * {@link GenericLVGridExtension} on it
+	 *
+	 * @param hour
+	 * @return
+	 */
+	public CompactGrid getState(int hour) {
+		double[] puVoltages = new double[topology.getBusCount()];
+		double[] absSpecificCurrents = new double[topology.getSectionCount()];
+		DoubleBuffer row = getBlock(hour).duplicate();
+		row.position(getRowStart(hour));
+		row.get(puVoltages);
+		row.get(absSpecificCurrents);
+		return new CompactGrid(topology, puVoltages, absSpecificCurrents);
+	}
+
+	/**
+	 * Returns the worst violation of the hour: how far the specific current
+	 * of a section exceeds the maximum or the voltage of a bus falls below the
+	 * lower or rises above the upper bound. Both are p.u. values and compared
+	 * as they are.
+	 *
+	 * @param hour
+	 * @param lowerVoltageBound
+	 * @param upperVoltageBound
+	 * @param maximumSpecificCurrent
+	 * @return The worst violation, 0 or below if no bound is violated
+	 */
+	public double getViolation(int hour, double lowerVoltageBound, double upperVoltageBound,
+			double maximumSpecificCurrent) {
+		DoubleBuffer block = getBlock(hour);
+		int position = getRowStart(hour);
+		double minimumVoltage = Double.POSITIVE_INFINITY;
+		double maximumVoltage = Double.NEGATIVE_INFINITY;
+		for (int end = position + topology.getBusCount(); position < end; position++) {
+			double puVoltage = block.get(position);
+			minimumVoltage = Math.min(minimumVoltage, puVoltage);
+			maximumVoltage = Math.max(maximumVoltage, puVoltage);
+		}
+		double maximumCurrent = Double.NEGATIVE_INFINITY;
+		for (int end = position + topology.getSectionCount(); position < end; position++) {
+			maximumCurrent = Math.max(maximumCurrent, block.get(position));
+		}
+		return Math.max(maximumCurrent - maximumSpecificCurrent,
+				Math.max(lowerVoltageBound - minimumVoltage, maximumVoltage - upperVoltageBound));
+	}
+
+	/**
+	 * Finds the hours in which a bound is violated on the common
+	 * {@link ForkJoinPool}, see
+	 * {@link #findCriticalHours(double, double, double, int, ForkJoinPool)}
+	 *
+	 * @param lowerVoltageBound
+	 * @param upperVoltageBound
+	 * @param maximumSpecificCurrent
+	 * @param maximumHourCount
+	 * @return
+	 */
+	public int[] findCriticalHours(double lowerVoltageBound, double upperVoltageBound, double maximumSpecificCurrent,
+			int maximumHourCount) {
+		return findCriticalHours(lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent, maximumHourCount,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds the hours in which a bound is violated, the hours are scanned in
+	 * parallel on the pool. The hours are ranked by
+	 * {@link #getViolation(int, double, double, double)}, equally bad hours in
+	 * their order.
+	 *
+	 * @param lowerVoltageBound
+	 *            Buses below this p.u. voltage violate the voltage bounds
+	 * @param upperVoltageBound
+	 *            Buses above this p.u. voltage violate the voltage bounds
+	 * @param maximumSpecificCurrent
+	 *            Sections with a higher specific current are overloaded
+	 * @param maximumHourCount
+	 *            The number of hours returned at most
+	 * @param pool
+	 * @return The critical hours, the worst first
+	 */
+	public int[] findCriticalHours(double lowerVoltageBound, double upperVoltageBound,
+			double maximumSpecificCurrent, int maximumHourCount, ForkJoinPool pool) {
+		checkOpen();
+		final double[] violations = new double[hourCount];
+		if (hourCount > 0) {
+			pool.invoke(new HourRange(violations, lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent, 0,
+					hourCount));
+		}
+		List<Integer> criticalHours = new ArrayList<Integer>();
+		for (int hour = 0; hour < hourCount; hour++) {
+			if (violations[hour] > 0) {
+				criticalHours.add(hour);
+			}
+		}
+		Collections.sort(criticalHours, new Comparator<Integer>() {
+			public int compare(Integer first, Integer second) {
+				int comparison = Double.compare(violations[second], violations[first]);
+				return comparison != 0 ? comparison : first - second;
+			}
+		});
+		int[] result = new int[Math.min(Math.max(maximumHourCount, 0), criticalHours.size())];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = criticalHours.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Calculates the violations of a range of hours, splitting it in halves
+	 * until at most {@link #HOURS_PER_TASK} hours are left.
+	 */
+	private final class HourRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] violations;
+
+		private final double lowerVoltageBound;
+
+		private final double upperVoltageBound;
+
+		private final double maximumSpecificCurrent;
+
+		private final int from;
+
+		private final int to;
+
+		HourRange(double[] violations, double lowerVoltageBound, double upperVoltageBound,
+				double maximumSpecificCurrent, int from, int to) {
+			this.violations = violations;
+			this.lowerVoltageBound = lowerVoltageBound;
+			this.upperVoltageBound = upperVoltageBound;
+			this.maximumSpecificCurrent = maximumSpecificCurrent;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= HOURS_PER_TASK) {
+				for (int hour = from; hour < to; hour++) {
+					violations[hour] = getViolation(hour, lowerVoltageBound, upperVoltageBound,
+							maximumSpecificCurrent);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new HourRange(violations, lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent, from,
+					middle),
+					new HourRange(violations, lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent, middle,
+							to));
+		}
+
+	}
+
+}
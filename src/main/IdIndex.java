@@ -0,0 +1,95 @@
+package main;
+
+/**
+ * Gives the ids read from a grid export dense indices in the order they are
+ * first seen. The ids are stored in an open addressing table of plain arrays,
+ * so unlike a {@link java.util.HashMap} no entry or {@link Integer} is
+ * allocated per id and millions of ids fit into a few arrays.
+ *
+ * @author Christopher Olk
+ *
+ */
+final class IdIndex {
+
+	private String[] keys = new String[16];
+
+	private int[] indices = new int[16];
+
+	private int size = 0;
+
+	/**
+	 * Returns the index of the id, -1 if it has not been added
+	 *
+	 * @param id
+	 * @return
+	 */
+	int get(String id) {
+		int mask = keys.length - 1;
+		for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+			String key = keys[slot];
+			if (key == null) {
+				return -1;
+			}
+			if (key.equals(id)) {
+				return indices[slot];
+			}
+		}
+	}
+
+	/**
+	 * Adds the id with the next index
+	 *
+	 * @param id
+	 * @return The new index
+	 * @throws IllegalArgumentException
+	 *             if the id has been added before
+	 */
+	int add(String id) {
+		if (2 * (size + 1) > keys.length) {
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		while (keys[slot] != null) {
+			if (keys[slot].equals(id)) {
+				throw new IllegalArgumentException("The id " + id + " has been used twice.");
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = id;
+		indices[slot] = size;
+		return size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void grow() {
+		String[] oldKeys = keys;
+		int[] oldIndices = indices;
+		keys = new String[2 * oldKeys.length];
+		indices = new int[keys.length];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				indices[slot] = oldIndices[i];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the hash code, as ids like "LV1.101 Bus 17" differ in their last
+	 * characters only
+	 */
+	private static int hash(String id) {
+		int hash = id.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,36 @@
+package main;
+
+/**
+ * A {@link GridSection} with its impedance and rated current, needed to
+ * calculate the voltages and currents of the grid with a
+ * {@link SweepLoadFlow}. All values are p.u. values on the same base as the
+ * powers of the {@link LoadBus}es.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface ImpedanceGridSection extends GridSection {
+
+	/**
+	 * Returns the p.u. resistance of the whole section
+	 * 
+	 * @return
+	 */
+	public double getResistance();
+
+	/**
+	 * Returns the p.u. reactance of the whole section
+	 * 
+	 * @return
+	 */
+	public double getReactance();
+
+	/**
+	 * Returns the p.u. current the section can carry continuously, i.e. the
+	 * current at which {@link #getAbsSpecificCurrent()} is 1
+	 * 
+	 * @return
+	 */
+	public double getRatedCurrent();
+
+}
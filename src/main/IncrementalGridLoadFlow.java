@@ -0,0 +1,76 @@
+package main;
+
+/**
+ * A {@link GridLoadFlow} that calculates the grid with a
+ * {@link CurrentInjectionLoadFlow}. If the grid only has one cable more than
+ * the grid of the previous call, the previous loadflow is extended instead of
+ * set up again and the iteration starts from the previous result. The
+ * sections have to implement {@link ImpedanceGridSection}, the loads are read
+ * from the {@link LoadBus}es.
+ * <p>
+ * The previous loadflow is kept between the calls, so an instance must not be
+ * shared by several planners running at once.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class IncrementalGridLoadFlow implements GridLoadFlow {
+
+	private final Bus slackBus;
+
+	private CurrentInjectionLoadFlow previousLoadFlow;
+
+	private CompactGrid previousResult;
+
+	/**
+	 * Constructor of {@link IncrementalGridLoadFlow}
+	 *
+	 * @param slackBus
+	 *            The bus with a fixed voltage, usually the LV side of the
+	 *            transformer
+	 */
+	public IncrementalGridLoadFlow(Bus slackBus) {
+		this.slackBus = slackBus;
+	}
+
+	public CompactGrid calculate(GridGraph topology) {
+		if (previousLoadFlow != null && previousLoadFlow.getTopology() == topology) {
+			previousResult = previousLoadFlow.solve(previousResult);
+		} else if (previousLoadFlow != null && isExtensionOf(topology, previousLoadFlow.getTopology())) {
+			previousLoadFlow = previousLoadFlow.extend(topology);
+			previousResult = previousLoadFlow.solve(previousResult);
+		} else {
+			previousLoadFlow = CurrentInjectionLoadFlow.of(topology, slackBus);
+			previousResult = previousLoadFlow.solve();
+		}
+		return previousResult;
+	}
+
+	/**
+	 * Checks whether the grid consists of the sections of the previous grid
+	 * and exactly one new section
+	 *
+	 * @param topology
+	 * @param previousTopology
+	 * @return
+	 */
+	private static boolean isExtensionOf(GridGraph topology, GridGraph previousTopology) {
+		if (topology.getBusCount() != previousTopology.getBusCount()
+				|| topology.getSectionCount() != previousTopology.getSectionCount() + 1) {
+			return false;
+		}
+		for (int i = 0; i < topology.getBusCount(); i++) {
+			if (topology.getBus(i) != previousTopology.getBus(i)) {
+				return false;
+			}
+		}
+		int newSections = 0;
+		for (int i = 0; i < topology.getSectionCount(); i++) {
+			if (previousTopology.indexOf(topology.getSection(i)) < 0) {
+				newSections++;
+			}
+		}
+		return newSections == 1;
+	}
+
+}
@@ -0,0 +1,26 @@
+package main;
+
+/**
+ * A {@link Bus} that knows its position within its grid. The indices of the
+ * buses of a grid have to be unique and dense, i.e. run from 0 to the number
+ * of buses minus one, so they can be used to address primitive arrays and
+ * bit sets instead of maps keyed by the buses.
+ * <p>
+ * Implementing this interface is optional. {@link GridGraph#compile(java.util.Collection)}
+ * keeps the indices if all buses and sections of the grid are indexed, and
+ * {@link GenericLVGridExtension} keys the sections it has passed by their
+ * index.
+ *
+ * @author Christopher Olk
+ *
+ */
+public interface IndexedBus extends Bus {
+
+	/**
+	 * Returns the index of the bus within its grid
+	 *
+	 * @return
+	 */
+	public int getIndex();
+
+}
@@ -0,0 +1,77 @@
+package main;
+
+/**
+ * A grid whose state is stored in columns indexed like its
+ * {@link IndexedTopology}, e.g. a {@link CompactGrid} or an
+ * {@link OffHeapGrid}. If the {@link Bus}es and {@link GridSection}s reported
+ * to {@link GenericLVGridExtension} are {@link Element}s of such a grid, the
+ * extension is searched on the columns instead of the interfaces.
+ *
+ * @author Christopher Olk
+ *
+ */
+interface IndexedGrid {
+
+	/**
+	 * Returns the topology the columns are indexed like
+	 *
+	 * @return
+	 */
+	IndexedTopology getTopology();
+
+	/**
+	 * Returns the p.u. voltage of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	double getPuVoltage(int busIndex);
+
+	/**
+	 * Returns the absolute specific current of the section with the given
+	 * index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	double getAbsSpecificCurrent(int sectionIndex);
+
+	/**
+	 * Returns the view on the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	Bus getBus(int busIndex);
+
+	/**
+	 * Returns the view on the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	GridSection getSection(int sectionIndex);
+
+	/**
+	 * A {@link Bus} or {@link GridSection} view that reads its state from an
+	 * {@link IndexedGrid}.
+	 */
+	interface Element {
+
+		/**
+		 * Returns the grid the element belongs to
+		 *
+		 * @return
+		 */
+		IndexedGrid getGrid();
+
+		/**
+		 * Returns the index of the element within the grid
+		 *
+		 * @return
+		 */
+		int getIndex();
+
+	}
+
+}
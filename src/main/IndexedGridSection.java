@@ -0,0 +1,36 @@
+package main;
+
+/**
+ * A {@link GridSection} that knows its position within its grid and returns
+ * the {@link Bus}es at its ends one by one, so no array has to be created
+ * whenever the other end of the section is looked up. The indices of the
+ * sections of a grid have to be unique and dense like the ones of an
+ * {@link IndexedBus}.
+ *
+ * @author Christopher Olk
+ *
+ */
+public interface IndexedGridSection extends GridSection {
+
+	/**
+	 * Returns the index of the section within its grid
+	 *
+	 * @return
+	 */
+	public int getIndex();
+
+	/**
+	 * Returns the {@link Bus} {@link #getConnectedBuses()} returns first
+	 *
+	 * @return
+	 */
+	public Bus getFirstBus();
+
+	/**
+	 * Returns the {@link Bus} {@link #getConnectedBuses()} returns second
+	 *
+	 * @return
+	 */
+	public Bus getSecondBus();
+
+}
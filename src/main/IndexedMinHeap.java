@@ -0,0 +1,146 @@
+package main;
+
+/**
+ * A binary min-heap over the integers {@code 0} to {@code capacity - 1} that
+ * allows to decrease the key of an element already contained. Only primitive
+ * arrays are used, so no objects are created while searching.
+ *
+ * @author Christopher Olk
+ *
+ */
+final class IndexedMinHeap {
+
+	/**
+	 * The elements in heap order.
+	 */
+	private final int[] heap;
+
+	/**
+	 * The position of each element in {@link #heap}, -1 if the element is not
+	 * contained.
+	 */
+	private final int[] positions;
+
+	/**
+	 * The key of each element.
+	 */
+	private final double[] keys;
+
+	private int size = 0;
+
+	IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		for (int i = 0; i < capacity; i++) {
+			positions[i] = -1;
+		}
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int element) {
+		return positions[element] >= 0;
+	}
+
+	/**
+	 * Returns the smallest key in the heap without removing its element.
+	 *
+	 * @return
+	 */
+	double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Inserts the element or lowers its key if it is already contained with a
+	 * higher key. A higher key than the current one is ignored.
+	 *
+	 * @param element
+	 * @param key
+	 */
+	void insertOrDecrease(int element, double key) {
+		int position = positions[element];
+		if (position < 0) {
+			position = size++;
+			heap[position] = element;
+			positions[element] = position;
+		} else if (keys[element] <= key) {
+			return;
+		}
+		keys[element] = key;
+		siftUp(position);
+	}
+
+	/**
+	 * Removes the element with the smallest key and returns it.
+	 *
+	 * @return
+	 */
+	int pollMin() {
+		int min = heap[0];
+		positions[min] = -1;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			positions[last] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Removes all elements. Only the contained elements are touched, so
+	 * clearing a heap after a search that stopped early is cheap.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int position) {
+		int element = heap[position];
+		double key = keys[element];
+		while (position > 0) {
+			int parentPosition = (position - 1) >>> 1;
+			int parent = heap[parentPosition];
+			if (keys[parent] <= key) {
+				break;
+			}
+			heap[position] = parent;
+			positions[parent] = position;
+			position = parentPosition;
+		}
+		heap[position] = element;
+		positions[element] = position;
+	}
+
+	private void siftDown(int position) {
+		int element = heap[position];
+		double key = keys[element];
+		int half = size >>> 1;
+		while (position < half) {
+			int childPosition = 2 * position + 1;
+			int child = heap[childPosition];
+			int rightPosition = childPosition + 1;
+			if (rightPosition < size && keys[heap[rightPosition]] < keys[child]) {
+				childPosition = rightPosition;
+				child = heap[childPosition];
+			}
+			if (key <= keys[child]) {
+				break;
+			}
+			heap[position] = child;
+			positions[child] = position;
+			position = childPosition;
+		}
+		heap[position] = element;
+		positions[element] = position;
+	}
+
+}
@@ -0,0 +1,130 @@
+package main;
+
+/**
+ * The integer indexed topology of a grid as compressed sparse rows, see
+ * {@link GridGraph}. Algorithms written against this interface work on the
+ * topologies compiled from objects as well as on the ones stored outside of
+ * the heap by {@link OffHeapGrid}.
+ *
+ * @author Christopher Olk
+ *
+ */
+interface IndexedTopology {
+
+	/**
+	 * Returns the number of {@link Bus}es in the grid
+	 *
+	 * @return
+	 */
+	int getBusCount();
+
+	/**
+	 * Returns the number of {@link GridSection}s in the grid
+	 *
+	 * @return
+	 */
+	int getSectionCount();
+
+	/**
+	 * Returns the index of the {@link Bus}
+	 *
+	 * @param bus
+	 * @return The index or -1 if the bus is not part of the grid
+	 */
+	int indexOf(Bus bus);
+
+	/**
+	 * Returns the index of the {@link GridSection}
+	 *
+	 * @param section
+	 * @return The index or -1 if the section is not part of the grid
+	 */
+	int indexOf(GridSection section);
+
+	/**
+	 * Returns the {@link Bus} with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	Bus getBus(int busIndex);
+
+	/**
+	 * Returns the {@link GridSection} with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	GridSection getSection(int sectionIndex);
+
+	/**
+	 * Returns the length of the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	double getSectionLength(int sectionIndex);
+
+	/**
+	 * Returns the index of the first bus of the section
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	int getFirstBus(int sectionIndex);
+
+	/**
+	 * Returns the index of the second bus of the section
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	int getSecondBus(int sectionIndex);
+
+	/**
+	 * Returns the index of the bus at the other end of the section
+	 *
+	 * @param sectionIndex
+	 * @param busIndexThisEnd
+	 *            Already known bus, not the one to be returned.
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the section does not contain the bus
+	 */
+	int getBusAtOpposingEnd(int sectionIndex, int busIndexThisEnd);
+
+	/**
+	 * Returns the first position of the connections of the bus
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	int getAdjacencyStart(int busIndex);
+
+	/**
+	 * Returns the position after the last connection of the bus
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	int getAdjacencyEnd(int busIndex);
+
+	/**
+	 * Returns the index of the section stored at the position of the
+	 * connections
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	int getAdjacentSection(int adjacencyPosition);
+
+	/**
+	 * Returns the index of the bus at the other end of the section stored at
+	 * the position of the connections
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	int getAdjacentBus(int adjacencyPosition);
+
+}
@@ -0,0 +1,97 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An {@link ExtensionListener} that emits custom Java Flight Recorder
+ * events, so the searches of a {@link GenericLVGridExtension} show up in a
+ * recording next to the allocations and the garbage collections. The events
+ * are named {@code main.FeederSearch} and {@code main.NavigatorCall} and are
+ * enabled in a JFR configuration like the built-in ones. Disabled events cost
+ * a single check.
+ * <p>
+ * The duration is reported by the extension after the search, so it is
+ * recorded as a field and the event itself is instantaneous. A threshold of
+ * the configuration thus does not filter the events.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class JfrExtensionListener implements ExtensionListener {
+
+	/**
+	 * A finished search along a feeder
+	 */
+	@Name("main.FeederSearch")
+	@Label("Feeder Search")
+	@Category({ "Grid Extension" })
+	@Description("A search of GenericLVGridExtension along a feeder")
+	@StackTrace(false)
+	static class FeederSearchEvent extends Event {
+
+		@Label("Traversal")
+		String traversal;
+
+		@Label("Search Direction Up")
+		boolean searchDirectionUp;
+
+		@Label("Visited Buses")
+		int visitedBuses;
+
+		@Label("Stop Reason")
+		String stopReason;
+
+		@Label("Search Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long searchDuration;
+
+	}
+
+	/**
+	 * A route returned by the navigator
+	 */
+	@Name("main.NavigatorCall")
+	@Label("Navigator Call")
+	@Category({ "Grid Extension" })
+	@Description("A shortest route GenericLVGridExtension asked its GridNavigator for")
+	@StackTrace(false)
+	static class NavigatorCallEvent extends Event {
+
+		@Label("Route Length")
+		int routeLength;
+
+		@Label("Navigator Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long navigatorDuration;
+
+	}
+
+	public void traversalFinished(Traversal traversal, boolean searchDirectionUp, int visitedBuses,
+			StopReason stopReason, long durationNanos) {
+		FeederSearchEvent event = new FeederSearchEvent();
+		if (event.isEnabled()) {
+			event.traversal = traversal.name();
+			event.searchDirectionUp = searchDirectionUp;
+			event.visitedBuses = visitedBuses;
+			event.stopReason = stopReason.name();
+			event.searchDuration = durationNanos;
+			event.commit();
+		}
+	}
+
+	public void navigatorCalled(int routeLength, long durationNanos) {
+		NavigatorCallEvent event = new NavigatorCallEvent();
+		if (event.isEnabled()) {
+			event.routeLength = routeLength;
+			event.navigatorDuration = durationNanos;
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package main;
+
+/**
+ * A {@link Bus} with a load, needed to calculate the voltages and currents of
+ * the grid with a {@link SweepLoadFlow}. Buses without a load, e.g. junctions
+ * or the transformer, do not have to implement this interface.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface LoadBus extends Bus {
+
+	/**
+	 * Returns the p.u. active power drawn at the bus. Infeed, e.g. of PV
+	 * systems, is negative.
+	 * 
+	 * @return
+	 */
+	public double getActivePower();
+
+	/**
+	 * Returns the p.u. reactive power drawn at the bus. Inductive loads are
+	 * positive.
+	 * 
+	 * @return
+	 */
+	public double getReactivePower();
+
+}
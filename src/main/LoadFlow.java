@@ -0,0 +1,342 @@
+package main;
+
+/**
+ * Calculates the voltages and currents of a grid, so that the extension
+ * algorithm can run without an external loadflow tool. The result is written
+ * to a {@link CompactGrid}, whose views can be reported to
+ * {@link GenericLVGridExtension} directly.
+ * <p>
+ * The sections are described by their impedances and rated currents, the
+ * buses by the power drawn. All values are p.u. values on the same base.
+ * Solving does not change the instance, so several threads can solve
+ * different load cases of the same grid at once.
+ *
+ * @author Christopher Olk
+ *
+ */
+public abstract class LoadFlow {
+
+	protected final GridGraph topology;
+
+	protected final int slackBus;
+
+	protected final double[] resistances;
+
+	protected final double[] reactances;
+
+	protected final double[] ratedCurrents;
+
+	private double slackVoltage = 1.0;
+
+	private double tolerance = 1e-9;
+
+	private int maximumIterations = 100;
+
+	/**
+	 * Constructor of {@link LoadFlow}
+	 *
+	 * @param topology
+	 *            The grid to calculate
+	 * @param slackBus
+	 *            The index of the bus with a fixed voltage, usually the LV side
+	 *            of the transformer
+	 * @param resistances
+	 *            The p.u. resistance of each section
+	 * @param reactances
+	 *            The p.u. reactance of each section
+	 * @param ratedCurrents
+	 *            The p.u. rated current of each section
+	 * @throws IllegalArgumentException
+	 *             if the number of values does not match the number of
+	 *             sections, a section has neither resistance nor reactance or
+	 *             the slack bus is not part of the grid
+	 */
+	protected LoadFlow(GridGraph topology, int slackBus, double[] resistances, double[] reactances,
+			double[] ratedCurrents) {
+		int sectionCount = topology.getSectionCount();
+		if (resistances.length != sectionCount || reactances.length != sectionCount
+				|| ratedCurrents.length != sectionCount) {
+			throw new IllegalArgumentException("The grid has " + sectionCount + " sections, but "
+					+ resistances.length + " resistances, " + reactances.length + " reactances and "
+					+ ratedCurrents.length + " rated currents were given.");
+		}
+		if (slackBus < 0 || slackBus >= topology.getBusCount()) {
+			throw new IllegalArgumentException("The slack bus " + slackBus + " is not part of the grid.");
+		}
+
+		/*
+		 * The current of a section is its voltage drop divided by its
+		 * impedance, busbars and switches have to be merged into their buses
+		 */
+		for (int i = 0; i < sectionCount; i++) {
+			if (resistances[i] == 0 && reactances[i] == 0) {
+				throw new IllegalArgumentException("The section " + i + " has no impedance.");
+			}
+		}
+		this.topology = topology;
+		this.slackBus = slackBus;
+		this.resistances = resistances.clone();
+		this.reactances = reactances.clone();
+		this.ratedCurrents = ratedCurrents.clone();
+	}
+
+	/**
+	 * Reads the resistances, reactances and rated currents of a grid whose
+	 * sections all implement {@link ImpedanceGridSection}
+	 *
+	 * @param topology
+	 * @return The three arrays, indexed like the sections of the topology
+	 * @throws IllegalArgumentException
+	 *             if a section does not implement {@link ImpedanceGridSection}
+	 */
+	protected static double[][] readImpedances(GridGraph topology) {
+		int sectionCount = topology.getSectionCount();
+		double[][] impedances = new double[3][sectionCount];
+		for (int i = 0; i < sectionCount; i++) {
+			GridSection section = topology.getSection(i);
+			if (!(section instanceof ImpedanceGridSection)) {
+				throw new IllegalArgumentException("The section " + section + " has no impedance.");
+			}
+			ImpedanceGridSection impedanceSection = (ImpedanceGridSection) section;
+			impedances[0][i] = impedanceSection.getResistance();
+			impedances[1][i] = impedanceSection.getReactance();
+			impedances[2][i] = impedanceSection.getRatedCurrent();
+		}
+		return impedances;
+	}
+
+	/**
+	 * Solves the grid for the loads of the {@link LoadBus}es. Buses that do
+	 * not implement {@link LoadBus} draw no power.
+	 *
+	 * @return The voltages and specific currents of the grid
+	 * @throws IllegalStateException
+	 *             if the loadflow does not converge
+	 */
+	public CompactGrid solve() {
+		return solve((CompactGrid) null);
+	}
+
+	/**
+	 * Solves the grid for the loads of the {@link LoadBus}es, starting from the
+	 * voltages of a previous result, e.g. the one before an extension has
+	 * been built. Buses that do not implement {@link LoadBus} draw no power.
+	 *
+	 * @param initialGuess
+	 *            The result to start from or null to start from the slack
+	 *            voltage at every bus
+	 * @return The voltages and specific currents of the grid
+	 * @throws IllegalArgumentException
+	 *             if the initial guess has a different number of buses
+	 * @throws IllegalStateException
+	 *             if the loadflow does not converge
+	 */
+	public CompactGrid solve(CompactGrid initialGuess) {
+		int busCount = topology.getBusCount();
+		double[] activePowers = new double[busCount];
+		double[] reactivePowers = new double[busCount];
+		for (int i = 0; i < busCount; i++) {
+			Bus bus = topology.getBus(i);
+			if (bus instanceof LoadBus) {
+				activePowers[i] = ((LoadBus) bus).getActivePower();
+				reactivePowers[i] = ((LoadBus) bus).getReactivePower();
+			}
+		}
+		return solve(activePowers, reactivePowers, initialGuess);
+	}
+
+	/**
+	 * Solves the grid for the given loads.
+	 *
+	 * @param activePowers
+	 *            The p.u. active power drawn at each bus
+	 * @param reactivePowers
+	 *            The p.u. reactive power drawn at each bus
+	 * @return The voltages and specific currents of the grid
+	 * @throws IllegalArgumentException
+	 *             if the number of values does not match the number of buses
+	 * @throws IllegalStateException
+	 *             if the loadflow does not converge
+	 */
+	public CompactGrid solve(double[] activePowers, double[] reactivePowers) {
+		return solve(activePowers, reactivePowers, null);
+	}
+
+	/**
+	 * Solves the grid for the given loads, starting from the voltages of a
+	 * previous result.
+	 *
+	 * @param activePowers
+	 *            The p.u. active power drawn at each bus
+	 * @param reactivePowers
+	 *            The p.u. reactive power drawn at each bus
+	 * @param initialGuess
+	 *            The result to start from or null to start from the slack
+	 *            voltage at every bus
+	 * @return The voltages and specific currents of the grid
+	 * @throws IllegalArgumentException
+	 *             if the number of values or the initial guess does not match
+	 *             the number of buses
+	 * @throws IllegalStateException
+	 *             if the loadflow does not converge
+	 */
+	public CompactGrid solve(double[] activePowers, double[] reactivePowers, CompactGrid initialGuess) {
+		int busCount = topology.getBusCount();
+		if (activePowers.length != busCount || reactivePowers.length != busCount) {
+			throw new IllegalArgumentException("The grid has " + busCount + " buses, but " + activePowers.length
+					+ " active and " + reactivePowers.length + " reactive powers were given.");
+		}
+		double[] initialReal = new double[busCount];
+		double[] initialImag = new double[busCount];
+		if (initialGuess == null) {
+			for (int i = 0; i < busCount; i++) {
+				initialReal[i] = slackVoltage;
+			}
+		} else {
+			if (initialGuess.getTopology().getBusCount() != busCount) {
+				throw new IllegalArgumentException("The grid has " + busCount + " buses, but the initial guess has "
+						+ initialGuess.getTopology().getBusCount() + ".");
+			}
+			for (int i = 0; i < busCount; i++) {
+				initialReal[i] = initialGuess.getPuVoltage(i) * Math.cos(initialGuess.getVoltageAngle(i));
+				initialImag[i] = initialGuess.getPuVoltage(i) * Math.sin(initialGuess.getVoltageAngle(i));
+			}
+		}
+		initialReal[slackBus] = slackVoltage;
+		initialImag[slackBus] = 0;
+		return calculate(activePowers, reactivePowers, initialReal, initialImag);
+	}
+
+	/**
+	 * Calculates the grid for loads that have already been checked.
+	 *
+	 * @param activePowers
+	 *            The p.u. active power drawn at each bus
+	 * @param reactivePowers
+	 *            The p.u. reactive power drawn at each bus
+	 * @param initialReal
+	 *            The real part of the voltage of each bus to start from
+	 * @param initialImag
+	 *            The imaginary part of the voltage of each bus to start from
+	 * @return The voltages and specific currents of the grid
+	 * @throws IllegalStateException
+	 *             if the loadflow does not converge
+	 */
+	protected abstract CompactGrid calculate(double[] activePowers, double[] reactivePowers, double[] initialReal,
+			double[] initialImag);
+
+	/**
+	 * Creates the result from the voltages of all buses. The currents are
+	 * calculated from the voltage drop across each section.
+	 *
+	 * @param voltageReal
+	 * @param voltageImag
+	 * @return
+	 */
+	protected CompactGrid createResult(double[] voltageReal, double[] voltageImag) {
+		int busCount = topology.getBusCount();
+		double[] puVoltages = new double[busCount];
+		double[] voltageAngles = new double[busCount];
+		for (int i = 0; i < busCount; i++) {
+			puVoltages[i] = Math.hypot(voltageReal[i], voltageImag[i]);
+			voltageAngles[i] = Math.atan2(voltageImag[i], voltageReal[i]);
+		}
+		double[] absSpecificCurrents = new double[topology.getSectionCount()];
+		for (int i = 0; i < absSpecificCurrents.length; i++) {
+			int first = topology.getFirstBus(i);
+			int second = topology.getSecondBus(i);
+			double absVoltageDrop = Math.hypot(voltageReal[first] - voltageReal[second],
+					voltageImag[first] - voltageImag[second]);
+			absSpecificCurrents[i] = absVoltageDrop / Math.hypot(resistances[i], reactances[i]) / ratedCurrents[i];
+		}
+		return new CompactGrid(topology, puVoltages, voltageAngles, absSpecificCurrents);
+	}
+
+	/**
+	 * Returns the grid the loadflow calculates
+	 *
+	 * @return
+	 */
+	public GridGraph getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the index of the slack bus
+	 *
+	 * @return
+	 */
+	public int getSlackBus() {
+		return slackBus;
+	}
+
+	/**
+	 * Returns the p.u. voltage of the slack bus
+	 *
+	 * @return
+	 */
+	public double getSlackVoltage() {
+		return slackVoltage;
+	}
+
+	/**
+	 * Sets the p.u. voltage of the slack bus
+	 *
+	 * @param slackVoltage
+	 */
+	public void setSlackVoltage(double slackVoltage) {
+		this.slackVoltage = slackVoltage;
+	}
+
+	/**
+	 * Returns the largest change of a p.u. voltage between two iterations at
+	 * which the loadflow is considered converged
+	 *
+	 * @return
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Sets the largest change of a p.u. voltage between two iterations at
+	 * which the loadflow is considered converged
+	 *
+	 * @param tolerance
+	 *            The tolerance. <b>Must be positive</b>
+	 * @throws IllegalArgumentException
+	 *             if the tolerance is not positive
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance <= 0) {
+			throw new IllegalArgumentException("The tolerance must be positive, but was " + tolerance);
+		}
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Returns the number of iterations after which the loadflow is aborted
+	 *
+	 * @return
+	 */
+	public int getMaximumIterations() {
+		return maximumIterations;
+	}
+
+	/**
+	 * Sets the number of iterations after which the loadflow is aborted
+	 *
+	 * @param maximumIterations
+	 *            The number of iterations. <b>Must be at least 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the number is below 1
+	 */
+	public void setMaximumIterations(int maximumIterations) {
+		if (maximumIterations < 1) {
+			throw new IllegalArgumentException(
+					"At least one iteration is needed, but " + maximumIterations + " were requested.");
+		}
+		this.maximumIterations = maximumIterations;
+	}
+
+}
@@ -0,0 +1,29 @@
+package main;
+
+/**
+ * A {@link Bus} with a known location, which lets a
+ * {@link GoalDirectedGridNavigator} direct its search towards the goal. The
+ * coordinates have to be projected, e.g. UTM, and in the unit of
+ * {@link WeightedGridSection#getLength()}, so that no section is shorter
+ * than the straight line between its buses.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface LocatedBus extends Bus {
+
+	/**
+	 * Returns the easting of the bus.
+	 * 
+	 * @return
+	 */
+	public double getX();
+
+	/**
+	 * Returns the northing of the bus.
+	 * 
+	 * @return
+	 */
+	public double getY();
+
+}
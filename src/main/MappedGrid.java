@@ -0,0 +1,583 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A grid and its state stored in a binary file, which is memory-mapped
+ * instead of read. Opening a file only checks its header, so even grids of
+ * millions of buses are available within milliseconds; the pages are loaded
+ * by the operating system when they are accessed.
+ * <p>
+ * The file is written by {@link #write(CompactGrid, Path)} and holds the
+ * topology as compressed sparse rows like {@link GridGraph} and the voltages,
+ * voltage angles and specific currents as columns like {@link CompactGrid}.
+ * All values are little-endian. After a header of {@value #HEADER_SIZE}
+ * bytes
+ *
+ * <pre>
+ * int    magic number 0x4C564752 ("LVGR")
+ * int    version {@value #VERSION}
+ * int    number of buses n
+ * int    number of sections m
+ * int    number of connections c (2 m)
+ * int    flags, 1 if the voltage angles are stored
+ * long   reserved, 0
+ * </pre>
+ *
+ * follow the double columns p.u. voltage[n], voltage angle[n] (if flagged),
+ * specific current[m] and length[m], then the int columns adjacency
+ * start[n + 1], adjacent section[c], adjacent bus[c], first bus[m] and second
+ * bus[m].
+ * <p>
+ * The {@link Bus}es and {@link GridSection}s returned by {@link #getBus(int)}
+ * and {@link #getSection(int)} read the mapped file directly. Each of them is
+ * created when it is requested first and then kept, so they can be compared
+ * by identity as {@link GenericLVGridExtension} does, and an algorithm that
+ * visits a few feeders only creates the views of those. The mapping is
+ * released when the {@link MappedGrid} and its views are garbage collected.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class MappedGrid {
+
+	static final int MAGIC = 0x4C564752;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	private static final int FLAG_VOLTAGE_ANGLES = 1;
+
+	private final int busCount;
+
+	private final int sectionCount;
+
+	private final DoubleBuffer puVoltages;
+
+	/**
+	 * Null if the file does not store the angles
+	 */
+	private final DoubleBuffer voltageAngles;
+
+	private final DoubleBuffer absSpecificCurrents;
+
+	private final DoubleBuffer sectionLengths;
+
+	private final IntBuffer adjacencyStart;
+
+	private final IntBuffer adjacentSections;
+
+	private final IntBuffer adjacentBuses;
+
+	private final IntBuffer sectionFirstBus;
+
+	private final IntBuffer sectionSecondBus;
+
+	/**
+	 * The views of the buses created so far
+	 */
+	private final AtomicReferenceArray<MappedBus> busViews;
+
+	/**
+	 * The views of the sections created so far
+	 */
+	private final AtomicReferenceArray<MappedSection> sectionViews;
+
+	private MappedGrid(ByteBuffer file) {
+		if (file.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("The file does not contain a grid.");
+		}
+		if (file.getInt(4) != VERSION) {
+			throw new IllegalArgumentException(
+					"The file has version " + file.getInt(4) + ", but only version " + VERSION + " can be read.");
+		}
+		busCount = file.getInt(8);
+		sectionCount = file.getInt(12);
+		int connectionCount = file.getInt(16);
+		boolean hasVoltageAngles = (file.getInt(20) & FLAG_VOLTAGE_ANGLES) != 0;
+		if (busCount < 0 || sectionCount < 0 || connectionCount != 2L * sectionCount
+				|| file.capacity() != getFileSize(busCount, sectionCount, hasVoltageAngles)) {
+			throw new IllegalArgumentException("The file is truncated or corrupt, it has " + file.capacity()
+					+ " bytes for " + busCount + " buses and " + sectionCount + " sections.");
+		}
+
+		/*
+		 * The size has been checked, so all positions fit into an int
+		 */
+		int position = HEADER_SIZE;
+		puVoltages = slice(file, position, 8 * busCount).asDoubleBuffer();
+		position += 8 * busCount;
+		if (hasVoltageAngles) {
+			voltageAngles = slice(file, position, 8 * busCount).asDoubleBuffer();
+			position += 8 * busCount;
+		} else {
+			voltageAngles = null;
+		}
+		absSpecificCurrents = slice(file, position, 8 * sectionCount).asDoubleBuffer();
+		position += 8 * sectionCount;
+		sectionLengths = slice(file, position, 8 * sectionCount).asDoubleBuffer();
+		position += 8 * sectionCount;
+		adjacencyStart = slice(file, position, 4 * (busCount + 1)).asIntBuffer();
+		position += 4 * (busCount + 1);
+		adjacentSections = slice(file, position, 4 * connectionCount).asIntBuffer();
+		position += 4 * connectionCount;
+		adjacentBuses = slice(file, position, 4 * connectionCount).asIntBuffer();
+		position += 4 * connectionCount;
+		sectionFirstBus = slice(file, position, 4 * sectionCount).asIntBuffer();
+		position += 4 * sectionCount;
+		sectionSecondBus = slice(file, position, 4 * sectionCount).asIntBuffer();
+		if (adjacencyStart.get(busCount) != connectionCount) {
+			throw new IllegalArgumentException("The file is corrupt, its buses have "
+					+ adjacencyStart.get(busCount) + " connections instead of " + connectionCount + ".");
+		}
+		busViews = new AtomicReferenceArray<MappedBus>(busCount);
+		sectionViews = new AtomicReferenceArray<MappedSection>(sectionCount);
+	}
+
+	/**
+	 * Returns a little-endian buffer of the bytes at the position
+	 */
+	private static ByteBuffer slice(ByteBuffer file, int position, int byteCount) {
+		ByteBuffer duplicate = file.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + byteCount);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static long getFileSize(int busCount, int sectionCount, boolean hasVoltageAngles) {
+		long doubleCount = (hasVoltageAngles ? 2L : 1L) * busCount + 2L * sectionCount;
+		long intCount = busCount + 1L + 6L * sectionCount;
+		return HEADER_SIZE + 8 * doubleCount + 4 * intCount;
+	}
+
+	/**
+	 * Writes the grid to the file, which is replaced if it exists. The
+	 * voltage angles are stored if the grid knows them.
+	 *
+	 * @param grid
+	 * @param file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 * @throws IllegalArgumentException
+	 *             if the grid is too large to be mapped, i.e. the file would
+	 *             exceed 2 GB
+	 */
+	public static void write(CompactGrid grid, Path file) throws IOException {
+		GridGraph topology = grid.getTopology();
+		int busCount = topology.getBusCount();
+		int sectionCount = topology.getSectionCount();
+		boolean hasVoltageAngles = false;
+		for (int i = 0; i < busCount && !hasVoltageAngles; i++) {
+			hasVoltageAngles = grid.getVoltageAngle(i) != 0;
+		}
+		long size = getFileSize(busCount, sectionCount, hasVoltageAngles);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The grid needs " + size + " bytes, but at most "
+					+ Integer.MAX_VALUE + " bytes can be mapped.");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(busCount).putInt(sectionCount).putInt(2 * sectionCount)
+					.putInt(hasVoltageAngles ? FLAG_VOLTAGE_ANGLES : 0).putLong(0);
+			for (int i = 0; i < busCount; i++) {
+				buffer.putDouble(grid.getPuVoltage(i));
+			}
+			if (hasVoltageAngles) {
+				for (int i = 0; i < busCount; i++) {
+					buffer.putDouble(grid.getVoltageAngle(i));
+				}
+			}
+			for (int i = 0; i < sectionCount; i++) {
+				buffer.putDouble(grid.getAbsSpecificCurrent(i));
+			}
+			for (int i = 0; i < sectionCount; i++) {
+				buffer.putDouble(topology.getSectionLength(i));
+			}
+			for (int i = 0; i <= busCount; i++) {
+				buffer.putInt(i < busCount ? topology.getAdjacencyStart(i) : topology.getAdjacencyEnd(i - 1));
+			}
+			int connectionCount = busCount == 0 ? 0 : topology.getAdjacencyEnd(busCount - 1);
+			for (int i = 0; i < connectionCount; i++) {
+				buffer.putInt(topology.getAdjacentSection(i));
+			}
+			for (int i = 0; i < connectionCount; i++) {
+				buffer.putInt(topology.getAdjacentBus(i));
+			}
+			for (int i = 0; i < sectionCount; i++) {
+				buffer.putInt(topology.getFirstBus(i));
+			}
+			for (int i = 0; i < sectionCount; i++) {
+				buffer.putInt(topology.getSecondBus(i));
+			}
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Maps the file written by {@link #write(CompactGrid, Path)}. Only the
+	 * header and the total number of connections are checked, the indices of
+	 * the topology are trusted.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file does not contain a grid of a known version or
+	 *             does not have the size its header requires
+	 */
+	public static MappedGrid map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(
+						"The file has " + channel.size() + " bytes and cannot contain a mapped grid.");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return new MappedGrid(buffer);
+		}
+	}
+
+	/**
+	 * Copies the state into a {@link CompactGrid}, whose buses and sections
+	 * are those of the {@code topology}. Use it to run the array based
+	 * algorithms on the topology the grid was written from.
+	 *
+	 * @param topology
+	 *            A topology with the same indices as the grid
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the topology has a different number of buses or sections
+	 */
+	public CompactGrid toCompactGrid(GridGraph topology) {
+		if (topology.getBusCount() != busCount || topology.getSectionCount() != sectionCount) {
+			throw new IllegalArgumentException("The topology has " + topology.getBusCount() + " buses and "
+					+ topology.getSectionCount() + " sections, but the mapped grid has " + busCount + " and "
+					+ sectionCount + ".");
+		}
+		double[] voltages = new double[busCount];
+		puVoltages.duplicate().get(voltages);
+		double[] angles = null;
+		if (voltageAngles != null) {
+			angles = new double[busCount];
+			voltageAngles.duplicate().get(angles);
+		}
+		double[] currents = new double[sectionCount];
+		absSpecificCurrents.duplicate().get(currents);
+		return new CompactGrid(topology, voltages, angles, currents);
+	}
+
+	/**
+	 * Returns the number of buses
+	 *
+	 * @return
+	 */
+	public int getBusCount() {
+		return busCount;
+	}
+
+	/**
+	 * Returns the number of sections
+	 *
+	 * @return
+	 */
+	public int getSectionCount() {
+		return sectionCount;
+	}
+
+	/**
+	 * Returns the p.u. voltage of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public double getPuVoltage(int busIndex) {
+		return puVoltages.get(busIndex);
+	}
+
+	/**
+	 * Returns the voltage angle of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return The angle in radians, 0 if the angles are not stored
+	 */
+	public double getVoltageAngle(int busIndex) {
+		return voltageAngles == null ? 0 : voltageAngles.get(busIndex);
+	}
+
+	/**
+	 * Returns the absolute specific current of the section with the given
+	 * index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public double getAbsSpecificCurrent(int sectionIndex) {
+		return absSpecificCurrents.get(sectionIndex);
+	}
+
+	/**
+	 * Returns the length of the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public double getSectionLength(int sectionIndex) {
+		return sectionLengths.get(sectionIndex);
+	}
+
+	/**
+	 * Returns the index of the first bus of the section
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public int getFirstBus(int sectionIndex) {
+		return sectionFirstBus.get(sectionIndex);
+	}
+
+	/**
+	 * Returns the index of the second bus of the section
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public int getSecondBus(int sectionIndex) {
+		return sectionSecondBus.get(sectionIndex);
+	}
+
+	/**
+	 * Returns the first position of the connections of the bus, see
+	 * {@link GridGraph#getAdjacencyStart(int)}
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public int getAdjacencyStart(int busIndex) {
+		return adjacencyStart.get(busIndex);
+	}
+
+	/**
+	 * Returns the position after the last connection of the bus
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public int getAdjacencyEnd(int busIndex) {
+		return adjacencyStart.get(busIndex + 1);
+	}
+
+	/**
+	 * Returns the index of the section stored at the position of the
+	 * connections
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	public int getAdjacentSection(int adjacencyPosition) {
+		return adjacentSections.get(adjacencyPosition);
+	}
+
+	/**
+	 * Returns the index of the bus at the other end of the section stored at
+	 * the position of the connections
+	 *
+	 * @param adjacencyPosition
+	 * @return
+	 */
+	public int getAdjacentBus(int adjacencyPosition) {
+		return adjacentBuses.get(adjacencyPosition);
+	}
+
+	/**
+	 * Returns the view on the bus with the given index. The same view is
+	 * returned every time, even if it is requested by several threads at
+	 * once.
+	 *
+	 * @param busIndex
+	 * @return
+	 */
+	public Bus getBus(int busIndex) {
+		MappedBus view = busViews.get(busIndex);
+		if (view == null) {
+			view = new MappedBus(this, busIndex);
+			if (!busViews.compareAndSet(busIndex, null, view)) {
+				view = busViews.get(busIndex);
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the view on the section with the given index, the same view
+	 * every time
+	 *
+	 * @param sectionIndex
+	 * @return
+	 */
+	public GridSection getSection(int sectionIndex) {
+		MappedSection view = sectionViews.get(sectionIndex);
+		if (view == null) {
+			view = new MappedSection(this, sectionIndex);
+			if (!sectionViews.compareAndSet(sectionIndex, null, view)) {
+				view = sectionViews.get(sectionIndex);
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the views on all buses, e.g. to compile a {@link GridGraph} or
+	 * create a {@link GridNavigator}. Their order is the order of the indices.
+	 *
+	 * @return
+	 */
+	public List<Bus> getBuses() {
+		return new BusList(this);
+	}
+
+	/**
+	 * A {@link Bus} that reads its state from the mapped file
+	 */
+	static final class MappedBus implements IndexedBus {
+
+		final MappedGrid grid;
+
+		final int index;
+
+		MappedBus(MappedGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getPuVoltage() {
+			return grid.getPuVoltage(index);
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return new ConnectedSections(grid, index);
+		}
+
+		public String toString() {
+			return "Bus " + index;
+		}
+
+	}
+
+	/**
+	 * A {@link GridSection} that reads its state from the mapped file
+	 */
+	static final class MappedSection implements IndexedGridSection, WeightedGridSection {
+
+		final MappedGrid grid;
+
+		final int index;
+
+		MappedSection(MappedGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getAbsSpecificCurrent() {
+			return grid.getAbsSpecificCurrent(index);
+		}
+
+		public Bus[] getConnectedBuses() {
+			return new Bus[] { getFirstBus(), getSecondBus() };
+		}
+
+		public Bus getFirstBus() {
+			return grid.getBus(grid.getFirstBus(index));
+		}
+
+		public Bus getSecondBus() {
+			return grid.getBus(grid.getSecondBus(index));
+		}
+
+		public double getLength() {
+			return grid.getSectionLength(index);
+		}
+
+		public String toString() {
+			return "GridSection " + index;
+		}
+
+	}
+
+	/**
+	 * The sections connected to a bus, read from the rows of the file
+	 */
+	private static final class ConnectedSections extends AbstractList<GridSection> implements RandomAccess {
+
+		private final MappedGrid grid;
+
+		private final int start;
+
+		private final int size;
+
+		ConnectedSections(MappedGrid grid, int busIndex) {
+			this.grid = grid;
+			this.start = grid.getAdjacencyStart(busIndex);
+			this.size = grid.getAdjacencyEnd(busIndex) - start;
+		}
+
+		public GridSection get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+			}
+			return grid.getSection(grid.getAdjacentSection(start + index));
+		}
+
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/**
+	 * The views of all buses, created as they are requested
+	 */
+	private static final class BusList extends AbstractList<Bus> implements RandomAccess {
+
+		private final MappedGrid grid;
+
+		BusList(MappedGrid grid) {
+			this.grid = grid;
+		}
+
+		public Bus get(int index) {
+			return grid.getBus(index);
+		}
+
+		public int size() {
+			return grid.busCount;
+		}
+
+	}
+
+}
@@ -0,0 +1,702 @@
+package main;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A grid whose topology and state are stored outside of the heap in direct
+ * buffers, laid out like {@link GridGraph} and {@link CompactGrid}. The heap
+ * footprint is the same for a grid of ten buses and one of ten million, so
+ * country-scale grids neither need a large heap nor slow down the garbage
+ * collector.
+ * <p>
+ * The {@link Bus}es and {@link GridSection}s returned by {@link #getBus(int)}
+ * and {@link #getSection(int)} are flyweights created whenever they are
+ * requested. Two views of the same element are not identical, but equal.
+ * {@link GenericLVGridExtension} recognises the views and searches the
+ * extension on the buffers, a {@link DijkstraGridNavigator} created for the
+ * grid searches its routes on the buffers as well.
+ * <p>
+ * The memory is released by {@link #close()}, after which the grid and all
+ * of its views throw an {@link IllegalStateException}. The voltages and
+ * currents can be written while the grid is in use, e.g. after every
+ * loadflow calculation, but neither writing nor closing is synchronized with
+ * readers on other threads.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class OffHeapGrid implements IndexedGrid, IndexedTopology, AutoCloseable {
+
+	/**
+	 * {@code sun.misc.Unsafe}, which frees a direct buffer at once, or null
+	 * if it is not available and the memory is left to the garbage collector
+	 */
+	private static final Object UNSAFE;
+
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field instance = unsafeClass.getDeclaredField("theUnsafe");
+			instance.setAccessible(true);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			unsafe = instance.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private final int busCount;
+
+	private final int sectionCount;
+
+	/**
+	 * The allocated buffers the columns are views of, null once the grid has
+	 * been closed
+	 */
+	private ByteBuffer[] memory;
+
+	private DoubleBuffer puVoltages;
+
+	private DoubleBuffer absSpecificCurrents;
+
+	private DoubleBuffer sectionLengths;
+
+	private IntBuffer adjacencyStart;
+
+	private IntBuffer adjacentSections;
+
+	private IntBuffer adjacentBuses;
+
+	private IntBuffer sectionFirstBus;
+
+	private IntBuffer sectionSecondBus;
+
+	/**
+	 * Allocates the columns, the voltages are 1 and everything else 0.
+	 */
+	private OffHeapGrid(int busCount, int sectionCount) {
+		if (busCount < 0 || sectionCount < 0) {
+			throw new IllegalArgumentException(
+					"A grid cannot have " + busCount + " buses and " + sectionCount + " sections.");
+		}
+		this.busCount = busCount;
+		this.sectionCount = sectionCount;
+		memory = new ByteBuffer[] { allocate(8L * busCount), allocate(8L * sectionCount),
+				allocate(8L * sectionCount), allocate(4L * (busCount + 1L)), allocate(8L * sectionCount),
+				allocate(8L * sectionCount), allocate(4L * sectionCount), allocate(4L * sectionCount) };
+		puVoltages = memory[0].asDoubleBuffer();
+		absSpecificCurrents = memory[1].asDoubleBuffer();
+		sectionLengths = memory[2].asDoubleBuffer();
+		adjacencyStart = memory[3].asIntBuffer();
+		adjacentSections = memory[4].asIntBuffer();
+		adjacentBuses = memory[5].asIntBuffer();
+		sectionFirstBus = memory[6].asIntBuffer();
+		sectionSecondBus = memory[7].asIntBuffer();
+		for (int i = 0; i < busCount; i++) {
+			puVoltages.put(i, 1);
+		}
+	}
+
+	/**
+	 * Allocates a direct buffer in the byte order of the platform
+	 */
+	private static ByteBuffer allocate(long byteCount) {
+		if (byteCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A column of the grid needs " + byteCount + " bytes, but at most "
+					+ Integer.MAX_VALUE + " bytes can be allocated at once.");
+		}
+		return ByteBuffer.allocateDirect((int) byteCount).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Copies the topology and the state of the grid. The indices and the order
+	 * of the connections are those of the {@link GridGraph}, so algorithms
+	 * give the same results on the copy.
+	 *
+	 * @param grid
+	 * @return
+	 */
+	public static OffHeapGrid copyOf(CompactGrid grid) {
+		GridGraph topology = grid.getTopology();
+		OffHeapGrid copy = new OffHeapGrid(topology.getBusCount(), topology.getSectionCount());
+		for (int i = 0; i < copy.busCount; i++) {
+			copy.puVoltages.put(i, grid.getPuVoltage(i));
+			copy.adjacencyStart.put(i, topology.getAdjacencyStart(i));
+		}
+		int connectionCount = 2 * copy.sectionCount;
+		copy.adjacencyStart.put(copy.busCount, connectionCount);
+		for (int i = 0; i < copy.sectionCount; i++) {
+			copy.absSpecificCurrents.put(i, grid.getAbsSpecificCurrent(i));
+			copy.sectionLengths.put(i, topology.getSectionLength(i));
+			copy.sectionFirstBus.put(i, topology.getFirstBus(i));
+			copy.sectionSecondBus.put(i, topology.getSecondBus(i));
+		}
+		for (int i = 0; i < connectionCount; i++) {
+			copy.adjacentSections.put(i, topology.getAdjacentSection(i));
+			copy.adjacentBuses.put(i, topology.getAdjacentBus(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Frees the memory of the grid. Afterwards, the grid and its views throw
+	 * an {@link IllegalStateException}. The grid must not be closed while
+	 * other threads still read it. Closing it twice has no effect.
+	 */
+	public synchronized void close() {
+		ByteBuffer[] memory = this.memory;
+		if (memory == null) {
+			return;
+		}
+		this.memory = null;
+		puVoltages = null;
+		absSpecificCurrents = null;
+		sectionLengths = null;
+		adjacencyStart = null;
+		adjacentSections = null;
+		adjacentBuses = null;
+		sectionFirstBus = null;
+		sectionSecondBus = null;
+		free(memory);
+	}
+
+	/**
+	 * Frees direct buffers at once, if possible. The buffers must have been
+	 * allocated by {@link ByteBuffer#allocateDirect(int)}, not be views of
+	 * such buffers, and must not be used anymore.
+	 *
+	 * @param buffers
+	 */
+	static void free(ByteBuffer[] buffers) {
+		if (INVOKE_CLEANER != null) {
+			try {
+				for (ByteBuffer buffer : buffers) {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				}
+			} catch (ReflectiveOperationException e) {
+				/*
+				 * The buffers are unreachable now, so the garbage collector
+				 * frees them instead
+				 */
+			}
+		}
+	}
+
+	/**
+	 * Checks whether {@link #close()} has been called
+	 *
+	 * @return
+	 */
+	public boolean isClosed() {
+		return memory == null;
+	}
+
+	private void checkOpen() {
+		if (memory == null) {
+			throw new IllegalStateException("The grid has been closed.");
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the grid occupies outside of the heap
+	 *
+	 * @return
+	 */
+	public long getOffHeapSize() {
+		checkOpen();
+		long size = 0;
+		for (ByteBuffer buffer : memory) {
+			size += buffer.capacity();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the grid itself, which stores its own topology
+	 *
+	 * @return
+	 */
+	public OffHeapGrid getTopology() {
+		return this;
+	}
+
+	public int getBusCount() {
+		return busCount;
+	}
+
+	public int getSectionCount() {
+		return sectionCount;
+	}
+
+	/**
+	 * Returns the index of the {@link Bus}
+	 *
+	 * @param bus
+	 * @return The index or -1 if the bus is not a view of this grid
+	 */
+	public int indexOf(Bus bus) {
+		return bus instanceof BusView && ((BusView) bus).grid == this ? ((BusView) bus).index : -1;
+	}
+
+	/**
+	 * Returns the index of the {@link GridSection}
+	 *
+	 * @param section
+	 * @return The index or -1 if the section is not a view of this grid
+	 */
+	public int indexOf(GridSection section) {
+		return section instanceof SectionView && ((SectionView) section).grid == this
+				? ((SectionView) section).index
+				: -1;
+	}
+
+	public double getPuVoltage(int busIndex) {
+		checkOpen();
+		return puVoltages.get(busIndex);
+	}
+
+	/**
+	 * Returns a buffer over the column of the voltages with a position of its
+	 * own, so it can be read in bulk. It must not be used after the grid has
+	 * been closed.
+	 *
+	 * @return
+	 */
+	DoubleBuffer getPuVoltageColumn() {
+		checkOpen();
+		return puVoltages.duplicate();
+	}
+
+	/**
+	 * Returns a buffer over the column of the specific currents, like
+	 * {@link #getPuVoltageColumn()}
+	 *
+	 * @return
+	 */
+	DoubleBuffer getAbsSpecificCurrentColumn() {
+		checkOpen();
+		return absSpecificCurrents.duplicate();
+	}
+
+	/**
+	 * Sets the p.u. voltage of the bus with the given index
+	 *
+	 * @param busIndex
+	 * @param puVoltage
+	 */
+	public void setPuVoltage(int busIndex, double puVoltage) {
+		checkOpen();
+		puVoltages.put(busIndex, puVoltage);
+	}
+
+	public double getAbsSpecificCurrent(int sectionIndex) {
+		checkOpen();
+		return absSpecificCurrents.get(sectionIndex);
+	}
+
+	/**
+	 * Sets the absolute specific current of the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @param absSpecificCurrent
+	 */
+	public void setAbsSpecificCurrent(int sectionIndex, double absSpecificCurrent) {
+		checkOpen();
+		absSpecificCurrents.put(sectionIndex, absSpecificCurrent);
+	}
+
+	/**
+	 * Copies the voltages and specific currents of all buses and sections,
+	 * e.g. the result of the next loadflow calculation
+	 *
+	 * @param puVoltages
+	 *            The p.u. voltage of every bus
+	 * @param absSpecificCurrents
+	 *            The absolute specific current of every section
+	 * @throws IllegalArgumentException
+	 *             if the length of an array does not match the grid
+	 */
+	public void setState(double[] puVoltages, double[] absSpecificCurrents) {
+		checkOpen();
+		if (puVoltages.length != busCount || absSpecificCurrents.length != sectionCount) {
+			throw new IllegalArgumentException("The grid has " + busCount + " buses and " + sectionCount
+					+ " sections, but " + puVoltages.length + " voltages and " + absSpecificCurrents.length
+					+ " currents were supplied.");
+		}
+		this.puVoltages.duplicate().put(puVoltages);
+		this.absSpecificCurrents.duplicate().put(absSpecificCurrents);
+	}
+
+	public double getSectionLength(int sectionIndex) {
+		checkOpen();
+		return sectionLengths.get(sectionIndex);
+	}
+
+	public int getFirstBus(int sectionIndex) {
+		checkOpen();
+		return sectionFirstBus.get(sectionIndex);
+	}
+
+	public int getSecondBus(int sectionIndex) {
+		checkOpen();
+		return sectionSecondBus.get(sectionIndex);
+	}
+
+	public int getBusAtOpposingEnd(int sectionIndex, int busIndexThisEnd) {
+		int firstBus = getFirstBus(sectionIndex);
+		int secondBus = getSecondBus(sectionIndex);
+		if (firstBus == busIndexThisEnd) {
+			return secondBus;
+		}
+		if (secondBus == busIndexThisEnd) {
+			return firstBus;
+		}
+		throw new IllegalArgumentException(
+				"The GridSection does not contain the bus and consequently no bus at the other end can be found.");
+	}
+
+	public int getAdjacencyStart(int busIndex) {
+		checkOpen();
+		return adjacencyStart.get(busIndex);
+	}
+
+	public int getAdjacencyEnd(int busIndex) {
+		checkOpen();
+		return adjacencyStart.get(busIndex + 1);
+	}
+
+	public int getAdjacentSection(int adjacencyPosition) {
+		checkOpen();
+		return adjacentSections.get(adjacencyPosition);
+	}
+
+	public int getAdjacentBus(int adjacencyPosition) {
+		checkOpen();
+		return adjacentBuses.get(adjacencyPosition);
+	}
+
+	/**
+	 * Returns a new view on the bus with the given index
+	 *
+	 * @param busIndex
+	 * @return
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no bus with the index
+	 */
+	public Bus getBus(int busIndex) {
+		checkOpen();
+		if (busIndex < 0 || busIndex >= busCount) {
+			throw new IndexOutOfBoundsException("Bus " + busIndex + ", bus count " + busCount);
+		}
+		return new BusView(this, busIndex);
+	}
+
+	/**
+	 * Returns a new view on the section with the given index
+	 *
+	 * @param sectionIndex
+	 * @return
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no section with the index
+	 */
+	public GridSection getSection(int sectionIndex) {
+		checkOpen();
+		if (sectionIndex < 0 || sectionIndex >= sectionCount) {
+			throw new IndexOutOfBoundsException("Section " + sectionIndex + ", section count " + sectionCount);
+		}
+		return new SectionView(this, sectionIndex);
+	}
+
+	/**
+	 * Returns the views on all buses in the order of their indices. The views
+	 * are created as they are requested.
+	 *
+	 * @return
+	 */
+	public List<Bus> getBuses() {
+		checkOpen();
+		return new BusList(this);
+	}
+
+	/**
+	 * Creates an {@link OffHeapGrid} section by section without any object
+	 * per bus or section on the heap, e.g. while reading a grid export. The
+	 * connections of every bus are ordered by the indices of the sections.
+	 */
+	public static final class Builder {
+
+		/**
+		 * The grid being filled, null once it has been built
+		 */
+		private OffHeapGrid grid;
+
+		private int addedSections = 0;
+
+		/**
+		 * Constructor of {@link Builder}, which allocates the grid at once
+		 *
+		 * @param busCount
+		 *            The number of buses of the grid
+		 * @param sectionCount
+		 *            The number of sections that will be added
+		 */
+		public Builder(int busCount, int sectionCount) {
+			grid = new OffHeapGrid(busCount, sectionCount);
+		}
+
+		/**
+		 * Adds the next section
+		 *
+		 * @param firstBus
+		 *            Index of the first bus
+		 * @param secondBus
+		 *            Index of the second bus
+		 * @param length
+		 *            The length of the section
+		 * @return The index of the section
+		 * @throws IllegalArgumentException
+		 *             if a bus does not exist or all sections have been added
+		 * @throws IllegalStateException
+		 *             if the grid has already been built
+		 */
+		public int addSection(int firstBus, int secondBus, double length) {
+			if (grid == null) {
+				throw new IllegalStateException("The grid has already been built.");
+			}
+			if (addedSections == grid.sectionCount) {
+				throw new IllegalArgumentException("All " + grid.sectionCount + " sections have been added.");
+			}
+			if (firstBus < 0 || firstBus >= grid.busCount || secondBus < 0 || secondBus >= grid.busCount) {
+				throw new IllegalArgumentException("The section between bus " + firstBus + " and bus " + secondBus
+						+ " connects a bus that does not exist, the grid has " + grid.busCount + " buses.");
+			}
+			grid.sectionFirstBus.put(addedSections, firstBus);
+			grid.sectionSecondBus.put(addedSections, secondBus);
+			grid.sectionLengths.put(addedSections, length);
+			return addedSections++;
+		}
+
+		/**
+		 * Sorts the connections into rows like {@link GridGraph} and returns
+		 * the grid. The rows are counted and filled in the buffers of the
+		 * grid, no temporary arrays are needed.
+		 *
+		 * @return The grid, all voltages are 1 and all currents 0
+		 * @throws IllegalStateException
+		 *             if fewer sections have been added than announced or
+		 *             the grid has already been built
+		 */
+		public OffHeapGrid build() {
+			if (grid == null) {
+				throw new IllegalStateException("The grid has already been built.");
+			}
+			if (addedSections != grid.sectionCount) {
+				throw new IllegalStateException(
+						"Only " + addedSections + " of " + grid.sectionCount + " sections have been added.");
+			}
+			IntBuffer start = grid.adjacencyStart;
+			for (int i = 0; i < grid.sectionCount; i++) {
+				start.put(grid.sectionFirstBus.get(i) + 1, start.get(grid.sectionFirstBus.get(i) + 1) + 1);
+				start.put(grid.sectionSecondBus.get(i) + 1, start.get(grid.sectionSecondBus.get(i) + 1) + 1);
+			}
+			for (int i = 1; i <= grid.busCount; i++) {
+				start.put(i, start.get(i) + start.get(i - 1));
+			}
+
+			/*
+			 * The start of each row serves as the position of its next
+			 * connection, so afterwards it holds the start of the next row
+			 * and the rows are shifted back
+			 */
+			for (int i = 0; i < grid.sectionCount; i++) {
+				int firstBus = grid.sectionFirstBus.get(i);
+				int secondBus = grid.sectionSecondBus.get(i);
+				int position = start.get(firstBus);
+				grid.adjacentSections.put(position, i);
+				grid.adjacentBuses.put(position, secondBus);
+				start.put(firstBus, position + 1);
+				position = start.get(secondBus);
+				grid.adjacentSections.put(position, i);
+				grid.adjacentBuses.put(position, firstBus);
+				start.put(secondBus, position + 1);
+			}
+			for (int i = grid.busCount; i > 0; i--) {
+				start.put(i, start.get(i - 1));
+			}
+			start.put(0, 0);
+
+			OffHeapGrid builtGrid = grid;
+			grid = null;
+			return builtGrid;
+		}
+
+	}
+
+	/**
+	 * A {@link Bus} that reads its state from the buffers of the grid
+	 */
+	static final class BusView implements IndexedBus, IndexedGrid.Element {
+
+		final OffHeapGrid grid;
+
+		final int index;
+
+		BusView(OffHeapGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public OffHeapGrid getGrid() {
+			return grid;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getPuVoltage() {
+			return grid.getPuVoltage(index);
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return new ConnectedSections(grid, index);
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof BusView && ((BusView) obj).grid == grid && ((BusView) obj).index == index;
+		}
+
+		public int hashCode() {
+			return 31 * System.identityHashCode(grid) + index;
+		}
+
+		public String toString() {
+			return "Bus " + index;
+		}
+
+	}
+
+	/**
+	 * A {@link GridSection} that reads its state from the buffers of the grid
+	 */
+	static final class SectionView implements IndexedGridSection, WeightedGridSection, IndexedGrid.Element {
+
+		final OffHeapGrid grid;
+
+		final int index;
+
+		SectionView(OffHeapGrid grid, int index) {
+			this.grid = grid;
+			this.index = index;
+		}
+
+		public OffHeapGrid getGrid() {
+			return grid;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getAbsSpecificCurrent() {
+			return grid.getAbsSpecificCurrent(index);
+		}
+
+		public Bus[] getConnectedBuses() {
+			return new Bus[] { getFirstBus(), getSecondBus() };
+		}
+
+		public Bus getFirstBus() {
+			return new BusView(grid, grid.getFirstBus(index));
+		}
+
+		public Bus getSecondBus() {
+			return new BusView(grid, grid.getSecondBus(index));
+		}
+
+		public double getLength() {
+			return grid.getSectionLength(index);
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof SectionView && ((SectionView) obj).grid == grid
+					&& ((SectionView) obj).index == index;
+		}
+
+		public int hashCode() {
+			return 31 * System.identityHashCode(grid) + index;
+		}
+
+		public String toString() {
+			return "GridSection " + index;
+		}
+
+	}
+
+	/**
+	 * The sections connected to a bus, read from the rows of the buffers
+	 */
+	private static final class ConnectedSections extends AbstractList<GridSection> implements RandomAccess {
+
+		private final OffHeapGrid grid;
+
+		private final int start;
+
+		private final int size;
+
+		ConnectedSections(OffHeapGrid grid, int busIndex) {
+			this.grid = grid;
+			this.start = grid.getAdjacencyStart(busIndex);
+			this.size = grid.getAdjacencyEnd(busIndex) - start;
+		}
+
+		public GridSection get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+			}
+			return new SectionView(grid, grid.getAdjacentSection(start + index));
+		}
+
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/**
+	 * The views of all buses, created as they are requested
+	 */
+	private static final class BusList extends AbstractList<Bus> implements RandomAccess {
+
+		private final OffHeapGrid grid;
+
+		BusList(OffHeapGrid grid) {
+			this.grid = grid;
+		}
+
+		public Bus get(int index) {
+			return grid.getBus(index);
+		}
+
+		public int size() {
+			return grid.busCount;
+		}
+
+	}
+
+}
@@ -0,0 +1,295 @@
+package main;
+
+import java.util.Collection;
+
+/**
+ * A {@link GridNavigator} for radial grids. In a radial grid the only route
+ * between two buses is the path through the tree, so no search is needed:
+ * the grid is rooted at the slack bus once and every route is assembled from
+ * the two paths up to the lowest common ancestor of start and goal. The
+ * ancestor is found by binary lifting, so a route costs time proportional to
+ * its length plus {@code log n}.
+ * <p>
+ * Buses that are not connected to the slack bus are rooted at the first bus
+ * of their part of the grid. Use {@link #create(GridGraph, Bus)} to fall back
+ * to a {@link DijkstraGridNavigator} if the grid is meshed. The navigator is
+ * immutable and can be shared between threads.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class RadialGridNavigator implements GridNavigator {
+
+	private final GridGraph graph;
+
+	/**
+	 * The section connecting each bus to its parent, -1 for the roots.
+	 */
+	private final int[] parentSections;
+
+	/**
+	 * The number of sections between each bus and its root.
+	 */
+	private final int[] depths;
+
+	/**
+	 * The root of the part of the grid each bus belongs to.
+	 */
+	private final int[] roots;
+
+	/**
+	 * {@code ancestors[k][i]} is the ancestor {@code 2^k} levels above bus
+	 * {@code i}, or its root if the tree is not that deep.
+	 */
+	private final int[][] ancestors;
+
+	/**
+	 * Constructor of {@link RadialGridNavigator}
+	 *
+	 * @param allBuses
+	 *            All {@link Bus}es of the grid, see
+	 *            {@link GridGraph#compile(Collection)}
+	 * @param slackBus
+	 *            The bus the grid is rooted at
+	 * @throws IllegalArgumentException
+	 *             if the grid is not radial or the slack bus is not part of it
+	 */
+	public RadialGridNavigator(Collection<? extends Bus> allBuses, Bus slackBus) {
+		this(GridGraph.compile(allBuses), slackBus);
+	}
+
+	/**
+	 * Constructor of {@link RadialGridNavigator}
+	 *
+	 * @param graph
+	 *            The already compiled topology of the grid
+	 * @param slackBus
+	 *            The bus the grid is rooted at
+	 * @throws IllegalArgumentException
+	 *             if the grid is not radial or the slack bus is not part of it
+	 */
+	public RadialGridNavigator(GridGraph graph, Bus slackBus) {
+		this.graph = graph;
+		int slack = graph.indexOf(slackBus);
+		if (slack < 0) {
+			throw new IllegalArgumentException("The slack bus " + slackBus + " is not part of the grid.");
+		}
+		int busCount = graph.getBusCount();
+		parentSections = new int[busCount];
+		depths = new int[busCount];
+		roots = new int[busCount];
+		if (!buildTree(graph, slack, parentSections, depths, roots)) {
+			throw new IllegalArgumentException("The grid is not radial, use a DijkstraGridNavigator instead.");
+		}
+
+		int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(busCount));
+		ancestors = new int[levels][busCount];
+		for (int i = 0; i < busCount; i++) {
+			ancestors[0][i] = parentSections[i] < 0 ? i : graph.getBusAtOpposingEnd(parentSections[i], i);
+		}
+		for (int k = 1; k < levels; k++) {
+			for (int i = 0; i < busCount; i++) {
+				ancestors[k][i] = ancestors[k - 1][ancestors[k - 1][i]];
+			}
+		}
+	}
+
+	/**
+	 * Creates the fastest navigator for the grid: a
+	 * {@link RadialGridNavigator} if the grid is radial, otherwise a
+	 * {@link DijkstraGridNavigator}.
+	 *
+	 * @param graph
+	 * @param slackBus
+	 *            The bus the grid is rooted at if it is radial
+	 * @return
+	 */
+	public static GridNavigator create(GridGraph graph, Bus slackBus) {
+		if (isRadial(graph)) {
+			return new RadialGridNavigator(graph, slackBus);
+		}
+		return new DijkstraGridNavigator(graph);
+	}
+
+	/**
+	 * Checks whether the grid contains no mesh, i.e. whether there is at most
+	 * one route between any two buses. Parallel sections count as a mesh.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static boolean isRadial(GridGraph graph) {
+		int busCount = graph.getBusCount();
+		if (busCount == 0) {
+			return true;
+		}
+		return buildTree(graph, 0, new int[busCount], new int[busCount], new int[busCount]);
+	}
+
+	/**
+	 * Roots every part of the grid by a breadth-first search, starting with
+	 * the part of the given bus.
+	 *
+	 * @return false if a mesh has been found, the arrays are incomplete then
+	 */
+	private static boolean buildTree(GridGraph graph, int firstRoot, int[] parentSections, int[] depths,
+			int[] roots) {
+		int busCount = graph.getBusCount();
+		boolean[] visited = new boolean[busCount];
+		int[] queue = new int[busCount];
+		for (int i = -1; i < busCount; i++) {
+			int root = i < 0 ? firstRoot : i;
+			if (visited[root]) {
+				continue;
+			}
+			visited[root] = true;
+			parentSections[root] = -1;
+			depths[root] = 0;
+			roots[root] = root;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = root;
+			while (head < tail) {
+				int bus = queue[head++];
+				for (int j = graph.getAdjacencyStart(bus); j < graph.getAdjacencyEnd(bus); j++) {
+					int section = graph.getAdjacentSection(j);
+					if (section == parentSections[bus]) {
+						continue;
+					}
+					int neighbour = graph.getAdjacentBus(j);
+					if (visited[neighbour]) {
+						return false;
+					}
+					visited[neighbour] = true;
+					parentSections[neighbour] = section;
+					depths[neighbour] = depths[bus] + 1;
+					roots[neighbour] = root;
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the topology the navigator works on
+	 *
+	 * @return
+	 */
+	public GridGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if one of the buses is not part of the grid or no route
+	 *             between them exists
+	 */
+	public GridSection[] getShortestRoute(Bus startBus, Bus goalBus) {
+		int[] sectionIndices = getShortestRoute(requireIndex(startBus), requireIndex(goalBus));
+		GridSection[] route = new GridSection[sectionIndices.length];
+		for (int i = 0; i < sectionIndices.length; i++) {
+			route[i] = graph.getSection(sectionIndices[i]);
+		}
+		return route;
+	}
+
+	/**
+	 * Same as {@link #getShortestRoute(Bus, Bus)}, but works on the indices of
+	 * the {@link GridGraph}.
+	 *
+	 * @param startBus
+	 *            Index of the bus at which the route starts
+	 * @param goalBus
+	 *            Index of the bus at which the route ends
+	 * @return The indices of the sections from {@code startBus} to
+	 *         {@code goalBus}
+	 * @throws IllegalArgumentException
+	 *             if no route between the buses exists
+	 */
+	public int[] getShortestRoute(int startBus, int goalBus) {
+		if (roots[startBus] != roots[goalBus]) {
+			throw new IllegalArgumentException("There is no route between the buses " + graph.getBus(startBus)
+					+ " and " + graph.getBus(goalBus) + ".");
+		}
+		int ancestor = findCommonAncestor(startBus, goalBus);
+		int upwards = depths[startBus] - depths[ancestor];
+		int[] route = new int[upwards + depths[goalBus] - depths[ancestor]];
+		int bus = startBus;
+		for (int i = 0; i < upwards; i++) {
+			route[i] = parentSections[bus];
+			bus = ancestors[0][bus];
+		}
+		bus = goalBus;
+		for (int i = route.length - 1; i >= upwards; i--) {
+			route[i] = parentSections[bus];
+			bus = ancestors[0][bus];
+		}
+		return route;
+	}
+
+	/**
+	 * Returns the length of the route between the two buses
+	 *
+	 * @param startBus
+	 * @param goalBus
+	 * @return The length or {@link Double#POSITIVE_INFINITY} if the buses are
+	 *         not connected
+	 */
+	public double getShortestDistance(Bus startBus, Bus goalBus) {
+		int start = requireIndex(startBus);
+		int goal = requireIndex(goalBus);
+		if (roots[start] != roots[goal]) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double distance = 0;
+		for (int section : getShortestRoute(start, goal)) {
+			distance += graph.getSectionLength(section);
+		}
+		return distance;
+	}
+
+	/**
+	 * Finds the lowest common ancestor of two buses of the same tree by
+	 * lifting the deeper bus to the depth of the other one and then lifting
+	 * both as long as their ancestors differ.
+	 *
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	private int findCommonAncestor(int first, int second) {
+		if (depths[first] < depths[second]) {
+			int swap = first;
+			first = second;
+			second = swap;
+		}
+		int difference = depths[first] - depths[second];
+		for (int k = 0; difference > 0; k++, difference >>= 1) {
+			if ((difference & 1) != 0) {
+				first = ancestors[k][first];
+			}
+		}
+		if (first == second) {
+			return first;
+		}
+		for (int k = ancestors.length - 1; k >= 0; k--) {
+			if (ancestors[k][first] != ancestors[k][second]) {
+				first = ancestors[k][first];
+				second = ancestors[k][second];
+			}
+		}
+		return ancestors[0][first];
+	}
+
+	private int requireIndex(Bus bus) {
+		int index = graph.indexOf(bus);
+		if (index < 0) {
+			throw new IllegalArgumentException("The bus " + bus + " is not part of the grid of the navigator.");
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,448 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the extension algorithm for many loadflow scenarios of the same grid,
+ * e.g. a winter peak, noon with high PV feed-in and an evening with many
+ * charging electric vehicles. Every scenario is given as the voltages and
+ * specific currents of a loadflow calculation, indexed like the shared
+ * {@link GridGraph}. The scenarios are evaluated in parallel on a
+ * {@link ForkJoinPool}, each with its own {@link CompactGrid} and
+ * {@link GenericLVGridExtension}. The scenarios can also be the critical hours
+ * of a {@link GridTimeSeries}.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class ScenarioBatchEvaluator {
+
+	private final GridGraph topology;
+
+	/**
+	 * The navigator shared by all scenarios. It is called from several
+	 * threads at once.
+	 */
+	private final GridNavigator navigator;
+
+	/**
+	 * Buses below this p.u. voltage violate the voltage bounds.
+	 */
+	private double lowerVoltageBound = 0.9;
+
+	/**
+	 * Buses above this p.u. voltage violate the voltage bounds.
+	 */
+	private double upperVoltageBound = 1.1;
+
+	/**
+	 * Sections with a higher absolute specific current are thermally
+	 * overloaded.
+	 */
+	private double maximumSpecificCurrent = 1.0;
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 */
+	private double relieveFactorCurrent = 0.4;
+
+	/**
+	 * See {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 */
+	private double relieveFactorVoltage = 0.7;
+
+	/**
+	 * Constructor of {@link ScenarioBatchEvaluator} that searches the routes
+	 * with a {@link DijkstraGridNavigator}
+	 *
+	 * @param topology
+	 *            The topology shared by all scenarios
+	 */
+	public ScenarioBatchEvaluator(GridGraph topology) {
+		this(topology, new DijkstraGridNavigator(topology));
+	}
+
+	/**
+	 * Constructor of {@link ScenarioBatchEvaluator}
+	 *
+	 * @param topology
+	 *            The topology shared by all scenarios
+	 * @param navigator
+	 *            The navigator to use. It is called with the views of the
+	 *            {@link CompactGrid} of each scenario and from several threads
+	 *            at once.
+	 */
+	public ScenarioBatchEvaluator(GridGraph topology, GridNavigator navigator) {
+		this.topology = topology;
+		this.navigator = navigator;
+	}
+
+	/**
+	 * Evaluates all scenarios on a {@link ForkJoinPool} that is created for
+	 * this call.
+	 *
+	 * @param scenarioVoltages
+	 *            The p.u. voltages of every scenario
+	 * @param scenarioCurrents
+	 *            The absolute specific currents of every scenario
+	 * @return The proposals of all scenarios
+	 */
+	public BatchResult evaluate(double[][] scenarioVoltages, double[][] scenarioCurrents) {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return evaluate(scenarioVoltages, scenarioCurrents, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Evaluates all scenarios on the given {@link ForkJoinPool}.
+	 *
+	 * @param scenarioVoltages
+	 *            The p.u. voltages of every scenario
+	 * @param scenarioCurrents
+	 *            The absolute specific currents of every scenario
+	 * @param pool
+	 *            The pool to run the evaluation on
+	 * @return The proposals of all scenarios
+	 * @throws IllegalArgumentException
+	 *             if the number of voltage and current vectors differs
+	 */
+	public BatchResult evaluate(double[][] scenarioVoltages, double[][] scenarioCurrents, ForkJoinPool pool) {
+		if (scenarioVoltages.length != scenarioCurrents.length) {
+			throw new IllegalArgumentException("There are " + scenarioVoltages.length + " voltage vectors, but "
+					+ scenarioCurrents.length + " current vectors.");
+		}
+		ExtensionProposal[] proposals = new ExtensionProposal[scenarioVoltages.length];
+		if (proposals.length > 0) {
+			pool.invoke(new ScenarioRange(scenarioVoltages, scenarioCurrents, null, null, proposals, 0,
+					proposals.length));
+		}
+		return new BatchResult(proposals);
+	}
+
+	/**
+	 * Finds the hours of the time series in which the bounds of this
+	 * evaluator are violated, see
+	 * {@link GridTimeSeries#findCriticalHours(double, double, double, int)}
+	 *
+	 * @param timeSeries
+	 * @param maximumHourCount
+	 *            The number of hours returned at most
+	 * @return The critical hours, the worst first
+	 */
+	public int[] findCriticalHours(GridTimeSeries timeSeries, int maximumHourCount) {
+		return timeSeries.findCriticalHours(lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent,
+				maximumHourCount);
+	}
+
+	/**
+	 * Evaluates the hours of the time series on a {@link ForkJoinPool} that is
+	 * created for this call. The hours are the scenarios of the result, in
+	 * their order.
+	 *
+	 * @param timeSeries
+	 *            The states of the grid, whose topology has to be the one of
+	 *            this evaluator
+	 * @param hours
+	 *            The hours to evaluate, e.g. those found by
+	 *            {@link #findCriticalHours(GridTimeSeries, int)}
+	 * @return The proposals of all hours
+	 */
+	public BatchResult evaluate(GridTimeSeries timeSeries, int[] hours) {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return evaluate(timeSeries, hours, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Evaluates the hours of the time series on the given
+	 * {@link ForkJoinPool}. Only the hour evaluated by a task is copied onto
+	 * the heap.
+	 *
+	 * @param timeSeries
+	 *            The states of the grid, whose topology has to be the one of
+	 *            this evaluator
+	 * @param hours
+	 *            The hours to evaluate
+	 * @param pool
+	 *            The pool to run the evaluation on
+	 * @return The proposals of all hours
+	 * @throws IllegalArgumentException
+	 *             if the time series has another topology
+	 */
+	public BatchResult evaluate(GridTimeSeries timeSeries, int[] hours, ForkJoinPool pool) {
+		if (timeSeries.getTopology() != topology) {
+			throw new IllegalArgumentException("The time series has another topology than the evaluator.");
+		}
+		ExtensionProposal[] proposals = new ExtensionProposal[hours.length];
+		if (proposals.length > 0) {
+			pool.invoke(new ScenarioRange(null, null, timeSeries, hours, proposals, 0, proposals.length));
+		}
+		return new BatchResult(proposals);
+	}
+
+	/**
+	 * Evaluates a single scenario: all violations of the bounds are reported
+	 * to a new {@link GenericLVGridExtension} and its proposal is returned.
+	 *
+	 * @param puVoltages
+	 *            The p.u. voltages of the scenario
+	 * @param absSpecificCurrents
+	 *            The absolute specific currents of the scenario
+	 * @return The proposed extension or null if no bound is violated
+	 */
+	public ExtensionProposal evaluateScenario(double[] puVoltages, double[] absSpecificCurrents) {
+		return evaluateScenario(new CompactGrid(topology, puVoltages, absSpecificCurrents));
+	}
+
+	private ExtensionProposal evaluateScenario(CompactGrid grid) {
+		GenericLVGridExtension extender = new GenericLVGridExtension(navigator);
+		extender.setRelieveFactorCurrent(relieveFactorCurrent);
+		extender.setRelieveFactorVoltage(relieveFactorVoltage);
+
+		new ViolationDetector(lowerVoltageBound, upperVoltageBound, maximumSpecificCurrent).report(grid, extender);
+
+		Bus[] busesToExtendBetween = extender.findBusesToExtendBetween();
+		if (busesToExtendBetween == null) {
+			return null;
+		}
+		return ExtensionProposal.of(busesToExtendBetween, topology);
+	}
+
+	/**
+	 * Sets the range of p.u. voltages buses are allowed to have.
+	 *
+	 * @param lowerVoltageBound
+	 * @param upperVoltageBound
+	 * @throws IllegalArgumentException
+	 *             if the lower bound is above the upper bound
+	 */
+	public void setVoltageBounds(double lowerVoltageBound, double upperVoltageBound) {
+		if (lowerVoltageBound > upperVoltageBound) {
+			throw new IllegalArgumentException("The lower voltage bound " + lowerVoltageBound
+					+ " must not be above the upper voltage bound " + upperVoltageBound);
+		}
+		this.lowerVoltageBound = lowerVoltageBound;
+		this.upperVoltageBound = upperVoltageBound;
+	}
+
+	/**
+	 * Sets the absolute specific current above which a section is thermally
+	 * overloaded.
+	 *
+	 * @param maximumSpecificCurrent
+	 */
+	public void setMaximumSpecificCurrent(double maximumSpecificCurrent) {
+		this.maximumSpecificCurrent = maximumSpecificCurrent;
+	}
+
+	/**
+	 * Sets the relieve factor for thermal overloads used for every scenario,
+	 * see {@link GenericLVGridExtension#setRelieveFactorCurrent(double)}
+	 *
+	 * @param relieveFactorCurrent
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorCurrent(double relieveFactorCurrent) {
+		if (relieveFactorCurrent > 1.0 || relieveFactorCurrent < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for thermal overloads must be between 0 and 1, but was "
+							+ relieveFactorCurrent);
+		}
+		this.relieveFactorCurrent = relieveFactorCurrent;
+	}
+
+	/**
+	 * Sets the relieve factor for voltage bound violations used for every
+	 * scenario, see
+	 * {@link GenericLVGridExtension#setRelieveFactorVoltage(double)}
+	 *
+	 * @param relieveFactorVoltage
+	 *            The new relieve factor. <b>Must be between 0 and 1</b>
+	 * @throws IllegalArgumentException
+	 *             if the relieve factor was not within 0 and 1
+	 */
+	public void setRelieveFactorVoltage(double relieveFactorVoltage) {
+		if (relieveFactorVoltage > 1.0 || relieveFactorVoltage < 0) {
+			throw new IllegalArgumentException(
+					"The relieve factor for voltage bound violations must be between 0 and 1, but was "
+							+ relieveFactorVoltage);
+		}
+		this.relieveFactorVoltage = relieveFactorVoltage;
+	}
+
+	/**
+	 * Evaluates a range of scenarios, splitting it in halves until only a
+	 * single scenario is left. The scenarios are either given as arrays or as
+	 * hours of a time series.
+	 */
+	private final class ScenarioRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] scenarioVoltages;
+
+		private final double[][] scenarioCurrents;
+
+		private final GridTimeSeries timeSeries;
+
+		private final int[] hours;
+
+		private final ExtensionProposal[] proposals;
+
+		private final int from;
+
+		private final int to;
+
+		ScenarioRange(double[][] scenarioVoltages, double[][] scenarioCurrents, GridTimeSeries timeSeries,
+				int[] hours, ExtensionProposal[] proposals, int from, int to) {
+			this.scenarioVoltages = scenarioVoltages;
+			this.scenarioCurrents = scenarioCurrents;
+			this.timeSeries = timeSeries;
+			this.hours = hours;
+			this.proposals = proposals;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				if (timeSeries == null) {
+					proposals[from] = evaluateScenario(scenarioVoltages[from], scenarioCurrents[from]);
+				} else {
+					proposals[from] = evaluateScenario(timeSeries.getState(hours[from]));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(
+					new ScenarioRange(scenarioVoltages, scenarioCurrents, timeSeries, hours, proposals, from,
+							middle),
+					new ScenarioRange(scenarioVoltages, scenarioCurrents, timeSeries, hours, proposals, middle, to));
+		}
+
+	}
+
+	/**
+	 * The proposals of all scenarios of a batch.
+	 */
+	public static final class BatchResult {
+
+		private final ExtensionProposal[] proposals;
+
+		private final List<RankedExtension> ranking;
+
+		BatchResult(ExtensionProposal[] proposals) {
+			this.proposals = proposals;
+
+			/*
+			 * Count how often each extension has been proposed and remember
+			 * the first scenario, so that equally frequent extensions keep the
+			 * order of the scenarios.
+			 */
+			final Map<ExtensionProposal, Integer> firstScenario = new HashMap<ExtensionProposal, Integer>();
+			Map<ExtensionProposal, Integer> frequencies = new HashMap<ExtensionProposal, Integer>();
+			for (int i = 0; i < proposals.length; i++) {
+				if (proposals[i] == null) {
+					continue;
+				}
+				Integer frequency = frequencies.get(proposals[i]);
+				if (frequency == null) {
+					firstScenario.put(proposals[i], i);
+					frequencies.put(proposals[i], 1);
+				} else {
+					frequencies.put(proposals[i], frequency + 1);
+				}
+			}
+			List<RankedExtension> ranking = new ArrayList<RankedExtension>(frequencies.size());
+			for (Map.Entry<ExtensionProposal, Integer> entry : frequencies.entrySet()) {
+				ranking.add(new RankedExtension(entry.getKey(), entry.getValue()));
+			}
+			Collections.sort(ranking, new Comparator<RankedExtension>() {
+				public int compare(RankedExtension first, RankedExtension second) {
+					if (first.getFrequency() != second.getFrequency()) {
+						return second.getFrequency() - first.getFrequency();
+					}
+					return firstScenario.get(first.getExtension()) - firstScenario.get(second.getExtension());
+				}
+			});
+			this.ranking = Collections.unmodifiableList(ranking);
+		}
+
+		/**
+		 * Returns the number of evaluated scenarios
+		 *
+		 * @return
+		 */
+		public int getScenarioCount() {
+			return proposals.length;
+		}
+
+		/**
+		 * Returns the extension proposed for the scenario
+		 *
+		 * @param scenario
+		 *            The position of the scenario in the batch
+		 * @return The proposal or null if no bound was violated in the
+		 *         scenario
+		 */
+		public ExtensionProposal getProposal(int scenario) {
+			return proposals[scenario];
+		}
+
+		/**
+		 * Returns all proposed extensions, the most frequently proposed one
+		 * first.
+		 *
+		 * @return
+		 */
+		public List<RankedExtension> getRanking() {
+			return ranking;
+		}
+
+	}
+
+	/**
+	 * An extension and the number of scenarios it has been proposed for.
+	 */
+	public static final class RankedExtension {
+
+		private final ExtensionProposal extension;
+
+		private final int frequency;
+
+		RankedExtension(ExtensionProposal extension, int frequency) {
+			this.extension = extension;
+			this.frequency = frequency;
+		}
+
+		public ExtensionProposal getExtension() {
+			return extension;
+		}
+
+		/**
+		 * Returns the number of scenarios the extension has been proposed for
+		 *
+		 * @return
+		 */
+		public int getFrequency() {
+			return frequency;
+		}
+
+	}
+
+}
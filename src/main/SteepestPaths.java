@@ -0,0 +1,236 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The paths {@link GenericLVGridExtension} follows along the feeders of a
+ * snapshot, precomputed for every bus. From each bus the extension goes on
+ * to the neighbour with a higher voltage (or a lower one when searching
+ * down) over the connected section carrying the most current, so for a fixed
+ * state this choice only depends on the bus. It is made once here for all
+ * buses and both directions.
+ * <p>
+ * On top of these pointers, tables of the 2<sup>k</sup>-th bus ahead and the
+ * smallest current on the way there are built, so the end of a search, the
+ * local extremum or the first section below the relief criterion, is found
+ * in O(log n) steps instead of walking the feeder bus by bus. The tables
+ * have as many levels as the longest path needs, for radial low voltage
+ * grids only a few.
+ * <p>
+ * Pass the paths to {@link GenericLVGridExtension#setSteepestPaths(SteepestPaths)}
+ * to evaluate many overloads of the same snapshot. The paths have to be
+ * built again whenever the state changes.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class SteepestPaths {
+
+	private static final int UP = 0;
+
+	private static final int DOWN = 1;
+
+	private final IndexedGrid grid;
+
+	/**
+	 * jumps[direction][k][bus] is the bus 2<sup>k</sup> steps ahead, -1 if
+	 * the path ends before. Level 0 holds the next bus.
+	 */
+	private final int[][][] jumps;
+
+	/**
+	 * minimumCurrents[direction][k][bus] is the smallest absolute specific
+	 * current of the 2<sup>k</sup> sections ahead, if there are as many.
+	 */
+	private final double[][][] minimumCurrents;
+
+	/**
+	 * nextSections[direction][bus] is the section to the next bus, -1 at the
+	 * end of the path.
+	 */
+	private final int[][] nextSections;
+
+	private SteepestPaths(IndexedGrid grid) {
+		this.grid = grid;
+		jumps = new int[2][][];
+		minimumCurrents = new double[2][][];
+		nextSections = new int[2][];
+		for (int direction = UP; direction <= DOWN; direction++) {
+			buildTables(direction);
+		}
+	}
+
+	/**
+	 * Chooses the next bus of every bus like the extension does and builds
+	 * the levels of the jump tables until no path is long enough for the
+	 * next level. Every step strictly changes the voltage, so no path is
+	 * longer than the number of buses, which limits the number of levels.
+	 */
+	private void buildTables(int direction) {
+		IndexedTopology topology = grid.getTopology();
+		int busCount = topology.getBusCount();
+		boolean searchDirectionUp = direction == UP;
+		int[] nextBuses = new int[busCount];
+		int[] sections = new int[busCount];
+		double[] currents = new double[busCount];
+		for (int bus = 0; bus < busCount; bus++) {
+			double voltage = grid.getPuVoltage(bus);
+			int nextBus = -1;
+			int nextSection = -1;
+			double nextSectionCurrent = 0;
+			for (int i = topology.getAdjacencyStart(bus); i < topology.getAdjacencyEnd(bus); i++) {
+				int connectedSection = topology.getAdjacentSection(i);
+				double current = grid.getAbsSpecificCurrent(connectedSection);
+				if (GenericLVGridExtension.leadsInSearchDirection(grid.getPuVoltage(topology.getAdjacentBus(i)),
+						voltage, searchDirectionUp)
+						&& (nextSection < 0 || nextSectionCurrent < current)) {
+					nextBus = topology.getAdjacentBus(i);
+					nextSection = connectedSection;
+					nextSectionCurrent = current;
+				}
+			}
+			nextBuses[bus] = nextBus;
+			sections[bus] = nextSection;
+			currents[bus] = nextSectionCurrent;
+		}
+
+		List<int[]> jumpLevels = new ArrayList<int[]>();
+		List<double[]> currentLevels = new ArrayList<double[]>();
+		jumpLevels.add(nextBuses);
+		currentLevels.add(currents);
+		int maximumLevels = 32 - Integer.numberOfLeadingZeros(busCount);
+		while (jumpLevels.size() < maximumLevels) {
+			int[] previousJumps = jumpLevels.get(jumpLevels.size() - 1);
+			double[] previousCurrents = currentLevels.get(currentLevels.size() - 1);
+			int[] levelJumps = new int[busCount];
+			double[] levelCurrents = new double[busCount];
+			boolean pathLongEnough = false;
+			for (int bus = 0; bus < busCount; bus++) {
+				int halfway = previousJumps[bus];
+				if (halfway < 0 || previousJumps[halfway] < 0) {
+					levelJumps[bus] = -1;
+				} else {
+					levelJumps[bus] = previousJumps[halfway];
+					levelCurrents[bus] = Math.min(previousCurrents[bus], previousCurrents[halfway]);
+					pathLongEnough = true;
+				}
+			}
+			if (!pathLongEnough) {
+				break;
+			}
+			jumpLevels.add(levelJumps);
+			currentLevels.add(levelCurrents);
+		}
+		jumps[direction] = jumpLevels.toArray(new int[jumpLevels.size()][]);
+		minimumCurrents[direction] = currentLevels.toArray(new double[currentLevels.size()][]);
+		nextSections[direction] = sections;
+	}
+
+	/**
+	 * Precomputes the paths of the snapshot
+	 *
+	 * @param grid
+	 * @return
+	 */
+	public static SteepestPaths of(CompactGrid grid) {
+		return new SteepestPaths(grid);
+	}
+
+	/**
+	 * Precomputes the paths of the current state of the grid
+	 *
+	 * @param grid
+	 * @return
+	 */
+	public static SteepestPaths of(OffHeapGrid grid) {
+		return new SteepestPaths(grid);
+	}
+
+	/**
+	 * Checks whether the paths have been computed for the grid
+	 *
+	 * @param grid
+	 * @return
+	 */
+	boolean isFor(IndexedGrid grid) {
+		return this.grid == grid;
+	}
+
+	/**
+	 * Returns the bus the extension goes on to from the given bus
+	 *
+	 * @param busIndex
+	 * @param searchDirectionUp
+	 *            True to follow increasing voltages, false for decreasing
+	 *            ones
+	 * @return The next bus or -1 if the bus is a local extremum
+	 */
+	public int getNextBus(int busIndex, boolean searchDirectionUp) {
+		return jumps[searchDirectionUp ? UP : DOWN][0][busIndex];
+	}
+
+	/**
+	 * Returns the section to the bus returned by
+	 * {@link #getNextBus(int, boolean)}
+	 *
+	 * @param busIndex
+	 * @param searchDirectionUp
+	 * @return The section or -1 if the bus is a local extremum
+	 */
+	public int getNextSection(int busIndex, boolean searchDirectionUp) {
+		return nextSections[searchDirectionUp ? UP : DOWN][busIndex];
+	}
+
+	/**
+	 * Returns the local extremum the path of the bus leads to, the bus
+	 * itself if it is one
+	 *
+	 * @param busIndex
+	 * @param searchDirectionUp
+	 *            True for the local maximum, false for the minimum
+	 * @return
+	 */
+	public int findExtremum(int busIndex, boolean searchDirectionUp) {
+		return (int) follow(busIndex, searchDirectionUp, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Follows the path of the bus until the local extremum or until the next
+	 * section carries less than the given current, like the search for
+	 * thermal overloads
+	 *
+	 * @param busIndex
+	 * @param searchDirectionUp
+	 * @param minimumCurrent
+	 *            The absolute specific current every section passed has to
+	 *            carry at least
+	 * @return The bus the path stops at
+	 */
+	public int findEnd(int busIndex, boolean searchDirectionUp, double minimumCurrent) {
+		return (int) follow(busIndex, searchDirectionUp, minimumCurrent);
+	}
+
+	/**
+	 * Takes the longest jumps whose sections all carry the minimum current.
+	 *
+	 * @return The bus the path stops at in the lower 32 bits, the number of
+	 *         sections passed in the upper ones
+	 */
+	long follow(int busIndex, boolean searchDirectionUp, double minimumCurrent) {
+		int direction = searchDirectionUp ? UP : DOWN;
+		int[][] directionJumps = jumps[direction];
+		double[][] directionCurrents = minimumCurrents[direction];
+		int bus = busIndex;
+		long steps = 0;
+		for (int level = directionJumps.length - 1; level >= 0; level--) {
+			int target = directionJumps[level][bus];
+			if (target >= 0 && !(directionCurrents[level][bus] < minimumCurrent)) {
+				bus = target;
+				steps += 1L << level;
+			}
+		}
+		return (steps << 32) | bus;
+	}
+
+}
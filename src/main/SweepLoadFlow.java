@@ -0,0 +1,390 @@
+package main;
+
+/**
+ * Calculates the voltages and currents of a radial or weakly meshed LV grid
+ * with a backward/forward sweep.
+ * <p>
+ * The grid is split into a spanning tree, found by a breadth-first search from
+ * the slack bus, and the remaining sections that close the meshes. The tree is
+ * solved by the sweep: the load currents are summed up from the leaves to the
+ * slack bus, then the voltages are calculated from the slack bus to the leaves.
+ * The currents of the meshing sections are treated as injections at both of
+ * their ends and corrected after each sweep until the voltage drop across each
+ * of them matches its impedance (compensation method). The impedance matrix of
+ * the meshes only depends on the sections, so it is factorised once in the
+ * constructor.
+ * <p>
+ * The loads are modelled as constant power.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class SweepLoadFlow extends LoadFlow {
+
+	/**
+	 * The buses in the order they have been reached from the slack bus, the
+	 * slack bus first. Every bus comes after the bus feeding it.
+	 */
+	private final int[] sweepOrder;
+
+	/**
+	 * The bus feeding each bus in the spanning tree, -1 for the slack bus.
+	 */
+	private final int[] feedingBus;
+
+	/**
+	 * The section between each bus and its {@link #feedingBus}.
+	 */
+	private final int[] feedingSection;
+
+	/**
+	 * The sections that are not part of the spanning tree.
+	 */
+	private final int[] meshingSections;
+
+	/**
+	 * The factorised impedance matrix of the meshes, row-major with
+	 * {@code meshingSections.length} columns. The lower triangle holds the
+	 * factors of L without the unit diagonal, the rest holds U.
+	 */
+	private final double[] meshImpedanceReal;
+
+	private final double[] meshImpedanceImag;
+
+	/**
+	 * Constructor of {@link SweepLoadFlow}
+	 *
+	 * @param topology
+	 *            The grid to calculate
+	 * @param slackBus
+	 *            The index of the bus with a fixed voltage, usually the LV side
+	 *            of the transformer
+	 * @param resistances
+	 *            The p.u. resistance of each section
+	 * @param reactances
+	 *            The p.u. reactance of each section
+	 * @param ratedCurrents
+	 *            The p.u. rated current of each section
+	 * @throws IllegalArgumentException
+	 *             if the number of values does not match the number of
+	 *             sections, a section has no impedance or a bus cannot be
+	 *             reached from the slack bus
+	 */
+	public SweepLoadFlow(GridGraph topology, int slackBus, double[] resistances, double[] reactances,
+			double[] ratedCurrents) {
+		super(topology, slackBus, resistances, reactances, ratedCurrents);
+		int sectionCount = topology.getSectionCount();
+		int busCount = topology.getBusCount();
+		sweepOrder = new int[busCount];
+		feedingBus = new int[busCount];
+		feedingSection = new int[busCount];
+		for (int i = 0; i < busCount; i++) {
+			feedingBus[i] = -1;
+			feedingSection[i] = -1;
+		}
+		boolean[] reached = new boolean[busCount];
+		boolean[] sectionUsed = new boolean[sectionCount];
+		int[] meshing = new int[sectionCount];
+		int meshingCount = 0;
+
+		/*
+		 * Breadth-first search from the slack bus, every section that leads to
+		 * a bus reached before closes a mesh
+		 */
+		sweepOrder[0] = slackBus;
+		reached[slackBus] = true;
+		int reachedCount = 1;
+		for (int head = 0; head < reachedCount; head++) {
+			int bus = sweepOrder[head];
+			for (int i = topology.getAdjacencyStart(bus); i < topology.getAdjacencyEnd(bus); i++) {
+				int section = topology.getAdjacentSection(i);
+				if (sectionUsed[section]) {
+					continue;
+				}
+				sectionUsed[section] = true;
+				int otherEnd = topology.getAdjacentBus(i);
+				if (reached[otherEnd]) {
+					meshing[meshingCount++] = section;
+				} else {
+					reached[otherEnd] = true;
+					feedingBus[otherEnd] = bus;
+					feedingSection[otherEnd] = section;
+					sweepOrder[reachedCount++] = otherEnd;
+				}
+			}
+		}
+		if (reachedCount < busCount) {
+			throw new IllegalArgumentException((busCount - reachedCount)
+					+ " buses cannot be reached from the slack bus " + slackBus + ".");
+		}
+		meshingSections = new int[meshingCount];
+		System.arraycopy(meshing, 0, meshingSections, 0, meshingCount);
+
+		meshImpedanceReal = new double[meshingCount * meshingCount];
+		meshImpedanceImag = new double[meshingCount * meshingCount];
+		buildMeshImpedances();
+	}
+
+	/**
+	 * Creates the loadflow for a grid whose sections all implement
+	 * {@link ImpedanceGridSection}
+	 *
+	 * @param topology
+	 *            The grid to calculate
+	 * @param slackBus
+	 *            The bus with a fixed voltage, usually the LV side of the
+	 *            transformer
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a section does not implement {@link ImpedanceGridSection}
+	 *             or the slack bus is not part of the grid
+	 */
+	public static SweepLoadFlow of(GridGraph topology, Bus slackBus) {
+		double[][] impedances = readImpedances(topology);
+		return new SweepLoadFlow(topology, topology.indexOf(slackBus), impedances[0], impedances[1], impedances[2]);
+	}
+
+	/**
+	 * Sets up the impedance matrix of the meshes and factorises it. Element
+	 * {@code (k, m)} is the change of the voltage drop across meshing section
+	 * {@code k} caused by a unit current through meshing section {@code m},
+	 * plus the impedance of section {@code k} on the diagonal.
+	 */
+	private void buildMeshImpedances() {
+		int busCount = topology.getBusCount();
+		int[] depth = new int[busCount];
+		double[] rootResistance = new double[busCount];
+		double[] rootReactance = new double[busCount];
+		for (int i = 1; i < busCount; i++) {
+			int bus = sweepOrder[i];
+			int section = feedingSection[bus];
+			depth[bus] = depth[feedingBus[bus]] + 1;
+			rootResistance[bus] = rootResistance[feedingBus[bus]] + resistances[section];
+			rootReactance[bus] = rootReactance[feedingBus[bus]] + reactances[section];
+		}
+
+		int meshCount = meshingSections.length;
+		for (int k = 0; k < meshCount; k++) {
+			int firstK = topology.getFirstBus(meshingSections[k]);
+			int secondK = topology.getSecondBus(meshingSections[k]);
+			for (int m = 0; m < meshCount; m++) {
+				int firstM = topology.getFirstBus(meshingSections[m]);
+				int secondM = topology.getSecondBus(meshingSections[m]);
+				int[] commonBuses = { commonFeedingBus(firstK, firstM, depth),
+						commonFeedingBus(firstK, secondM, depth), commonFeedingBus(secondK, firstM, depth),
+						commonFeedingBus(secondK, secondM, depth) };
+				double real = rootResistance[commonBuses[0]] - rootResistance[commonBuses[1]]
+						- rootResistance[commonBuses[2]] + rootResistance[commonBuses[3]];
+				double imag = rootReactance[commonBuses[0]] - rootReactance[commonBuses[1]]
+						- rootReactance[commonBuses[2]] + rootReactance[commonBuses[3]];
+				if (k == m) {
+					real += resistances[meshingSections[k]];
+					imag += reactances[meshingSections[k]];
+				}
+				meshImpedanceReal[k * meshCount + m] = real;
+				meshImpedanceImag[k * meshCount + m] = imag;
+			}
+		}
+
+		/*
+		 * The real part of the matrix is positive definite, so the elimination
+		 * is stable without pivoting
+		 */
+		for (int p = 0; p < meshCount; p++) {
+			double pivotReal = meshImpedanceReal[p * meshCount + p];
+			double pivotImag = meshImpedanceImag[p * meshCount + p];
+			double pivotAbsSquared = pivotReal * pivotReal + pivotImag * pivotImag;
+			for (int row = p + 1; row < meshCount; row++) {
+				double real = meshImpedanceReal[row * meshCount + p];
+				double imag = meshImpedanceImag[row * meshCount + p];
+				double factorReal = (real * pivotReal + imag * pivotImag) / pivotAbsSquared;
+				double factorImag = (imag * pivotReal - real * pivotImag) / pivotAbsSquared;
+				meshImpedanceReal[row * meshCount + p] = factorReal;
+				meshImpedanceImag[row * meshCount + p] = factorImag;
+				for (int column = p + 1; column < meshCount; column++) {
+					double upperReal = meshImpedanceReal[p * meshCount + column];
+					double upperImag = meshImpedanceImag[p * meshCount + column];
+					meshImpedanceReal[row * meshCount + column] -= factorReal * upperReal - factorImag * upperImag;
+					meshImpedanceImag[row * meshCount + column] -= factorReal * upperImag + factorImag * upperReal;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the bus at which the paths from the slack bus to both buses
+	 * part.
+	 *
+	 * @param first
+	 * @param second
+	 * @param depth
+	 *            The number of sections between each bus and the slack bus
+	 * @return
+	 */
+	private int commonFeedingBus(int first, int second, int[] depth) {
+		while (depth[first] > depth[second]) {
+			first = feedingBus[first];
+		}
+		while (depth[second] > depth[first]) {
+			second = feedingBus[second];
+		}
+		while (first != second) {
+			first = feedingBus[first];
+			second = feedingBus[second];
+		}
+		return first;
+	}
+
+	protected CompactGrid calculate(double[] activePowers, double[] reactivePowers, double[] voltageReal,
+			double[] voltageImag) {
+		int busCount = topology.getBusCount();
+		int meshCount = meshingSections.length;
+		double[] currentReal = new double[busCount];
+		double[] currentImag = new double[busCount];
+		double[] meshCurrentReal = new double[meshCount];
+		double[] meshCurrentImag = new double[meshCount];
+		double[] mismatchReal = new double[meshCount];
+		double[] mismatchImag = new double[meshCount];
+
+		boolean converged = false;
+		for (int iteration = 0; iteration < getMaximumIterations() && !converged; iteration++) {
+
+			/*
+			 * The load currents at the present voltages, I = conj(S / V), and
+			 * the currents of the meshing sections drawn at their first and
+			 * fed in at their second bus
+			 */
+			for (int i = 0; i < busCount; i++) {
+				double absVoltageSquared = voltageReal[i] * voltageReal[i] + voltageImag[i] * voltageImag[i];
+				currentReal[i] = (activePowers[i] * voltageReal[i] + reactivePowers[i] * voltageImag[i])
+						/ absVoltageSquared;
+				currentImag[i] = (activePowers[i] * voltageImag[i] - reactivePowers[i] * voltageReal[i])
+						/ absVoltageSquared;
+			}
+			for (int k = 0; k < meshCount; k++) {
+				int first = topology.getFirstBus(meshingSections[k]);
+				int second = topology.getSecondBus(meshingSections[k]);
+				currentReal[first] += meshCurrentReal[k];
+				currentImag[first] += meshCurrentImag[k];
+				currentReal[second] -= meshCurrentReal[k];
+				currentImag[second] -= meshCurrentImag[k];
+			}
+
+			/*
+			 * Backward sweep: afterwards every bus holds the current of its
+			 * feeding section
+			 */
+			for (int i = busCount - 1; i > 0; i--) {
+				int bus = sweepOrder[i];
+				currentReal[feedingBus[bus]] += currentReal[bus];
+				currentImag[feedingBus[bus]] += currentImag[bus];
+			}
+
+			/*
+			 * Forward sweep
+			 */
+			double maximumChange = 0;
+			for (int i = 1; i < busCount; i++) {
+				int bus = sweepOrder[i];
+				int section = feedingSection[bus];
+				double real = voltageReal[feedingBus[bus]] - resistances[section] * currentReal[bus]
+						+ reactances[section] * currentImag[bus];
+				double imag = voltageImag[feedingBus[bus]] - resistances[section] * currentImag[bus]
+						- reactances[section] * currentReal[bus];
+				maximumChange = Math.max(maximumChange,
+						Math.abs(real - voltageReal[bus]) + Math.abs(imag - voltageImag[bus]));
+				voltageReal[bus] = real;
+				voltageImag[bus] = imag;
+			}
+
+			/*
+			 * Correct the currents of the meshing sections by the mismatch of
+			 * their voltage drops
+			 */
+			for (int k = 0; k < meshCount; k++) {
+				int section = meshingSections[k];
+				int first = topology.getFirstBus(section);
+				int second = topology.getSecondBus(section);
+				mismatchReal[k] = voltageReal[first] - voltageReal[second] - resistances[section] * meshCurrentReal[k]
+						+ reactances[section] * meshCurrentImag[k];
+				mismatchImag[k] = voltageImag[first] - voltageImag[second] - resistances[section] * meshCurrentImag[k]
+						- reactances[section] * meshCurrentReal[k];
+				maximumChange = Math.max(maximumChange, Math.abs(mismatchReal[k]) + Math.abs(mismatchImag[k]));
+			}
+			solveMeshes(mismatchReal, mismatchImag);
+			for (int k = 0; k < meshCount; k++) {
+				meshCurrentReal[k] += mismatchReal[k];
+				meshCurrentImag[k] += mismatchImag[k];
+			}
+
+			converged = maximumChange < getTolerance();
+		}
+		if (!converged) {
+			throw new IllegalStateException(
+					"The loadflow did not converge within " + getMaximumIterations() + " iterations.");
+		}
+
+		double[] puVoltages = new double[busCount];
+		double[] voltageAngles = new double[busCount];
+		for (int i = 0; i < busCount; i++) {
+			puVoltages[i] = Math.hypot(voltageReal[i], voltageImag[i]);
+			voltageAngles[i] = Math.atan2(voltageImag[i], voltageReal[i]);
+		}
+		double[] absSpecificCurrents = new double[topology.getSectionCount()];
+		for (int i = 1; i < busCount; i++) {
+			int bus = sweepOrder[i];
+			int section = feedingSection[bus];
+			absSpecificCurrents[section] = Math.hypot(currentReal[bus], currentImag[bus]) / ratedCurrents[section];
+		}
+		for (int k = 0; k < meshCount; k++) {
+			int section = meshingSections[k];
+			absSpecificCurrents[section] = Math.hypot(meshCurrentReal[k], meshCurrentImag[k])
+					/ ratedCurrents[section];
+		}
+		return new CompactGrid(topology, puVoltages, voltageAngles, absSpecificCurrents);
+	}
+
+	/**
+	 * Solves the factorised mesh impedance matrix for the given right hand
+	 * side in place.
+	 *
+	 * @param real
+	 * @param imag
+	 */
+	private void solveMeshes(double[] real, double[] imag) {
+		int meshCount = meshingSections.length;
+		for (int row = 1; row < meshCount; row++) {
+			for (int column = 0; column < row; column++) {
+				double factorReal = meshImpedanceReal[row * meshCount + column];
+				double factorImag = meshImpedanceImag[row * meshCount + column];
+				real[row] -= factorReal * real[column] - factorImag * imag[column];
+				imag[row] -= factorReal * imag[column] + factorImag * real[column];
+			}
+		}
+		for (int row = meshCount - 1; row >= 0; row--) {
+			for (int column = row + 1; column < meshCount; column++) {
+				double upperReal = meshImpedanceReal[row * meshCount + column];
+				double upperImag = meshImpedanceImag[row * meshCount + column];
+				real[row] -= upperReal * real[column] - upperImag * imag[column];
+				imag[row] -= upperReal * imag[column] + upperImag * real[column];
+			}
+			double pivotReal = meshImpedanceReal[row * meshCount + row];
+			double pivotImag = meshImpedanceImag[row * meshCount + row];
+			double pivotAbsSquared = pivotReal * pivotReal + pivotImag * pivotImag;
+			double quotientReal = (real[row] * pivotReal + imag[row] * pivotImag) / pivotAbsSquared;
+			double quotientImag = (imag[row] * pivotReal - real[row] * pivotImag) / pivotAbsSquared;
+			real[row] = quotientReal;
+			imag[row] = quotientImag;
+		}
+	}
+
+	/**
+	 * Returns the number of sections that close a mesh
+	 *
+	 * @return
+	 */
+	public int getMeshCount() {
+		return meshingSections.length;
+	}
+
+}
@@ -0,0 +1,153 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CachingGridNavigator} on a feeder with a branch.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestCachingGridNavigator {
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private final GridNavigator delegate = mock(GridNavigator.class);
+
+	private Bus mockBus() {
+		Bus bus = mock(Bus.class);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	@Test
+	public void testCableAdded() {
+		Bus slack = mockBus();
+		Bus b1 = mockBus();
+		Bus b2 = mockBus();
+		Bus b3 = mockBus();
+		Bus b4 = mockBus();
+		Bus c1 = mockBus();
+		GridSection slackb1 = mockSection(slack, b1, 1);
+		GridSection b1b2 = mockSection(b1, b2, 1);
+		GridSection b2b3 = mockSection(b2, b3, 1);
+		GridSection b3b4 = mockSection(b3, b4, 1);
+		GridSection b1c1 = mockSection(b1, c1, 1);
+		when(delegate.getShortestRoute(slack, b4)).thenReturn(new GridSection[] { slackb1, b1b2, b2b3, b3b4 });
+		when(delegate.getShortestRoute(b1, c1)).thenReturn(new GridSection[] { b1c1 });
+		when(delegate.getShortestRoute(c1, b2)).thenReturn(new GridSection[] { b1c1, b1b2 });
+
+		CachingGridNavigator navigator = new CachingGridNavigator(delegate, 10);
+		navigator.getShortestRoute(slack, b4);
+		navigator.getShortestRoute(b1, c1);
+		navigator.getShortestRoute(c1, b2);
+		assertArrayEquals(new GridSection[] { slackb1, b1b2, b2b3, b3b4 }, navigator.getShortestRoute(slack, b4));
+		assertEquals(1, navigator.getHitCount());
+		assertEquals(3, navigator.getMissCount());
+
+		/*
+		 * Only the route to b4 becomes shorter by the new cable
+		 */
+		GridSection slackb3 = mockSection(slack, b3, 1.5);
+		when(delegate.getShortestRoute(slack, b4)).thenReturn(new GridSection[] { slackb3, b3b4 });
+		navigator.cableAdded(slackb3);
+		assertEquals(2, navigator.getSize());
+		assertArrayEquals(new GridSection[] { slackb3, b3b4 }, navigator.getShortestRoute(slack, b4));
+		navigator.getShortestRoute(b1, c1);
+		navigator.getShortestRoute(c1, b2);
+		assertEquals(3, navigator.getHitCount());
+		assertEquals(4, navigator.getMissCount());
+		verify(delegate, times(1)).getShortestRoute(b1, c1);
+		verify(delegate, times(2)).getShortestRoute(slack, b4);
+
+		navigator.invalidateAll();
+		assertEquals(0, navigator.getSize());
+	}
+
+	/**
+	 * The views of an {@link OffHeapGrid} are created for every request, so
+	 * equal views have to share their routes
+	 */
+	@Test
+	public void testOffHeapViews() {
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(4, 4);
+		builder.addSection(0, 1, 1);
+		builder.addSection(1, 2, 1);
+		builder.addSection(2, 3, 1);
+		builder.addSection(1, 3, 0.5);
+		try (OffHeapGrid grid = builder.build()) {
+			CachingGridNavigator navigator = new CachingGridNavigator(new DijkstraGridNavigator(grid), 10);
+			for (int i = 0; i < 5; i++) {
+				assertArrayEquals(new GridSection[] { grid.getSection(0), grid.getSection(3) },
+						navigator.getShortestRoute(grid.getBus(0), grid.getBus(3)));
+			}
+			assertEquals(4, navigator.getHitCount());
+			assertEquals(1, navigator.getMissCount());
+			assertEquals(1, navigator.getSize());
+
+			/*
+			 * The route to bus 3 has been found before the section between
+			 * bus 1 and 3 was built, the one to bus 1 stays the same
+			 */
+			when(delegate.getShortestRoute(grid.getBus(0), grid.getBus(3))).thenReturn(
+					new GridSection[] { grid.getSection(0), grid.getSection(1), grid.getSection(2) });
+			when(delegate.getShortestRoute(grid.getBus(0), grid.getBus(1)))
+					.thenReturn(new GridSection[] { grid.getSection(0) });
+			navigator = new CachingGridNavigator(delegate, 10);
+			navigator.getShortestRoute(grid.getBus(0), grid.getBus(3));
+			navigator.getShortestRoute(grid.getBus(0), grid.getBus(1));
+			navigator.cableAdded(grid.getSection(3));
+			assertEquals(1, navigator.getSize());
+			navigator.getShortestRoute(grid.getBus(0), grid.getBus(1));
+			assertEquals(1, navigator.getHitCount());
+		}
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		Bus b1 = mockBus();
+		Bus b2 = mockBus();
+		Bus b3 = mockBus();
+		GridSection b1b2 = mockSection(b1, b2, 1);
+		GridSection b2b3 = mockSection(b2, b3, 1);
+		when(delegate.getShortestRoute(b1, b2)).thenReturn(new GridSection[] { b1b2 });
+		when(delegate.getShortestRoute(b2, b3)).thenReturn(new GridSection[] { b2b3 });
+		when(delegate.getShortestRoute(b1, b3)).thenReturn(new GridSection[] { b1b2, b2b3 });
+
+		CachingGridNavigator navigator = new CachingGridNavigator(delegate, 2);
+		navigator.getShortestRoute(b1, b2);
+		navigator.getShortestRoute(b2, b3);
+		navigator.getShortestRoute(b1, b2);
+		navigator.getShortestRoute(b1, b3);
+		assertEquals(2, navigator.getSize());
+
+		/*
+		 * b2 to b3 has been used least recently
+		 */
+		navigator.getShortestRoute(b1, b2);
+		navigator.getShortestRoute(b2, b3);
+		verify(delegate, times(1)).getShortestRoute(b1, b2);
+		verify(delegate, times(2)).getShortestRoute(b2, b3);
+	}
+
+}
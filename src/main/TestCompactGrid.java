@@ -0,0 +1,78 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompactGrid} and its views on a small radial feeder.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestCompactGrid {
+
+	private final GridGraph topology = ExampleGridsTestCases.createRadialFeeder();
+
+	private final Bus slack = topology.getBus(0);
+	private final Bus b1 = topology.getBus(1);
+	private final Bus b2 = topology.getBus(2);
+	private final Bus b3 = topology.getBus(3);
+
+	private final GridSection slackb1 = topology.getSection(0);
+	private final GridSection b1b2 = topology.getSection(1);
+	private final GridSection b2b3 = topology.getSection(2);
+
+	private CompactGrid createGrid() {
+		return new CompactGrid(topology, new double[] { 1.0, 0.97, 0.95, 0.94 }, new double[] { 0.9, 0.6, 0.3 });
+	}
+
+	@Test
+	public void testViews() {
+		CompactGrid grid = createGrid();
+		GridGraph topology = grid.getTopology();
+		Bus viewB1 = grid.getBus(topology.indexOf(b1));
+		assertEquals(0.97, viewB1.getPuVoltage(), 0.0);
+		assertEquals(2, viewB1.getConnectedPowerGridSections().size());
+		assertTrue(viewB1.getConnectedPowerGridSections().contains(grid.getSection(topology.indexOf(b1b2))));
+
+		GridSection viewB1b2 = grid.getSection(topology.indexOf(b1b2));
+		assertEquals(0.6, viewB1b2.getAbsSpecificCurrent(), 0.0);
+		assertEquals(1.0, ((WeightedGridSection) viewB1b2).getLength(), 0.0);
+		assertArrayEquals(new Bus[] { viewB1, grid.getBus(topology.indexOf(b2)) }, viewB1b2.getConnectedBuses());
+		assertEquals(topology.indexOf(b1), topology.indexOf(viewB1));
+	}
+
+	@Test
+	public void testSnapshot() {
+		when(b2.getPuVoltage()).thenReturn(0.93);
+		when(b2b3.getAbsSpecificCurrent()).thenReturn(1.2);
+		CompactGrid grid = CompactGrid.snapshot(topology);
+		assertEquals(0.93, grid.getPuVoltage(grid.getTopology().indexOf(b2)), 0.0);
+		assertEquals(1.2, grid.getAbsSpecificCurrent(grid.getTopology().indexOf(b2b3)), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfValues() {
+		new CompactGrid(topology, new double[3], new double[3]);
+	}
+
+	@Test
+	public void testFindBusesToExtendBetween() {
+		CompactGrid grid = createGrid();
+		GridGraph topology = grid.getTopology();
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+		extender.reportVoltageOverload(grid.getBus(topology.indexOf(b3)));
+		Bus[] result = extender.findBusesToExtendBetween();
+		assertTrue(result[0] == grid.getBus(topology.indexOf(b1)));
+		assertTrue(result[1] == grid.getBus(topology.indexOf(slack)));
+
+		extender.cleanUp();
+		extender.reportCurrentOverload(grid.getSection(topology.indexOf(slackb1)));
+		result = extender.findBusesToExtendBetween();
+		assertTrue(result[0] == grid.getBus(topology.indexOf(b2)));
+		assertTrue(result[1] == grid.getBus(topology.indexOf(slack)));
+	}
+
+}
@@ -0,0 +1,134 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ContractionHierarchyNavigator}, compared with a
+ * {@link DijkstraGridNavigator} on a random meshed grid.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestContractionHierarchyNavigator {
+
+	private static final int SIZE = 12;
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private final Random random = new Random(13);
+
+	private Bus mockBus() {
+		Bus bus = mock(Bus.class);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	/**
+	 * Creates a mesh of {@code SIZE x SIZE} buses with random lengths, some
+	 * sections of which are missing
+	 */
+	private GridGraph createMesh() {
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			mockBus();
+		}
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				Bus bus = buses.get(row * SIZE + column);
+				if (column + 1 < SIZE && random.nextInt(5) > 0) {
+					mockSection(bus, buses.get(row * SIZE + column + 1), 0.5 + random.nextDouble());
+				}
+				if (row + 1 < SIZE && random.nextInt(5) > 0) {
+					mockSection(bus, buses.get((row + 1) * SIZE + column), 0.5 + random.nextDouble());
+				}
+			}
+		}
+		return GridGraph.compile(buses);
+	}
+
+	/**
+	 * Compares the routes of the navigator with those found by Dijkstra's
+	 * algorithm. The lengths are random, so the shortest routes are unique.
+	 */
+	private void assertSameRoutes(GridGraph graph, ContractionHierarchyNavigator navigator) {
+		DijkstraGridNavigator expected = new DijkstraGridNavigator(graph);
+		for (int start = 0; start < buses.size(); start += 7) {
+			for (int goal = 0; goal < buses.size(); goal += 5) {
+				Bus startBus = buses.get(start);
+				Bus goalBus = buses.get(goal);
+				double distance = expected.getShortestDistance(startBus, goalBus);
+				assertEquals(distance, navigator.getShortestDistance(startBus, goalBus), 1e-9);
+				if (distance < Double.POSITIVE_INFINITY) {
+					assertArrayEquals(expected.getShortestRoute(startBus, goalBus),
+							navigator.getShortestRoute(startBus, goalBus));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGetShortestRoute() {
+		GridGraph graph = createMesh();
+		ContractionHierarchyNavigator navigator = new ContractionHierarchyNavigator(graph);
+		assertSameRoutes(graph, navigator);
+		assertEquals(0, navigator.getShortestRoute(buses.get(3), buses.get(3)).length);
+	}
+
+	@Test
+	public void testSerializedIndex() throws Exception {
+		GridGraph graph = createMesh();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(ContractionHierarchy.build(graph));
+		output.close();
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		ContractionHierarchy hierarchy = (ContractionHierarchy) input.readObject();
+		assertSameRoutes(graph, new ContractionHierarchyNavigator(graph, hierarchy));
+
+		mockSection(buses.get(0), buses.get(SIZE * SIZE - 1), 1.0);
+		try {
+			new ContractionHierarchyNavigator(GridGraph.compile(buses), hierarchy);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testExtend() {
+		GridGraph graph = createMesh();
+		ContractionHierarchyNavigator navigator = new ContractionHierarchyNavigator(graph);
+		for (int cable = 0; cable < 5; cable++) {
+			Bus first = buses.get(random.nextInt(buses.size()));
+			Bus second = buses.get(random.nextInt(buses.size()));
+			mockSection(first, second, 0.5 + random.nextDouble());
+			GridGraph extendedGraph = GridGraph.compile(buses);
+			navigator = navigator.extend(extendedGraph);
+			assertSameRoutes(extendedGraph, navigator);
+		}
+	}
+
+}
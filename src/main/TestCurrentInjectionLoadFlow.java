@@ -0,0 +1,158 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CurrentInjectionLoadFlow}, comparing it to
+ * {@link SweepLoadFlow}.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestCurrentInjectionLoadFlow {
+
+	private static final double DELTA = 1e-7;
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private LoadBus mockBus(double activePower, double reactivePower) {
+		LoadBus bus = mock(LoadBus.class);
+		when(bus.getActivePower()).thenReturn(activePower);
+		when(bus.getReactivePower()).thenReturn(reactivePower);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private ImpedanceGridSection mockSection(Bus first, Bus second, double resistance, double reactance) {
+		ImpedanceGridSection section = mock(ImpedanceGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getResistance()).thenReturn(resistance);
+		when(section.getReactance()).thenReturn(reactance);
+		when(section.getRatedCurrent()).thenReturn(0.5);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	private static void assertSameResult(CompactGrid expected, CompactGrid actual) {
+		GridGraph topology = expected.getTopology();
+		for (int i = 0; i < topology.getBusCount(); i++) {
+			assertEquals(expected.getPuVoltage(i), actual.getPuVoltage(i), DELTA);
+		}
+		for (int i = 0; i < topology.getSectionCount(); i++) {
+			assertEquals(expected.getAbsSpecificCurrent(i), actual.getAbsSpecificCurrent(i), DELTA);
+		}
+	}
+
+	@Test
+	public void testMeshedGrid() {
+		int size = 5;
+		Bus[][] grid = new Bus[size][size];
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				grid[row][column] = mockBus(row + column == 0 ? 0 : 0.01 * (1 + (row * column) % 3), 0.002);
+			}
+		}
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				if (row + 1 < size) {
+					mockSection(grid[row][column], grid[row + 1][column], 0.02, 0.005);
+				}
+				if (column + 1 < size) {
+					mockSection(grid[row][column], grid[row][column + 1], 0.03, 0.006);
+				}
+			}
+		}
+		GridGraph topology = GridGraph.compile(buses);
+		CompactGrid expected = SweepLoadFlow.of(topology, grid[0][0]).solve();
+		CompactGrid actual = CurrentInjectionLoadFlow.of(topology, grid[0][0]).solve();
+		assertSameResult(expected, actual);
+	}
+
+	@Test
+	public void testRefactor() {
+		Bus slack = mockBus(0, 0);
+		Bus b1 = mockBus(0.1, 0.02);
+		Bus b2 = mockBus(0.1, 0.02);
+		Bus b3 = mockBus(0.1, 0.02);
+		mockSection(slack, b1, 0.05, 0.01);
+		mockSection(b1, b2, 0.05, 0.01);
+		mockSection(b2, b3, 0.05, 0.01);
+		CurrentInjectionLoadFlow loadFlow = CurrentInjectionLoadFlow.of(GridGraph.compile(buses), slack);
+
+		/*
+		 * A cable in parallel to an existing one fits into the pattern
+		 */
+		mockSection(b1, b2, 0.05, 0.01);
+		GridGraph parallelTopology = GridGraph.compile(buses);
+		CurrentInjectionLoadFlow parallelLoadFlow = loadFlow.refactor(parallelTopology);
+		assertSame(loadFlow.symbolic, parallelLoadFlow.symbolic);
+		assertSameResult(SweepLoadFlow.of(parallelTopology, slack).solve(), parallelLoadFlow.solve());
+
+		/*
+		 * A cable closing a mesh needs a new pattern
+		 */
+		mockSection(b1, b3, 0.05, 0.01);
+		GridGraph meshedTopology = GridGraph.compile(buses);
+		CurrentInjectionLoadFlow meshedLoadFlow = parallelLoadFlow.refactor(meshedTopology);
+		assertNotSame(loadFlow.symbolic, meshedLoadFlow.symbolic);
+		assertSameResult(SweepLoadFlow.of(meshedTopology, slack).solve(), meshedLoadFlow.solve());
+	}
+
+	@Test
+	public void testExtend() {
+		Bus slack = mockBus(0, 0);
+		Bus b1 = mockBus(0.1, 0.02);
+		Bus b2 = mockBus(0.1, 0.02);
+		Bus b3 = mockBus(0.1, 0.02);
+		Bus b4 = mockBus(0.1, 0.02);
+		mockSection(slack, b1, 0.05, 0.01);
+		mockSection(b1, b2, 0.05, 0.01);
+		mockSection(b2, b3, 0.05, 0.01);
+		mockSection(b3, b4, 0.05, 0.01);
+		CurrentInjectionLoadFlow loadFlow = CurrentInjectionLoadFlow.of(GridGraph.compile(buses), slack);
+		CompactGrid before = loadFlow.solve();
+
+		mockSection(b1, b3, 0.08, 0.01);
+		GridGraph meshedTopology = GridGraph.compile(buses);
+		CurrentInjectionLoadFlow meshedLoadFlow = loadFlow.extend(meshedTopology);
+		assertEquals(1, meshedLoadFlow.getUpdateCount());
+		CompactGrid meshed = meshedLoadFlow.solve(before);
+		assertSameResult(CurrentInjectionLoadFlow.of(meshedTopology, slack).solve(), meshed);
+
+		mockSection(b4, slack, 0.2, 0.02);
+		GridGraph ringTopology = GridGraph.compile(buses);
+		CurrentInjectionLoadFlow ringLoadFlow = meshedLoadFlow.extend(ringTopology);
+		assertEquals(2, ringLoadFlow.getUpdateCount());
+		assertSameResult(CurrentInjectionLoadFlow.of(ringTopology, slack).solve(), ringLoadFlow.solve(meshed));
+		assertSameResult(SweepLoadFlow.of(ringTopology, slack).solve(), ringLoadFlow.solve());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testExtendWithoutNewSection() {
+		Bus slack = mockBus(0, 0);
+		Bus b1 = mockBus(0.1, 0.02);
+		mockSection(slack, b1, 0.05, 0.01);
+		GridGraph topology = GridGraph.compile(buses);
+		CurrentInjectionLoadFlow.of(topology, slack).extend(topology);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnreachableBus() {
+		Bus slack = mockBus(0, 0);
+		mockBus(0.5, 0);
+		CurrentInjectionLoadFlow.of(GridGraph.compile(buses), slack);
+	}
+
+}
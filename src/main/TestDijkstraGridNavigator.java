@@ -0,0 +1,74 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link DijkstraGridNavigator} on a small meshed grid.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestDijkstraGridNavigator {
+
+	private final Bus b0 = mock(Bus.class);
+	private final Bus b1 = mock(Bus.class);
+	private final Bus b2 = mock(Bus.class);
+	private final Bus b3 = mock(Bus.class);
+	private final Bus isolated = mock(Bus.class);
+
+	private final GridSection b0b1 = mockSection(b0, b1, 1.0);
+	private final GridSection b1b2 = mockSection(b1, b2, 1.0);
+	private final GridSection b0b3 = mockSection(b0, b3, 5.0);
+	private final GridSection b1b3 = mockSection(b1, b3, 0.5);
+	private final GridSection b3b2 = mockSection(b3, b2, 1.0);
+
+	private GridNavigator createNavigator() {
+		when(b0.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b0b1, b0b3 }));
+		when(b1.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b0b1, b1b2, b1b3 }));
+		when(b2.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b1b2, b3b2 }));
+		when(b3.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b0b3, b1b3, b3b2 }));
+		when(isolated.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[0]));
+		return new DijkstraGridNavigator(Arrays.asList(b0, b1, b2, b3, isolated));
+	}
+
+	private static GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		return section;
+	}
+
+	@Test
+	public void testGetShortestRoute() {
+		GridNavigator navigator = createNavigator();
+		assertArrayEquals(new GridSection[] { b0b1, b1b3 }, navigator.getShortestRoute(b0, b3));
+		assertArrayEquals(new GridSection[] { b1b3, b0b1 }, navigator.getShortestRoute(b3, b0));
+		assertArrayEquals(new GridSection[] { b0b1, b1b2 }, navigator.getShortestRoute(b0, b2));
+		assertArrayEquals(new GridSection[] { b3b2 }, navigator.getShortestRoute(b3, b2));
+		assertEquals(0, navigator.getShortestRoute(b2, b2).length);
+	}
+
+	@Test
+	public void testGetShortestDistance() {
+		DijkstraGridNavigator navigator = (DijkstraGridNavigator) createNavigator();
+		assertEquals(1.5, navigator.getShortestDistance(b0, b3), 1e-12);
+		assertEquals(2.0, navigator.getShortestDistance(b2, b0), 1e-12);
+		assertEquals(Double.POSITIVE_INFINITY, navigator.getShortestDistance(b0, isolated), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnreachableBus() {
+		createNavigator().getShortestRoute(b0, isolated);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownBus() {
+		createNavigator().getShortestRoute(b0, mock(Bus.class));
+	}
+
+}
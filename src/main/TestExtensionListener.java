@@ -0,0 +1,140 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.ExtensionListener.StopReason;
+import main.ExtensionListener.Traversal;
+
+/**
+ * Tests for {@link ExtensionListener}, {@link ExtensionMetrics} and
+ * {@link JfrExtensionListener} on a radial feeder of four buses, whose
+ * voltage drops from 1.0 at the slack to 0.94 at its end.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestExtensionListener {
+
+	private final GridGraph topology = ExampleGridsTestCases.createRadialFeeder(
+			new double[] { 1.0, 0.97, 0.95, 0.94 }, new double[] { 0.9, 0.6, 0.3 });
+
+	private final Bus slack = topology.getBus(0);
+	private final Bus b1 = topology.getBus(1);
+	private final Bus b2 = topology.getBus(2);
+	private final Bus b3 = topology.getBus(3);
+
+	private final GridSection slackb1 = topology.getSection(0);
+	private final GridSection b1b2 = topology.getSection(1);
+	private final GridSection b2b3 = topology.getSection(2);
+
+	/**
+	 * The thermal overload of the first section is searched up to the slack,
+	 * a local maximum, and down to b2, where eq. (6) stops the search. The
+	 * voltage bound violation at b3 is followed up to the slack.
+	 */
+	private static void assertFeederMetrics(ExtensionMetrics metrics) {
+		assertEquals(2, metrics.getTraversalCount(Traversal.CURRENT_OVERLOAD));
+		assertEquals(1, metrics.getStopCount(Traversal.CURRENT_OVERLOAD, StopReason.LOCAL_EXTREMUM));
+		assertEquals(1, metrics.getStopCount(Traversal.CURRENT_OVERLOAD, StopReason.RELIEF_CRITERION));
+		assertEquals(3, metrics.getVisitedBuses(Traversal.CURRENT_OVERLOAD));
+		assertEquals(2, metrics.getMaximumVisitedBuses(Traversal.CURRENT_OVERLOAD));
+
+		assertEquals(2, metrics.getTraversalCount(Traversal.VOLTAGE_DEVIATION));
+		assertEquals(2, metrics.getStopCount(Traversal.VOLTAGE_DEVIATION, StopReason.LOCAL_EXTREMUM));
+		assertEquals(0, metrics.getStopCount(Traversal.VOLTAGE_DEVIATION, StopReason.RELIEF_CRITERION));
+		assertEquals(5, metrics.getVisitedBuses(Traversal.VOLTAGE_DEVIATION));
+		assertEquals(4, metrics.getMaximumVisitedBuses(Traversal.VOLTAGE_DEVIATION));
+
+		assertEquals(1, metrics.getNavigatorCalls());
+		assertEquals(3, metrics.getRouteSections());
+		assertTrue(metrics.getNavigatorNanos() >= metrics.getMaximumNavigatorNanos());
+	}
+
+	private static void findExtensions(GenericLVGridExtension extender, GridSection overloadedSection,
+			Bus overloadedBus) {
+		extender.reportCurrentOverload(overloadedSection);
+		extender.findBusesToExtendBetween();
+		extender.cleanUp();
+		extender.reportVoltageOverload(overloadedBus);
+		extender.findBusesToExtendBetween();
+	}
+
+	@Test
+	public void testMetrics() {
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(topology));
+		assertSame(ExtensionListener.NONE, extender.getExtensionListener());
+		ExtensionMetrics metrics = new ExtensionMetrics();
+		extender.setExtensionListener(metrics);
+		findExtensions(extender, slackb1, b3);
+		assertFeederMetrics(metrics);
+
+		/*
+		 * The arrays of a CompactGrid are searched the same way
+		 */
+		metrics.reset();
+		assertEquals(0, metrics.getTraversalCount(Traversal.CURRENT_OVERLOAD));
+		CompactGrid grid = CompactGrid.snapshot(topology);
+		extender = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+		extender.setExtensionListener(metrics);
+		findExtensions(extender, grid.getSection(topology.indexOf(slackb1)), grid.getBus(topology.indexOf(b3)));
+		assertFeederMetrics(metrics);
+
+		extender.setExtensionListener(ExtensionListener.NONE);
+		findExtensions(extender, grid.getSection(topology.indexOf(slackb1)), grid.getBus(topology.indexOf(b3)));
+		assertEquals(2, metrics.getTraversalCount(Traversal.CURRENT_OVERLOAD));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullListener() {
+		new GenericLVGridExtension(mock(GridNavigator.class)).setExtensionListener(null);
+	}
+
+	@Test
+	public void testJfrEvents() throws IOException {
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(topology));
+		extender.setExtensionListener(new JfrExtensionListener());
+		Path file = Files.createTempFile("extension", ".jfr");
+		try {
+			Recording recording = new Recording();
+			recording.enable("main.FeederSearch");
+			recording.enable("main.NavigatorCall");
+			recording.start();
+			findExtensions(extender, slackb1, b3);
+			recording.stop();
+			recording.dump(file);
+			recording.close();
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			int reliefStops = 0;
+			int navigatorCalls = 0;
+			for (RecordedEvent event : events) {
+				if (event.getEventType().getName().equals("main.FeederSearch")
+						&& event.getString("stopReason").equals(StopReason.RELIEF_CRITERION.name())) {
+					assertEquals(Traversal.CURRENT_OVERLOAD.name(), event.getString("traversal"));
+					assertEquals(2, event.getInt("visitedBuses"));
+					reliefStops++;
+				} else if (event.getEventType().getName().equals("main.NavigatorCall")) {
+					assertEquals(3, event.getInt("routeLength"));
+					navigatorCalls++;
+				}
+			}
+			assertEquals(5, events.size());
+			assertEquals(1, reliefStops);
+			assertEquals(1, navigatorCalls);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
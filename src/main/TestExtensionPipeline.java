@@ -0,0 +1,204 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExtensionPipeline} and its {@link BoundedStage}s.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestExtensionPipeline {
+
+	private static final double[][] VOLTAGES = { { 1.0, 0.97, 0.95, 0.94 }, { 1.0, 0.95, 0.9, 0.88 },
+			{ 1.0, 0.98, 0.97, 0.96 } };
+	private static final double[][] CURRENTS = { { 1.2, 0.8, 0.3 }, { 0.9, 0.6, 0.3 }, { 0.5, 0.3, 0.1 } };
+
+	@Test
+	public void testProposals() throws InterruptedException {
+		GridGraph topology = ExampleGridsTestCases.createRadialFeeder();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ExtensionPipeline pipeline = new ExtensionPipeline(new DijkstraGridNavigator(topology), pool, 2, 4);
+			Collector<ExtensionPipeline.SnapshotProposal> collector = new Collector<ExtensionPipeline.SnapshotProposal>(
+					1);
+			pipeline.subscribe(collector);
+			SubmissionPublisher<CompactGrid> snapshots = new SubmissionPublisher<CompactGrid>(pool, 2);
+			snapshots.subscribe(pipeline);
+			int snapshotCount = 30;
+			for (int i = 0; i < snapshotCount; i++) {
+				snapshots.submit(new CompactGrid(topology, VOLTAGES[i % 3], CURRENTS[i % 3]));
+			}
+			snapshots.close();
+			assertTrue(collector.completed.await(10, TimeUnit.SECONDS));
+			assertNull(collector.error);
+
+			ScenarioBatchEvaluator evaluator = new ScenarioBatchEvaluator(topology);
+			ExtensionProposal[] expected = new ExtensionProposal[3];
+			for (int i = 0; i < 3; i++) {
+				expected[i] = evaluator.evaluateScenario(VOLTAGES[i], CURRENTS[i]);
+			}
+			assertNotNull(expected[0]);
+			assertNull(expected[2]);
+			assertEquals(snapshotCount, collector.items.size());
+			boolean[] seen = new boolean[snapshotCount];
+			for (ExtensionPipeline.SnapshotProposal result : collector.items) {
+				int sequenceNumber = (int) result.getSequenceNumber();
+				assertFalse(seen[sequenceNumber]);
+				seen[sequenceNumber] = true;
+				assertEquals(expected[sequenceNumber % 3], result.getProposal());
+				assertEquals(VOLTAGES[sequenceNumber % 3][3], result.getSnapshot().getPuVoltage(3), 0.0);
+				assertEquals(sequenceNumber % 3 == 2, result.getViolations().isEmpty());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * No more items are processed at once than allowed, even if the
+	 * subscriber is slow and only requests one result at a time
+	 */
+	@Test
+	public void testBoundedConcurrency() throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(8);
+		try {
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger maximumRunning = new AtomicInteger();
+			BoundedStage<Integer, Integer> stage = new BoundedStage<Integer, Integer>(pool, 2, 1) {
+				protected Integer process(Integer item) {
+					int nowRunning = running.incrementAndGet();
+					while (true) {
+						int maximum = maximumRunning.get();
+						if (nowRunning <= maximum || maximumRunning.compareAndSet(maximum, nowRunning)) {
+							break;
+						}
+					}
+					try {
+						Thread.sleep(2);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					return item % 2 == 0 ? item : null;
+				}
+			};
+			Collector<Integer> collector = new Collector<Integer>(1);
+			collector.delayMillis = 1;
+			stage.subscribe(collector);
+			SubmissionPublisher<Integer> items = new SubmissionPublisher<Integer>(pool, 16);
+			items.subscribe(stage);
+			for (int i = 0; i < 40; i++) {
+				items.submit(i);
+			}
+			items.close();
+			assertTrue(collector.completed.await(10, TimeUnit.SECONDS));
+			assertEquals(20, collector.items.size());
+			assertTrue(maximumRunning.get() <= 2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailure() throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			BoundedStage<Integer, Integer> stage = new BoundedStage<Integer, Integer>(pool, 1, 4) {
+				protected Integer process(Integer item) {
+					if (item == 3) {
+						throw new IllegalStateException("failed");
+					}
+					return item;
+				}
+			};
+			Collector<Integer> collector = new Collector<Integer>(Long.MAX_VALUE);
+			stage.subscribe(collector);
+			SubmissionPublisher<Integer> items = new SubmissionPublisher<Integer>(pool, 4);
+			items.subscribe(stage);
+			for (int i = 0; i < 10; i++) {
+				items.submit(i);
+			}
+			items.close();
+			assertTrue(collector.completed.await(10, TimeUnit.SECONDS));
+			assertTrue(collector.error instanceof IllegalStateException);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoConcurrency() {
+		new ExtensionPipeline(mock(GridNavigator.class), ForkJoinPool.commonPool(), 0, 1);
+	}
+
+	/**
+	 * Requests a fixed number of items at a time and records them
+	 */
+	private static class Collector<T> implements Flow.Subscriber<T> {
+
+		final List<T> items = new ArrayList<T>();
+
+		final CountDownLatch completed = new CountDownLatch(1);
+
+		final long batchSize;
+
+		volatile long delayMillis = 0;
+
+		volatile Throwable error;
+
+		private Flow.Subscription subscription;
+
+		private long remaining;
+
+		Collector(long batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			remaining = batchSize;
+			subscription.request(batchSize);
+		}
+
+		public void onNext(T item) {
+			synchronized (items) {
+				items.add(item);
+			}
+			if (delayMillis > 0) {
+				try {
+					Thread.sleep(delayMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (--remaining == 0) {
+				remaining = batchSize;
+				subscription.request(batchSize);
+			}
+		}
+
+		public void onError(Throwable throwable) {
+			error = throwable;
+			completed.countDown();
+		}
+
+		public void onComplete() {
+			completed.countDown();
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeederPartition} on a transformer bus with two radial
+ * feeders, one of which is meshed, and a bus that is not connected at all.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestFeederPartition {
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private Bus mockBus() {
+		Bus bus = mock(Bus.class);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private GridSection mockSection(Bus first, Bus second) {
+		GridSection section = mock(GridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	@Test
+	public void testSplit() {
+		Bus transformer = mockBus();
+		Bus a1 = mockBus();
+		Bus b1 = mockBus();
+		Bus a2 = mockBus();
+		Bus b2 = mockBus();
+		Bus a3 = mockBus();
+		Bus isolated = mockBus();
+		GridSection transformerA1 = mockSection(transformer, a1);
+		GridSection b1Transformer = mockSection(b1, transformer);
+		GridSection a1a2 = mockSection(a1, a2);
+		GridSection b1b2 = mockSection(b1, b2);
+		GridSection a2a3 = mockSection(a2, a3);
+		GridSection a3Transformer = mockSection(a3, transformer);
+		GridGraph topology = GridGraph.compile(buses);
+
+		FeederPartition partition = FeederPartition.split(topology, transformer);
+		assertEquals(3, partition.getFeederCount());
+		assertEquals(-1, partition.getFeederOfBus(topology.indexOf(transformer)));
+		assertEquals(0, partition.getFeederOfBus(topology.indexOf(a3)));
+		assertEquals(1, partition.getFeederOfBus(topology.indexOf(b2)));
+		assertEquals(2, partition.getFeederOfBus(topology.indexOf(isolated)));
+		assertEquals(0, partition.getFeederOfSection(topology.indexOf(transformerA1)));
+		assertEquals(0, partition.getFeederOfSection(topology.indexOf(a3Transformer)));
+		assertEquals(1, partition.getFeederOfSection(topology.indexOf(b1Transformer)));
+		assertArrayEquals(new int[] { topology.indexOf(a1), topology.indexOf(a2), topology.indexOf(a3) },
+				partition.getBuses(0));
+		assertArrayEquals(new int[] { topology.indexOf(b1Transformer), topology.indexOf(b1b2) },
+				partition.getSections(1));
+		int[] meshedSections = { topology.indexOf(transformerA1), topology.indexOf(a1a2), topology.indexOf(a2a3),
+				topology.indexOf(a3Transformer) };
+		Arrays.sort(meshedSections);
+		assertArrayEquals(meshedSections, partition.getSections(0));
+		assertEquals(0, partition.getSections(2).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownBus() {
+		mockBus();
+		FeederPartition.split(GridGraph.compile(buses), mock(Bus.class));
+	}
+
+}
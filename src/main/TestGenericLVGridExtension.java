@@ -5,7 +5,13 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * This class contains some test methods which ensure the proper working of the
@@ -106,4 +112,304 @@ public class TestGenericLVGridExtension {
 		extender.setRelieveFactorVoltage(0.0);
 	}
 
+	@Test
+	public void testVeryLongFeeder() {
+		int sectionCount = 200000;
+		FeederBus[] buses = new FeederBus[sectionCount + 1];
+		for (int i = 0; i < buses.length; i++) {
+			buses[i] = new FeederBus(1 - i / (8.0 * sectionCount));
+		}
+		FeederSection[] sections = new FeederSection[sectionCount];
+		for (int i = 0; i < sectionCount; i++) {
+			sections[i] = new FeederSection(buses[i], buses[i + 1], 1.2);
+		}
+
+		GenericLVGridExtension extender = new GenericLVGridExtension(
+				new DijkstraGridNavigator(Arrays.asList(buses)));
+		extender.reportCurrentOverload(sections[0]);
+		Bus[] result = extender.findBusesToExtendBetween();
+		assertTrue(result[0] == buses[sectionCount]);
+		assertTrue(result[1] == buses[0]);
+
+		extender.cleanUp();
+		extender.setRelieveFactorVoltage(0.5);
+		extender.reportVoltageOverload(buses[sectionCount]);
+		result = extender.findBusesToExtendBetween();
+		assertTrue(result[0] == buses[sectionCount / 2]);
+		assertTrue(result[1] == buses[0]);
+	}
+
+	@Test
+	public void testConcurrentReporting() throws InterruptedException {
+		int sectionCount = 20000;
+		Random random = new Random(42);
+		FeederBus[] buses = new FeederBus[sectionCount + 1];
+		for (int i = 0; i < buses.length; i++) {
+			buses[i] = new FeederBus(0.85 + 0.3 * random.nextDouble());
+		}
+		final List<GridSection> sections = new ArrayList<GridSection>();
+		for (int i = 0; i < sectionCount; i++) {
+			sections.add(new FeederSection(buses[i], buses[i + 1], 2 * random.nextDouble()));
+		}
+		final List<Bus> busList = Arrays.<Bus> asList(buses);
+		GridSection expectedSection = sections.get(0);
+		for (GridSection section : sections) {
+			if (section.getAbsSpecificCurrent() > expectedSection.getAbsSpecificCurrent()) {
+				expectedSection = section;
+			}
+		}
+		Bus expectedBus = buses[0];
+		for (Bus bus : buses) {
+			if (Math.abs(bus.getPuVoltage() - 1) > Math.abs(expectedBus.getPuVoltage() - 1)) {
+				expectedBus = bus;
+			}
+		}
+
+		final GenericLVGridExtension extender = new GenericLVGridExtension(mock(GridNavigator.class));
+		for (int round = 0; round < 5; round++) {
+			extender.cleanUp();
+			int threadCount = 8;
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				final long seed = round * threadCount + t;
+				threads[t] = new Thread() {
+					public void run() {
+						List<GridSection> sectionOrder = new ArrayList<GridSection>(sections);
+						List<Bus> busOrder = new ArrayList<Bus>(busList);
+						Collections.shuffle(sectionOrder, new Random(seed));
+						Collections.shuffle(busOrder, new Random(seed));
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int i = 0; i < busOrder.size(); i++) {
+							if (i < sectionOrder.size()) {
+								extender.reportCurrentOverload(sectionOrder.get(i));
+							}
+							extender.reportVoltageOverload(busOrder.get(i));
+						}
+					}
+				};
+				threads[t].start();
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertTrue(extender.getWorstOverloadCurrent() == expectedSection);
+			assertTrue(extender.getWorstOverloadVoltage() == expectedBus);
+		}
+	}
+
+	@Test
+	public void testNonInterferingExtensions() {
+		FeederBus slack = new FeederBus(1.0);
+		FeederBus a1 = new FeederBus(0.97);
+		FeederBus a2 = new FeederBus(0.95);
+		FeederBus a3 = new FeederBus(0.94);
+		FeederBus b1 = new FeederBus(0.96);
+		FeederBus b2 = new FeederBus(0.93);
+		FeederBus b3 = new FeederBus(0.91);
+		GridSection slacka1 = new FeederSection(slack, a1, 1.5);
+		GridSection a1a2 = new FeederSection(a1, a2, 1.0);
+		new FeederSection(a2, a3, 0.5);
+		GridSection slackb1 = new FeederSection(slack, b1, 1.2);
+		new FeederSection(b1, b2, 0.9);
+		new FeederSection(b2, b3, 0.4);
+
+		GenericLVGridExtension extender = new GenericLVGridExtension(mock(GridNavigator.class));
+		extender.setTrackedOverloadCount(3);
+		extender.reportCurrentOverload(a1a2);
+		extender.reportCurrentOverload(slackb1);
+		extender.reportCurrentOverload(slacka1);
+		extender.reportCurrentOverload(a1a2);
+		assertEquals(Arrays.asList(slacka1, slackb1, a1a2), extender.getReportedOverloadsCurrent());
+
+		/*
+		 * The overload of a1a2 is on the feeder already relieved by the first
+		 * extension
+		 */
+		List<Bus[]> extensions = extender.findNonInterferingExtensions();
+		assertEquals(2, extensions.size());
+		assertArrayEquals(extender.findBusesToExtendBetween(), extensions.get(0));
+		assertArrayEquals(new Bus[] { a2, slack }, extensions.get(0));
+		assertArrayEquals(new Bus[] { b2, slack }, extensions.get(1));
+
+		extender.setTrackedOverloadCount(1);
+		extender.reportCurrentOverload(slackb1);
+		extender.reportCurrentOverload(slacka1);
+		assertEquals(Arrays.asList(slacka1), extender.getReportedOverloadsCurrent());
+		assertEquals(1, extender.findNonInterferingExtensions().size());
+	}
+
+	@Test
+	public void testIndexedElements() {
+		IndexedBus slack = mockIndexedBus(3, 1.0);
+		IndexedBus a1 = mockIndexedBus(0, 0.97);
+		IndexedBus a2 = mockIndexedBus(6, 0.95);
+		IndexedBus a3 = mockIndexedBus(1, 0.94);
+		IndexedBus b1 = mockIndexedBus(5, 0.96);
+		IndexedBus b2 = mockIndexedBus(2, 0.93);
+		IndexedBus b3 = mockIndexedBus(4, 0.91);
+		IndexedGridSection slacka1 = mockIndexedSection(4, slack, a1, 1.5);
+		IndexedGridSection a1a2 = mockIndexedSection(0, a1, a2, 1.0);
+		IndexedGridSection a2a3 = mockIndexedSection(5, a2, a3, 0.5);
+		IndexedGridSection slackb1 = mockIndexedSection(2, slack, b1, 1.2);
+		IndexedGridSection b1b2 = mockIndexedSection(1, b1, b2, 0.9);
+		IndexedGridSection b2b3 = mockIndexedSection(3, b2, b3, 0.4);
+		connect(slack, slacka1, slackb1);
+		connect(a1, slacka1, a1a2);
+		connect(a2, a1a2, a2a3);
+		connect(a3, a2a3);
+		connect(b1, slackb1, b1b2);
+		connect(b2, b1b2, b2b3);
+		connect(b3, b2b3);
+		List<IndexedBus> buses = Arrays.asList(slack, a1, a2, a3, b1, b2, b3);
+
+		/*
+		 * The indices are kept, whatever the order of the buses
+		 */
+		GridGraph graph = GridGraph.compile(buses);
+		for (IndexedBus bus : buses) {
+			assertEquals(bus.getIndex(), graph.indexOf(bus));
+			assertSame(bus, graph.getBus(bus.getIndex()));
+		}
+		assertSame(b1b2, graph.getSection(1));
+		assertEquals(1, graph.indexOf(b1b2));
+		assertEquals(5, graph.getFirstBus(1));
+		assertEquals(-1, graph.indexOf(mockIndexedBus(2, 1.0)));
+
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(graph));
+		extender.setTrackedOverloadCount(3);
+		extender.reportCurrentOverload(a1a2);
+		extender.reportCurrentOverload(slackb1);
+		extender.reportCurrentOverload(slacka1);
+		List<Bus[]> extensions = extender.findNonInterferingExtensions();
+		assertEquals(2, extensions.size());
+		assertArrayEquals(new Bus[] { a2, slack }, extensions.get(0));
+		assertArrayEquals(new Bus[] { b2, slack }, extensions.get(1));
+
+		extender.cleanUp();
+		extender.reportVoltageOverload(b3);
+		assertArrayEquals(new Bus[] { b1, slack }, extender.findBusesToExtendBetween());
+		for (IndexedGridSection section : Arrays.asList(slacka1, a1a2, a2a3, slackb1, b1b2, b2b3)) {
+			verify(section, never()).getConnectedBuses();
+		}
+	}
+
+	/**
+	 * A neighbour of equal voltage lies neither up nor down the feeder, so
+	 * the searches must not move back and forth between A and B.
+	 */
+	@Test(timeout = 5000)
+	public void testEqualVoltageNeighbours() {
+		FeederBus slack = new FeederBus(1.0);
+		FeederBus a = new FeederBus(0.95);
+		FeederBus b = new FeederBus(0.95);
+		GridSection slackA = new FeederSection(slack, a, 1.5);
+		new FeederSection(a, b, 1.2);
+
+		GenericLVGridExtension extender = new GenericLVGridExtension(mock(GridNavigator.class));
+		extender.setRelieveFactorCurrent(1.0);
+		extender.reportCurrentOverload(slackA);
+		assertArrayEquals(new Bus[] { a, slack }, extender.findBusesToExtendBetween());
+
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(3, 2);
+		builder.addSection(0, 1, 1.0);
+		builder.addSection(1, 2, 1.0);
+		try (OffHeapGrid grid = builder.build()) {
+			grid.setState(new double[] { 1.0, 0.95, 0.95 }, new double[] { 1.5, 1.2 });
+			GenericLVGridExtension busByBus = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+			GenericLVGridExtension jumping = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+			jumping.setSteepestPaths(SteepestPaths.of(grid));
+			for (GenericLVGridExtension indexedExtender : Arrays.asList(busByBus, jumping)) {
+				indexedExtender.setRelieveFactorCurrent(1.0);
+				indexedExtender.reportCurrentOverload(grid.getSection(0));
+				assertArrayEquals(new Bus[] { grid.getBus(1), grid.getBus(0) },
+						indexedExtender.findBusesToExtendBetween());
+				indexedExtender.cleanUp();
+				indexedExtender.reportVoltageOverload(grid.getBus(2));
+				assertArrayEquals(new Bus[] { grid.getBus(2), grid.getBus(2) },
+						indexedExtender.findBusesToExtendBetween());
+			}
+		}
+	}
+
+	private static IndexedBus mockIndexedBus(int index, double puVoltage) {
+		IndexedBus bus = mock(IndexedBus.class);
+		when(bus.getIndex()).thenReturn(index);
+		when(bus.getPuVoltage()).thenReturn(puVoltage);
+		return bus;
+	}
+
+	private static IndexedGridSection mockIndexedSection(int index, Bus first, Bus second,
+			double absSpecificCurrent) {
+		IndexedGridSection section = mock(IndexedGridSection.class);
+		when(section.getIndex()).thenReturn(index);
+		when(section.getFirstBus()).thenReturn(first);
+		when(section.getSecondBus()).thenReturn(second);
+		when(section.getAbsSpecificCurrent()).thenReturn(absSpecificCurrent);
+		return section;
+	}
+
+	private static void connect(Bus bus, GridSection... sections) {
+		when(bus.getConnectedPowerGridSections()).thenReturn(Arrays.asList(sections));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoTrackedOverloads() {
+		new GenericLVGridExtension(mock(GridNavigator.class)).setTrackedOverloadCount(0);
+	}
+
+	/**
+	 * A bus of a feeder that is too long to be built from mocks.
+	 */
+	private static class FeederBus implements Bus {
+
+		private final double puVoltage;
+
+		private final List<GridSection> connectedSections = new ArrayList<GridSection>(2);
+
+		FeederBus(double puVoltage) {
+			this.puVoltage = puVoltage;
+		}
+
+		public double getPuVoltage() {
+			return puVoltage;
+		}
+
+		public Collection<GridSection> getConnectedPowerGridSections() {
+			return connectedSections;
+		}
+
+	}
+
+	/**
+	 * A section of a feeder that is too long to be built from mocks.
+	 */
+	private static class FeederSection implements GridSection {
+
+		private final Bus[] connectedBuses;
+
+		private final double absSpecificCurrent;
+
+		FeederSection(FeederBus first, FeederBus second, double absSpecificCurrent) {
+			this.connectedBuses = new Bus[] { first, second };
+			this.absSpecificCurrent = absSpecificCurrent;
+			first.connectedSections.add(this);
+			second.connectedSections.add(this);
+		}
+
+		public double getAbsSpecificCurrent() {
+			return absSpecificCurrent;
+		}
+
+		public Bus[] getConnectedBuses() {
+			return connectedBuses;
+		}
+
+	}
+
 }
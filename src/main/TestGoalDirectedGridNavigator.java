@@ -0,0 +1,145 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GoalDirectedGridNavigator}, compared with a
+ * {@link DijkstraGridNavigator} on a random mesh of located buses.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestGoalDirectedGridNavigator {
+
+	private static final int SIZE = 15;
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private final Random random = new Random(17);
+
+	private Bus mockBus(double x, double y) {
+		LocatedBus bus = mock(LocatedBus.class);
+		when(bus.getX()).thenReturn(x);
+		when(bus.getY()).thenReturn(y);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	/**
+	 * Creates a mesh of {@code SIZE x SIZE} buses 1 apart, connected by
+	 * sections that are up to twice as long as the straight line. Some
+	 * sections are missing.
+	 */
+	private GridGraph createMesh() {
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				mockBus(column, row);
+			}
+		}
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				Bus bus = buses.get(row * SIZE + column);
+				if (column + 1 < SIZE && random.nextInt(5) > 0) {
+					mockSection(bus, buses.get(row * SIZE + column + 1), 1 + random.nextDouble());
+				}
+				if (row + 1 < SIZE && random.nextInt(5) > 0) {
+					mockSection(bus, buses.get((row + 1) * SIZE + column), 1 + random.nextDouble());
+				}
+			}
+		}
+		return GridGraph.compile(buses);
+	}
+
+	/**
+	 * Compares the routes with those found by Dijkstra's algorithm. The
+	 * lengths are random, so the shortest routes are unique.
+	 *
+	 * @return The number of buses settled by all searches
+	 */
+	private int assertSameRoutes(GridGraph graph, GoalDirectedGridNavigator navigator) {
+		DijkstraGridNavigator expected = new DijkstraGridNavigator(graph);
+		int searchSize = 0;
+		for (int start = 0; start < buses.size(); start += 7) {
+			for (int goal = 0; goal < buses.size(); goal += 5) {
+				Bus startBus = buses.get(start);
+				Bus goalBus = buses.get(goal);
+				double distance = expected.getShortestDistance(startBus, goalBus);
+				assertEquals(distance, navigator.getShortestDistance(startBus, goalBus), 1e-9);
+				if (distance < Double.POSITIVE_INFINITY) {
+					assertArrayEquals(expected.getShortestRoute(startBus, goalBus),
+							navigator.getShortestRoute(startBus, goalBus));
+					searchSize += navigator.getLastSearchSize();
+				}
+			}
+		}
+		return searchSize;
+	}
+
+	@Test
+	public void testSearchModes() {
+		GridGraph graph = createMesh();
+		GoalDirectedGridNavigator bidirectional = new GoalDirectedGridNavigator(graph,
+				GoalDirectedGridNavigator.SearchMode.BIDIRECTIONAL);
+		assertEquals(0, bidirectional.getLandmarks().length);
+		int bidirectionalSize = assertSameRoutes(graph, bidirectional);
+
+		GoalDirectedGridNavigator goalDirected = new GoalDirectedGridNavigator(graph,
+				GoalDirectedGridNavigator.SearchMode.GOAL_DIRECTED, 4);
+		assertEquals(4, goalDirected.getLandmarks().length);
+		int goalDirectedSize = assertSameRoutes(graph, goalDirected);
+		assertTrue(goalDirectedSize < bidirectionalSize);
+
+		assertEquals(0, goalDirected.getShortestRoute(buses.get(3), buses.get(3)).length);
+		assertEquals(0, bidirectional.getShortestRoute(buses.get(3), buses.get(3)).length);
+	}
+
+	@Test
+	public void testLandmarksOnly() {
+		GridGraph graph = createMesh();
+
+		/*
+		 * A bus without coordinates switches the straight line estimate off
+		 */
+		Bus unlocated = mock(Bus.class);
+		when(unlocated.getConnectedPowerGridSections()).thenReturn(new ArrayList<GridSection>());
+		List<Bus> allBuses = new ArrayList<Bus>(buses);
+		allBuses.add(unlocated);
+		GridGraph graphWithUnlocatedBus = GridGraph.compile(allBuses);
+		GoalDirectedGridNavigator navigator = new GoalDirectedGridNavigator(graphWithUnlocatedBus,
+				GoalDirectedGridNavigator.SearchMode.GOAL_DIRECTED);
+		assertSameRoutes(graphWithUnlocatedBus, navigator);
+		assertEquals(Double.POSITIVE_INFINITY, navigator.getShortestDistance(buses.get(0), unlocated), 0);
+		try {
+			navigator.getShortestRoute(unlocated, buses.get(0));
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new GoalDirectedGridNavigator(graph, GoalDirectedGridNavigator.SearchMode.GOAL_DIRECTED, -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GridExtensionPlanner} on a radial feeder that is calculated
+ * with an {@link IncrementalGridLoadFlow}.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestGridExtensionPlanner {
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private LoadBus mockBus(double activePower) {
+		LoadBus bus = mock(LoadBus.class);
+		when(bus.getActivePower()).thenReturn(activePower);
+		when(bus.getReactivePower()).thenReturn(activePower / 5);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private ImpedanceGridSection mockSection(Bus first, Bus second) {
+		ImpedanceGridSection section = mock(ImpedanceGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getResistance()).thenReturn(0.02);
+		when(section.getReactance()).thenReturn(0.005);
+		when(section.getRatedCurrent()).thenReturn(0.2);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	/**
+	 * Creates a feeder of 8 buses whose first sections are overloaded
+	 *
+	 * @return The slack bus
+	 */
+	private Bus createFeeder() {
+		Bus slack = mockBus(0);
+		Bus previous = slack;
+		for (int i = 0; i < 8; i++) {
+			Bus bus = mockBus(0.05);
+			mockSection(previous, bus);
+			previous = bus;
+		}
+		return slack;
+	}
+
+	private final GridExtender extender = new GridExtender() {
+		public GridGraph addCable(GridGraph topology, Bus lowVoltageBus, Bus highVoltageBus) {
+			mockSection(lowVoltageBus, highVoltageBus);
+			return GridGraph.compile(buses);
+		}
+	};
+
+	@Test
+	public void testPlanUntilClean() {
+		Bus slack = createFeeder();
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		GridExtensionPlanner.PlanningResult result = planner.plan(GridGraph.compile(buses));
+
+		assertTrue(result.isClean());
+		assertFalse(result.getExtensions().isEmpty());
+		assertEquals(result.getExtensions().size(), result.getIterations());
+		CompactGrid finalState = result.getFinalState();
+		for (int i = 0; i < finalState.getTopology().getSectionCount(); i++) {
+			assertTrue(finalState.getAbsSpecificCurrent(i) <= 1.0);
+		}
+		assertEquals(8 + result.getExtensions().size(), finalState.getTopology().getSectionCount());
+
+		/*
+		 * The incremental loadflow has to give the same result as a new one
+		 */
+		CompactGrid expectedState = SweepLoadFlow.of(finalState.getTopology(), slack).solve();
+		for (int i = 0; i < finalState.getTopology().getBusCount(); i++) {
+			assertEquals(expectedState.getPuVoltage(i), finalState.getPuVoltage(i), 1e-7);
+		}
+		assertTrue(result.getPhaseNanos(GridExtensionPlanner.Phase.LOAD_FLOW) > 0);
+		assertTrue(result.getTotalNanos() >= result.getPhaseNanos(GridExtensionPlanner.Phase.LOAD_FLOW));
+	}
+
+	/**
+	 * Creates two feeders of 8 buses leaving the same slack bus
+	 *
+	 * @return The slack bus
+	 */
+	private Bus createTwoFeeders() {
+		buses.clear();
+		connectedSections.clear();
+		Bus slack = createFeeder();
+		Bus previous = slack;
+		for (int i = 0; i < 8; i++) {
+			Bus bus = mockBus(0.05);
+			mockSection(previous, bus);
+			previous = bus;
+		}
+		return slack;
+	}
+
+	@Test
+	public void testPlanPerFeeder() {
+		Bus slack = createTwoFeeders();
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		GridExtensionPlanner.PlanningResult wholeGrid = planner.plan(GridGraph.compile(buses));
+		assertTrue(wholeGrid.isClean());
+
+		slack = createTwoFeeders();
+		planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		planner.setFeederSplitBus(slack);
+		GridExtensionPlanner.PlanningResult perFeeder = planner.plan(GridGraph.compile(buses));
+		assertTrue(perFeeder.isClean());
+		assertEquals(wholeGrid.getExtensions().size(), perFeeder.getExtensions().size());
+		assertEquals(wholeGrid.getIterations(), 2 * perFeeder.getIterations());
+		CompactGrid finalState = perFeeder.getFinalState();
+		for (int i = 0; i < finalState.getTopology().getSectionCount(); i++) {
+			assertTrue(finalState.getAbsSpecificCurrent(i) <= 1.0);
+		}
+	}
+
+	/**
+	 * Several cables are built in the same round, so every proposal has to be
+	 * looked up in the topology the round has been calculated on.
+	 */
+	@Test
+	public void testSeveralExtensionsPerRound() {
+		Bus slack = createTwoFeeders();
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		GridExtensionPlanner.PlanningResult oneByOne = planner.plan(GridGraph.compile(buses));
+		assertTrue(oneByOne.isClean());
+
+		slack = createTwoFeeders();
+		planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		planner.setTrackedOverloadCount(4);
+		GridExtensionPlanner.PlanningResult severalPerRound = planner.plan(GridGraph.compile(buses));
+		assertTrue(severalPerRound.isClean());
+		assertTrue(severalPerRound.getIterations() < severalPerRound.getExtensions().size());
+		assertTrue(severalPerRound.getIterations() < oneByOne.getIterations());
+		for (Bus[] extension : severalPerRound.getExtensions()) {
+			assertTrue(buses.contains(extension[0]));
+			assertTrue(buses.contains(extension[1]));
+		}
+	}
+
+	/**
+	 * The load pulls the only other bus below the voltage bound, so the
+	 * search ends at the slack bus in both directions and proposes a cable
+	 * from the slack bus to itself.
+	 */
+	@Test
+	public void testDegenerateProposal() {
+		Bus slack = mockBus(0);
+		Bus load = mockBus(0.3);
+		ImpedanceGridSection section = mockSection(slack, load);
+		when(section.getResistance()).thenReturn(0.5);
+		when(section.getReactance()).thenReturn(0.1);
+		when(section.getRatedCurrent()).thenReturn(10.0);
+		GridExtender gridExtender = mock(GridExtender.class);
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), gridExtender);
+		GridExtensionPlanner.PlanningResult result = planner.plan(GridGraph.compile(buses));
+
+		assertTrue(result.getFinalState().getPuVoltage(1) < 0.9);
+		assertEquals(GridExtensionPlanner.StopReason.NO_PROGRESS, result.getStopReason());
+		assertEquals(0, result.getIterations());
+		assertTrue(result.getExtensions().isEmpty());
+		verifyZeroInteractions(gridExtender);
+	}
+
+	@Test
+	public void testNoProgress() {
+		Bus slack = createFeeder();
+		GridExtender uselessExtender = new GridExtender() {
+			public GridGraph addCable(GridGraph topology, Bus lowVoltageBus, Bus highVoltageBus) {
+				return topology;
+			}
+		};
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), uselessExtender);
+		GridExtensionPlanner.PlanningResult result = planner.plan(GridGraph.compile(buses));
+		assertEquals(GridExtensionPlanner.StopReason.NO_PROGRESS, result.getStopReason());
+		assertEquals(3, result.getIterations());
+
+		planner.setMaximumRoundsWithoutProgress(0);
+		result = planner.plan(GridGraph.compile(buses));
+		assertEquals(GridExtensionPlanner.StopReason.NO_PROGRESS, result.getStopReason());
+		assertEquals(1, result.getIterations());
+	}
+
+	@Test
+	public void testLimits() {
+		Bus slack = createFeeder();
+		GridExtensionPlanner planner = new GridExtensionPlanner(new IncrementalGridLoadFlow(slack), extender);
+		planner.setMaximumIterations(0);
+		GridExtensionPlanner.PlanningResult result = planner.plan(GridGraph.compile(buses));
+		assertEquals(GridExtensionPlanner.StopReason.ITERATION_LIMIT, result.getStopReason());
+		assertTrue(result.getExtensions().isEmpty());
+
+		planner.setMaximumIterations(100);
+		planner.setTimeBudgetNanos(0);
+		result = planner.plan(GridGraph.compile(buses));
+		assertEquals(GridExtensionPlanner.StopReason.TIME_BUDGET, result.getStopReason());
+		assertTrue(result.getExtensions().isEmpty());
+	}
+
+}
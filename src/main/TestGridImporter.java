@@ -0,0 +1,120 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GridImporter} on a feeder of three lines behind a
+ * transformer, whose first line is overloaded and whose end violates the
+ * lower voltage bound.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestGridImporter {
+
+	private static final String NODES = "id;type;vmMin;vmMax;subnet\n" + "MV;busbar;;;MV1\n"
+			+ "busbar;busbar;0.9;1.1;LV1\n" + "n1;node;0.9;1.1;LV1\n" + "n2;node;0.9;1.1;LV1\n"
+			+ "n3;node;0.9;1.1;LV1\n";
+
+	private static final String LINE_TYPES = "id;r;x;b;iMax;type\n" + "NAYY 4x150;0.2;0.08;0;0.27;cs\n";
+
+	private static final String LINES = "id;nodeA;nodeB;type;length;loadingMax\n"
+			+ "L1;busbar;n1;NAYY 4x150;0.1;100\n" + "L2;n1;n2;NAYY 4x150;0.1;100\n"
+			+ "L3;n2;n3;NAYY 4x150;0.1;100\n";
+
+	private static final String TRANSFORMERS = "id;nodeHV;nodeLV;type\n" + "T1;MV;busbar;0.4 MVA\n";
+
+	private static final String NODE_RESULTS = "node;vm;va\n" + "MV;1.0;0\n" + "busbar;0.99;0\n" + "n1;0.95;0\n"
+			+ "n2;0.91;0\n" + "n3;0.88;0\n";
+
+	@Test
+	public void testReadTables() throws IOException {
+		GenericLVGridExtension extension = new GenericLVGridExtension(null);
+		GridImporter importer = new GridImporter(extension);
+		importer.readNodes(new StringReader(NODES));
+		importer.readLines(new StringReader(LINES));
+		importer.readTransformers(new StringReader(TRANSFORMERS));
+		assertEquals(5, importer.getBuses().size());
+		assertEquals(4, importer.getSections().size());
+		assertEquals(Double.NaN, importer.getSection("L1").getRatedCurrent(), 0.0);
+		assertEquals(0.0, importer.getSection("T1").getLength(), 0.0);
+		assertEquals(2, importer.getBus("busbar").getConnectedPowerGridSections().size());
+		assertEquals(GridImporter.DEFAULT_MINIMUM_PU_VOLTAGE, importer.getBus("MV").getMinimumPuVoltage(), 0.0);
+		assertNull(importer.getBus("n4"));
+
+		importer.readNodeResults(new StringReader(NODE_RESULTS));
+		assertSame(importer.getBus("n3"), extension.getWorstOverloadVoltage());
+		assertNull(extension.getWorstOverloadCurrent());
+		importer.readLineResults(new StringReader("line;loading\nL1;-130\nL2;90\nL3;40\n"));
+		assertSame(importer.getSection("L1"), extension.getWorstOverloadCurrent());
+		assertEquals(1.3, importer.getSection("L1").getAbsSpecificCurrent(), 1e-12);
+
+		GenericLVGridExtension searched = new GenericLVGridExtension(
+				new DijkstraGridNavigator(importer.getBuses()));
+		searched.reportCurrentOverload(importer.getSection("L1"));
+		Bus[] extensionBuses = searched.findBusesToExtendBetween();
+		assertSame(importer.getBus("n2"), extensionBuses[0]);
+		assertSame(importer.getBus("busbar"), extensionBuses[1]);
+	}
+
+	@Test
+	public void testImportSimBench() throws IOException {
+		Path directory = Files.createTempDirectory("simbench");
+		try {
+			write(directory, "Node.csv", NODES);
+			write(directory, "LineType.csv", LINE_TYPES);
+			write(directory, "Line.csv", LINES);
+			write(directory, "Transformer.csv", TRANSFORMERS);
+			write(directory, "NodePFResult.csv", NODE_RESULTS);
+			write(directory, "LinePFResult.csv", "line;i\nL1;0.351\nL2;0.243\nL3;0.108\n");
+			GenericLVGridExtension extension = new GenericLVGridExtension(null);
+			GridImporter importer = GridImporter.importSimBench(directory, extension);
+			assertEquals(0.27, importer.getSection("L2").getRatedCurrent(), 0.0);
+			assertEquals(0.9, importer.getSection("L2").getAbsSpecificCurrent(), 1e-12);
+			assertEquals(0.91, importer.getBus("n2").getPuVoltage(), 0.0);
+			assertSame(importer.getSection("L1"), extension.getWorstOverloadCurrent());
+			assertSame(importer.getBus("n3"), extension.getWorstOverloadVoltage());
+		} finally {
+			for (String name : Arrays.asList("Node.csv", "LineType.csv", "Line.csv", "Transformer.csv",
+					"NodePFResult.csv", "LinePFResult.csv")) {
+				Files.deleteIfExists(directory.resolve(name));
+			}
+			Files.delete(directory);
+		}
+	}
+
+	private static void write(Path directory, String name, String content) throws IOException {
+		Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testManyIds() throws IOException {
+		StringBuilder nodes = new StringBuilder("\"id\",\"x\"\n");
+		for (int i = 0; i < 10000; i++) {
+			nodes.append("\"LV1.101 Bus ").append(i).append("\",").append(i).append('\n');
+		}
+		GridImporter importer = new GridImporter(',', null);
+		importer.readNodes(new StringReader(nodes.toString()));
+		assertEquals(10000, importer.getBuses().size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, importer.getBus("LV1.101 Bus " + i).getIndex());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownNode() throws IOException {
+		GridImporter importer = new GridImporter(null);
+		importer.readNodes(new StringReader(NODES));
+		importer.readLines(new StringReader("id;nodeA;nodeB;length\nL1;busbar;n4;0.1\n"));
+	}
+
+}
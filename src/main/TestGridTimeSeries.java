@@ -0,0 +1,117 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GridTimeSeries} and its evaluation by
+ * {@link ScenarioBatchEvaluator} on a day of a small radial feeder.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestGridTimeSeries {
+
+	private static final double[] NO_VIOLATION_VOLTAGES = { 1.0, 0.98, 0.97, 0.96 };
+	private static final double[] NO_VIOLATION_CURRENTS = { 0.5, 0.3, 0.1 };
+	private static final double[] OVERLOAD_VOLTAGES = { 1.0, 0.97, 0.95, 0.94 };
+	private static final double[] OVERLOAD_CURRENTS = { 1.2, 0.8, 0.3 };
+	private static final double[] UNDERVOLTAGE_VOLTAGES = { 1.0, 0.95, 0.9, 0.88 };
+	private static final double[] UNDERVOLTAGE_CURRENTS = { 0.9, 0.6, 0.3 };
+
+	/**
+	 * Hour 18 is overloaded, hour 19 a little less, and the voltage of hour 7
+	 * falls below the bound. All other hours are fine.
+	 */
+	private static GridTimeSeries createDay(GridGraph topology) {
+		GridTimeSeries day = new GridTimeSeries(topology, 24);
+		for (int hour = 0; hour < 24; hour++) {
+			day.setState(hour, NO_VIOLATION_VOLTAGES, NO_VIOLATION_CURRENTS);
+		}
+		day.setState(7, UNDERVOLTAGE_VOLTAGES, UNDERVOLTAGE_CURRENTS);
+		day.setState(18, OVERLOAD_VOLTAGES, OVERLOAD_CURRENTS);
+		day.setState(19, OVERLOAD_VOLTAGES, OVERLOAD_CURRENTS);
+		day.setAbsSpecificCurrent(19, 0, 1.1);
+		return day;
+	}
+
+	@Test
+	public void testStates() {
+		GridGraph topology = ExampleGridsTestCases.createRadialFeeder();
+		try (GridTimeSeries empty = new GridTimeSeries(topology, 24)) {
+			assertEquals(1.0, empty.getPuVoltage(5, 3), 0.0);
+			assertEquals(0.0, empty.getAbsSpecificCurrent(5, 2), 0.0);
+		}
+
+		try (GridTimeSeries day = createDay(topology)) {
+			assertEquals(0.88, day.getPuVoltage(7, 3), 0.0);
+			assertEquals(1.1, day.getAbsSpecificCurrent(19, 0), 0.0);
+			assertEquals(0.8, day.getAbsSpecificCurrent(19, 1), 0.0);
+			CompactGrid state = day.getState(18);
+			assertSame(topology, state.getTopology());
+			for (int i = 0; i < 4; i++) {
+				assertEquals(OVERLOAD_VOLTAGES[i], state.getPuVoltage(i), 0.0);
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals(OVERLOAD_CURRENTS[i], state.getAbsSpecificCurrent(i), 0.0);
+			}
+			day.setState(0, state);
+			assertEquals(1.2, day.getAbsSpecificCurrent(0, 0), 0.0);
+		}
+	}
+
+	@Test
+	public void testFindCriticalHours() {
+		try (GridTimeSeries day = createDay(ExampleGridsTestCases.createRadialFeeder())) {
+			assertEquals(0.2, day.getViolation(18, 0.9, 1.1, 1.0), 1e-12);
+			assertEquals(-0.06, day.getViolation(12, 0.9, 1.1, 1.0), 1e-12);
+			assertArrayEquals(new int[] { 18, 19, 7 }, day.findCriticalHours(0.9, 1.1, 1.0, 10));
+			assertArrayEquals(new int[] { 18, 19 }, day.findCriticalHours(0.9, 1.1, 1.0, 2));
+			assertArrayEquals(new int[] { 18, 19 }, day.findCriticalHours(0.85, 1.1, 1.0, 10));
+		}
+	}
+
+	@Test
+	public void testEvaluate() {
+		GridGraph topology = ExampleGridsTestCases.createRadialFeeder();
+		try (GridTimeSeries day = createDay(topology)) {
+			ScenarioBatchEvaluator evaluator = new ScenarioBatchEvaluator(topology);
+			int[] hours = evaluator.findCriticalHours(day, 10);
+			ScenarioBatchEvaluator.BatchResult result = evaluator.evaluate(day, hours);
+			assertEquals(3, result.getScenarioCount());
+			assertEquals(new ExtensionProposal(2, 0), result.getProposal(0));
+			assertEquals(new ExtensionProposal(1, 0), result.getProposal(2));
+			assertEquals(2, result.getRanking().get(0).getFrequency());
+			assertEquals(new ExtensionProposal(2, 0), result.getRanking().get(0).getExtension());
+		}
+	}
+
+	@Test
+	public void testClose() {
+		GridTimeSeries day = createDay(ExampleGridsTestCases.createRadialFeeder());
+		day.close();
+		day.close();
+		assertTrue(day.isClosed());
+		try {
+			day.getPuVoltage(7, 3);
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			day.findCriticalHours(0.9, 1.1, 1.0, 10);
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherTopology() {
+		try (GridTimeSeries day = createDay(ExampleGridsTestCases.createRadialFeeder())) {
+			new ScenarioBatchEvaluator(ExampleGridsTestCases.createRadialFeeder()).evaluate(day, new int[] { 18 });
+		}
+	}
+
+}
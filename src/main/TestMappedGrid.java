@@ -0,0 +1,157 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MappedGrid} on a radial feeder with a branch.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestMappedGrid {
+
+	private final Bus slack = mock(Bus.class);
+	private final Bus b1 = mock(Bus.class);
+	private final Bus b2 = mock(Bus.class);
+	private final Bus b3 = mock(Bus.class);
+	private final Bus b4 = mock(Bus.class);
+
+	private final GridSection slackb1 = mockSection(slack, b1, 1.0);
+	private final GridSection b1b2 = mockSection(b1, b2, 2.0);
+	private final GridSection b2b3 = mockSection(b2, b3, 3.0);
+	private final GridSection b1b4 = mockSection(b1, b4, 4.0);
+
+	private final Path file;
+
+	public TestMappedGrid() throws IOException {
+		file = Files.createTempFile("grid", ".lvgr");
+	}
+
+	@After
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private static GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		return section;
+	}
+
+	private CompactGrid createGrid(double[] voltageAngles) {
+		when(slack.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { slackb1 }));
+		when(b1.getConnectedPowerGridSections())
+				.thenReturn(Arrays.asList(new GridSection[] { slackb1, b1b2, b1b4 }));
+		when(b2.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b1b2, b2b3 }));
+		when(b3.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b2b3 }));
+		when(b4.getConnectedPowerGridSections()).thenReturn(Arrays.asList(new GridSection[] { b1b4 }));
+		return new CompactGrid(GridGraph.compile(Arrays.asList(slack, b1, b2, b3, b4)),
+				new double[] { 1.0, 0.97, 0.95, 0.94, 0.96 }, voltageAngles, new double[] { 1.2, 0.8, 0.3, 0.4 });
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		CompactGrid grid = createGrid(null);
+		GridGraph topology = grid.getTopology();
+		MappedGrid.write(grid, file);
+		MappedGrid mapped = MappedGrid.map(file);
+		assertEquals(5, mapped.getBusCount());
+		assertEquals(4, mapped.getSectionCount());
+		for (int i = 0; i < mapped.getBusCount(); i++) {
+			assertEquals(grid.getPuVoltage(i), mapped.getPuVoltage(i), 0.0);
+			assertEquals(0.0, mapped.getVoltageAngle(i), 0.0);
+			assertEquals(topology.getAdjacencyStart(i), mapped.getAdjacencyStart(i));
+			assertEquals(topology.getAdjacencyEnd(i), mapped.getAdjacencyEnd(i));
+		}
+		for (int i = 0; i < mapped.getSectionCount(); i++) {
+			assertEquals(grid.getAbsSpecificCurrent(i), mapped.getAbsSpecificCurrent(i), 0.0);
+			assertEquals(topology.getSectionLength(i), mapped.getSectionLength(i), 0.0);
+			assertEquals(topology.getFirstBus(i), mapped.getFirstBus(i));
+			assertEquals(topology.getSecondBus(i), mapped.getSecondBus(i));
+		}
+
+		/*
+		 * The views are the same objects every time
+		 */
+		Bus mappedB1 = mapped.getBus(topology.indexOf(b1));
+		assertSame(mappedB1, mapped.getBuses().get(topology.indexOf(b1)));
+		assertEquals(0.97, mappedB1.getPuVoltage(), 0.0);
+		assertEquals(3, mappedB1.getConnectedPowerGridSections().size());
+		GridSection mappedB1b4 = mapped.getSection(topology.indexOf(b1b4));
+		assertTrue(mappedB1.getConnectedPowerGridSections().contains(mappedB1b4));
+		assertSame(mappedB1, mappedB1b4.getConnectedBuses()[0]);
+		assertSame(mapped.getBus(topology.indexOf(b4)), mappedB1b4.getConnectedBuses()[1]);
+		assertEquals(4.0, ((WeightedGridSection) mappedB1b4).getLength(), 0.0);
+
+		CompactGrid copy = mapped.toCompactGrid(topology);
+		assertEquals(0.95, copy.getPuVoltage(topology.indexOf(b2)), 0.0);
+		assertEquals(grid.getAbsSpecificCurrent(2), copy.getAbsSpecificCurrent(2), 0.0);
+	}
+
+	@Test
+	public void testVoltageAngles() throws IOException {
+		MappedGrid.write(createGrid(new double[] { 0, -0.01, -0.02, -0.03, -0.015 }), file);
+		MappedGrid mapped = MappedGrid.map(file);
+		assertEquals(-0.03, mapped.getVoltageAngle(3), 0.0);
+		assertEquals(-0.03, mapped.toCompactGrid(createGrid(null).getTopology()).getVoltageAngle(3), 0.0);
+		assertEquals(0.94, mapped.getPuVoltage(3), 0.0);
+		assertEquals(0.3, mapped.getAbsSpecificCurrent(2), 0.0);
+	}
+
+	@Test
+	public void testFindBusesToExtendBetween() throws IOException {
+		CompactGrid grid = createGrid(null);
+		MappedGrid.write(grid, file);
+		MappedGrid mapped = MappedGrid.map(file);
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+		GenericLVGridExtension mappedExtender = new GenericLVGridExtension(
+				new DijkstraGridNavigator(mapped.getBuses()));
+		for (int i = 0; i < grid.getTopology().getBusCount(); i++) {
+			extender.cleanUp();
+			extender.reportVoltageOverload(grid.getBus(i));
+			mappedExtender.cleanUp();
+			mappedExtender.reportVoltageOverload(mapped.getBus(i));
+			assertSameIndices(grid, extender.findBusesToExtendBetween(), mapped,
+					mappedExtender.findBusesToExtendBetween());
+		}
+		for (int i = 0; i < grid.getTopology().getSectionCount(); i++) {
+			extender.cleanUp();
+			extender.reportCurrentOverload(grid.getSection(i));
+			mappedExtender.cleanUp();
+			mappedExtender.reportCurrentOverload(mapped.getSection(i));
+			assertSameIndices(grid, extender.findBusesToExtendBetween(), mapped,
+					mappedExtender.findBusesToExtendBetween());
+		}
+	}
+
+	private static void assertSameIndices(CompactGrid grid, Bus[] expected, MappedGrid mapped, Bus[] actual) {
+		for (int i = 0; i < expected.length; i++) {
+			assertSame(mapped.getBus(grid.getTopology().indexOf(expected[i])), actual[i]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedFile() throws IOException {
+		MappedGrid.write(createGrid(null), file);
+		byte[] content = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(content, content.length - 4));
+		MappedGrid.map(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoGrid() throws IOException {
+		Files.write(file, new byte[MappedGrid.HEADER_SIZE]);
+		MappedGrid.map(file);
+	}
+
+}
@@ -0,0 +1,165 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link OffHeapGrid}, copied from a small radial feeder or built
+ * section by section.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestOffHeapGrid {
+
+	private final GridGraph topology = ExampleGridsTestCases.createRadialFeeder();
+
+	private final Bus slack = topology.getBus(0);
+	private final Bus b1 = topology.getBus(1);
+	private final Bus b2 = topology.getBus(2);
+	private final Bus b3 = topology.getBus(3);
+
+	private final GridSection slackb1 = topology.getSection(0);
+	private final GridSection b1b2 = topology.getSection(1);
+	private final GridSection b2b3 = topology.getSection(2);
+
+	private CompactGrid createGrid() {
+		return new CompactGrid(topology, new double[] { 1.0, 0.97, 0.95, 0.94 }, new double[] { 0.9, 0.6, 0.3 });
+	}
+
+	@Test
+	public void testCopyOf() {
+		CompactGrid compactGrid = createGrid();
+		GridGraph topology = compactGrid.getTopology();
+		try (OffHeapGrid grid = OffHeapGrid.copyOf(compactGrid)) {
+			assertEquals(4, grid.getBusCount());
+			assertEquals(3, grid.getSectionCount());
+			assertEquals(4 * 8 + 3 * 8 * 2 + 5 * 4 + 6 * 4 * 2 + 3 * 4 * 2, grid.getOffHeapSize());
+			for (int i = 0; i < 4; i++) {
+				assertEquals(compactGrid.getPuVoltage(i), grid.getPuVoltage(i), 0.0);
+				assertEquals(topology.getAdjacencyStart(i), grid.getAdjacencyStart(i));
+				assertEquals(topology.getAdjacencyEnd(i), grid.getAdjacencyEnd(i));
+			}
+			for (int i = 0; i < 6; i++) {
+				assertEquals(topology.getAdjacentSection(i), grid.getAdjacentSection(i));
+				assertEquals(topology.getAdjacentBus(i), grid.getAdjacentBus(i));
+			}
+
+			Bus viewB1 = grid.getBus(topology.indexOf(b1));
+			assertEquals(0.97, viewB1.getPuVoltage(), 0.0);
+			assertEquals(viewB1, grid.getBus(topology.indexOf(b1)));
+			assertEquals(viewB1.hashCode(), grid.getBus(topology.indexOf(b1)).hashCode());
+			assertNotEquals(viewB1, grid.getBus(topology.indexOf(b2)));
+			GridSection viewB1b2 = grid.getSection(topology.indexOf(b1b2));
+			assertTrue(viewB1.getConnectedPowerGridSections().contains(viewB1b2));
+			assertArrayEquals(new Bus[] { viewB1, grid.getBus(topology.indexOf(b2)) }, viewB1b2.getConnectedBuses());
+			assertEquals(topology.indexOf(b1b2), grid.indexOf(viewB1b2));
+			assertEquals(-1, grid.indexOf(compactGrid.getSection(topology.indexOf(b1b2))));
+
+			grid.setAbsSpecificCurrent(topology.indexOf(b1b2), 1.1);
+			assertEquals(1.1, viewB1b2.getAbsSpecificCurrent(), 0.0);
+		}
+	}
+
+	/**
+	 * The views are created for every request, so they have to be recognised
+	 * by their index and equality when a topology is compiled from them
+	 */
+	@Test
+	public void testCompile() {
+		try (OffHeapGrid grid = OffHeapGrid.copyOf(createGrid())) {
+			GridGraph graph = GridGraph.compile(grid.getBuses());
+			assertEquals(4, graph.getBusCount());
+			assertEquals(3, graph.getSectionCount());
+			for (int i = 0; i < 4; i++) {
+				assertEquals(i, graph.indexOf(grid.getBus(i)));
+			}
+			assertEquals(1, graph.indexOf(grid.getSection(1)));
+			GridSection[] expectedRoute = { grid.getSection(2), grid.getSection(1), grid.getSection(0) };
+			GridNavigator[] navigators = { new RadialGridNavigator(graph, grid.getBus(0)),
+					new ContractionHierarchyNavigator(graph),
+					new GoalDirectedGridNavigator(graph, GoalDirectedGridNavigator.SearchMode.BIDIRECTIONAL) };
+			for (GridNavigator navigator : navigators) {
+				assertArrayEquals(expectedRoute, navigator.getShortestRoute(grid.getBus(3), grid.getBus(0)));
+			}
+		}
+	}
+
+	@Test
+	public void testFindBusesToExtendBetween() {
+		CompactGrid compactGrid = createGrid();
+		GridGraph topology = compactGrid.getTopology();
+		try (OffHeapGrid grid = OffHeapGrid.copyOf(compactGrid)) {
+			GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+			extender.reportVoltageOverload(grid.getBus(topology.indexOf(b3)));
+			Bus[] result = extender.findBusesToExtendBetween();
+			assertEquals(grid.getBus(topology.indexOf(b1)), result[0]);
+			assertEquals(grid.getBus(topology.indexOf(slack)), result[1]);
+
+			extender.cleanUp();
+			extender.setTrackedOverloadCount(2);
+			extender.reportCurrentOverload(grid.getSection(topology.indexOf(slackb1)));
+			extender.reportCurrentOverload(grid.getSection(topology.indexOf(slackb1)));
+			extender.reportCurrentOverload(grid.getSection(topology.indexOf(b2b3)));
+			assertEquals(2, extender.getReportedOverloadsCurrent().size());
+			List<Bus[]> extensions = extender.findNonInterferingExtensions();
+			assertEquals(1, extensions.size());
+			assertEquals(grid.getBus(topology.indexOf(b2)), extensions.get(0)[0]);
+			assertEquals(grid.getBus(topology.indexOf(slack)), extensions.get(0)[1]);
+		}
+	}
+
+	@Test
+	public void testBuilder() {
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(4, 3);
+		assertEquals(0, builder.addSection(2, 3, 0.5));
+		assertEquals(1, builder.addSection(0, 1, 1.0));
+		assertEquals(2, builder.addSection(1, 2, 2.0));
+		OffHeapGrid grid = builder.build();
+		assertEquals(1.0, grid.getPuVoltage(3), 0.0);
+		assertEquals(0, grid.getAdjacencyStart(0));
+		assertEquals(1, grid.getAdjacencyStart(1));
+		assertEquals(3, grid.getAdjacencyStart(2));
+		assertEquals(5, grid.getAdjacencyStart(3));
+		assertEquals(6, grid.getAdjacencyEnd(3));
+		assertEquals(1, grid.getAdjacentSection(1));
+		assertEquals(0, grid.getAdjacentBus(1));
+		assertEquals(2, grid.getAdjacentSection(2));
+		assertEquals(2, grid.getAdjacentBus(2));
+		assertArrayEquals(new int[] { 1, 2, 0 }, new DijkstraGridNavigator(grid).getShortestRoute(0, 3));
+
+		grid.setState(new double[] { 1.0, 0.98, 0.97, 0.96 }, new double[] { 0.1, 0.3, 0.2 });
+		assertEquals(0.3, grid.getSection(1).getAbsSpecificCurrent(), 0.0);
+		grid.close();
+	}
+
+	@Test
+	public void testClose() {
+		OffHeapGrid grid = OffHeapGrid.copyOf(createGrid());
+		Bus view = grid.getBus(2);
+		grid.close();
+		grid.close();
+		assertTrue(grid.isClosed());
+		try {
+			view.getPuVoltage();
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			grid.getSection(0);
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownBus() {
+		new OffHeapGrid.Builder(2, 1).addSection(0, 2, 1.0);
+	}
+
+}
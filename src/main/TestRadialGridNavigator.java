@@ -0,0 +1,110 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RadialGridNavigator}, compared with a
+ * {@link DijkstraGridNavigator} on random radial grids.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestRadialGridNavigator {
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private Bus mockBus() {
+		Bus bus = mock(Bus.class);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private GridSection mockSection(Bus first, Bus second, double length) {
+		WeightedGridSection section = mock(WeightedGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getLength()).thenReturn(length);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	@Test
+	public void testRandomTrees() {
+		Random random = new Random(7);
+		for (int tree = 0; tree < 5; tree++) {
+			buses.clear();
+			connectedSections.clear();
+			mockBus();
+			for (int i = 1; i < 60; i++) {
+				Bus parent = buses.get(random.nextInt(i));
+				mockSection(parent, mockBus(), 0.1 + random.nextDouble());
+			}
+			GridGraph graph = GridGraph.compile(buses);
+			assertTrue(RadialGridNavigator.isRadial(graph));
+			GridNavigator navigator = RadialGridNavigator.create(graph, buses.get(0));
+			assertTrue(navigator instanceof RadialGridNavigator);
+			DijkstraGridNavigator expected = new DijkstraGridNavigator(graph);
+			for (int start = 0; start < buses.size(); start += 3) {
+				for (int goal = 0; goal < buses.size(); goal += 2) {
+					assertArrayEquals(expected.getShortestRoute(buses.get(start), buses.get(goal)),
+							navigator.getShortestRoute(buses.get(start), buses.get(goal)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSeparateParts() {
+		Bus slack = mockBus();
+		Bus b1 = mockBus();
+		Bus b2 = mockBus();
+		Bus c1 = mockBus();
+		Bus c2 = mockBus();
+		GridSection slackb1 = mockSection(slack, b1, 1);
+		GridSection b1b2 = mockSection(b1, b2, 1);
+		GridSection c1c2 = mockSection(c1, c2, 2);
+
+		RadialGridNavigator navigator = new RadialGridNavigator(buses, slack);
+		assertArrayEquals(new GridSection[] { b1b2, slackb1 }, navigator.getShortestRoute(b2, slack));
+		assertArrayEquals(new GridSection[] { c1c2 }, navigator.getShortestRoute(c2, c1));
+		assertEquals(0, navigator.getShortestRoute(b1, b1).length);
+		assertEquals(2.0, navigator.getShortestDistance(slack, b2), 1e-12);
+		assertEquals(Double.POSITIVE_INFINITY, navigator.getShortestDistance(b1, c1), 0);
+		try {
+			navigator.getShortestRoute(b1, c2);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testMeshedGrid() {
+		Bus slack = mockBus();
+		Bus b1 = mockBus();
+		Bus b2 = mockBus();
+		mockSection(slack, b1, 1);
+		mockSection(b1, b2, 1);
+		mockSection(b2, slack, 1);
+		GridGraph graph = GridGraph.compile(buses);
+		assertFalse(RadialGridNavigator.isRadial(graph));
+		assertTrue(RadialGridNavigator.create(graph, slack) instanceof DijkstraGridNavigator);
+		try {
+			new RadialGridNavigator(graph, slack);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScenarioBatchEvaluator} on a small radial feeder.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestScenarioBatchEvaluator {
+
+	private static final double[] NO_VIOLATION_VOLTAGES = { 1.0, 0.98, 0.97, 0.96 };
+	private static final double[] NO_VIOLATION_CURRENTS = { 0.5, 0.3, 0.1 };
+	private static final double[] OVERLOAD_VOLTAGES = { 1.0, 0.97, 0.95, 0.94 };
+	private static final double[] OVERLOAD_CURRENTS = { 1.2, 0.8, 0.3 };
+	private static final double[] UNDERVOLTAGE_VOLTAGES = { 1.0, 0.95, 0.9, 0.88 };
+	private static final double[] UNDERVOLTAGE_CURRENTS = { 0.9, 0.6, 0.3 };
+
+	@Test
+	public void testEvaluateScenario() {
+		ScenarioBatchEvaluator evaluator = new ScenarioBatchEvaluator(ExampleGridsTestCases.createRadialFeeder());
+		assertNull(evaluator.evaluateScenario(NO_VIOLATION_VOLTAGES, NO_VIOLATION_CURRENTS));
+		assertEquals(new ExtensionProposal(2, 0), evaluator.evaluateScenario(OVERLOAD_VOLTAGES, OVERLOAD_CURRENTS));
+		assertEquals(new ExtensionProposal(1, 0),
+				evaluator.evaluateScenario(UNDERVOLTAGE_VOLTAGES, UNDERVOLTAGE_CURRENTS));
+	}
+
+	@Test
+	public void testEvaluate() {
+		ScenarioBatchEvaluator evaluator = new ScenarioBatchEvaluator(ExampleGridsTestCases.createRadialFeeder());
+		int scenarioCount = 90;
+		double[][] scenarioVoltages = new double[scenarioCount][];
+		double[][] scenarioCurrents = new double[scenarioCount][];
+		for (int i = 0; i < scenarioCount; i++) {
+			switch (i % 3) {
+			case 0:
+				scenarioVoltages[i] = NO_VIOLATION_VOLTAGES;
+				scenarioCurrents[i] = NO_VIOLATION_CURRENTS;
+				break;
+			case 1:
+				scenarioVoltages[i] = OVERLOAD_VOLTAGES;
+				scenarioCurrents[i] = OVERLOAD_CURRENTS;
+				break;
+			default:
+				scenarioVoltages[i] = i % 2 == 0 ? UNDERVOLTAGE_VOLTAGES : OVERLOAD_VOLTAGES;
+				scenarioCurrents[i] = i % 2 == 0 ? UNDERVOLTAGE_CURRENTS : OVERLOAD_CURRENTS;
+			}
+		}
+
+		ScenarioBatchEvaluator.BatchResult result = evaluator.evaluate(scenarioVoltages, scenarioCurrents);
+		assertEquals(scenarioCount, result.getScenarioCount());
+		for (int i = 0; i < scenarioCount; i++) {
+			assertEquals(evaluator.evaluateScenario(scenarioVoltages[i], scenarioCurrents[i]), result.getProposal(i));
+		}
+
+		List<ScenarioBatchEvaluator.RankedExtension> ranking = result.getRanking();
+		assertEquals(2, ranking.size());
+		assertEquals(new ExtensionProposal(0, 2), ranking.get(0).getExtension());
+		assertEquals(45, ranking.get(0).getFrequency());
+		assertEquals(new ExtensionProposal(1, 0), ranking.get(1).getExtension());
+		assertEquals(15, ranking.get(1).getFrequency());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentNumberOfVectors() {
+		new ScenarioBatchEvaluator(ExampleGridsTestCases.createRadialFeeder()).evaluate(new double[2][],
+				new double[1][]);
+	}
+
+}
@@ -0,0 +1,120 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SteepestPaths}, which have to lead
+ * {@link GenericLVGridExtension} to the same buses as the search bus by bus.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestSteepestPaths {
+
+	/**
+	 * A feeder slack - b1 - b2 - b3 with a branch b1 - b4
+	 */
+	private static OffHeapGrid createFeeder() {
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(5, 4);
+		builder.addSection(0, 1, 1.0);
+		builder.addSection(1, 2, 1.0);
+		builder.addSection(2, 3, 1.0);
+		builder.addSection(1, 4, 1.0);
+		OffHeapGrid grid = builder.build();
+		grid.setState(new double[] { 1.0, 0.97, 0.95, 0.94, 0.96 }, new double[] { 0.9, 0.6, 0.3, 0.2 });
+		return grid;
+	}
+
+	/**
+	 * A random tree whose voltages do not fall monotonously along the
+	 * feeders, so there are many local extrema
+	 */
+	private static OffHeapGrid createRandomGrid(Random random, int busCount) {
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(busCount, busCount - 1);
+		for (int i = 1; i < busCount; i++) {
+			builder.addSection(random.nextInt(i), i, 1.0);
+		}
+		OffHeapGrid grid = builder.build();
+		for (int i = 0; i < busCount; i++) {
+			grid.setPuVoltage(i, 0.85 + 0.2 * random.nextDouble());
+		}
+		for (int i = 0; i < busCount - 1; i++) {
+			grid.setAbsSpecificCurrent(i, 2 * random.nextDouble());
+		}
+		return grid;
+	}
+
+	@Test
+	public void testPaths() {
+		try (OffHeapGrid grid = createFeeder()) {
+			SteepestPaths paths = SteepestPaths.of(grid);
+			assertEquals(2, paths.getNextBus(1, false));
+			assertEquals(1, paths.getNextSection(1, false));
+			assertEquals(0, paths.getNextBus(1, true));
+			assertEquals(-1, paths.getNextBus(0, true));
+			assertEquals(-1, paths.getNextSection(3, false));
+			assertEquals(3, paths.findExtremum(0, false));
+			assertEquals(0, paths.findExtremum(3, true));
+			assertEquals(2, paths.findEnd(0, false, 0.5));
+			assertEquals(0, paths.findEnd(0, false, 1.0));
+		}
+	}
+
+	@Test
+	public void testSameExtensions() {
+		Random random = new Random(7);
+		for (int run = 0; run < 20; run++) {
+			try (OffHeapGrid grid = createRandomGrid(random, 200)) {
+				GenericLVGridExtension busByBus = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+				GenericLVGridExtension jumping = new GenericLVGridExtension(new DijkstraGridNavigator(grid));
+				jumping.setSteepestPaths(SteepestPaths.of(grid));
+				ExtensionMetrics busByBusMetrics = new ExtensionMetrics();
+				ExtensionMetrics jumpingMetrics = new ExtensionMetrics();
+				busByBus.setExtensionListener(busByBusMetrics);
+				jumping.setExtensionListener(jumpingMetrics);
+				for (int i = 0; i < grid.getSectionCount(); i++) {
+					busByBus.cleanUp();
+					jumping.cleanUp();
+					busByBus.reportCurrentOverload(grid.getSection(i));
+					jumping.reportCurrentOverload(grid.getSection(i));
+					assertArrayEquals(busByBus.findBusesToExtendBetween(), jumping.findBusesToExtendBetween());
+				}
+				for (int i = 0; i < grid.getBusCount(); i++) {
+					busByBus.cleanUp();
+					jumping.cleanUp();
+					busByBus.reportVoltageOverload(grid.getBus(i));
+					jumping.reportVoltageOverload(grid.getBus(i));
+					assertArrayEquals(busByBus.findBusesToExtendBetween(), jumping.findBusesToExtendBetween());
+				}
+				for (ExtensionListener.Traversal traversal : ExtensionListener.Traversal.values()) {
+					assertEquals(busByBusMetrics.getVisitedBuses(traversal), jumpingMetrics.getVisitedBuses(traversal));
+					for (ExtensionListener.StopReason stopReason : ExtensionListener.StopReason.values()) {
+						assertEquals(busByBusMetrics.getStopCount(traversal, stopReason),
+								jumpingMetrics.getStopCount(traversal, stopReason));
+					}
+				}
+
+				busByBus.cleanUp();
+				jumping.cleanUp();
+				busByBus.setTrackedOverloadCount(10);
+				jumping.setTrackedOverloadCount(10);
+				for (int i = 0; i < grid.getSectionCount(); i++) {
+					busByBus.reportCurrentOverload(grid.getSection(i));
+					jumping.reportCurrentOverload(grid.getSection(i));
+				}
+				List<Bus[]> expected = busByBus.findNonInterferingExtensions();
+				List<Bus[]> actual = jumping.findNonInterferingExtensions();
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertArrayEquals(expected.get(i), actual.get(i));
+				}
+			}
+		}
+	}
+
+}
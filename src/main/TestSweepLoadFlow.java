@@ -0,0 +1,150 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SweepLoadFlow} on grids that can be solved by hand.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestSweepLoadFlow {
+
+	private static final double DELTA = 1e-8;
+
+	private final List<Bus> buses = new ArrayList<Bus>();
+
+	private final List<List<GridSection>> connectedSections = new ArrayList<List<GridSection>>();
+
+	private LoadBus mockBus(double activePower) {
+		LoadBus bus = mock(LoadBus.class);
+		when(bus.getActivePower()).thenReturn(activePower);
+		List<GridSection> sections = new ArrayList<GridSection>();
+		when(bus.getConnectedPowerGridSections()).thenReturn(sections);
+		buses.add(bus);
+		connectedSections.add(sections);
+		return bus;
+	}
+
+	private ImpedanceGridSection mockSection(Bus first, Bus second, double resistance) {
+		ImpedanceGridSection section = mock(ImpedanceGridSection.class);
+		when(section.getConnectedBuses()).thenReturn(new Bus[] { first, second });
+		when(section.getResistance()).thenReturn(resistance);
+		when(section.getRatedCurrent()).thenReturn(0.5);
+		connectedSections.get(buses.indexOf(first)).add(section);
+		connectedSections.get(buses.indexOf(second)).add(section);
+		return section;
+	}
+
+	@Test
+	public void testSingleSection() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(0.5);
+		GridSection slackb1 = mockSection(slack, b1, 0.1);
+		GridGraph topology = GridGraph.compile(buses);
+		CompactGrid result = SweepLoadFlow.of(topology, slack).solve();
+
+		/*
+		 * V * (1 - V) / R = P
+		 */
+		double expectedVoltage = (1 + Math.sqrt(0.8)) / 2;
+		assertEquals(1.0, result.getPuVoltage(topology.indexOf(slack)), DELTA);
+		assertEquals(expectedVoltage, result.getPuVoltage(topology.indexOf(b1)), DELTA);
+		assertEquals(0.5 / expectedVoltage / 0.5, result.getAbsSpecificCurrent(topology.indexOf(slackb1)), DELTA);
+	}
+
+	@Test
+	public void testParallelSections() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(0.5);
+		GridSection first = mockSection(slack, b1, 0.2);
+		GridSection second = mockSection(slack, b1, 0.2);
+		GridGraph topology = GridGraph.compile(buses);
+		SweepLoadFlow loadFlow = SweepLoadFlow.of(topology, slack);
+		assertEquals(1, loadFlow.getMeshCount());
+		CompactGrid result = loadFlow.solve();
+
+		double expectedVoltage = (1 + Math.sqrt(0.8)) / 2;
+		assertEquals(expectedVoltage, result.getPuVoltage(topology.indexOf(b1)), DELTA);
+		assertEquals(0.25 / expectedVoltage / 0.5, result.getAbsSpecificCurrent(topology.indexOf(first)), DELTA);
+		assertEquals(0.25 / expectedVoltage / 0.5, result.getAbsSpecificCurrent(topology.indexOf(second)), DELTA);
+	}
+
+	@Test
+	public void testRing() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(0.6);
+		Bus b2 = mockBus(0);
+		GridSection slackb1 = mockSection(slack, b1, 0.1);
+		GridSection slackb2 = mockSection(slack, b2, 0.1);
+		GridSection b1b2 = mockSection(b1, b2, 0.1);
+		GridGraph topology = GridGraph.compile(buses);
+		CompactGrid result = SweepLoadFlow.of(topology, slack).solve();
+
+		/*
+		 * Two thirds of the current take the direct path, so
+		 * V * (1 - V) / (2 / 3 * R) = P
+		 */
+		double expectedVoltage = (1 + Math.sqrt(0.84)) / 2;
+		double current = 0.6 / expectedVoltage;
+		assertEquals(expectedVoltage, result.getPuVoltage(topology.indexOf(b1)), DELTA);
+		assertEquals(1 - 0.1 * current / 3, result.getPuVoltage(topology.indexOf(b2)), DELTA);
+		assertEquals(2 * current / 3 / 0.5, result.getAbsSpecificCurrent(topology.indexOf(slackb1)), DELTA);
+		assertEquals(current / 3 / 0.5, result.getAbsSpecificCurrent(topology.indexOf(slackb2)), DELTA);
+		assertEquals(current / 3 / 0.5, result.getAbsSpecificCurrent(topology.indexOf(b1b2)), DELTA);
+	}
+
+	@Test
+	public void testExtensionAfterLoadFlow() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(0.2);
+		Bus b2 = mockBus(0.2);
+		Bus b3 = mockBus(0.2);
+		GridSection slackb1 = mockSection(slack, b1, 0.05);
+		mockSection(b1, b2, 0.05);
+		mockSection(b2, b3, 0.05);
+		GridGraph topology = GridGraph.compile(buses);
+		CompactGrid result = SweepLoadFlow.of(topology, slack).solve();
+		assertTrue(result.getAbsSpecificCurrent(topology.indexOf(slackb1)) > 1);
+
+		GenericLVGridExtension extender = new GenericLVGridExtension(new DijkstraGridNavigator(result));
+		extender.reportCurrentOverload(result.getSection(topology.indexOf(slackb1)));
+		Bus[] busesToExtendBetween = extender.findBusesToExtendBetween();
+		assertEquals(Arrays.asList(result.getBus(topology.indexOf(b2)), result.getBus(topology.indexOf(slack))),
+				Arrays.asList(busesToExtendBetween));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnreachableBus() {
+		Bus slack = mockBus(0);
+		mockBus(0.5);
+		SweepLoadFlow.of(GridGraph.compile(buses), slack);
+	}
+
+	/**
+	 * The current of a busbar without impedance cannot be calculated
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoImpedance() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(0.5);
+		mockSection(slack, b1, 0);
+		SweepLoadFlow.of(GridGraph.compile(buses), slack);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoSolution() {
+		Bus slack = mockBus(0);
+		Bus b1 = mockBus(5);
+		mockSection(slack, b1, 0.1);
+		SweepLoadFlow.of(GridGraph.compile(buses), slack).solve();
+	}
+
+}
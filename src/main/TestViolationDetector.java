@@ -0,0 +1,123 @@
+package main;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ViolationDetector}, compared with checking every element
+ * on its own.
+ *
+ * @author Christopher Olk
+ *
+ */
+public class TestViolationDetector {
+
+	@Test
+	public void testDetect() {
+		ViolationDetector detector = new ViolationDetector(0.9, 1.1, 1.0);
+		double[] puVoltages = { 1.0, 0.89, 0.9, 1.12, Double.NaN, 0.88, 1.1 };
+		double[] absSpecificCurrents = { 0.5, 1.0, 1.3, Double.NaN, 1.3, 1.01 };
+		ViolationDetector.Violations violations = detector.detect(puVoltages, absSpecificCurrents);
+		assertFalse(violations.isEmpty());
+		assertArrayEquals(new int[] { 1, 3, 5 }, violations.getVoltageViolations());
+		assertEquals(3, violations.getVoltageViolationCount());
+		assertEquals(3, violations.getWorstVoltageViolation());
+		assertArrayEquals(new int[] { 2, 4, 5 }, violations.getCurrentViolations());
+		assertEquals(2, violations.getWorstCurrentViolation());
+
+		violations = detector.detect(new double[] { 1.0, 0.95 }, new double[] { 0.7 });
+		assertTrue(violations.isEmpty());
+		assertEquals(-1, violations.getWorstVoltageViolation());
+		assertEquals(-1, violations.getWorstCurrentViolation());
+	}
+
+	/**
+	 * Columns of several blocks, on the heap and outside of it
+	 */
+	@Test
+	public void testLargeColumns() {
+		int busCount = 10000;
+		Random random = new Random(7);
+		double[] puVoltages = new double[busCount];
+		double[] absSpecificCurrents = new double[busCount - 1];
+		OffHeapGrid.Builder builder = new OffHeapGrid.Builder(busCount, busCount - 1);
+		for (int i = 0; i < busCount; i++) {
+			puVoltages[i] = random.nextInt(100) == 0 ? 0.8 + 0.4 * random.nextDouble() : 1.0;
+			if (i > 0) {
+				absSpecificCurrents[i - 1] = random.nextInt(50) == 0 ? 2 * random.nextDouble() : 0.5;
+				builder.addSection(i - 1, i, 1.0);
+			}
+		}
+		OffHeapGrid offHeapGrid = builder.build();
+		try {
+			offHeapGrid.setState(puVoltages, absSpecificCurrents);
+			ViolationDetector detector = new ViolationDetector(0.92, 1.05, 1.0);
+			ViolationDetector.Violations violations = detector.detect(puVoltages, absSpecificCurrents);
+			ViolationDetector.Violations offHeapViolations = detector.detect(offHeapGrid);
+
+			int worstBus = -1;
+			int voltageViolationCount = 0;
+			for (int i = 0; i < busCount; i++) {
+				if (puVoltages[i] < 0.92 || puVoltages[i] > 1.05) {
+					assertEquals(i, violations.getVoltageViolations()[voltageViolationCount++]);
+					if (worstBus < 0 || Math.abs(puVoltages[i] - 1) > Math.abs(puVoltages[worstBus] - 1)) {
+						worstBus = i;
+					}
+				}
+			}
+			assertEquals(voltageViolationCount, violations.getVoltageViolationCount());
+			assertEquals(worstBus, violations.getWorstVoltageViolation());
+			int worstSection = -1;
+			int currentViolationCount = 0;
+			for (int i = 0; i < absSpecificCurrents.length; i++) {
+				if (absSpecificCurrents[i] > 1.0) {
+					assertEquals(i, violations.getCurrentViolations()[currentViolationCount++]);
+					if (worstSection < 0 || absSpecificCurrents[i] > absSpecificCurrents[worstSection]) {
+						worstSection = i;
+					}
+				}
+			}
+			assertEquals(currentViolationCount, violations.getCurrentViolationCount());
+			assertEquals(worstSection, violations.getWorstCurrentViolation());
+
+			assertArrayEquals(violations.getVoltageViolations(), offHeapViolations.getVoltageViolations());
+			assertArrayEquals(violations.getCurrentViolations(), offHeapViolations.getCurrentViolations());
+			assertEquals(worstBus, offHeapViolations.getWorstVoltageViolation());
+			assertEquals(worstSection, offHeapViolations.getWorstCurrentViolation());
+		} finally {
+			offHeapGrid.close();
+		}
+	}
+
+	@Test
+	public void testReport() {
+		CompactGrid state = new CompactGrid(ExampleGridsTestCases.createRadialFeeder(),
+				new double[] { 1.0, 0.94, 0.89, 0.87 }, new double[] { 1.4, 1.2, 0.6 });
+		ViolationDetector detector = new ViolationDetector(0.9, 1.1, 1.0);
+
+		GenericLVGridExtension extension = new GenericLVGridExtension(mock(GridNavigator.class));
+		ViolationDetector.Violations violations = detector.report(state, extension);
+		assertEquals(2, violations.getCurrentViolationCount());
+		assertSame(state.getSection(0), extension.getWorstOverloadCurrent());
+		assertSame(state.getBus(3), extension.getWorstOverloadVoltage());
+
+		extension = new GenericLVGridExtension(mock(GridNavigator.class));
+		extension.setTrackedOverloadCount(3);
+		detector.report(state, extension);
+		assertEquals(Arrays.asList(state.getSection(0), state.getSection(1)), extension.getReportedOverloadsCurrent());
+		List<Bus> expectedBuses = Arrays.asList(state.getBus(3), state.getBus(2));
+		assertEquals(expectedBuses, extension.getReportedOverloadsVoltage());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBounds() {
+		new ViolationDetector(1.1, 0.9, 1.0);
+	}
+
+}
@@ -0,0 +1,344 @@
+package main;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Finds the buses outside the voltage bounds and the thermally overloaded
+ * sections of a state and reports them to a {@link GenericLVGridExtension}
+ * in bulk, instead of checking and reporting every element on its own.
+ * <p>
+ * The columns are scanned in blocks. The violations of each block are
+ * counted first in a loop without branches, so its speed does not depend on
+ * how the values are distributed and the JIT can unroll it. Only the blocks
+ * that contain a violation are scanned a second time for its indices, while
+ * they are still in the cache, so grids with few violations are read about
+ * once. The detector is immutable and can be shared by several threads.
+ *
+ * @author Christopher Olk
+ *
+ */
+public final class ViolationDetector {
+
+	/**
+	 * The number of elements scanned at once. Columns outside the heap are
+	 * copied into an array of this size block by block.
+	 */
+	private static final int BLOCK_SIZE = 4096;
+
+	private static final int[] NO_VIOLATIONS = new int[0];
+
+	private final double lowerVoltageBound;
+
+	private final double upperVoltageBound;
+
+	private final double maximumSpecificCurrent;
+
+	/**
+	 * Constructor of {@link ViolationDetector}
+	 *
+	 * @param lowerVoltageBound
+	 *            Buses below this p.u. voltage violate the voltage bounds
+	 * @param upperVoltageBound
+	 *            Buses above this p.u. voltage violate the voltage bounds
+	 * @param maximumSpecificCurrent
+	 *            Sections with a higher absolute specific current are
+	 *            thermally overloaded
+	 * @throws IllegalArgumentException
+	 *             if the lower bound is above the upper bound
+	 */
+	public ViolationDetector(double lowerVoltageBound, double upperVoltageBound, double maximumSpecificCurrent) {
+		if (lowerVoltageBound > upperVoltageBound) {
+			throw new IllegalArgumentException("The lower voltage bound " + lowerVoltageBound
+					+ " must not be above the upper voltage bound " + upperVoltageBound);
+		}
+		this.lowerVoltageBound = lowerVoltageBound;
+		this.upperVoltageBound = upperVoltageBound;
+		this.maximumSpecificCurrent = maximumSpecificCurrent;
+	}
+
+	/**
+	 * Returns the p.u. voltage below which buses violate the bounds
+	 *
+	 * @return
+	 */
+	public double getLowerVoltageBound() {
+		return lowerVoltageBound;
+	}
+
+	/**
+	 * Returns the p.u. voltage above which buses violate the bounds
+	 *
+	 * @return
+	 */
+	public double getUpperVoltageBound() {
+		return upperVoltageBound;
+	}
+
+	/**
+	 * Returns the absolute specific current above which sections are
+	 * overloaded
+	 *
+	 * @return
+	 */
+	public double getMaximumSpecificCurrent() {
+		return maximumSpecificCurrent;
+	}
+
+	/**
+	 * Finds the violations of a state given as columns
+	 *
+	 * @param puVoltages
+	 *            The p.u. voltage of every bus
+	 * @param absSpecificCurrents
+	 *            The absolute specific current of every section
+	 * @return
+	 */
+	public Violations detect(double[] puVoltages, double[] absSpecificCurrents) {
+		return detect(DoubleBuffer.wrap(puVoltages), DoubleBuffer.wrap(absSpecificCurrents));
+	}
+
+	/**
+	 * Finds the violations of the snapshot
+	 *
+	 * @param grid
+	 * @return
+	 */
+	public Violations detect(CompactGrid grid) {
+		return detect(grid.getPuVoltageColumn(), grid.getAbsSpecificCurrentColumn());
+	}
+
+	/**
+	 * Finds the violations of the current state of the grid
+	 *
+	 * @param grid
+	 * @return
+	 */
+	public Violations detect(OffHeapGrid grid) {
+		return detect(grid.getPuVoltageColumn(), grid.getAbsSpecificCurrentColumn());
+	}
+
+	private Violations detect(DoubleBuffer puVoltages, DoubleBuffer absSpecificCurrents) {
+		int[] voltageViolations = findViolations(puVoltages, lowerVoltageBound, upperVoltageBound);
+		int[] currentViolations = findViolations(absSpecificCurrents, Double.NEGATIVE_INFINITY,
+				maximumSpecificCurrent);
+
+		/*
+		 * The worst violations are the ones the extension would keep, the
+		 * first of equally bad ones like if they were reported by index
+		 */
+		int worstVoltageViolation = -1;
+		double worstDeviation = 0;
+		for (int bus : voltageViolations) {
+			double deviation = Math.abs(puVoltages.get(bus) - 1);
+			if (worstVoltageViolation < 0 || deviation > worstDeviation) {
+				worstVoltageViolation = bus;
+				worstDeviation = deviation;
+			}
+		}
+		int worstCurrentViolation = -1;
+		double worstCurrent = 0;
+		for (int section : currentViolations) {
+			double current = absSpecificCurrents.get(section);
+			if (worstCurrentViolation < 0 || current > worstCurrent) {
+				worstCurrentViolation = section;
+				worstCurrent = current;
+			}
+		}
+		return new Violations(voltageViolations, worstVoltageViolation, currentViolations, worstCurrentViolation);
+	}
+
+	/**
+	 * Finds the elements of the column outside the bounds. Columns backed by
+	 * an array are scanned in place, all others are copied block by block.
+	 *
+	 * @return The indices of the elements in ascending order
+	 */
+	private static int[] findViolations(DoubleBuffer column, double lowerBound, double upperBound) {
+		int length = column.limit();
+		double[] block = column.hasArray() ? null : new double[Math.min(BLOCK_SIZE, length)];
+		int[] violations = NO_VIOLATIONS;
+		int violationCount = 0;
+		for (int blockStart = 0; blockStart < length; blockStart += BLOCK_SIZE) {
+			int blockLength = Math.min(BLOCK_SIZE, length - blockStart);
+			double[] values;
+			int offset;
+			if (block == null) {
+				values = column.array();
+				offset = column.arrayOffset() + blockStart;
+			} else {
+				column.position(blockStart);
+				column.get(block, 0, blockLength);
+				values = block;
+				offset = 0;
+			}
+			int blockViolationCount = countViolations(values, offset, offset + blockLength, lowerBound, upperBound);
+			if (blockViolationCount > 0) {
+				if (violationCount + blockViolationCount > violations.length) {
+					violations = Arrays.copyOf(violations,
+							Math.max(violationCount + blockViolationCount, 2 * violations.length));
+				}
+				for (int i = 0; i < blockLength; i++) {
+					double value = values[offset + i];
+					if (value < lowerBound || value > upperBound) {
+						violations[violationCount++] = blockStart + i;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(violations, violationCount);
+	}
+
+	/**
+	 * Counts the values outside the bounds. Both comparisons are evaluated
+	 * for every value, so the loop needs no branch. NaN values violate no
+	 * bound.
+	 *
+	 * @return
+	 */
+	private static int countViolations(double[] values, int from, int to, double lowerBound, double upperBound) {
+		int violationCount = 0;
+		for (int i = from; i < to; i++) {
+			double value = values[i];
+			violationCount += value < lowerBound | value > upperBound ? 1 : 0;
+		}
+		return violationCount;
+	}
+
+	/**
+	 * Finds the violations of the snapshot and reports them to the extension.
+	 * If the extension only tracks one overload of each kind, only the worst
+	 * violations are reported, as the extension would keep only them anyway.
+	 *
+	 * @param grid
+	 * @param extension
+	 * @return The violations found
+	 */
+	public Violations report(CompactGrid grid, GenericLVGridExtension extension) {
+		Violations violations = detect(grid);
+		report(grid, violations, extension);
+		return violations;
+	}
+
+	/**
+	 * Finds the violations of the current state of the grid and reports them
+	 * to the extension, like {@link #report(CompactGrid, GenericLVGridExtension)}
+	 *
+	 * @param grid
+	 * @param extension
+	 * @return The violations found
+	 */
+	public Violations report(OffHeapGrid grid, GenericLVGridExtension extension) {
+		Violations violations = detect(grid);
+		report(grid, violations, extension);
+		return violations;
+	}
+
+	private static void report(IndexedGrid grid, Violations violations, GenericLVGridExtension extension) {
+		if (extension.getTrackedOverloadCount() == 1) {
+			if (violations.worstCurrentViolation >= 0) {
+				extension.reportCurrentOverload(grid.getSection(violations.worstCurrentViolation));
+			}
+			if (violations.worstVoltageViolation >= 0) {
+				extension.reportVoltageOverload(grid.getBus(violations.worstVoltageViolation));
+			}
+			return;
+		}
+		for (int section : violations.currentViolations) {
+			extension.reportCurrentOverload(grid.getSection(section));
+		}
+		for (int bus : violations.voltageViolations) {
+			extension.reportVoltageOverload(grid.getBus(bus));
+		}
+	}
+
+	/**
+	 * The violations of a state
+	 */
+	public static final class Violations {
+
+		private final int[] voltageViolations;
+
+		private final int worstVoltageViolation;
+
+		private final int[] currentViolations;
+
+		private final int worstCurrentViolation;
+
+		private Violations(int[] voltageViolations, int worstVoltageViolation, int[] currentViolations,
+				int worstCurrentViolation) {
+			this.voltageViolations = voltageViolations;
+			this.worstVoltageViolation = worstVoltageViolation;
+			this.currentViolations = currentViolations;
+			this.worstCurrentViolation = worstCurrentViolation;
+		}
+
+		/**
+		 * Checks whether no bound is violated
+		 *
+		 * @return
+		 */
+		public boolean isEmpty() {
+			return voltageViolations.length == 0 && currentViolations.length == 0;
+		}
+
+		/**
+		 * Returns the buses outside the voltage bounds
+		 *
+		 * @return The indices of the buses in ascending order
+		 */
+		public int[] getVoltageViolations() {
+			return voltageViolations.clone();
+		}
+
+		/**
+		 * Returns the number of buses outside the voltage bounds
+		 *
+		 * @return
+		 */
+		public int getVoltageViolationCount() {
+			return voltageViolations.length;
+		}
+
+		/**
+		 * Returns the bus whose voltage deviates most from 1 p.u., like
+		 * {@link GenericLVGridExtension#reportVoltageOverload(Bus)} compares
+		 * the buses
+		 *
+		 * @return The index of the bus or -1 if no voltage bound is violated
+		 */
+		public int getWorstVoltageViolation() {
+			return worstVoltageViolation;
+		}
+
+		/**
+		 * Returns the thermally overloaded sections
+		 *
+		 * @return The indices of the sections in ascending order
+		 */
+		public int[] getCurrentViolations() {
+			return currentViolations.clone();
+		}
+
+		/**
+		 * Returns the number of thermally overloaded sections
+		 *
+		 * @return
+		 */
+		public int getCurrentViolationCount() {
+			return currentViolations.length;
+		}
+
+		/**
+		 * Returns the section with the highest specific current of the
+		 * overloaded ones
+		 *
+		 * @return The index of the section or -1 if no section is overloaded
+		 */
+		public int getWorstCurrentViolation() {
+			return worstCurrentViolation;
+		}
+
+	}
+
+}
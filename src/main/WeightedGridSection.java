@@ -0,0 +1,22 @@
+package main;
+
+/**
+ * A {@link GridSection} with a length, which the {@link GridNavigator}s use
+ * to find the shortest route between two {@link Bus}es. Sections that are
+ * not weighted count as a length of 1 each, so the routes with the fewest
+ * sections are found for them.
+ * 
+ * @author Christopher Olk
+ *
+ */
+public interface WeightedGridSection extends GridSection {
+
+	/**
+	 * Returns the length of the grid section. All sections of a grid have to
+	 * use the same unit of length.
+	 * 
+	 * @return
+	 */
+	public double getLength();
+
+}